@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2024 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -2524,6 +2524,10 @@ public interface OdeMessages extends Messages, ComponentTranslations {
   @Description("")
   String waitingForBarcode();
 
+  @DefaultMessage("Waiting for the build server ({0} in line)")
+  @Description("Shown while the build waits in the build server's queue. {0} is its position.")
+  String waitingInBuildQueue(int position);
+
   @DefaultMessage("Preparing application icon")
   @Description("")
   String preparingApplicationIcon();
@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2012 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -16,11 +16,16 @@ import com.google.appinventor.client.editor.youngandroid.YailGenerationException
 import com.google.appinventor.client.explorer.project.Project;
 import com.google.appinventor.client.settings.project.ProjectSettings;
 import com.google.appinventor.shared.rpc.BlocksTruncatedException;
+import com.google.appinventor.shared.rpc.project.ChecksumedFileException;
+import com.google.appinventor.shared.rpc.project.ChecksumedLoadFile;
 import com.google.appinventor.shared.rpc.project.FileDescriptorWithContent;
+import com.google.appinventor.shared.rpc.project.FilePatch;
+import com.google.appinventor.shared.rpc.project.FilePatchConflictException;
 import com.google.appinventor.shared.rpc.project.ProjectRootNode;
 import com.google.common.collect.Maps;
 import com.google.gwt.user.client.Command;
 import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.rpc.AsyncCallback;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -67,6 +72,21 @@ public final class EditorManager {
     long projectId;
   }
 
+  // The content of a file as the server has it, against which the next save
+  // of the file is sent as a patch.
+  private static class SavedFile {
+    final String content;
+    String checksum;  // computed when first needed
+
+    SavedFile(String content, String checksum) {
+      this.content = content;
+      this.checksum = checksum;
+    }
+  }
+
+  // Map of "projectId:fileId" to the version of the file saved on the server
+  private final Map<String, SavedFile> savedFiles = new HashMap<String, SavedFile>();
+
   /**
    * Creates the editor manager.
    */
@@ -93,6 +113,19 @@ public final class EditorManager {
     };
   }
 
+  /**
+   * Records the content of a file as it was loaded from the server, so that
+   * the next save of the file only sends the changes made to it.
+   *
+   * @param projectId  the project ID
+   * @param fileId  the file ID
+   * @param content  the loaded content
+   * @param checksum  the checksum of the loaded content
+   */
+  public void setSavedContent(long projectId, String fileId, String content, String checksum) {
+    savedFiles.put(projectId + ":" + fileId, new SavedFile(content, checksum));
+  }
+
   /**
    * Opens the project editor for the given project.
    * If there is an editor already open for the project, it will be returned.
@@ -153,6 +186,7 @@ public final class EditorManager {
         if (fileEditor != null) {
           dirtyFileEditors.remove(fileEditor);
         }
+        savedFiles.remove(projectId + ":" + fileId);
       }
       projectEditor.closeFileEditors(fileIds);
     }
@@ -172,6 +206,7 @@ public final class EditorManager {
     ProjectSettings projectSettings = project.getSettings();
     dirtyProjectSettings.remove(projectSettings);
     openProjectEditors.remove(projectId);
+    savedFiles.keySet().removeIf(key -> key.startsWith(projectId + ":"));
   }
 
   /**
@@ -395,51 +430,99 @@ public final class EditorManager {
         final long projectId = fileDescriptor.getProjectId();
         final String fileId = fileDescriptor.getFileId();
         final String content = fileDescriptor.getContent();
-        Ode.CLog("Saving fileId " + fileId + " for projectId " + projectId);
-        Ode.getInstance().getProjectService().save2(Ode.getInstance().getSessionId(),
-          projectId, fileId, false, content, new OdeAsyncCallback<Long>(MESSAGES.saveErrorMultipleFiles()) {
-            @Override
-            public void onSuccess(Long date) {
-              if (dateHolder.date != 0) {
-                // This sets the project modification time to that of one of
-                // the successful file saves. It doesn't really matter which
-                // file date we use, they will all be close. However it is important
-                // to use some files date because that will be based on the server's
-                // time. If we used the local clients time, then we may be off if the
-                // client's computer's time isn't set correctly.
-                dateHolder.date = date;
-                dateHolder.projectId = projectId;
-              }
-              if (afterSavingFiles != null) {
-                afterSavingFiles.execute();
-              }
+        final String savedFileKey = projectId + ":" + fileId;
+        // Until this save succeeds, we don't know which version the server has.
+        final SavedFile savedFile = savedFiles.remove(savedFileKey);
+        final OdeAsyncCallback<Long> callback =
+            new OdeAsyncCallback<Long>(MESSAGES.saveErrorMultipleFiles()) {
+          @Override
+          public void onSuccess(Long date) {
+            savedFiles.put(savedFileKey, new SavedFile(content, null));
+            if (dateHolder.date != 0) {
+              // This sets the project modification time to that of one of
+              // the successful file saves. It doesn't really matter which
+              // file date we use, they will all be close. However it is important
+              // to use some files date because that will be based on the server's
+              // time. If we used the local clients time, then we may be off if the
+              // client's computer's time isn't set correctly.
+              dateHolder.date = date;
+              dateHolder.projectId = projectId;
             }
-            @Override
-            public void onFailure(Throwable caught) {
-              // Here is where we handle BlocksTruncatedException
-              if (caught instanceof BlocksTruncatedException) {
-                Ode.getInstance().blocksTruncatedDialog(projectId, fileId, content, this);
-              } else {
-                // We mark the file editor as dirty again because the save failed.
-                //
-                // Note: I considered re-scheduling the auto-save and decided against
-                // it. One reason we might be getting errors is due to a problem with
-                // the server. If a lot of clients start re-scheduling saves, this might
-                // make the situation worse due to the "thundering Herd!" So we compromise
-                // we mark the editors as dirty, so the next update by the user to any
-                // file will retry all of the non-saved files. The "Save Project" menu
-                // item will also re-attempt the failed I/O
-                if (pendingFileEditors.containsKey(fileId)) {
-                  dirtyFileEditors.add(pendingFileEditors.get(fileId));
-                }
-                super.onFailure(caught);
-              }
-              if (afterSavingFiles != null) { // Need to call this to decrement the count
-                afterSavingFiles.execute();   // of files saved (or not in this case)
+            if (afterSavingFiles != null) {
+              afterSavingFiles.execute();
+            }
+          }
+          @Override
+          public void onFailure(Throwable caught) {
+            // Here is where we handle BlocksTruncatedException
+            if (caught instanceof BlocksTruncatedException) {
+              Ode.getInstance().blocksTruncatedDialog(projectId, fileId, content, this);
+            } else {
+              // We mark the file editor as dirty again because the save failed.
+              //
+              // Note: I considered re-scheduling the auto-save and decided against
+              // it. One reason we might be getting errors is due to a problem with
+              // the server. If a lot of clients start re-scheduling saves, this might
+              // make the situation worse due to the "thundering Herd!" So we compromise
+              // we mark the editors as dirty, so the next update by the user to any
+              // file will retry all of the non-saved files. The "Save Project" menu
+              // item will also re-attempt the failed I/O
+              if (pendingFileEditors.containsKey(fileId)) {
+                dirtyFileEditors.add(pendingFileEditors.get(fileId));
               }
+              super.onFailure(caught);
             }
-          });
+            if (afterSavingFiles != null) { // Need to call this to decrement the count
+              afterSavingFiles.execute();   // of files saved (or not in this case)
+            }
+          }
+        };
+        FilePatch patch = makePatch(savedFile, content);
+        if (patch == null) {
+          Ode.CLog("Saving fileId " + fileId + " for projectId " + projectId);
+          Ode.getInstance().getProjectService().save2(Ode.getInstance().getSessionId(),
+              projectId, fileId, false, content, callback);
+        } else {
+          Ode.CLog("Saving patch of fileId " + fileId + " for projectId " + projectId);
+          Ode.getInstance().getProjectService().savePatch(Ode.getInstance().getSessionId(),
+              projectId, fileId, false, patch, new AsyncCallback<Long>() {
+                @Override
+                public void onSuccess(Long date) {
+                  callback.onSuccess(date);
+                }
+                @Override
+                public void onFailure(Throwable caught) {
+                  if (caught instanceof FilePatchConflictException) {
+                    // The file was saved from somewhere else, so send all of it.
+                    Ode.getInstance().getProjectService().save2(Ode.getInstance().getSessionId(),
+                        projectId, fileId, false, content, callback);
+                  } else {
+                    callback.onFailure(caught);
+                  }
+                }
+              });
+        }
+      }
+    }
+  }
+
+  /**
+   * Makes the patch that turns the version of a file saved on the server into
+   * {@code content}.
+   *
+   * @return the patch, or null if the whole file must be sent
+   */
+  private static FilePatch makePatch(SavedFile savedFile, String content) {
+    if (savedFile == null) {
+      return null;
+    }
+    if (savedFile.checksum == null) {
+      try {
+        savedFile.checksum = ChecksumedLoadFile.computeChecksum(savedFile.content);
+      } catch (ChecksumedFileException e) {
+        return null;
       }
     }
+    return FilePatch.diff(savedFile.checksum, savedFile.content, content);
   }
 }
@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2017 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 package com.google.appinventor.client.explorer.commands;
@@ -16,7 +16,6 @@ import com.google.appinventor.client.explorer.dialogs.ProgressBarDialogBox;
 import com.google.appinventor.shared.rpc.RpcResult;
 import com.google.appinventor.shared.rpc.project.ProjectNode;
 import com.google.gwt.i18n.client.DateTimeFormat;
-import com.google.gwt.user.client.Timer;
 
 /**
  * Command for displaying a barcode for the target of a project.
@@ -37,7 +36,12 @@ public class ShowProgressBarCommand extends ChainableCommand {
   private String target;
   private ChainableCommand nextCommand;
   private final String buildRequestTime;
-  private static final int WAIT_INTERVAL_MILLIS = 5000;
+  // After this many waits without news, read the build result even though the server
+  // saw no change, in case the progress reports were lost
+  private static final int WAITS_PER_FULL_CHECK = 3;
+  private int unchangedWaits = 0;
+  // The progress last reported by the server
+  private int lastProgress = 0;
   private ProjectNode projectNode;
   private ProgressBarDialogBox minPB;
   private String serviceName;
@@ -83,15 +87,17 @@ public class ShowProgressBarCommand extends ChainableCommand {
           if (result.succeeded()) {
             minPB.hide();
           } else if (inProgress && progressBarShow != 2) {
-            // Build isn't done yet
-            Timer timer = new Timer() {
-                @Override
-                  public void run() {
-                  execute(node);
-                }
-              };
-            // TODO(user): Maybe do an exponential backoff here.
-            timer.schedule(WAIT_INTERVAL_MILLIS);
+            // Build isn't done yet. The server only answers once the progress changed or it
+            // waited for a while, so ask again right away.
+            int progress = lastProgress;
+            try {
+              progress = Integer.parseInt(result.getOutput());
+            } catch (NumberFormatException e) {
+              // Keep the last progress
+            }
+            unchangedWaits = progress == lastProgress ? unchangedWaits + 1 : 0;
+            lastProgress = progress;
+            execute(node);
           }
         }
 
@@ -101,7 +107,13 @@ public class ShowProgressBarCommand extends ChainableCommand {
           executionFailedOrCanceled();
         }
     };
-    ode.getProjectService().getBuildResult(node.getProjectId(), target, callback);
+    if (unchangedWaits >= WAITS_PER_FULL_CHECK) {
+      unchangedWaits = 0;
+      ode.getProjectService().getBuildResult(node.getProjectId(), target, callback);
+    } else {
+      ode.getProjectService().waitForBuildResult(node.getProjectId(), target, lastProgress,
+          callback);
+    }
   }
 
   /**
@@ -128,7 +140,10 @@ public class ShowProgressBarCommand extends ChainableCommand {
       try {
         currentProgress = Math.max(currentProgress,
             Integer.parseInt(result.getOutput()));
-        if (currentProgress <= 10) {
+        int queuePosition = getQueuePosition(result);
+        if (queuePosition > 0) {
+          labelContent = "<br />" + MESSAGES.waitingInBuildQueue(queuePosition);
+        } else if (currentProgress <= 10) {
           labelContent = "<br />" + MESSAGES.preparingApplicationIcon();
         } else if (currentProgress < 15) {
           labelContent = "<br />" + MESSAGES.determiningPermissions();
@@ -165,4 +180,18 @@ public class ShowProgressBarCommand extends ChainableCommand {
     return success;
   }
 
+  /**
+   * Returns the position of the build in the build server's queue, or 0 if it isn't queued.
+   */
+  private static int getQueuePosition(RpcResult result) {
+    if (result.getExtra() == null) {
+      return 0;
+    }
+    try {
+      return Integer.parseInt(result.getExtra());
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
 }
@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2012 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -24,7 +24,6 @@ import com.google.gwt.json.client.JSONObject;
 import com.google.gwt.json.client.JSONParser;
 import com.google.gwt.json.client.JSONString;
 import com.google.gwt.json.client.JSONValue;
-import com.google.gwt.user.client.Timer;
 
 import java.util.Date;
 import java.util.logging.Logger;
@@ -39,8 +38,12 @@ public class WaitForBuildResultCommand extends ChainableCommand {
 
   // The build target
   private final String target;
-  private static final int WAIT_INTERVAL_MILLIS = 10000;
+  // After this many waits without news, read the build result even though the server
+  // saw no change, in case the progress reports were lost
+  private static final int WAITS_PER_FULL_CHECK = 3;
   private final String buildRequestTime;
+  private int lastProgress = 0;
+  private int unchangedWaits = 0;
 
   /**
    * Creates a new WaitForBuildResultCommand.
@@ -110,15 +113,12 @@ public class WaitForBuildResultCommand extends ChainableCommand {
           }
           executionFailedOrCanceled();
         } else {
-          // Build isn't done yet
-          Timer timer = new Timer() {
-            @Override
-            public void run() {
-              execute(node);
-            }
-          };
-          // TODO(user): Maybe do an exponential backoff here.
-          timer.schedule(WAIT_INTERVAL_MILLIS);
+          // Build isn't done yet. The server only answers once the progress changed or it
+          // waited for a while, so ask again right away.
+          int progress = parseProgress(result, lastProgress);
+          unchangedWaits = progress == lastProgress ? unchangedWaits + 1 : 0;
+          lastProgress = progress;
+          execute(node);
         }
       }
 
@@ -129,7 +129,21 @@ public class WaitForBuildResultCommand extends ChainableCommand {
       }
     };
 
-    ode.getProjectService().getBuildResult(node.getProjectId(), target, callback);
+    if (unchangedWaits >= WAITS_PER_FULL_CHECK) {
+      unchangedWaits = 0;
+      ode.getProjectService().getBuildResult(node.getProjectId(), target, callback);
+    } else {
+      ode.getProjectService().waitForBuildResult(node.getProjectId(), target, lastProgress,
+          callback);
+    }
+  }
+
+  private static int parseProgress(RpcResult result, int defaultProgress) {
+    try {
+      return Integer.parseInt(result.getOutput());
+    } catch (NumberFormatException e) {
+      return defaultProgress;
+    }
   }
 
   private static YoungAndroidBlocksNode findBlocksNode(YoungAndroidProjectNode projectRootNode,
@@ -1,5 +1,5 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2024 MIT, All rights reserved
+// Copyright 2024-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -37,6 +37,8 @@ import com.google.appinventor.shared.rpc.RpcResult;
 import com.google.appinventor.shared.rpc.project.ChecksumedLoadFile;
 import com.google.appinventor.shared.rpc.project.FileDescriptor;
 import com.google.appinventor.shared.rpc.project.FileDescriptorWithContent;
+import com.google.appinventor.shared.rpc.project.FilePatch;
+import com.google.appinventor.shared.rpc.project.FilePatchConflictException;
 import com.google.appinventor.shared.rpc.project.NewProjectParameters;
 import com.google.appinventor.shared.rpc.project.ProjectNode;
 import com.google.appinventor.shared.rpc.project.ProjectRootNode;
@@ -457,6 +459,26 @@ public class LocalProjectService implements ProjectServiceAsync {
     callback.onSuccess(System.currentTimeMillis());
   }
 
+  @Override
+  public void savePatch(String sessionId, long projectId, String fileId, boolean force,
+      FilePatch patch, AsyncCallback<Long> callback) {
+    ArrayBuffer buffer = contents.get(projectId + ":" + fileId);
+    String content;
+    try {
+      if (buffer == null) {
+        throw new FilePatchConflictException("File not found");
+      }
+      content = new TextDecoder("utf-8").decode(buffer);
+      if (!ChecksumedLoadFile.computeChecksum(content).equals(patch.getBaseChecksum())) {
+        throw new FilePatchConflictException("File changed since it was loaded");
+      }
+    } catch (Exception e) {
+      callback.onFailure(e);
+      return;
+    }
+    save2(sessionId, projectId, fileId, force, patch.apply(content), callback);
+  }
+
   @Override
   public void save(String sessionId, List<FileDescriptorWithContent> filesAndContent,
       AsyncCallback<Long> callback) {
@@ -484,6 +506,12 @@ public class LocalProjectService implements ProjectServiceAsync {
 
   }
 
+  @Override
+  public void waitForBuildResult(long projectId, String target, int lastProgress,
+      AsyncCallback<RpcResult> callback) {
+
+  }
+
   @Override
   public void addFile(long projectId, String fileId, AsyncCallback<Long> callback) {
 
@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2024 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -2200,6 +2200,11 @@ public final class YoungAndroidFormUpgrader {
       // UpdateDone event and ProvideUpdateDone property were added
       srcCompVersion = 2;
     }
+    if (srcCompVersion < 3) {
+      // Version 3
+      // GetValues method and GotValues event were added
+      srcCompVersion = 3;
+    }
     return srcCompVersion;
   }
 
@@ -0,0 +1,91 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wakes up requests waiting for news about a build when the build server
+ * reports progress or returns the build output.
+ *
+ * <p>The build status itself lives in memcache (see
+ * {@link com.google.appinventor.server.storage.StorageIo#storeBuildStatus}),
+ * so that it is shared by all the instances. This class only shortens the
+ * wait of requests served by the instance that received the report. Waiters
+ * on other instances notice the change the next time they check the status.
+ *
+ */
+public final class BuildNotifier {
+
+  private static class Waiters {
+    int count = 0;
+    long version = 0;
+  }
+
+  // Guarded by itself. Only keys with waiting requests are present.
+  private static final Map<String, Waiters> waiters = new HashMap<String, Waiters>();
+
+  private BuildNotifier() {
+  }
+
+  /**
+   * Wakes up the requests waiting for the build of a project.
+   *
+   * @param userId the id of the user who started the build
+   * @param projectId the id of the project being built
+   */
+  public static void notifyBuildChanged(String userId, long projectId) {
+    synchronized (waiters) {
+      Waiters w = waiters.get(key(userId, projectId));
+      if (w != null) {
+        w.version++;
+        waiters.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Waits until {@link #notifyBuildChanged} is called for the build of a
+   * project, or until the timeout elapses.
+   *
+   * @param userId the id of the user who started the build
+   * @param projectId the id of the project being built
+   * @param timeoutMillis the maximum time to wait
+   * @return true if the build changed, false if the timeout elapsed
+   * @throws InterruptedException if the thread was interrupted while waiting
+   */
+  public static boolean await(String userId, long projectId, long timeoutMillis)
+      throws InterruptedException {
+    String key = key(userId, projectId);
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    synchronized (waiters) {
+      Waiters w = waiters.get(key);
+      if (w == null) {
+        w = new Waiters();
+        waiters.put(key, w);
+      }
+      w.count++;
+      long version = w.version;
+      try {
+        long remaining = timeoutMillis;
+        while (w.version == version && remaining > 0) {
+          waiters.wait(remaining);
+          remaining = deadline - System.currentTimeMillis();
+        }
+        return w.version != version;
+      } finally {
+        if (--w.count == 0) {
+          waiters.remove(key);
+        }
+      }
+    }
+  }
+
+  private static String key(String userId, long projectId) {
+    return userId + ":" + projectId;
+  }
+}
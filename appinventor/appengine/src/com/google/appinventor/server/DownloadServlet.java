@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2019 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -146,11 +146,20 @@ public class DownloadServlet extends OdeServlet {
         // project in the export
         boolean includeYail = userInfoProvider.getIsAdmin();
         boolean includeScreenShots = includeYail;
-        StorageIoInstanceHolder.getInstance().assertUserHasProject(userId, projectId);
-        ProjectSourceZip zipFile = fileExporter.exportProjectSourceZip(userId,
-          projectId, includeProjectHistory, false, zipName, includeYail,
-          includeScreenShots, false, false, false, false);
-        downloadableFile = zipFile.getRawFile();
+        StorageIo storageIo = StorageIoInstanceHolder.getInstance();
+        storageIo.assertUserHasProject(userId, projectId);
+        if (zipName == null) {
+          zipName = storageIo.getProjectName(userId, projectId) + ".aia";
+        }
+        // Stream the zip as it is written rather than building it in memory. The length isn't
+        // known up front, so the response is sent chunked.
+        resp.setStatus(HttpServletResponse.SC_OK);
+        setFileHeaders(req, resp, zipName);
+        ServletOutputStream out = resp.getOutputStream();
+        fileExporter.writeProjectSourceZip(userId, projectId, includeProjectHistory, false,
+            includeYail, includeScreenShots, false, false, false, false, out, 0);
+        out.close();
+        return;
 
       } else if (downloadKind.equals(ServerLayout.DOWNLOAD_USER_PROJECT_SOURCE)) {
         if (!userInfoProvider.getIsAdmin()) {
@@ -292,10 +301,7 @@ public class DownloadServlet extends OdeServlet {
       String fileName = downloadableFile.getFileName();
       byte[] content = downloadableFile.getContent();
       // Set http response information
-      resp.setHeader(
-        "content-disposition",
-        req.getParameter("inline") != null ? "inline" : "attachment" + "; filename=\"" + fileName + "\"");
-      resp.setContentType(StorageUtil.getContentTypeForFilePath(fileName));
+      setFileHeaders(req, resp, fileName);
       resp.setContentLength(content.length);
 
       // Attach download data
@@ -310,6 +316,14 @@ public class DownloadServlet extends OdeServlet {
     }
   }
 
+  private static void setFileHeaders(HttpServletRequest req, HttpServletResponse resp,
+      String fileName) {
+    resp.setHeader(
+      "content-disposition",
+      req.getParameter("inline") != null ? "inline" : "attachment" + "; filename=\"" + fileName + "\"");
+    resp.setContentType(StorageUtil.getContentTypeForFilePath(fileName));
+  }
+
   private static String byteArray2Hex(final byte[] hash) {
     Formatter formatter = new Formatter();
     for (byte b : hash) {
@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2012 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -10,6 +10,7 @@ import com.google.appinventor.shared.rpc.project.ProjectSourceZip;
 import com.google.appinventor.shared.rpc.project.RawFile;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 import javax.annotation.Nullable;
@@ -57,6 +58,29 @@ public interface FileExporter {
     boolean includeYail,
     boolean includeScreenShots,
     boolean fatalError, boolean forGallery, boolean forAppStore, boolean locallyCachedApp) throws IOException;
+
+  /**
+   * Writes the project source files as a zip to a stream, without holding
+   * the whole zip in memory.
+   *
+   * @param out the stream to write the zip to, which is left open
+   * @param maxSize the maximum size of the zip in bytes, or 0 for no limit
+   * @return the number of files in the zip
+   * @throws IllegalArgumentException if download request cannot be fulfilled
+   *         (no source files)
+   * @throws com.google.appinventor.server.storage.ProjectTooLargeException if
+   *         the zip exceeds maxSize
+   * @throws IOException if files cannot be written
+   * @see #exportProjectSourceZip
+   */
+  int writeProjectSourceZip(String userId, long projectId,
+    boolean includeProjectHistory,
+    boolean includeAndroidKeystore,
+    boolean includeYail,
+    boolean includeScreenShots,
+    boolean fatalError, boolean forGallery, boolean forAppStore, boolean locallyCachedApp,
+    OutputStream out, long maxSize) throws IOException;
+
   /**
    * Exports projects selected by the user as a zip of zips.
    *
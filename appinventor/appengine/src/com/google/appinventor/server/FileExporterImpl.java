@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2019 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -15,6 +15,7 @@ import com.google.appinventor.shared.storage.StorageUtil;
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.zip.ZipEntry;
@@ -73,6 +74,22 @@ public final class FileExporterImpl implements FileExporter {
         forGallery, fatalError, forAppStore, locallyCachedApp);
   }
 
+  @Override
+  public int writeProjectSourceZip(String userId, long projectId,
+      boolean includeProjectHistory,
+      boolean includeAndroidKeystore,
+      boolean includeYail,
+      boolean includeScreenShots,
+      boolean fatalError,
+      boolean forGallery,
+      boolean forAppStore,
+      boolean locallyCachedApp,
+      OutputStream out, long maxSize) throws IOException {
+    return storageIo.writeProjectSourceZip(userId, projectId,
+        includeProjectHistory, includeAndroidKeystore, includeYail, includeScreenShots,
+        forGallery, fatalError, forAppStore, locallyCachedApp, out, maxSize);
+  }
+
   @Override
   public ProjectSourceZip exportSelectedProjectsSourceZip(String userId,
       String zipName, List<Long> projectIds) throws IOException {
@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2019 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -11,6 +11,7 @@ import java.io.Serializable;
 
 import com.google.appinventor.server.flags.Flag;
 
+import com.google.appinventor.server.storage.RequestCache;
 import com.google.appinventor.server.storage.StorageIo;
 import com.google.appinventor.server.storage.StorageIoInstanceHolder;
 
@@ -130,7 +131,13 @@ public class OdeAuthFilter implements Filter {
 //      isAdmin = (boolean) oIsAdmin;
 //    }
 
-    doMyFilter(userInfo, isAdmin, isReadOnly, httpRequest, httpResponse, chain);
+    // Entities read while serving the request are cached until it completes
+    RequestCache.begin();
+    try {
+      doMyFilter(userInfo, isAdmin, isReadOnly, httpRequest, httpResponse, chain);
+    } finally {
+      RequestCache.end();
+    }
   }
 
   @VisibleForTesting
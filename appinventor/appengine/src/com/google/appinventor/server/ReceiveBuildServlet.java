@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2019 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -60,6 +60,7 @@ public class ReceiveBuildServlet extends OdeServlet {
 
     // Set the user in the OdeFilter, which is used everywhere as the UserInfoProvider.
     odeFilter.setUserFromUserId(userId, false, false);
+    boolean receivedOutput = false;
     try {
       String buildFileDirPath = uriComponents[4];
       ZipInputStream zipInputStream = new ZipInputStream(req.getInputStream());
@@ -78,14 +79,28 @@ public class ReceiveBuildServlet extends OdeServlet {
           int progress = Integer.parseInt((new String(fileBytes)).trim());
           LOG.info("Received a build.status file contents = " + progress);
           storageIo.storeBuildStatus(userId, projectId, progress);
+          // A build reporting progress is no longer queued
+          storageIo.storeBuildQueuePosition(userId, projectId, 0);
+          BuildNotifier.notifyBuildChanged(userId, projectId);
+        } else if (fileName.equals("build.queue")) {
+          // The build is waiting for a free slot on the build server. This is not an output file.
+          int position = Integer.parseInt((new String(fileBytes)).trim());
+          LOG.info("Received a build.queue file contents = " + position);
+          storageIo.storeBuildQueuePosition(userId, projectId, position);
+          BuildNotifier.notifyBuildChanged(userId, projectId);
         } else {
           String filePath = buildFileDirPath + "/" + fileName;
           LOG.info("Saving build output files: " + filePath);
           storageIo.addOutputFilesToProject(userId, projectId, filePath);
           storageIo.uploadRawFileForce(projectId, filePath, userId, fileBytes);
-          storageIo.storeBuildStatus(userId, projectId, 0); // Reset for the next build
+          receivedOutput = true;
         }
       }
+      if (receivedOutput) {
+        // Let clients waiting for the build fetch the result now
+        storageIo.storeBuildStatus(userId, projectId, StorageIo.BUILD_STATUS_FINISHED);
+        BuildNotifier.notifyBuildChanged(userId, projectId);
+      }
     } finally {
       odeFilter.removeUser();
     }
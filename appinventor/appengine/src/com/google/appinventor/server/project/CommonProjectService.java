@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2017 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -11,6 +11,8 @@ import com.google.appinventor.shared.rpc.BlocksTruncatedException;
 import com.google.appinventor.shared.rpc.RpcResult;
 import com.google.appinventor.shared.rpc.project.ChecksumedLoadFile;
 import com.google.appinventor.shared.rpc.project.ChecksumedFileException;
+import com.google.appinventor.shared.rpc.project.FilePatch;
+import com.google.appinventor.shared.rpc.project.FilePatchConflictException;
 import com.google.appinventor.shared.rpc.project.NewProjectParameters;
 import com.google.appinventor.shared.rpc.project.ProjectRootNode;
 import com.google.appinventor.shared.rpc.project.TextFile;
@@ -302,6 +304,27 @@ public abstract class CommonProjectService {
     }
   }
 
+  /**
+   * Saves the content of the file associated with a node in the project tree
+   * by applying a patch to the stored version of the file.
+   *
+   * @param userId the user id
+   * @param projectId  project root node ID
+   * @param fileId  project node whose source should be saved
+   * @param force  whether to write an empty blocks workspace
+   * @param patch  the change to the stored version of the file
+   * @return modification date for project
+   * @throws FilePatchConflictException if the stored version of the file is
+   *     not the one the patch was made against
+   *
+   * @see com.google.appinventor.shared.rpc.project.ProjectService#savePatch(String, long, String, boolean, FilePatch)
+   */
+  public long savePatch(String userId, long projectId, String fileId, boolean force,
+      FilePatch patch) throws BlocksTruncatedException, FilePatchConflictException {
+    return storageIo.patchFile(projectId, fileId, userId, force, patch,
+        StorageUtil.DEFAULT_CHARSET);
+  }
+
   /**
    * Saves a screenshot of a current blocks editor. This is called from the client side
    * whenever the user leaves a blocks editor. The data is shipped to us in base64 encoding
@@ -350,6 +373,20 @@ public abstract class CommonProjectService {
    */
   public abstract RpcResult getBuildResult(User user, long projectId, String target);
 
+  /**
+   * Waits for the progress of a build to change or for the build to finish.
+   *
+   * @param user the User that owns the {@code projectId}.
+   * @param projectId  project id to be built
+   * @param target  build target (optional, implementation dependent.
+   * @param lastProgress  the progress the caller already knows about
+   * @return  build results, as returned by {@link #getBuildResult}, once the
+   *          build finished. Otherwise result is -1 and output is the current
+   *          progress, which is lastProgress if the wait timed out.
+   */
+  public abstract RpcResult waitForBuildResult(User user, long projectId, String target,
+      int lastProgress);
+
   public TextFile importMedia(String userId, long projectId, String urlString, boolean save) throws IOException {
     InputStream is = null;
     try {
@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2017 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -19,6 +19,7 @@ import com.google.apphosting.api.ApiProxy;
 import com.google.appinventor.common.utils.StringUtils;
 import com.google.appinventor.common.version.GitBuildId;
 import com.google.appinventor.components.common.YaVersion;
+import com.google.appinventor.server.BuildNotifier;
 import com.google.appinventor.server.CrashReport;
 import com.google.appinventor.server.FileExporter;
 import com.google.appinventor.server.FileExporterImpl;
@@ -32,6 +33,7 @@ import com.google.appinventor.server.flags.Flag;
 import com.google.appinventor.server.project.CommonProjectService;
 import com.google.appinventor.server.project.utils.Security;
 import com.google.appinventor.server.properties.json.ServerJsonParser;
+import com.google.appinventor.server.storage.ProjectTooLargeException;
 import com.google.appinventor.server.storage.StorageIo;
 import com.google.appinventor.server.util.UriBuilder;
 import com.google.appinventor.shared.properties.json.JSONParser;
@@ -64,6 +66,7 @@ import com.google.appinventor.shared.storage.StorageUtil;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Maps;
 import com.google.common.io.CharStreams;
+import com.google.common.io.CountingOutputStream;
 import java.util.Locale;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -96,11 +99,18 @@ public final class YoungAndroidProjectService extends CommonProjectService {
 
   private static final Logger LOG = Logger.getLogger(YoungAndroidProjectService.class.getName());
   private static final int MB = 1024 * 1024;
+  // Size of the chunks in which projects are sent to the build server
+  private static final int STREAMING_CHUNK_SIZE = 64 * 1024;
 
   // The value of this flag can be changed in appengine-web.xml
   private static final Flag<Boolean> sendGitVersion =
     Flag.createFlag("build.send.git.version", true);
 
+  // Maximum time a request waits in waitForBuildResult, well under the request deadline
+  private static final Flag<Integer> BUILD_WAIT_MILLIS =
+      Flag.createFlag("build.wait.millis", 20000);
+  // How often a waiting request checks for changes reported to other instances
+  private static final long BUILD_CHECK_MILLIS = 2000;
   private static final Flag<Integer> MAX_PROJECT_SIZE =
       Flag.createFlag("project.maxsize", 30);
 
@@ -505,6 +515,8 @@ public final class YoungAndroidProjectService extends CommonProjectService {
     // Store the userId and projectId based on the nonce
 
     storageIo.storeNonce(nonce, userId, projectId);
+    storageIo.storeBuildStatus(userId, projectId, 0); // Reset the status of the previous build
+    storageIo.storeBuildQueuePosition(userId, projectId, 0);
     List<String> buildOutputFiles = storageIo.getProjectOutputFiles(userId, projectId);
 
     // Delete the existing build output files, if any, so that future attempts to get it won't get
@@ -513,7 +525,7 @@ public final class YoungAndroidProjectService extends CommonProjectService {
       storageIo.deleteFile(userId, projectId, buildOutputFile);
     }
     URL buildServerUrl = null;
-    ProjectSourceZip zipFile = null;
+    CountingOutputStream zipStream = null;
     try {
       buildServerUrl = new URL(getBuildServerUrlStr(
           user.getUserEmail(),
@@ -525,26 +537,32 @@ public final class YoungAndroidProjectService extends CommonProjectService {
       HttpURLConnection connection = (HttpURLConnection) buildServerUrl.openConnection();
       connection.setDoOutput(true);
       connection.setRequestMethod("POST");
+      // Send the project as it is zipped rather than zipping it in memory first.
+      connection.setChunkedStreamingMode(STREAMING_CHUNK_SIZE);
 
-      BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(connection.getOutputStream());
+      zipStream = new CountingOutputStream(
+          new BufferedOutputStream(connection.getOutputStream(), STREAMING_CHUNK_SIZE));
       FileExporter fileExporter = new FileExporterImpl();
-      zipFile = fileExporter.exportProjectSourceZip(userId, projectId, false,
-          /* includeAndroidKeystore */ true,
-        projectName + ".aia", true, false, true, false, false, false);
-      // The code below tests the size of the compressed project before
-      // we send it off to the buildserver. When using URLFetch we know that
-      // this size is limited to 10MB based on Google's documentation.
-      // It isn't clear if this is also enforced in the Java 8 environment
-      // when not using URLFetch. However we are being conservative for now.
-      // Keep in mind that large projects can lead to large APK files which
-      // may not be loadable into many memory restricted devices, so we
-      // may not want to encourage large projects...
-      if (zipFile.getContent().length > MAX_PROJECT_SIZE.get() * MB) {
-        return fileTooBigResult(zipFile.getContent().length);
+      // The size of the compressed project is limited as it is sent to the
+      // buildserver. When using URLFetch we know that this size is limited
+      // to 10MB based on Google's documentation. It isn't clear if this is
+      // also enforced in the Java 8 environment when not using URLFetch.
+      // However we are being conservative for now. Keep in mind that large
+      // projects can lead to large APK files which may not be loadable into
+      // many memory restricted devices, so we may not want to encourage
+      // large projects...
+      try {
+        fileExporter.writeProjectSourceZip(userId, projectId, false,
+            /* includeAndroidKeystore */ true, true, false, true, false, false, false,
+            zipStream, (long) MAX_PROJECT_SIZE.get() * MB);
+      } catch (ProjectTooLargeException e) {
+        // Chunks already written have reached the build server. Dropping the connection leaves
+        // it with a zip missing its central directory, which it rejects without building.
+        connection.disconnect();
+        return fileTooBigResult(e.getSize());
       }
-      bufferedOutputStream.write(zipFile.getContent());
-      bufferedOutputStream.flush();
-      bufferedOutputStream.close();
+      zipStream.flush();
+      zipStream.close();
 
       int responseCode = 0;
       responseCode = connection.getResponseCode();
@@ -597,7 +615,7 @@ public final class YoungAndroidProjectService extends CommonProjectService {
       return new RpcResult(false, "", e.getMessage());
     } catch (IOException e) {
       // As of App Engine 1.9.0 we get these when UrlFetch is asked to send too much data
-      int zipFileLength = zipFile == null ? -1 : zipFile.getContent().length;
+      long zipFileLength = zipStream == null ? -1 : zipStream.getCount();
       if (zipFileLength >= MAX_PROJECT_SIZE.get() * MB) {
         return fileTooBigResult(zipFileLength);
       } else {
@@ -611,8 +629,8 @@ public final class YoungAndroidProjectService extends CommonProjectService {
       // In particular, we often see RequestTooLargeException (if the zip is too
       // big) and ApiProxyException. There may be others.
       Throwable wrappedException = e;
-      if (e instanceof ApiProxy.RequestTooLargeException && zipFile != null) {
-        int zipFileLength = zipFile.getContent().length;
+      if (e instanceof ApiProxy.RequestTooLargeException && zipStream != null) {
+        long zipFileLength = zipStream.getCount();
         if (zipFileLength >= MAX_PROJECT_SIZE.get() * MB) {
           return fileTooBigResult(zipFileLength);
         } else {
@@ -830,16 +848,16 @@ public final class YoungAndroidProjectService extends CommonProjectService {
    *            0:  Build is done and was successful
    *            1:  Build is done and was unsuccessful
    *            2:  Yail generation failed
-   *           -1:  Build is not yet done.
+   *           -1:  Build is not yet done. The extra is the position of the
+   *                build in the build server's queue, or 0 if it isn't queued.
    */
   @Override
   public RpcResult getBuildResult(User user, long projectId, String target) {
     String userId = user.getUserId();
     String buildOutputFileName = BUILD_FOLDER + '/' + target + '/' + "build.out";
     List<String> outputFiles = storageIo.getProjectOutputFiles(userId, projectId);
-    RpcResult buildResult = new RpcResult(-1,
-        Integer.toString(getCurrentProgress(user, projectId, target)),
-        ""); // Build not finished
+    RpcResult buildResult = buildInProgressResult(userId, projectId,
+        getCurrentProgress(user, projectId, target)); // Build not finished
     for (String outputFile : outputFiles) {
       if (buildOutputFileName.equals(outputFile)) {
         String outputStr = storageIo.downloadFile(userId, projectId, outputFile, "UTF-8");
@@ -861,6 +879,54 @@ public final class YoungAndroidProjectService extends CommonProjectService {
     return buildResult;
   }
 
+  /**
+   * Waits until the progress of a build differs from {@code lastProgress},
+   * its position in the build queue changes, or the build finishes. The build
+   * output is only read from storage once the build finished, so waiting is
+   * cheap.
+   *
+   * @param user the User that owns the {@code projectId}.
+   * @param projectId  project id to be built
+   * @param target  build target (optional, implementation dependent)
+   * @param lastProgress  the progress the caller already knows about
+   * @return the result of {@link #getBuildResult} once the build finished,
+   *         otherwise an RpcResult with result -1, the current progress
+   *         as output, which equals {@code lastProgress} if nothing changed
+   *         before the wait timed out, and the queue position as extra
+   */
+  @Override
+  public RpcResult waitForBuildResult(User user, long projectId, String target,
+      int lastProgress) {
+    String userId = user.getUserId();
+    long deadline = System.currentTimeMillis() + BUILD_WAIT_MILLIS.get();
+    int progress = getCurrentProgress(user, projectId, target);
+    int queuePosition = storageIo.getBuildQueuePosition(userId, projectId);
+    try {
+      while (progress == lastProgress) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          break;
+        }
+        BuildNotifier.await(userId, projectId, Math.min(remaining, BUILD_CHECK_MILLIS));
+        progress = getCurrentProgress(user, projectId, target);
+        if (storageIo.getBuildQueuePosition(userId, projectId) != queuePosition) {
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (progress == StorageIo.BUILD_STATUS_FINISHED) {
+      return getBuildResult(user, projectId, target);
+    }
+    return buildInProgressResult(userId, projectId, progress);
+  }
+
+  private RpcResult buildInProgressResult(String userId, long projectId, int progress) {
+    return new RpcResult(-1, Integer.toString(progress), "",
+        Integer.toString(storageIo.getBuildQueuePosition(userId, projectId)));
+  }
+
   /**
    * Check if there are any build progress available for the given user's project
    *
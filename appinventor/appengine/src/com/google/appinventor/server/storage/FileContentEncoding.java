@@ -0,0 +1,88 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.server.storage;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The encodings in which the content of a {@link StoredData.FileData} is
+ * stored, whether in the datastore or in GCS. The encoding is recorded in
+ * {@code FileData.contentEncoding}; entities written before encodings existed
+ * read as {@link #RAW}.
+ *
+ * Blocks (.bky) and designer (.scm) files are stored compressed when the
+ * {@code storage.compress.source} flag is set, since they are text that
+ * compresses well and are written on every auto-save. Other files are stored
+ * as is. Compressed files are read regardless of the flag.
+ */
+final class FileContentEncoding {
+  /**
+   * The content is stored as is.
+   */
+  static final int RAW = 0;
+
+  /**
+   * The content is stored compressed with gzip.
+   */
+  static final int GZIP = 1;
+
+  // Files smaller than this are not worth compressing.
+  private static final int MIN_COMPRESSED_SIZE = 512;
+
+  private FileContentEncoding() {
+  }
+
+  /**
+   * Returns whether the content of a file should be stored compressed.
+   */
+  static boolean shouldCompress(String fileName, int length) {
+    return length >= MIN_COMPRESSED_SIZE && fileName.contains("src/")
+        && (fileName.endsWith(".bky") || fileName.endsWith(".scm"));
+  }
+
+  /**
+   * Compresses content for storing with the {@link #GZIP} encoding.
+   */
+  static byte[] compress(byte[] content) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 4);
+    try {
+      GZIPOutputStream out = new GZIPOutputStream(bytes);
+      out.write(content);
+      out.close();
+    } catch (IOException e) {
+      // Can't happen, we're writing to memory
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes stored content.
+   *
+   * @param encoding the encoding the content was stored with
+   * @param stored the stored content, may be null
+   * @return the content of the file
+   */
+  static byte[] decode(int encoding, byte[] stored) {
+    if (encoding == RAW || stored == null) {
+      return stored;
+    }
+    if (encoding != GZIP) {
+      throw new IllegalStateException("Unknown file content encoding " + encoding);
+    }
+    try {
+      return ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(stored)));
+    } catch (IOException e) {
+      throw new IllegalStateException("Corrupt compressed file content", e);
+    }
+  }
+}
@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2019 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -54,6 +54,10 @@ import com.google.appinventor.shared.rpc.BlocksTruncatedException;
 import com.google.appinventor.shared.rpc.Motd;
 import com.google.appinventor.shared.rpc.Nonce;
 import com.google.appinventor.shared.rpc.admin.AdminUser;
+import com.google.appinventor.shared.rpc.project.ChecksumedFileException;
+import com.google.appinventor.shared.rpc.project.ChecksumedLoadFile;
+import com.google.appinventor.shared.rpc.project.FilePatch;
+import com.google.appinventor.shared.rpc.project.FilePatchConflictException;
 import com.google.appinventor.shared.rpc.project.Project;
 import com.google.appinventor.shared.rpc.project.ProjectSourceZip;
 import com.google.appinventor.shared.rpc.project.RawFile;
@@ -89,8 +93,10 @@ import com.google.appengine.tools.cloudstorage.GcsServiceFactory;
 import com.google.appengine.tools.cloudstorage.RetryParams;
 
 import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
@@ -110,6 +116,7 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import java.util.Date;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 
@@ -125,6 +132,10 @@ import org.json.JSONObject;
 public class ObjectifyStorageIo implements StorageIo {
   static final Flag<Boolean> requireTos = Flag.createFlag("require.tos", false);
 
+  // Whether blocks and designer files are written compressed. Compressed files are always read,
+  // so this can only be turned on once no serving version predates compression.
+  static final Flag<Boolean> compressSource = Flag.createFlag("storage.compress.source", false);
+
   private static final Logger LOG = Logger.getLogger(ObjectifyStorageIo.class.getName());
 
   private static final String DEFAULT_ENCODING = "UTF-8";
@@ -148,6 +159,13 @@ public class ObjectifyStorageIo implements StorageIo {
 
   private static final boolean DEBUG = Flag.createFlag("appinventor.debugging", false).get();
 
+  // Statistics on the saves made with patches, logged every PATCH_STATS_INTERVAL patches.
+  private static final int PATCH_STATS_INTERVAL = 100;
+  private static final AtomicLong patchesSaved = new AtomicLong();
+  private static final AtomicLong patchConflicts = new AtomicLong();
+  private static final AtomicLong patchBytesSent = new AtomicLong();
+  private static final AtomicLong patchBytesSaved = new AtomicLong();
+
   // Use this class to define the work of a job that can be
   // retried. The "datastore" argument to run() is the Objectify
   // object for this job (created with
@@ -316,14 +334,17 @@ public class ObjectifyStorageIo implements StorageIo {
             userData.email = email;
             userData.emaillower = email.toLowerCase();
             datastore.put(userData);
+            RequestCache.remove(userKey(userData.id));
           }
           // Add emaillower if it isn't already there
           if (userData.emaillower == null) {
             userData.emaillower = userData.email.toLowerCase();
             if (viaemail) {
               qDatastore.put(userData);
+              RequestCache.remove(userKey(userData.id));
             } else {
               datastore.put(userData);
+              RequestCache.remove(userKey(userData.id));
             }
           }
           user.setUserEmail(userData.email);
@@ -382,6 +403,7 @@ public class ObjectifyStorageIo implements StorageIo {
     userData.email = email == null ? "" : email;
     userData.emaillower = email == null ? "" : emaillower;
     datastore.put(userData);
+    RequestCache.remove(userKey(userData.id));
     return userData;
   }
 
@@ -395,6 +417,7 @@ public class ObjectifyStorageIo implements StorageIo {
           if (userData != null) {
             userData.tosAccepted = true;
             datastore.put(userData);
+            RequestCache.remove(userKey(userData.id));
           }
         }
       }, true);
@@ -414,6 +437,7 @@ public class ObjectifyStorageIo implements StorageIo {
           if (userData != null) {
             userData.email = email;
             datastore.put(userData);
+            RequestCache.remove(userKey(userData.id));
           }
         }
       }, true);
@@ -434,6 +458,7 @@ public class ObjectifyStorageIo implements StorageIo {
           if (userData != null) {
             userData.sessionid = sessionId;
             datastore.put(userData);
+            RequestCache.remove(userKey(userData.id));
           }
         }
       }, false);
@@ -454,6 +479,7 @@ public class ObjectifyStorageIo implements StorageIo {
           if (userData != null) {
             userData.password = password;
             datastore.put(userData);
+            RequestCache.remove(userKey(userData.id));
           }
         }
       }, true);
@@ -469,7 +495,7 @@ public class ObjectifyStorageIo implements StorageIo {
       runJobWithRetries(new JobRetryHelper() {
         @Override
         public void run(Objectify datastore) {
-          UserData userData = datastore.find(UserData.class, userId);
+          UserData userData = findCached(datastore, userKey(userId));
           if (userData != null) {
             settings.t = userData.settings;
           } else {
@@ -494,6 +520,7 @@ public class ObjectifyStorageIo implements StorageIo {
             userData.settings = settings;
             userData.visited = new Date(); // Indicate that this person was active now
             datastore.put(userData);
+            RequestCache.put(userKey(userId), userData);
           }
         }
       }, false);
@@ -616,15 +643,16 @@ public class ObjectifyStorageIo implements StorageIo {
     file.projectKey = projectKey;
     file.role = role;
     file.userId = userId;
-    if (useGCSforFile(fileName, content.length)) {
+    byte[] stored = encodeContent(file, content);
+    if (useGCSforFile(fileName, stored.length)) {
       file.isGCS = true;
       file.gcsName = makeGCSfileName(fileName, projectKey.getId());
       GcsOutputChannel outputChannel =
         gcsService.createOrReplace(new GcsFilename(getGcsBucketToUse(file.role), file.gcsName), GcsFileOptions.getDefaultInstance());
-      outputChannel.write(ByteBuffer.wrap(content));
+      outputChannel.write(ByteBuffer.wrap(stored));
       outputChannel.close();
     } else {
-      file.content = content;
+      file.content = stored;
     }
     return file;
   }
@@ -663,6 +691,7 @@ public class ObjectifyStorageIo implements StorageIo {
           datastore.delete(fdq);
           // finally, delete the ProjectData object
           datastore.delete(projectKey);
+          RequestCache.remove(projectKey);
         }
       }, true);
       // have to delete the blobs outside of the user and project jobs
@@ -691,6 +720,7 @@ public class ObjectifyStorageIo implements StorageIo {
       runJobWithRetries(new JobRetryHelper() {
         @Override
         public void run(Objectify datastore) {
+          RequestCache.remove(projectKey(projectId));
           ProjectData projectData = datastore.find(projectKey(projectId));
           if (projectData != null) {
             projectData.projectMovedToTrashFlag = flag;
@@ -730,7 +760,7 @@ public class ObjectifyStorageIo implements StorageIo {
       runJobWithRetries(new JobRetryHelper() {
         @Override
         public void run(Objectify datastore) {
-          ProjectData pd = datastore.find(projectKey(projectId));
+          ProjectData pd = findCached(datastore, projectKey(projectId));
           if (pd != null) {
             settings.t = pd.settings;
           } else {
@@ -756,6 +786,7 @@ public class ObjectifyStorageIo implements StorageIo {
           if (pd != null) {
             pd.settings = settings;
             datastore.put(pd);
+            RequestCache.put(projectKey(projectId), pd);
           }
         }
       }, false);
@@ -808,7 +839,7 @@ public class ObjectifyStorageIo implements StorageIo {
       runJobWithRetries(new JobRetryHelper() {
         @Override
         public void run(Objectify datastore) {
-          ProjectData pd = datastore.find(projectKey(projectId));
+          ProjectData pd = findCached(datastore, projectKey(projectId));
           if (pd != null) {
             projectData.t = pd;
           } else {
@@ -838,6 +869,9 @@ public class ObjectifyStorageIo implements StorageIo {
         public void run(Objectify datastore) {
           Map<Long,ProjectData> pd = datastore.get(ProjectData.class, projectIds);
           if (pd != null) {
+            for (ProjectData projectData : pd.values()) {
+              RequestCache.put(projectKey(projectData.id), projectData);
+            }
             projectDatas.t = pd;
           } else {
             projectDatas.t = null;
@@ -870,7 +904,7 @@ public class ObjectifyStorageIo implements StorageIo {
       runJobWithRetries(new JobRetryHelper() {
         @Override
         public void run(Objectify datastore) {
-          ProjectData pd = datastore.find(projectKey(projectId));
+          ProjectData pd = findCached(datastore, projectKey(projectId));
           if (pd != null) {
             projectName.t = pd.name;
           } else {
@@ -892,7 +926,7 @@ public class ObjectifyStorageIo implements StorageIo {
       runJobWithRetries(new JobRetryHelper() {
         @Override
         public void run(Objectify datastore) {
-          ProjectData pd = datastore.find(projectKey(projectId));
+          ProjectData pd = findCached(datastore, projectKey(projectId));
           if (pd != null) {
             modDate.t = pd.dateModified;
           } else {
@@ -915,7 +949,7 @@ public class ObjectifyStorageIo implements StorageIo {
       runJobWithRetries(new JobRetryHelper() {
         @Override
         public void run(Objectify datastore) {
-          ProjectData pd = datastore.find(projectKey(projectId));
+          ProjectData pd = findCached(datastore, projectKey(projectId));
           if (pd != null) {
             builtDate.t = pd.dateBuilt;
           } else {
@@ -941,6 +975,7 @@ public class ObjectifyStorageIo implements StorageIo {
           if (pd != null) {
             pd.dateBuilt = builtDate;
             datastore.put(pd);
+            RequestCache.put(projectKey(projectId), pd);
           }
         }
       }, false); // Transaction not needed, and we want the caching we get if we don't
@@ -959,7 +994,7 @@ public class ObjectifyStorageIo implements StorageIo {
       runJobWithRetries(new JobRetryHelper() {
         @Override
         public void run(Objectify datastore) {
-          ProjectData pd = datastore.find(projectKey(projectId));
+          ProjectData pd = findCached(datastore, projectKey(projectId));
           if (pd != null) {
             projectHistory.t = pd.history;
           } else {
@@ -983,7 +1018,7 @@ public class ObjectifyStorageIo implements StorageIo {
       runJobWithRetries(new JobRetryHelper() {
         @Override
         public void run(Objectify datastore) {
-          ProjectData pd = datastore.find(projectKey(projectId));
+          ProjectData pd = findCached(datastore, projectKey(projectId));
           if (pd != null) {
             dateCreated.t = pd.dateCreated;
           } else {
@@ -1387,7 +1422,85 @@ public class ObjectifyStorageIo implements StorageIo {
     }
   }
 
+  @Override
+  public long patchFile(final long projectId, final String fileName, final String userId,
+      final boolean force, final FilePatch patch, final String encoding)
+      throws BlocksTruncatedException, FilePatchConflictException {
+    validateGCS();
+    final Result<Long> modTime = new Result<Long>();
+    final Result<FileData> stored = new Result<FileData>();
+    final Result<Integer> contentLength = new Result<Integer>();
+    try {
+      runJobWithRetries(new JobRetryHelper() {
+        @Override
+        public void run(Objectify datastore) throws ObjectifyException {
+          // The file is read in the transaction, bypassing memcache, so that a save landing
+          // between reading the stored version and writing the patched one makes the
+          // transaction fail and the patch be checked again.
+          FileData fd = datastore.find(projectFileKey(projectKey(projectId), fileName));
+          if (fd == null) {
+            throw new ObjectifyException("Patch of missing file");
+          }
+          if (fd.userId != null && !fd.userId.equals("")) {
+            if (!fd.userId.equals(userId)) {
+              throw CrashReport.createAndLogError(LOG, null,
+                collectUserProjectErrorInfo(userId, projectId),
+                new UnauthorizedAccessException(userId, projectId, null));
+            }
+          }
+          byte[] content;
+          try {
+            String base = new String(readFileContent(userId, projectId, fileName, fd), encoding);
+            if (!ChecksumedLoadFile.computeChecksum(base).equals(patch.getBaseChecksum())) {
+              throw new ObjectifyException("Patch of changed file");
+            }
+            content = patch.apply(base).getBytes(encoding);
+          } catch (IllegalArgumentException e) {
+            throw new ObjectifyException("Patch doesn't fit file");
+          } catch (UnsupportedEncodingException | ChecksumedFileException e) {
+            throw CrashReport.createAndLogError(LOG, null, "Unable to patch file,"
+                + collectProjectErrorInfo(userId, projectId, fileName), e);
+          }
+          modTime.t = writeFileContent(datastore, fd, projectId, fileName, userId, force, content);
+          stored.t = fd;
+          contentLength.t = content.length;
+        }
+      }, true);
+    } catch (ObjectifyException e) {
+      if (e.getMessage().startsWith("Blocks")) { // Convert Exception
+        throw new BlocksTruncatedException();
+      }
+      if (e.getMessage().startsWith("Patch")) {
+        patchConflicts.incrementAndGet();
+        throw new FilePatchConflictException(e.getMessage());
+      }
+      throw CrashReport.createAndLogError(LOG, null,
+          collectProjectErrorInfo(userId, projectId, fileName), e);
+    }
+    // Only cache the file once the transaction committed.
+    memcache.put(projectFileKey(projectKey(projectId), fileName).getString(), stored.t);
+    recordPatch(patch, contentLength.t);
+    return modTime.t;
+  }
+
+  /**
+   * Counts the bytes a patch saved over sending the whole file, and logs the
+   * totals every {@link #PATCH_STATS_INTERVAL} patches.
+   */
+  private static void recordPatch(FilePatch patch, int contentLength) {
+    int sent = patch.getText().getBytes(StandardCharsets.UTF_8).length;
+    patchBytesSent.addAndGet(sent);
+    patchBytesSaved.addAndGet(Math.max(0, contentLength - sent));
+    if (patchesSaved.incrementAndGet() % PATCH_STATS_INTERVAL == 0) {
+      LOG.log(Level.INFO, "Patch saves: " + patchesSaved.get() + " saved, "
+          + patchConflicts.get() + " conflicts, " + patchBytesSent.get() + " bytes sent, "
+          + patchBytesSaved.get() + " bytes saved");
+    }
+  }
+
   private long updateProjectModDate(Objectify datastore, long projectId) {
+    // Usually called in a transaction, so don't assume the change sticks
+    RequestCache.remove(projectKey(projectId));
     long modDate = System.currentTimeMillis();
     ProjectData pd = datastore.find(projectKey(projectId));
     if (pd != null) {
@@ -1423,11 +1536,6 @@ public class ObjectifyStorageIo implements StorageIo {
       final boolean force, final byte[] content) throws BlocksTruncatedException {
     validateGCS();
     final Result<Long> modTime = new Result<Long>();
-    final boolean useGCS = useGCSforFile(fileName, content.length);
-
-    final boolean considerBackup = (fileName.contains("src/") &&
-      (fileName.endsWith(".bky") || fileName.endsWith(".scm")));
-
     try {
       runJobWithRetries(new JobRetryHelper() {
         FileData fd;
@@ -1461,69 +1569,8 @@ public class ObjectifyStorageIo implements StorageIo {
             }
           }
 
-          if ((content.length < 125) && (fileName.endsWith(".bky"))) { // Likely this is an empty blocks workspace
-            if (!force) {            // force is true if we *really* want to save it!
-              checkForBlocksTruncation(fd); // See if we had previous content and throw and exception if so
-            }
-          }
-
-          if (useGCS) {
-            fd.isGCS = true;
-            fd.gcsName = makeGCSfileName(fileName, projectId);
-            try {
-              GcsOutputChannel outputChannel =
-                  gcsService.createOrReplace(new GcsFilename(getGcsBucketToUse(fd.role), fd.gcsName), GcsFileOptions.getDefaultInstance());
-              outputChannel.write(ByteBuffer.wrap(content));
-              outputChannel.close();
-            } catch (IOException e) {
-              throw CrashReport.createAndLogError(LOG, null,
-                collectProjectErrorInfo(userId, projectId, fileName), e);
-            }
-            // If the content was previously stored in the datastore, clear it out.
-            fd.content = null;
-            fd.isBlob = false;  // in case we are converting from a blob
-            fd.blobstorePath = null;
-          } else {
-            if (isTrue(fd.isGCS)) {     // Was a GCS file, must have gotten smaller
-              try {             // and is now stored in the data store
-                gcsService.delete(new GcsFilename(getGcsBucketToUse(fd.role), fd.gcsName));
-              } catch (IOException e) {
-                throw CrashReport.createAndLogError(LOG, null,
-                  collectProjectErrorInfo(userId, projectId, fileName), e);
-              }
-              fd.isGCS = false;
-              fd.gcsName = null;
-            }
-            // Note, Don't have to do anything if the file was in the
-            // Blobstore and shrank because the code above (3 lines
-            // into the function) already handles removing the old
-            // contents from the Blobstore.
-            fd.isBlob = false;
-            fd.blobstorePath = null;
-            fd.content = content;
-          }
-          if (considerBackup) {
-            if ((fd.lastBackup + TWENTYFOURHOURS) < System.currentTimeMillis()) {
-              try {
-                String gcsName = makeGCSfileName(fileName + "." + formattedTime() + ".backup", projectId);
-                GcsOutputChannel outputChannel =
-                    gcsService.createOrReplace((new GcsFilename(getGcsBucketToUse(FileData.RoleEnum.SOURCE), gcsName)), GcsFileOptions.getDefaultInstance());
-                outputChannel.write(ByteBuffer.wrap(content));
-                outputChannel.close();
-                fd.lastBackup = System.currentTimeMillis();
-              } catch (IOException e) {
-                throw CrashReport.createAndLogError(LOG, null,
-                    collectProjectErrorInfo(userId, projectId, fileName + "(backup)"), e);
-              }
-            }
-          }
-          // Old file not marked with ownership, mark it now
-          if (fd.userId == null || fd.userId.equals("")) {
-            fd.userId = userId;
-          }
-          datastore.put(fd);
+          modTime.t = writeFileContent(datastore, fd, projectId, fileName, userId, force, content);
           memcache.put(key.getString(), fd); // Store the updated data in memcache
-          modTime.t = updateProjectModDate(datastore, projectId);
         }
       }, false); // Use transaction for blobstore, otherwise we don't need one
                  // and without one the caching code comes into play.
@@ -1538,6 +1585,106 @@ public class ObjectifyStorageIo implements StorageIo {
     return modTime.t;
   }
 
+  /**
+   * Stores new content for a file and updates the modification date of its
+   * project. The caller is responsible for updating memcache.
+   *
+   * @return modification date for project
+   */
+  private long writeFileContent(Objectify datastore, FileData fd, long projectId,
+      String fileName, String userId, boolean force, byte[] content) throws ObjectifyException {
+    final boolean considerBackup = (fileName.contains("src/") &&
+      (fileName.endsWith(".bky") || fileName.endsWith(".scm")));
+
+    if ((content.length < 125) && (fileName.endsWith(".bky"))) { // Likely this is an empty blocks workspace
+      if (!force) {            // force is true if we *really* want to save it!
+        checkForBlocksTruncation(fd); // See if we had previous content and throw and exception if so
+      }
+    }
+
+    // From here on we deal with the content as stored, which may be compressed.
+    final byte[] stored = encodeContent(fd, content);
+    final boolean useGCS = useGCSforFile(fileName, stored.length);
+
+    if (useGCS) {
+      fd.isGCS = true;
+      fd.gcsName = makeGCSfileName(fileName, projectId);
+      try {
+        GcsOutputChannel outputChannel =
+            gcsService.createOrReplace(new GcsFilename(getGcsBucketToUse(fd.role), fd.gcsName), GcsFileOptions.getDefaultInstance());
+        outputChannel.write(ByteBuffer.wrap(stored));
+        outputChannel.close();
+      } catch (IOException e) {
+        throw CrashReport.createAndLogError(LOG, null,
+          collectProjectErrorInfo(userId, projectId, fileName), e);
+      }
+      // If the content was previously stored in the datastore, clear it out.
+      fd.content = null;
+      fd.isBlob = false;  // in case we are converting from a blob
+      fd.blobstorePath = null;
+    } else {
+      if (isTrue(fd.isGCS)) {     // Was a GCS file, must have gotten smaller
+        try {             // and is now stored in the data store
+          gcsService.delete(new GcsFilename(getGcsBucketToUse(fd.role), fd.gcsName));
+        } catch (IOException e) {
+          throw CrashReport.createAndLogError(LOG, null,
+            collectProjectErrorInfo(userId, projectId, fileName), e);
+        }
+        fd.isGCS = false;
+        fd.gcsName = null;
+      }
+      // Note, Don't have to do anything if the file was in the
+      // Blobstore and shrank because the code above (3 lines
+      // into the function) already handles removing the old
+      // contents from the Blobstore.
+      fd.isBlob = false;
+      fd.blobstorePath = null;
+      fd.content = stored;
+    }
+    if (considerBackup) {
+      if ((fd.lastBackup + TWENTYFOURHOURS) < System.currentTimeMillis()) {
+        try {
+          // Compressed backups are named so that they can be read without FileData
+          String gcsName = makeGCSfileName(fileName + "." + formattedTime() + ".backup"
+              + (fd.contentEncoding == FileContentEncoding.GZIP ? ".gz" : ""), projectId);
+          GcsOutputChannel outputChannel =
+              gcsService.createOrReplace((new GcsFilename(getGcsBucketToUse(FileData.RoleEnum.SOURCE), gcsName)), GcsFileOptions.getDefaultInstance());
+          outputChannel.write(ByteBuffer.wrap(stored));
+          outputChannel.close();
+          fd.lastBackup = System.currentTimeMillis();
+        } catch (IOException e) {
+          throw CrashReport.createAndLogError(LOG, null,
+              collectProjectErrorInfo(userId, projectId, fileName + "(backup)"), e);
+        }
+      }
+    }
+    // Old file not marked with ownership, mark it now
+    if (fd.userId == null || fd.userId.equals("")) {
+      fd.userId = userId;
+    }
+    datastore.put(fd);
+    return updateProjectModDate(datastore, projectId);
+  }
+
+  /**
+   * Encodes the content of a file for storing, and records the encoding in
+   * {@code fd}.
+   *
+   * @return the content to store
+   */
+  private static byte[] encodeContent(FileData fd, byte[] content) {
+    if (compressSource.get()
+        && FileContentEncoding.shouldCompress(fd.fileName, content.length)) {
+      byte[] compressed = FileContentEncoding.compress(content);
+      if (compressed.length < content.length) {
+        fd.contentEncoding = FileContentEncoding.GZIP;
+        return compressed;
+      }
+    }
+    fd.contentEncoding = FileContentEncoding.RAW;
+    return content;
+  }
+
   protected void deleteBlobstoreFile(String blobKeyString) {
     // It would be nice if there were an AppEngineFile.delete() method but alas there isn't, so we
     // have to get the BlobKey and delete via the BlobstoreService.
@@ -1685,87 +1832,97 @@ public class ObjectifyStorageIo implements StorageIo {
             new UnauthorizedAccessException(userId, projectId, null));
         }
       }
-      if (isTrue(fileData.isGCS)) {     // It's in the Cloud Store
-        try {
-          int count;
-          boolean npfHappened = false;
-          boolean recovered = false;
-          for (count = 0; count < 5; count++) {
-            GcsFilename gcsFileName = new GcsFilename(getGcsBucketToUse(fileData.role), fileData.gcsName);
-            int bytesRead = 0;
-            int fileSize = 0;
-            ByteBuffer resultBuffer;
+      result.t = readFileContent(userId, projectId, fileName, fileData);
+    } else {
+      throw CrashReport.createAndLogError(LOG, null,
+          collectProjectErrorInfo(userId, projectId, fileName),
+          new FileNotFoundException("No data for " + fileName));
+    }
+    return result.t;
+  }
+
+  /**
+   * Reads the content of a file from wherever it is stored.
+   */
+  private byte[] readFileContent(String userId, long projectId, String fileName,
+      FileData fileData) {
+    final Result<byte[]> result = new Result<byte[]>();
+    if (isTrue(fileData.isGCS)) {     // It's in the Cloud Store
+      try {
+        int count;
+        boolean npfHappened = false;
+        boolean recovered = false;
+        for (count = 0; count < 5; count++) {
+          GcsFilename gcsFileName = new GcsFilename(getGcsBucketToUse(fileData.role), fileData.gcsName);
+          int bytesRead = 0;
+          int fileSize = 0;
+          ByteBuffer resultBuffer;
+          try {
+            fileSize = (int) gcsService.getMetadata(gcsFileName).getLength();
+            resultBuffer = ByteBuffer.allocate(fileSize);
+            GcsInputChannel readChannel = gcsService.openReadChannel(gcsFileName, 0);
             try {
-              fileSize = (int) gcsService.getMetadata(gcsFileName).getLength();
-              resultBuffer = ByteBuffer.allocate(fileSize);
-              GcsInputChannel readChannel = gcsService.openReadChannel(gcsFileName, 0);
-              try {
-                while (bytesRead < fileSize) {
-                  bytesRead += readChannel.read(resultBuffer);
-                  if (bytesRead < fileSize) {
-                    if (DEBUG) {
-                      LOG.log(Level.INFO, "readChannel: bytesRead = " + bytesRead + " fileSize = " + fileSize);
-                    }
+              while (bytesRead < fileSize) {
+                bytesRead += readChannel.read(resultBuffer);
+                if (bytesRead < fileSize) {
+                  if (DEBUG) {
+                    LOG.log(Level.INFO, "readChannel: bytesRead = " + bytesRead + " fileSize = " + fileSize);
                   }
                 }
-                recovered = true;
-                result.t = resultBuffer.array();
-                break;          // We got the data, break out of the loop!
-              } finally {
-                readChannel.close();
               }
-            } catch (NullPointerException e) {
-              // This happens if the object in GCS is non-existent, which would happen
-              // when people uploaded a zero length object. As of this change, we now
-              // store zero length objects into GCS, but there are plenty of older objects
-              // that are missing in GCS.
-              LOG.log(Level.WARNING, "downloadrawfile: NPF recorded for " + fileData.gcsName);
-              npfHappened = true;
-              resultBuffer = ByteBuffer.allocate(0);
+              recovered = true;
               result.t = resultBuffer.array();
+              break;          // We got the data, break out of the loop!
+            } finally {
+              readChannel.close();
             }
+          } catch (NullPointerException e) {
+            // This happens if the object in GCS is non-existent, which would happen
+            // when people uploaded a zero length object. As of this change, we now
+            // store zero length objects into GCS, but there are plenty of older objects
+            // that are missing in GCS.
+            LOG.log(Level.WARNING, "downloadrawfile: NPF recorded for " + fileData.gcsName);
+            npfHappened = true;
+            resultBuffer = ByteBuffer.allocate(0);
+            result.t = resultBuffer.array();
           }
+        }
 
-          // report out on how things went above
-          if (npfHappened) {    // We lost at least once
-            if (recovered) {
-              LOG.log(Level.WARNING, "recovered from NPF in downloadrawfile filename = " + fileData.gcsName +
-                " count = " + count);
-            } else {
-              LOG.log(Level.WARNING, "FATAL NPF in downloadrawfile filename = " + fileData.gcsName);
-            }
+        // report out on how things went above
+        if (npfHappened) {    // We lost at least once
+          if (recovered) {
+            LOG.log(Level.WARNING, "recovered from NPF in downloadrawfile filename = " + fileData.gcsName +
+              " count = " + count);
+          } else {
+            LOG.log(Level.WARNING, "FATAL NPF in downloadrawfile filename = " + fileData.gcsName);
           }
-
-        } catch (IOException e) {
-          throw CrashReport.createAndLogError(LOG, null,
-              collectProjectErrorInfo(userId, projectId, fileName), e);
         }
-      } else if (fileData.isBlob) {
-        try {
-          if (fileData.blobKey == null) {
-            throw new BlobReadException("blobKey is null");
-          }
-          result.t = getBlobstoreBytes(fileData.blobKey);
-          // Time to consider upgrading this file if we are moving to GCS
-          // Note: We only run if we have at least 5 seconds of runtime left in the request
-          long timeRemaining = ApiProxy.getCurrentEnvironment().getRemainingMillis();
-        } catch (BlobReadException e) {
-          throw CrashReport.createAndLogError(LOG, null,
-              collectProjectErrorInfo(userId, projectId, fileName), e);
-        }
-      } else {
-        if (fileData.content == null) {
-          result.t = new byte[0];
-        } else {
-          result.t = fileData.content;
+
+      } catch (IOException e) {
+        throw CrashReport.createAndLogError(LOG, null,
+            collectProjectErrorInfo(userId, projectId, fileName), e);
+      }
+    } else if (fileData.isBlob) {
+      try {
+        if (fileData.blobKey == null) {
+          throw new BlobReadException("blobKey is null");
         }
+        result.t = getBlobstoreBytes(fileData.blobKey);
+        // Time to consider upgrading this file if we are moving to GCS
+        // Note: We only run if we have at least 5 seconds of runtime left in the request
+        long timeRemaining = ApiProxy.getCurrentEnvironment().getRemainingMillis();
+      } catch (BlobReadException e) {
+        throw CrashReport.createAndLogError(LOG, null,
+            collectProjectErrorInfo(userId, projectId, fileName), e);
       }
     } else {
-      throw CrashReport.createAndLogError(LOG, null,
-          collectProjectErrorInfo(userId, projectId, fileName),
-          new FileNotFoundException("No data for " + fileName));
+      if (fileData.content == null) {
+        result.t = new byte[0];
+      } else {
+        result.t = fileData.content;
+      }
     }
-    return result.t;
+    return FileContentEncoding.decode(fileData.contentEncoding, result.t);
   }
 
   // Note: this must be called outside of any transaction, since getBlobKey()
@@ -1808,6 +1965,57 @@ public class ObjectifyStorageIo implements StorageIo {
       final boolean fatalError,
       final boolean forAppStore,
       final boolean locallyCachedApp) throws IOException {
+    ByteArrayOutputStream zipFile = new ByteArrayOutputStream();
+    Result<String> projectName = new Result<String>();
+    int fileCount = writeProjectSourceZip(userId, projectId, includeProjectHistory,
+        includeAndroidKeystore, includeYail, includeScreenShots, forGallery, fatalError,
+        forAppStore, locallyCachedApp, zipFile, 0, projectName);
+    if (zipName == null) {
+      zipName = projectName.t + ".aia";
+    }
+    ProjectSourceZip projectSourceZip =
+        new ProjectSourceZip(zipName, zipFile.toByteArray(), fileCount);
+    projectSourceZip.setMetadata(projectName.t);
+    return projectSourceZip;
+  }
+
+  @Override
+  public int writeProjectSourceZip(String userId, long projectId,
+      boolean includeProjectHistory,
+      boolean includeAndroidKeystore,
+      boolean includeYail,
+      boolean includeScreenShots,
+      boolean forGallery,
+      boolean fatalError,
+      boolean forAppStore,
+      boolean locallyCachedApp,
+      OutputStream stream, long maxSize) throws IOException {
+    return writeProjectSourceZip(userId, projectId, includeProjectHistory,
+        includeAndroidKeystore, includeYail, includeScreenShots, forGallery, fatalError,
+        forAppStore, locallyCachedApp, stream, maxSize, new Result<String>());
+  }
+
+  /**
+   * Writes the project files as a zip archive to {@code stream}, reading
+   * each file only when it is its turn to be written, so that the whole
+   * archive is never held in memory.
+   *
+   * @param maxSize the maximum number of bytes to write, or 0 for no limit
+   * @param projectName receives the name of the project
+   * @return the number of files in the zip
+   * @throws ProjectTooLargeException if the zip would be larger than maxSize
+   */
+  private int writeProjectSourceZip(final String userId, final long projectId,
+      final boolean includeProjectHistory,
+      final boolean includeAndroidKeystore,
+      final boolean includeYail,
+      final boolean includeScreenShots,
+      final boolean forGallery,
+      final boolean fatalError,
+      final boolean forAppStore,
+      final boolean locallyCachedApp,
+      OutputStream stream, long maxSize,
+      final Result<String> projectName) throws IOException {
     final boolean forBuildserver = includeAndroidKeystore && includeYail;
     validateGCS();
     final Result<Integer> fileCount = new Result<Integer>();
@@ -1819,13 +2027,11 @@ public class ObjectifyStorageIo implements StorageIo {
     // to avoid problems reading blobs in a transaction with the wrong
     // entity group.
     final List<FileData> fileData = new ArrayList<FileData>();
-    final Result<String> projectName = new Result<String>();
     final Map<String, Integer> screens = new HashMap<String, Integer>();
     projectName.t = null;
     String fileName = null;
 
-    ByteArrayOutputStream zipFile = new ByteArrayOutputStream();
-    final ZipOutputStream out = new ZipOutputStream(zipFile);
+    final ZipOutputStream out = new ZipOutputStream(new SizeLimitedOutputStream(stream, maxSize));
     out.setComment("Built with MIT App Inventor");
 
     try {
@@ -1963,12 +2169,13 @@ public class ObjectifyStorageIo implements StorageIo {
                 }
               }
             }
+            data = FileContentEncoding.decode(fd.contentEncoding, data);
           } catch (IOException e) {
             throw CrashReport.createAndLogError(LOG, null,
               collectProjectErrorInfo(userId, projectId, fileName), e);
           }
         } else {
-          data = fd.content;
+          data = FileContentEncoding.decode(fd.contentEncoding, fd.content);
           if (fileName.endsWith(".properties") && locallyCachedApp == true) {
             String projectProperties = new String(data, StandardCharsets.UTF_8);
             Properties oldProperties = new Properties();
@@ -2015,42 +2222,70 @@ public class ObjectifyStorageIo implements StorageIo {
     }
 
     if (includeAndroidKeystore) {
+      final Result<byte[]> keystore = new Result<byte[]>();
       try {
         runJobWithRetries(new JobRetryHelper() {
             @Override
             public void run(Objectify datastore) {
-              try {
-                Key<UserData> userKey = userKey(userId);
-                for (UserFileData ufd : datastore.query(UserFileData.class).ancestor(userKey)) {
-                  if (ufd.fileName.equals(StorageUtil.ANDROID_KEYSTORE_FILENAME) &&
-                      (ufd.content.length > 0)) {
-                    out.putNextEntry(new ZipEntry(StorageUtil.ANDROID_KEYSTORE_FILENAME));
-                    out.write(ufd.content, 0, ufd.content.length);
-                    out.closeEntry();
-                    fileCount.t++;
-                  }
+              Key<UserData> userKey = userKey(userId);
+              for (UserFileData ufd : datastore.query(UserFileData.class).ancestor(userKey)) {
+                if (ufd.fileName.equals(StorageUtil.ANDROID_KEYSTORE_FILENAME) &&
+                    (ufd.content.length > 0)) {
+                  keystore.t = ufd.content;
                 }
-              } catch (IOException e) {
-                throw CrashReport.createAndLogError(LOG, null,
-                    collectProjectErrorInfo(userId, projectId,
-                        StorageUtil.ANDROID_KEYSTORE_FILENAME), e);
               }
             }
         }, false);
       } catch (ObjectifyException e) {
         throw CrashReport.createAndLogError(LOG, null, collectUserErrorInfo(userId), e);
       }
+      // Write the keystore outside of the job, so that exceeding maxSize isn't retried
+      if (keystore.t != null) {
+        out.putNextEntry(new ZipEntry(StorageUtil.ANDROID_KEYSTORE_FILENAME));
+        out.write(keystore.t, 0, keystore.t.length);
+        out.closeEntry();
+        fileCount.t++;
+      }
     }
 
-    out.close();
+    // Don't close the stream, it belongs to the caller
+    out.finish();
+    out.flush();
+    return fileCount.t;
+  }
 
-    if (zipName == null) {
-      zipName = projectName.t + ".aia";
+  /**
+   * Passes bytes through to another stream, failing once more than a given
+   * number of bytes were written.
+   */
+  private static class SizeLimitedOutputStream extends FilterOutputStream {
+    private final long maxSize;
+    private long size = 0;
+
+    // maxSize of 0 means no limit
+    SizeLimitedOutputStream(OutputStream out, long maxSize) {
+      super(out);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      count(1);
+      out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      count(len);
+      out.write(b, off, len);
+    }
+
+    private void count(int len) throws ProjectTooLargeException {
+      size += len;
+      if (maxSize > 0 && size > maxSize) {
+        throw new ProjectTooLargeException(maxSize, size);
+      }
     }
-    ProjectSourceZip projectSourceZip =
-        new ProjectSourceZip(zipName, zipFile.toByteArray(), fileCount.t);
-    projectSourceZip.setMetadata(projectName.t);
-    return projectSourceZip;
   }
 
   @Override
@@ -2405,7 +2640,8 @@ public class ObjectifyStorageIo implements StorageIo {
       } catch (ObjectifyException oe) {
         String message = oe.getMessage();
         if (message != null &&
-          (message.startsWith("Blocks") || message.startsWith("User Al"))) { // This one is fatal!
+          (message.startsWith("Blocks") || message.startsWith("User Al")
+            || message.startsWith("Patch"))) { // This one is fatal!
           throw oe;
         }
         // maybe this should be a fatal error? I think only thing
@@ -2517,6 +2753,21 @@ public class ObjectifyStorageIo implements StorageIo {
     return ObjectifyService.begin().find(projectKey(projectId));
   }
 
+  /**
+   * Finds an entity, reusing the copy already read by the current request, if
+   * any. Use this only for reading ProjectData and UserData, whose writes
+   * update or invalidate the {@link RequestCache}, and never to find an entity
+   * that is about to be changed.
+   */
+  private static <T> T findCached(Objectify datastore, Key<T> key) {
+    if (RequestCache.contains(key)) {
+      return RequestCache.<T>get(key);
+    }
+    T entity = datastore.find(key);
+    RequestCache.put(key, entity);
+    return entity;
+  }
+
   @VisibleForTesting
   void setGcsFileContent(String gcsPath, byte[] content) throws IOException {
     GcsOutputChannel outputChannel = gcsService.createOrReplace(
@@ -2538,7 +2789,8 @@ public class ObjectifyStorageIo implements StorageIo {
   // layer to the client code which will put up a dialog box for the user to review
   // See Ode.java for more information
   private void checkForBlocksTruncation(FileData fd) throws ObjectifyException {
-    if (fd.isBlob || isTrue(fd.isGCS) || fd.content.length > 120)
+    if (fd.isBlob || isTrue(fd.isGCS)
+        || FileContentEncoding.decode(fd.contentEncoding, fd.content).length > 120)
       throw new ObjectifyException("BlocksTruncated"); // Hack
     // I'm avoiding having to modify every use of runJobWithRetries to handle a new
     // exception, so we use this dodge.
@@ -2647,6 +2899,7 @@ public class ObjectifyStorageIo implements StorageIo {
               }
               userData.isAdmin = user.getIsAdmin();
               datastore.put(userData);
+              RequestCache.remove(userKey(userData.id));
             } else {            // New User
               String emaillower = user.getEmail().toLowerCase();
               Objectify qDatastore = ObjectifyService.begin(); // Need an instance not in this transaction
@@ -2667,6 +2920,7 @@ public class ObjectifyStorageIo implements StorageIo {
               }
               userData.isAdmin = user.getIsAdmin();
               datastore.put(userData);
+              RequestCache.remove(userKey(userData.id));
             }
           }
         }, true);
@@ -2745,6 +2999,21 @@ public class ObjectifyStorageIo implements StorageIo {
     }
   }
 
+  @Override
+  public void storeBuildQueuePosition(String userId, long projectId, int position) {
+    String prelim = "7c1a9d4e-2b6f-4e0a-9c35-81f0d2a6b4e7";
+    String cacheKey = prelim + userId + projectId;
+    memcache.put(cacheKey, position);
+  }
+
+  @Override
+  public int getBuildQueuePosition(String userId, long projectId) {
+    String prelim = "7c1a9d4e-2b6f-4e0a-9c35-81f0d2a6b4e7";
+    String cacheKey = prelim + userId + projectId;
+    Integer ival = (Integer) memcache.get(cacheKey);
+    return ival == null ? 0 : ival.intValue();
+  }
+
   @Override
   public void assertUserHasProject(final String userId, final long projectId) {
     try {
@@ -2821,6 +3090,7 @@ public class ObjectifyStorageIo implements StorageIo {
           public void run(Objectify datastore) {
             // Delete the UserData object
             datastore.delete(userKey(userId));
+            RequestCache.remove(userKey(userId));
             // And remove it from memcache
             String cachekey = User.usercachekey + "|" + userId;
             memcache.delete(cachekey);
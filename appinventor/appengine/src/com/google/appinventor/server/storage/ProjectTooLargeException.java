@@ -0,0 +1,36 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.server.storage;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when a project written as a zip archive grows beyond the
+ * allowed size.
+ *
+ */
+public class ProjectTooLargeException extends IOException {
+  private final long maxSize;
+  private final long size;
+
+  public ProjectTooLargeException(long maxSize, long size) {
+    super("Project exceeds " + maxSize + " bytes");
+    this.maxSize = maxSize;
+    this.size = size;
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the number of bytes written when the limit was exceeded, which is
+   * a lower bound of the size of the whole archive.
+   */
+  public long getSize() {
+    return size;
+  }
+}
@@ -0,0 +1,130 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.server.storage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the entities read by {@link ObjectifyStorageIo} for the duration of a
+ * request, so that an RPC asking for several properties of the same project
+ * reads the project from the datastore only once.
+ *
+ * <p>Entities are only cached between {@link #begin} and {@link #end}, which
+ * {@link com.google.appinventor.server.OdeAuthFilter} calls around each
+ * request. Outside of a request every lookup misses, so code that isn't
+ * serving a request, such as tests and tasks, sees the datastore directly.
+ *
+ * <p>Every {@link #STATS_INTERVAL} requests, the average number of cached
+ * lookups per request is logged, split into those that went to the datastore
+ * and those served from the cache. Only the lookups that go through the cache
+ * are counted. Other datastore reads, such as file and user project queries,
+ * are not.
+ *
+ */
+public final class RequestCache {
+  private static final Logger LOG = Logger.getLogger(RequestCache.class.getName());
+
+  private static final int STATS_INTERVAL = 1000;
+  private static final AtomicLong requests = new AtomicLong();
+  private static final AtomicLong totalMisses = new AtomicLong();
+  private static final AtomicLong totalHits = new AtomicLong();
+
+  private static final ThreadLocal<RequestCache> current = new ThreadLocal<RequestCache>();
+
+  // Values may be null, for entities known not to exist
+  private final Map<Object, Object> entities = new HashMap<Object, Object>();
+  private int misses = 0;
+  private int hits = 0;
+
+  private RequestCache() {
+  }
+
+  /**
+   * Starts caching the entities read by the current thread.
+   */
+  public static void begin() {
+    current.set(new RequestCache());
+  }
+
+  /**
+   * Drops the entities cached by the current thread, and records how many
+   * cached lookups the request made.
+   */
+  public static void end() {
+    RequestCache cache = current.get();
+    current.remove();
+    if (cache == null) {
+      return;
+    }
+    long count = requests.incrementAndGet();
+    long misses = totalMisses.addAndGet(cache.misses);
+    long hits = totalHits.addAndGet(cache.hits);
+    if (LOG.isLoggable(Level.FINE)) {
+      LOG.fine("Request made " + cache.misses + " cache misses, " + cache.hits + " cache hits");
+    }
+    if (count % STATS_INTERVAL == 0) {
+      LOG.info("Requests: " + count + ", request cache misses per request: "
+          + ((double) misses / count) + ", request cache hits per request: "
+          + ((double) hits / count));
+    }
+  }
+
+  /**
+   * Returns whether {@code key} is cached for the current request, counting
+   * a miss if it isn't.
+   */
+  static boolean contains(Object key) {
+    RequestCache cache = current.get();
+    if (cache == null) {
+      return false;
+    }
+    if (cache.entities.containsKey(key)) {
+      cache.hits++;
+      return true;
+    }
+    cache.misses++;
+    return false;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> T get(Object key) {
+    RequestCache cache = current.get();
+    return cache == null ? null : (T) cache.entities.get(key);
+  }
+
+  /**
+   * Caches an entity just read or written, if a request is being served.
+   */
+  static void put(Object key, Object entity) {
+    RequestCache cache = current.get();
+    if (cache != null) {
+      cache.entities.put(key, entity);
+    }
+  }
+
+  /**
+   * Drops an entity that was changed in a way the cache can't follow, such
+   * as in a transaction that may still fail.
+   */
+  static void remove(Object key) {
+    RequestCache cache = current.get();
+    if (cache != null) {
+      cache.entities.remove(key);
+    }
+  }
+
+  /**
+   * Returns the number of cache misses so far in the current request.
+   */
+  static int getMisses() {
+    RequestCache cache = current.get();
+    return cache == null ? 0 : cache.misses;
+  }
+}
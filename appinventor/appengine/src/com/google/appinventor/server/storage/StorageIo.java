@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2019 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -11,6 +11,8 @@ import com.google.appinventor.shared.rpc.Motd;
 import com.google.appinventor.shared.rpc.Nonce;
 import com.google.appinventor.shared.rpc.admin.AdminUser;
 import com.google.appinventor.shared.rpc.AdminInterfaceException;
+import com.google.appinventor.shared.rpc.project.FilePatch;
+import com.google.appinventor.shared.rpc.project.FilePatchConflictException;
 import com.google.appinventor.shared.rpc.project.Project;
 import com.google.appinventor.shared.rpc.project.ProjectSourceZip;
 import com.google.appinventor.shared.rpc.project.UserProject;
@@ -19,6 +21,7 @@ import com.google.appinventor.shared.rpc.user.SplashConfig;
 
 import java.io.InputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -39,6 +42,11 @@ public interface StorageIo {
    */
   public static final long INVALID_PROJECTID = 0;
 
+  /**
+   * Build status stored once the build output of a project was received.
+   */
+  public static final int BUILD_STATUS_FINISHED = -1;
+
   // User management
 
   /**
@@ -420,6 +428,22 @@ public interface StorageIo {
    */
   long uploadFileForce(long projectId, String fileId, String userId, String content, String encoding);
 
+  /**
+   * Uploads a file by applying a patch to its stored content. The check of the
+   * stored content and the write happen atomically.
+   * @param projectId  project ID
+   * @param fileId  file ID
+   * @param userId the user who owns the file
+   * @param force write file even if it is a trivial workspace
+   * @param patch  the change to the stored content
+   * @param encoding encoding of content
+   * @return modification date for project
+   * @throws FilePatchConflictException if the stored content is not the one
+   *     the patch was made against
+   */
+  long patchFile(long projectId, String fileId, String userId, boolean force, FilePatch patch,
+      String encoding) throws BlocksTruncatedException, FilePatchConflictException;
+
   /**
    * Uploads a file.
    * @param projectId  project ID
@@ -543,6 +567,26 @@ public interface StorageIo {
     final boolean forGallery,
     final boolean fatalError, boolean forAppStore, boolean locallyCachedApp) throws IOException;
 
+  /**
+   * Writes project files as a zip archive to a stream, reading each file as
+   * it is written instead of building the archive in memory first.
+   *
+   * @param out  the stream to write to, which is left open
+   * @param maxSize  the maximum size of the archive in bytes, or 0 for no limit
+   * @return  the number of files written
+   * @throws ProjectTooLargeException if the archive exceeds maxSize, in which
+   *     case part of it may already have been written to out
+   * @see #exportProjectSourceZip
+   */
+  int writeProjectSourceZip(String userId, long projectId,
+    boolean includeProjectHistory,
+    boolean includeAndroidKeystore,
+    boolean includeYail,
+    boolean includeScreenShots,
+    boolean forGallery,
+    boolean fatalError, boolean forAppStore, boolean locallyCachedApp,
+    OutputStream out, long maxSize) throws IOException;
+
   /**
    * Find a user's id given their email address. Note that this query is case
    * sensitive!
@@ -646,12 +690,28 @@ public interface StorageIo {
    * available (yes, it can be down!) then we cheat and just return
    * 50 (for 50%).
    *
+   * Once the build output is stored the status is set to
+   * {@link #BUILD_STATUS_FINISHED}, until the next build resets it.
+   *
    */
 
   public void storeBuildStatus(String userId, long projectId, int progress);
 
   public int getBuildStatus(String userId, long projectId);
 
+  /**
+   * Used to record the position of a build in the build server's queue, so
+   * that users waiting for a build can see how many builds are ahead of
+   * theirs. The position is 1-based, and 0 once the build started (or if it
+   * was never queued).
+   *
+   * Like the build status, the App Engine version keeps the position in
+   * memcache, and returns 0 if it isn't there.
+   */
+  public void storeBuildQueuePosition(String userId, long projectId, int position);
+
+  public int getBuildQueuePosition(String userId, long projectId);
+
   /**
    * Checks that the user identified by {@code userId} has a reference to the project identified
    * by {@code projectId}. If a corresponding UserProjectData is not found, this function throws
@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2012 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -197,6 +197,10 @@ public class StoredData {
     // DateTime of last backup only used if GCS is enabled
     long lastBackup;
 
+    // The encoding of the content, wherever it is stored. One of the constants in
+    // FileContentEncoding. Files stored before encodings existed are RAW (0).
+    int contentEncoding;
+
     String userId;              // The userId which owns this file
                                 // if null or the empty string, we haven't initialized
                                 // it yet
@@ -0,0 +1,106 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.shared.rpc.project;
+
+import java.io.Serializable;
+
+/**
+ * A change to a text file, sent instead of the whole file when saving. The
+ * patch replaces one range of the file with new text, which is enough for
+ * the edits made between two auto-saves, and names the version of the file it
+ * applies to by its checksum (see {@link ChecksumedLoadFile#computeChecksum}).
+ *
+ * A patch must only be applied to the version it was made against. The
+ * server rejects it with a {@link FilePatchConflictException} otherwise, and
+ * the client saves the whole file instead.
+ */
+public final class FilePatch implements Serializable {
+
+  // For serialization
+  private static final long serialVersionUID = 4871245601529873358L;
+
+  private String baseChecksum;
+  private int start;
+  private int deleteCount;
+  private String text;
+
+  /**
+   * Default constructor (for serialization only).
+   * Unfortunately this will prevent any fields from being marked as final!
+   */
+  @SuppressWarnings("unused")
+  private FilePatch() {
+  }
+
+  public FilePatch(String baseChecksum, int start, int deleteCount, String text) {
+    this.baseChecksum = baseChecksum;
+    this.start = start;
+    this.deleteCount = deleteCount;
+    this.text = text;
+  }
+
+  /**
+   * Makes the patch that turns {@code base} into {@code content}, by replacing
+   * everything between their common prefix and their common suffix.
+   *
+   * @param baseChecksum the checksum of {@code base}
+   * @param base the version of the file known to the server
+   * @param content the new version of the file
+   */
+  public static FilePatch diff(String baseChecksum, String base, String content) {
+    int limit = Math.min(base.length(), content.length());
+    int prefix = 0;
+    while (prefix < limit && base.charAt(prefix) == content.charAt(prefix)) {
+      prefix++;
+    }
+    // Don't split a surrogate pair between the prefix and the inserted text.
+    if (prefix > 0 && prefix < limit && Character.isHighSurrogate(content.charAt(prefix - 1))) {
+      prefix--;
+    }
+    int suffix = 0;
+    while (suffix < limit - prefix && base.charAt(base.length() - 1 - suffix)
+        == content.charAt(content.length() - 1 - suffix)) {
+      suffix++;
+    }
+    if (suffix > 0 && suffix < content.length() - prefix
+        && Character.isLowSurrogate(content.charAt(content.length() - suffix))) {
+      suffix--;
+    }
+    return new FilePatch(baseChecksum, prefix, base.length() - prefix - suffix,
+        content.substring(prefix, content.length() - suffix));
+  }
+
+  /**
+   * Applies the patch to the version of the file it was made against.
+   *
+   * @param base the content of the file
+   * @return the patched content
+   * @throws IllegalArgumentException if the patch doesn't fit {@code base}
+   */
+  public String apply(String base) {
+    if (start < 0 || deleteCount < 0 || start + deleteCount > base.length()) {
+      throw new IllegalArgumentException("Patch doesn't fit a file of " + base.length()
+          + " characters");
+    }
+    return base.substring(0, start) + text + base.substring(start + deleteCount);
+  }
+
+  public String getBaseChecksum() {
+    return baseChecksum;
+  }
+
+  public int getStart() {
+    return start;
+  }
+
+  public int getDeleteCount() {
+    return deleteCount;
+  }
+
+  public String getText() {
+    return text;
+  }
+}
@@ -0,0 +1,32 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.shared.rpc.project;
+
+import java.io.Serializable;
+
+/**
+ * Thrown when a {@link FilePatch} is saved against a version of a file that
+ * is no longer the stored one, e.g., because the file was saved from another
+ * browser window. The client should save the whole file instead.
+ */
+public class FilePatchConflictException extends Exception implements Serializable {
+
+    private String message;
+
+    public FilePatchConflictException() {
+      super();
+    }
+
+    public FilePatchConflictException(String message) {
+      super();
+      this.message = message;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+}
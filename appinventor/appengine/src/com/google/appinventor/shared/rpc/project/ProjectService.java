@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2022 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -296,6 +296,25 @@ public interface ProjectService extends RemoteService {
   long save2(String sessionId, long projectId, String fileId, boolean force, String content) throws InvalidSessionException,
       BlocksTruncatedException;
 
+  /**
+   * Saves the content of the file associated with a node in the project tree
+   * by applying a patch to the stored version, so that only the changed part
+   * of the file is sent. The patch is applied only if the stored version is
+   * the one the patch was made against; otherwise the file is left unchanged
+   * and the caller should save the whole file using {@link #save2}.
+   *
+   * @param sessionId current session id
+   * @param projectId  project ID
+   * @param fileId  project node whose source should be saved
+   * @param force whether to write an empty blocks workspace
+   * @param patch  the change to the stored version of the file
+   * @return modification date for project
+   * @throws FilePatchConflictException if the stored version of the file is
+   *     not the one the patch was made against
+   */
+  long savePatch(String sessionId, long projectId, String fileId, boolean force, FilePatch patch)
+      throws InvalidSessionException, BlocksTruncatedException, FilePatchConflictException;
+
   /**
    * Saves the contents of multiple files.
    *
@@ -341,10 +360,29 @@ public interface ProjectService extends RemoteService {
    * @return  results of build. The following values may be in RpcResult.result:
    *            0: Build is done and was successful
    *            1: Build is done and was unsuccessful
-   *           -1: Build is not yet done.
+   *           -1: Build is not yet done. The output is the current progress
+   *               and the extra is the position of the build in the build
+   *               server's queue, or 0 if it isn't queued.
    */
   RpcResult getBuildResult(long projectId, String target);
 
+  /**
+   * Waits until the progress of a build differs from the given one or the
+   * build finishes, or until a timeout elapses. Unlike polling
+   * {@link #getBuildResult}, this doesn't read the build output from
+   * storage until the build is done.
+   *
+   * @param projectId  project ID
+   * @param target  build target (optional, implementation dependent)
+   * @param lastProgress  the progress the client already knows about
+   *
+   * @return  results of build, as for {@link #getBuildResult}. If the build
+   *          is not yet done, the output is the current progress, which is
+   *          lastProgress if nothing changed before the timeout. A change in
+   *          the queue position also ends the wait.
+   */
+  RpcResult waitForBuildResult(long projectId, String target, int lastProgress);
+
   /**
    * Adds a new file to the given project.
    *
@@ -0,0 +1,61 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.server;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+ * Tests for {@link BuildNotifier}.
+ *
+ */
+public class BuildNotifierTest {
+  private static final String USER_ID = "1";
+  private static final long PROJECT_ID = 1234L;
+
+  @Test
+  public void testAwaitTimesOut() throws InterruptedException {
+    long start = System.currentTimeMillis();
+    assertFalse(BuildNotifier.await(USER_ID, PROJECT_ID, 50));
+    assertTrue(System.currentTimeMillis() - start >= 50);
+  }
+
+  @Test
+  public void testNotifyWakesWaiter() throws InterruptedException {
+    final CountDownLatch done = new CountDownLatch(1);
+    final AtomicBoolean changed = new AtomicBoolean(false);
+    Thread waiter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          changed.set(BuildNotifier.await(USER_ID, PROJECT_ID, 10000));
+        } catch (InterruptedException e) {
+          // changed stays false
+        }
+        done.countDown();
+      }
+    });
+    waiter.start();
+    // Keep notifying until the waiter is registered and wakes up
+    while (done.getCount() > 0) {
+      BuildNotifier.notifyBuildChanged(USER_ID, PROJECT_ID + 1);
+      BuildNotifier.notifyBuildChanged(USER_ID, PROJECT_ID);
+      Thread.sleep(10);
+    }
+    assertTrue(changed.get());
+  }
+
+  @Test
+  public void testNotifyWithoutWaiters() throws InterruptedException {
+    BuildNotifier.notifyBuildChanged(USER_ID, PROJECT_ID);
+    // An earlier notification doesn't end a later wait
+    assertFalse(BuildNotifier.await(USER_ID, PROJECT_ID, 20));
+  }
+}
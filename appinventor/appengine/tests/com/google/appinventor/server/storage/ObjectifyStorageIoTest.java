@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2012 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -11,6 +11,9 @@ import com.google.appinventor.server.LocalDatastoreTestCase;
 import com.google.appinventor.server.storage.StoredData.ProjectData;
 import com.google.appinventor.shared.rpc.BlocksTruncatedException;
 import com.google.appinventor.shared.rpc.component.Component;
+import com.google.appinventor.shared.rpc.project.ChecksumedLoadFile;
+import com.google.appinventor.shared.rpc.project.FilePatch;
+import com.google.appinventor.shared.rpc.project.FilePatchConflictException;
 import com.google.appinventor.shared.rpc.project.Project;
 import com.google.appinventor.shared.rpc.project.RawFile;
 import com.google.appinventor.shared.rpc.project.TextFile;
@@ -23,6 +26,7 @@ import com.google.appinventor.shared.storage.StorageUtil;
 import com.google.common.base.Charsets;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -333,6 +337,33 @@ public class ObjectifyStorageIoTest extends LocalDatastoreTestCase {
     assertFalse(storage.getProjectOutputFiles(USER_ID, projectId).contains(FILE_NAME_OUTPUT));
   }
 
+  public void testPatchFile() throws Exception {
+    final String USER_ID = "1250";
+    final String USER_EMAIL = "newuser1250@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    long projectId = createProject(USER_ID, PROJECT_NAME, FAKE_PROJECT_TYPE, FORM_QUALIFIED_NAME);
+    storage.addSourceFilesToProject(USER_ID, projectId, false, SCM_FILE_NAME1);
+    storage.uploadFile(projectId, SCM_FILE_NAME1, USER_ID, FILE_CONTENT1,
+        StorageUtil.DEFAULT_CHARSET);
+
+    String checksum = ChecksumedLoadFile.computeChecksum(FILE_CONTENT1);
+    storage.patchFile(projectId, SCM_FILE_NAME1, USER_ID, false,
+        FilePatch.diff(checksum, FILE_CONTENT1, FILE_CONTENT2), StorageUtil.DEFAULT_CHARSET);
+    assertEquals(FILE_CONTENT2, storage.downloadFile(USER_ID, projectId, SCM_FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+
+    // The stored file is no longer the one the patch was made against.
+    try {
+      storage.patchFile(projectId, SCM_FILE_NAME1, USER_ID, false,
+          FilePatch.diff(checksum, FILE_CONTENT1, ""), StorageUtil.DEFAULT_CHARSET);
+      fail();
+    } catch (FilePatchConflictException e) {
+      // expected
+    }
+    assertEquals(FILE_CONTENT2, storage.downloadFile(USER_ID, projectId, SCM_FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+  }
+
   public void testAddRemoveUserFile() {
     // Note that neither FILE_NAME1 nor FILE_NAME_OUTPUT should exist
     // at the start of this test
@@ -551,6 +582,107 @@ public class ObjectifyStorageIoTest extends LocalDatastoreTestCase {
     assertEquals(7,zipFile.getFileCount());
   }
 
+  public void testWriteProjectZip() throws BlocksTruncatedException, IOException {
+    final String USER_ID = "1825";
+    final String USER_EMAIL = "newuser1825@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    long projectId = createProject(USER_ID, PROJECT_NAME, FAKE_PROJECT_TYPE, FORM_QUALIFIED_NAME);
+    storage.addSourceFilesToProject(USER_ID, projectId, false, SCM_FILE_NAME1);
+    storage.uploadFile(projectId, SCM_FILE_NAME1, USER_ID, FILE_CONTENT1, StorageUtil.DEFAULT_CHARSET);
+    storage.addSourceFilesToProject(USER_ID, projectId, false, BKY_FILE_NAME1);
+    storage.uploadFile(projectId, BKY_FILE_NAME1, USER_ID, FILE_CONTENT2, StorageUtil.DEFAULT_CHARSET);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int fileCount = storage.writeProjectSourceZip(USER_ID, projectId, false, false, false, false,
+        true, false, false, false, out, 0);
+    ProjectSourceZip zipFile = storage.exportProjectSourceZip(USER_ID, projectId, false, false,
+        null, false, false, true, false, false, false);
+    assertEquals(zipFile.getFileCount(), fileCount);
+    assertEquals(zipFile.getContent().length, out.size());
+
+    try {
+      storage.writeProjectSourceZip(USER_ID, projectId, false, false, false, false,
+          true, false, false, false, new ByteArrayOutputStream(), out.size() - 1);
+      fail();
+    } catch (ProjectTooLargeException e) {
+      assertEquals(out.size() - 1, e.getMaxSize());
+    }
+  }
+
+  public void testRequestCache() throws BlocksTruncatedException {
+    final String USER_ID = "1830";
+    final String USER_EMAIL = "newuser1830@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    long projectId = createProject(USER_ID, PROJECT_NAME, FAKE_PROJECT_TYPE, FORM_QUALIFIED_NAME);
+
+    RequestCache.begin();
+    try {
+      assertEquals(PROJECT_NAME, storage.getProjectName(USER_ID, projectId));
+      long dateCreated = storage.getProjectDateCreated(USER_ID, projectId);
+      assertEquals(dateCreated, storage.getProjectDateModified(USER_ID, projectId));
+      assertEquals(1, RequestCache.getMisses());
+
+      // Writes are seen by later reads in the same request
+      storage.storeProjectSettings(USER_ID, projectId, "{}");
+      assertEquals("{}", storage.loadProjectSettings(USER_ID, projectId));
+      storage.updateProjectBuiltDate(USER_ID, projectId, 42);
+      assertEquals(42, storage.getProjectDateBuilt(USER_ID, projectId));
+      assertEquals(1, RequestCache.getMisses());
+
+      storage.setMoveToTrashFlag(USER_ID, projectId, true);
+      assertTrue(storage.getUserProject(USER_ID, projectId).isInTrash());
+      assertEquals(2, RequestCache.getMisses());
+    } finally {
+      RequestCache.end();
+    }
+    assertEquals(0, RequestCache.getMisses());
+  }
+
+  public void testCompressedSourceFile() throws BlocksTruncatedException {
+    final String USER_ID = "1850";
+    final String USER_EMAIL = "newuser1850@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    long projectId = createProject(USER_ID, PROJECT_NAME, FAKE_PROJECT_TYPE, FORM_QUALIFIED_NAME);
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() <= 100000) {
+      sb.append(FILE_CONTENT2);
+    }
+    String content = sb.toString();
+    storage.addSourceFilesToProject(USER_ID, projectId, false, BKY_FILE_NAME1);
+    ObjectifyStorageIo.compressSource.setForTest(true);
+    try {
+      storage.uploadFile(projectId, BKY_FILE_NAME1, USER_ID, content,
+          StorageUtil.DEFAULT_CHARSET);
+    } finally {
+      ObjectifyStorageIo.compressSource.setForTest(false);
+    }
+
+    // Uncompressed, the file would be too large for the datastore.
+    assertFalse(storage.isGcsFile(projectId, BKY_FILE_NAME1));
+    // Compressed files are read whether or not compression is on.
+    assertEquals(content, storage.downloadFile(USER_ID, projectId, BKY_FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+  }
+
+  public void testSourceFileNotCompressedByDefault() throws BlocksTruncatedException {
+    final String USER_ID = "1860";
+    final String USER_EMAIL = "newuser1860@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    long projectId = createProject(USER_ID, PROJECT_NAME, FAKE_PROJECT_TYPE, FORM_QUALIFIED_NAME);
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() <= 100000) {
+      sb.append(FILE_CONTENT2);
+    }
+    String content = sb.toString();
+    storage.addSourceFilesToProject(USER_ID, projectId, false, BKY_FILE_NAME1);
+    storage.uploadFile(projectId, BKY_FILE_NAME1, USER_ID, content, StorageUtil.DEFAULT_CHARSET);
+
+    // Stored as is, the file is large enough to go to GCS.
+    assertTrue(storage.isGcsFile(projectId, BKY_FILE_NAME1));
+    assertEquals(content, storage.downloadFile(USER_ID, projectId, BKY_FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+  }
+
   public void testExportProjectZipNoSCM() throws BlocksTruncatedException, IOException {
     final String USER_ID = "1900";
     final String USER_EMAIL = "newuser1900@test.com";
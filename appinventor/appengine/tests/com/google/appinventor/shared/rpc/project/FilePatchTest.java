@@ -0,0 +1,54 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.shared.rpc.project;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link FilePatch}.
+ */
+public class FilePatchTest extends TestCase {
+  public void testDiffReplacesChangedRange() {
+    String base = "<xml><block id=\"a\"/><block id=\"b\"/></xml>";
+    String content = "<xml><block id=\"a\"/><block id=\"c\"/><block id=\"b\"/></xml>";
+    FilePatch patch = FilePatch.diff("checksum", base, content);
+    assertEquals("checksum", patch.getBaseChecksum());
+    assertEquals(0, patch.getDeleteCount());
+    assertEquals("<block id=\"c\"/>".length(), patch.getText().length());
+    assertEquals(content, patch.apply(base));
+  }
+
+  public void testDiffOfRepeatedText() {
+    assertRoundTrip("aaaa", "aa");
+    assertRoundTrip("aa", "aaaa");
+    assertRoundTrip("abcabc", "abc");
+    assertRoundTrip("", "abc");
+    assertRoundTrip("abc", "");
+    assertRoundTrip("same", "same");
+  }
+
+  public void testDiffKeepsSurrogatePairsTogether() {
+    String base = "x😀y";
+    String content = "x😁y";
+    FilePatch patch = FilePatch.diff("", base, content);
+    assertEquals("😁", patch.getText());
+    assertEquals(content, patch.apply(base));
+  }
+
+  public void testApplyRejectsPatchThatDoesNotFit() {
+    FilePatch patch = FilePatch.diff("", "a longer file", "a longer file!");
+    try {
+      patch.apply("short");
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private static void assertRoundTrip(String base, String content) {
+    assertEquals(content, FilePatch.diff("", base, content).apply(base));
+  }
+}
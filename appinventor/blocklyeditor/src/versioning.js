@@ -1,5 +1,5 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright © 2013-2024 Massachusetts Institute of Technology, All rights reserved
+// Copyright © 2013-2026 Massachusetts Institute of Technology, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 /**
@@ -1915,7 +1915,9 @@ Blockly.Versioning.AllUpgradeMaps =
     // This is initial version. Placeholder for future upgrades
     1: "noUpgrade",
     // UpdateDone event was added.
-    2: "noUpgrade"
+    2: "noUpgrade",
+    // GetValues method and GotValues event were added.
+    3: "noUpgrade"
 
   },
 
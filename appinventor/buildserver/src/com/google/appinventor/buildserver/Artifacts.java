@@ -0,0 +1,34 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the artifacts a task reads and writes.
+ *
+ * <p>A task starts once every task added before it that produces one of its inputs has
+ * finished, and once every task added before it that consumes one of its outputs has finished.
+ * Tasks producing the same artifact without consuming it may run at the same time, so they must
+ * write to different files. Tasks without this annotation run on their own, after all of the
+ * tasks added before them and before all of the tasks added after them.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Artifacts {
+  /**
+   * The artifacts the annotated task reads.
+   */
+  BuildArtifact[] consumes() default {};
+
+  /**
+   * The artifacts the annotated task writes.
+   */
+  BuildArtifact[] produces() default {};
+}
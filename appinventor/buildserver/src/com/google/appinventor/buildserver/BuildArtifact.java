@@ -0,0 +1,83 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver;
+
+/**
+ * The intermediate results passed between build tasks. Tasks declare which of these they consume
+ * and produce using {@link Artifacts}, which lets the {@link Compiler} run tasks that do not
+ * depend on each other at the same time.
+ */
+public enum BuildArtifact {
+  /**
+   * The component types used by the project and their build information.
+   */
+  BUILD_INFO,
+
+  /**
+   * The libraries, permissions, assets and other requirements of the project's components.
+   */
+  COMPONENT_INFO,
+
+  /**
+   * Resource sources generated under the build's res directory, such as icons and XML files.
+   */
+  RESOURCES,
+
+  /**
+   * The AndroidManifest.xml file.
+   */
+  MANIFEST,
+
+  /**
+   * Native libraries copied into the build's libs directory.
+   */
+  NATIVE_LIBS,
+
+  /**
+   * AAR libraries exploded into the build directory.
+   */
+  AAR_LIBS,
+
+  /**
+   * Component and project assets copied into the build's assets directory.
+   */
+  ASSETS,
+
+  /**
+   * The project resources merged with the resources of the AAR libraries.
+   */
+  MERGED_RESOURCES,
+
+  /**
+   * Native libraries needed by the build tools themselves.
+   */
+  TOOL_LIBS,
+
+  /**
+   * The compiled resource package.
+   */
+  RESOURCE_PACKAGE,
+
+  /**
+   * The R.txt symbol table generated alongside the resource package.
+   */
+  RESOURCE_SYMBOLS,
+
+  /**
+   * Java class files compiled from the project's sources.
+   */
+  CLASSES,
+
+  /**
+   * Dex files.
+   */
+  DEX,
+
+  /**
+   * The app package, i.e., the APK or AAB file being deployed.
+   */
+  APP_PACKAGE
+}
@@ -1,16 +1,26 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2023 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
 package com.google.appinventor.buildserver;
 
+import com.google.appinventor.buildserver.context.Resources;
+import com.google.appinventor.buildserver.stats.ChildProcessMemory;
+import com.google.appinventor.buildserver.stats.LatencyHistogram;
 import com.google.appinventor.buildserver.stats.SimpleStatReporter;
 import com.google.appinventor.buildserver.stats.StatCalculator;
 import com.google.appinventor.buildserver.stats.StatCalculator.Stats;
 import com.google.appinventor.buildserver.stats.StatReporter;
+import com.google.appinventor.buildserver.stats.TextMetrics;
 import com.google.appinventor.buildserver.tasks.android.AndroidBuildFactory;
+import com.google.appinventor.buildserver.tasks.android.PredexCache;
+import com.google.appinventor.buildserver.util.ExplodedAarCache;
+import com.google.appinventor.buildserver.util.IncrementalBuildCache;
+import com.google.appinventor.buildserver.util.KawaDaemon;
+import com.google.appinventor.buildserver.util.RuntimeClassCache;
+import com.google.appinventor.buildserver.util.ToolPool;
 import com.google.appinventor.common.version.GitBuildId;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.ByteStreams;
@@ -50,6 +60,7 @@ import java.text.DateFormat;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
@@ -90,12 +101,26 @@ public class BuildServer {
     }
 
     public void report(int progress) {
+      post("build.status", progress);
+    }
+
+    /**
+     * Reports the position of the build in the build queue. A position of 0 means the build is
+     * about to start.
+     *
+     * @param position the 1-based position in the queue
+     */
+    public void reportQueuePosition(int position) {
+      post("build.queue", position);
+    }
+
+    private void post(String entryName, int value) {
       try {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
         ZipOutputStream zipoutput = new ZipOutputStream(output);
-        zipoutput.putNextEntry(new ZipEntry("build.status"));
+        zipoutput.putNextEntry(new ZipEntry(entryName));
         PrintWriter pout = new PrintWriter(zipoutput);
-        pout.println(progress);
+        pout.println(value);
         pout.flush();
         zipoutput.flush();
         zipoutput.close();
@@ -144,6 +169,39 @@ public class BuildServer {
       usage = "Maximum number of builds that can run in parallel. O means unlimited.")
     int maxSimultaneousBuilds = 0;  // The default is unlimited.
 
+    @Option(name = "--maxQueuedBuilds",
+      usage = "Maximum number of builds that can wait for a free slot once "
+          + "--maxSimultaneousBuilds builds are running. 0 means builds are rejected instead.")
+    int maxQueuedBuilds = 0;
+
+    @Option(name = "--maxQueueWaitSeconds",
+      usage = "Reject new builds once the oldest queued build has waited this long. "
+          + "0 means no limit.")
+    int maxQueueWaitSeconds = 0;
+
+    @Option(name = "--maxParallelTasks",
+      usage = "Maximum number of independent tasks of a single build that can run in parallel. "
+          + "0 means one per available processor.")
+    int maxParallelTasks = 0;
+
+    @Option(name = "--maxSimultaneousKawa",
+      usage = "Maximum number of Kawa compiler processes that can run in parallel.")
+    int maxSimultaneousKawa = 1;
+
+    @Option(name = "--maxSimultaneousDex",
+      usage = "Maximum number of dx/d8 processes that can run in parallel.")
+    int maxSimultaneousDex = 1;
+
+    @Option(name = "--kawaDaemonMaxBuilds",
+      usage = "Compile YAIL in long-lived Kawa processes, each replaced after this many builds. "
+          + "0 starts a new Kawa process for every build.")
+    int kawaDaemonMaxBuilds = 0;
+
+    @Option(name = "--childProcessRamBudgetMb",
+      usage = "Total ram that can be used by all running child processes, in MB. "
+          + "0 means the same as --childProcessRamMb.")
+    int childProcessRamBudgetMb = 0;  // The default allows one child process at a time.
+
     @Option(name = "--port",
       usage = "The port number to bind to on the local machine.")
     int port = 9990;
@@ -161,6 +219,33 @@ public class BuildServer {
             usage = "the directory to cache the pre-dexed libraries")
     String dexCacheDir = null;
 
+    @Option(name = "--dexCacheMaxMb",
+            usage = "the maximum size of the dex cache, in MB. 0 means unlimited.")
+    long dexCacheMaxMb = 0;
+
+    @Option(name = "--runtimeCacheDir",
+            usage = "the directory to cache the compiled YAIL runtime. Defaults to a "
+                + "subdirectory of --dexCacheDir, if given.")
+    String runtimeCacheDir = null;
+
+    @Option(name = "--incrementalCacheDir",
+            usage = "the directory to keep outputs of previous builds for incremental rebuilds. "
+                + "Incremental rebuilds are disabled if not given.")
+    String incrementalCacheDir = null;
+
+    @Option(name = "--incrementalCacheMaxMb",
+            usage = "the maximum size of the incremental build cache, in MB. 0 means unlimited.")
+    long incrementalCacheMaxMb = 1024;
+
+    @Option(name = "--aarCacheDir",
+            usage = "the directory to cache unpacked AAR libraries. Defaults to a subdirectory of "
+                + "--dexCacheDir, if given.")
+    String aarCacheDir = null;
+
+    @Option(name = "--aarCacheMaxMb",
+            usage = "the maximum size of the AAR cache, in MB. 0 means unlimited.")
+    long aarCacheMaxMb = 512;
+
     @Option(name = "--statreporter",
         usage = "the reporter to use for collecting stats")
     String statReporter = "com.google.appinventor.buildserver.stats.SimpleStatReporter";
@@ -203,7 +288,7 @@ public class BuildServer {
   // NOTE(lizlooney) - the buildExecutor must be created after the command line options are
   // processed in main(). If it is created here, the number of simultaneous builds will always be
   // the default value, even if the --maxSimultaneousBuilds option is on the command line.
-  private static NonQueuingExecutor buildExecutor;
+  private static QueuingExecutor buildExecutor;
 
   // The input zip file. It will be deleted in cleanUp.
   private File inputZip;
@@ -235,7 +320,9 @@ public class BuildServer {
   //                DOWN:       We return bad health and reject jobs
   //                DRAINING:   We have reached > 2/3 of max permitted jobs
   //                            We return bad health (but accept jobs) until
-  //                            the number of active jobs is < 1/3 of max
+  //                            the number of active jobs is < 1/3 of max.
+  //                            When builds are queued, the queue depth and
+  //                            the p95 queue wait are used instead.
   private enum ShutdownState { UP, SHUTTING, TURNING, DOWN, DRAINING };
 
   private static volatile boolean draining = false; // We have exceeded 2/3 max load, waiting for
@@ -329,10 +416,39 @@ public class BuildServer {
     maximumActiveBuildTasks = Math.max(maximumActiveBuildTasks, buildExecutor.getActiveTaskCount());
     variables.put("maximum-simultaneous-build-tasks-occurred", maximumActiveBuildTasks + "");
     variables.put("active-build-tasks", buildExecutor.getActiveTaskCount() + "");
+    variables.put("maximum-queued-build-tasks-allowed", buildExecutor.getMaxQueuedTasks() + "");
+    variables.put("queued-build-tasks", buildExecutor.getQueuedTaskCount() + "");
+    variables.put("rejected-build-tasks", buildExecutor.getRejectedTaskCount() + "");
+    variables.put("p95-queue-wait-ms", buildExecutor.getP95QueueWaitMs() + "");
+    variables.put("maximum-parallel-tasks-per-build", Compiler.getMaxParallelTasks() + "");
+
+    // Child processes
+    variables.put("child-process-ram-budget-mb", ToolPool.getRamBudgetMb() + "");
+    variables.put("child-process-ram-available-mb", ToolPool.getAvailableRamMb() + "");
+    processToolPool(ToolPool.KAWA, variables);
+    processToolPool(ToolPool.DEX, variables);
+    variables.put("kawa-daemon-workers-started", KawaDaemon.getWorkersStarted() + "");
+    variables.put("kawa-daemon-workers-recycled", KawaDaemon.getWorkersRecycled() + "");
+    variables.put("kawa-daemon-workers-idle", KawaDaemon.getIdleWorkers() + "");
+    variables.put("runtime-cache-hits", RuntimeClassCache.getHits() + "");
+    variables.put("runtime-cache-misses", RuntimeClassCache.getMisses() + "");
 
     return mapToHtml(variables);
   }
 
+  private void processToolPool(ToolPool pool, Map<String, String> variables) {
+    String prefix = pool.getName() + "-";
+    long runs = pool.getRunCount();
+    variables.put(prefix + "max-workers", pool.getMaxWorkers() + "");
+    variables.put(prefix + "active-workers", pool.getActiveCount() + "");
+    variables.put(prefix + "queued", pool.getQueuedCount() + "");
+    variables.put(prefix + "runs", runs + "");
+    variables.put(prefix + "avg-wait-ms", (runs == 0 ? 0 : pool.getTotalWaitMs() / runs) + "");
+    variables.put(prefix + "max-wait-ms", pool.getMaxWaitMs() + "");
+    variables.put(prefix + "avg-run-ms", (runs == 0 ? 0 : pool.getTotalRunMs() / runs) + "");
+    variables.put(prefix + "max-run-ms", pool.getMaxRunMs() + "");
+  }
+
   private Response mapToHtml(Map<String, String> variables) {
     StringBuilder html = new StringBuilder();
     html.append("<html><body><tt>");
@@ -352,6 +468,35 @@ public class BuildServer {
 
     variables.put("hostname", InetAddress.getLocalHost().getHostName());
 
+    // Dex cache
+    variables.put("predex-cache.hits", PredexCache.getHits() + "");
+    variables.put("predex-cache.misses", PredexCache.getMisses() + "");
+    variables.put("predex-cache.shared", PredexCache.getSharedDexes() + "");
+    variables.put("predex-cache.evictions", PredexCache.getEvictions() + "");
+    variables.put("predex-cache.entries", PredexCache.getEntryCount() + "");
+    variables.put("predex-cache.bytes", PredexCache.getTotalBytes() + "");
+    variables.put("predex-cache.max-bytes", PredexCache.getMaxBytes() + "");
+
+    // Incremental build cache
+    if (IncrementalBuildCache.isEnabled()) {
+      variables.put("incremental-cache.hits", IncrementalBuildCache.getHits() + "");
+      variables.put("incremental-cache.misses", IncrementalBuildCache.getMisses() + "");
+      variables.put("incremental-cache.hit-ratio",
+          String.format("%.3f", IncrementalBuildCache.getHitRatio()));
+      variables.put("incremental-cache.bytes", IncrementalBuildCache.getTotalBytes() + "");
+      variables.put("incremental-cache.projects", IncrementalBuildCache.getProjectCount() + "");
+    }
+
+    // Unpacked AAR cache
+    if (ExplodedAarCache.isEnabled()) {
+      variables.put("aar-cache.hits", ExplodedAarCache.getHits() + "");
+      variables.put("aar-cache.misses", ExplodedAarCache.getMisses() + "");
+      variables.put("aar-cache.evictions", ExplodedAarCache.getEvictions() + "");
+      variables.put("aar-cache.entries", ExplodedAarCache.getEntryCount() + "");
+      variables.put("aar-cache.bytes", ExplodedAarCache.getTotalBytes() + "");
+      variables.put("aar-cache.max-bytes", ExplodedAarCache.getMaxBytes() + "");
+    }
+
     // Build Stats
     if (statReporter instanceof SimpleStatReporter) {
       StatCalculator calculator = new StatCalculator();
@@ -369,6 +514,65 @@ public class BuildServer {
     return mapToHtml(variables);
   }
 
+  /**
+   * Reports the load and latencies of the build server in the Prometheus text format, which is
+   * cheap to produce and to scrape.
+   */
+  @GET
+  @Path("metrics")
+  @Produces(MediaType.TEXT_PLAIN)
+  public Response metrics() {
+    TextMetrics metrics = new TextMetrics();
+
+    // Builds
+    metrics.add("buildserver_active_builds", "gauge", "Builds running.",
+        buildExecutor.getActiveTaskCount());
+    metrics.add("buildserver_queued_builds", "gauge", "Builds waiting for a free slot.",
+        buildExecutor.getQueuedTaskCount());
+    metrics.add("buildserver_max_active_builds", "gauge",
+        "Maximum number of builds running at once, or 0 if unlimited.",
+        buildExecutor.getMaxActiveTasks());
+    metrics.add("buildserver_completed_builds_total", "counter", "Builds completed.",
+        buildExecutor.getCompletedTaskCount());
+    metrics.add("buildserver_rejected_builds_total", "counter", "Builds rejected.",
+        buildExecutor.getRejectedTaskCount());
+    metrics.addLatency("buildserver_queue_wait_ms", "Time builds spent in the queue.",
+        buildExecutor.getQueueWaits());
+    if (statReporter instanceof SimpleStatReporter) {
+      Map<String, LatencyHistogram> stages = new TreeMap<>(
+          ((SimpleStatReporter) statReporter).getLatencies());
+      LatencyHistogram builds = stages.remove(SimpleStatReporter.BUILD);
+      if (builds != null) {
+        metrics.addLatency("buildserver_build_duration_ms", "Duration of builds.", builds);
+      }
+      metrics.addLatencies("buildserver_stage_duration_ms", "Duration of build stages.",
+          "stage", stages);
+    }
+
+    // Child processes
+    Map<String, Integer> activeTools = new LinkedHashMap<>();
+    Map<String, Integer> queuedTools = new LinkedHashMap<>();
+    for (ToolPool pool : new ToolPool[] {ToolPool.KAWA, ToolPool.DEX}) {
+      activeTools.put(pool.getName(), pool.getActiveCount());
+      queuedTools.put(pool.getName(), pool.getQueuedCount());
+    }
+    metrics.add("buildserver_tool_active_processes", "gauge", "Child processes running.",
+        "tool", activeTools);
+    metrics.add("buildserver_tool_queued_processes", "gauge",
+        "Child processes waiting for a worker slot or memory.", "tool", queuedTools);
+    long childBytes = ChildProcessMemory.getResidentBytes();
+    if (childBytes >= 0) {
+      metrics.add("buildserver_child_process_resident_bytes", "gauge",
+          "Resident memory of the child processes.", childBytes);
+    }
+
+    // Memory
+    metrics.add("buildserver_heap_used_bytes", "gauge", "Heap memory in use.",
+        ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+
+    return Response.ok(metrics.toString(), MediaType.TEXT_PLAIN_TYPE).build();
+  }
+
   private void processStats(String prefix, Stats stats, Map<String, String> variables) {
     variables.put(prefix + "min", stats.getMinTime() + " ms");
     variables.put(prefix + "avg", stats.getAvgTime() + " ms");
@@ -594,6 +798,16 @@ public class BuildServer {
         LOG.info("requiredHosts is not set, no restriction on callback url.");
       }
 
+      if (!isCompleteZip(inputZip)) {
+        // App Inventor streams the project, and abandons the upload part way through when the
+        // project turns out to be too large. Reject what arrived rather than failing a build.
+        LOG.info("Rejecting incomplete project upload of " + inputZip.length() + " bytes");
+        rejectedAsyncBuildRequests.incrementAndGet();
+        cleanUp();
+        return Response.status(Response.Status.BAD_REQUEST).type(MediaType.TEXT_PLAIN_TYPE)
+            .entity("Incomplete project upload.").build();
+      }
+
       asyncBuildRequests.incrementAndGet();
 
       if (gitBuildVersion != null && !gitBuildVersion.isEmpty()) {
@@ -614,14 +828,20 @@ public class BuildServer {
         }
       }
 
-      Runnable buildTask = new Runnable() {
+      final ProgressReporter progressReporter = new ProgressReporter(callbackUrlStr);
+      Runnable buildTask = new QueuingExecutor.QueuedTask() {
+          @Override
+          public void onQueuePositionChanged(int position) {
+            progressReporter.reportQueuePosition(position);
+          }
+
           @Override
           public void run() {
             int count = buildCount.incrementAndGet();
             try {
               LOG.info("START NEW BUILD " + count);
               checkMemory();
-              buildAndCreateZip(userName, inputZipFile, ext, new ProgressReporter(callbackUrlStr));
+              buildAndCreateZip(userName, inputZipFile, ext, progressReporter);
               // Send zip back to the callbackUrl
               LOG.info("CallbackURL: " + callbackUrlStr);
               URL callbackUrl = new URL(callbackUrlStr);
@@ -683,6 +903,15 @@ public class BuildServer {
       .entity("" + 0).build();
   }
 
+  private static boolean isCompleteZip(File file) {
+    // A truncated upload lacks the central directory at the end of the zip.
+    try (ZipFile zip = new ZipFile(file)) {
+      return zip.size() > 0;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
   private void buildAndCreateZip(String userName, File inputZipFile, String ext,
       ProgressReporter reporter) throws IOException, JSONException {
     Result buildResult = build(userName, inputZipFile, ext, reporter);
@@ -812,7 +1041,7 @@ public class BuildServer {
             return;
           }
           while (true) {
-            int tasks = buildExecutor.getActiveTaskCount();
+            int tasks = buildExecutor.getActiveTaskCount() + buildExecutor.getQueuedTaskCount();
             if (tasks <= 0) {
               try {
                 Thread.sleep(10000); // One final wait so people can get
@@ -833,7 +1062,36 @@ public class BuildServer {
     // Now that the command line options have been processed, we can create the buildExecutor.
     AndroidBuildFactory.install();
     // TODO(ewpatton): Enable iOS build factory here when published
-    buildExecutor = new NonQueuingExecutor(commandLineOptions.maxSimultaneousBuilds);
+    buildExecutor = new QueuingExecutor(commandLineOptions.maxSimultaneousBuilds,
+        commandLineOptions.maxQueuedBuilds, commandLineOptions.maxQueueWaitSeconds * 1000L);
+    ToolPool.configure(commandLineOptions.maxSimultaneousKawa,
+        commandLineOptions.maxSimultaneousDex,
+        commandLineOptions.childProcessRamBudgetMb > 0
+            ? commandLineOptions.childProcessRamBudgetMb
+            : commandLineOptions.childProcessRamMb);
+    KawaDaemon.configure(commandLineOptions.kawaDaemonMaxBuilds);
+    Compiler.setMaxParallelTasks(commandLineOptions.maxParallelTasks);
+    PredexCache.setMaxBytes(commandLineOptions.dexCacheMaxMb * 1024 * 1024);
+    if (commandLineOptions.runtimeCacheDir != null) {
+      RuntimeClassCache.configure(commandLineOptions.runtimeCacheDir);
+    } else if (commandLineOptions.dexCacheDir != null) {
+      RuntimeClassCache.configure(new File(commandLineOptions.dexCacheDir, "runtime").getPath());
+    }
+    IncrementalBuildCache.configure(commandLineOptions.incrementalCacheDir,
+        commandLineOptions.incrementalCacheMaxMb * 1024 * 1024);
+    if (commandLineOptions.aarCacheDir != null) {
+      ExplodedAarCache.configure(commandLineOptions.aarCacheDir,
+          commandLineOptions.aarCacheMaxMb * 1024 * 1024);
+    } else if (commandLineOptions.dexCacheDir != null) {
+      ExplodedAarCache.configure(new File(commandLineOptions.dexCacheDir, "aars").getPath(),
+          commandLineOptions.aarCacheMaxMb * 1024 * 1024);
+    }
+    try {
+      // Parse the component build info now rather than during the first build.
+      new Resources().getComponentRegistry();
+    } catch (JSONException e) {
+      LOG.severe("Unable to load the component build info: " + e.getMessage());
+    }
 
     int port = commandLineOptions.port;
     final ResourceConfig rc = new ResourceConfig(BuildServer.class);
@@ -847,6 +1105,7 @@ public class BuildServer {
     } else {
       LOG.info("Maximum simultaneous builds = " + commandLineOptions.maxSimultaneousBuilds);
     }
+    LOG.info("Maximum queued builds = " + buildExecutor.getMaxQueuedTasks());
     LOG.info("Visit: http://" + hostAddress + ":" + port +
       "/buildserver/health for server health");
     LOG.info("Visit: http://" + hostAddress + ":" + port +
@@ -875,6 +1134,12 @@ public class BuildServer {
     }
 
     if (shuttingTime == 0) {
+      int maxQueued = buildExecutor.getMaxQueuedTasks();
+      if (maxQueued > 0) {
+        // With a queue, we are only overloaded once builds pile up or wait too long.
+        draining = buildExecutor.isOverloaded(draining);
+        return draining ? ShutdownState.DRAINING : ShutdownState.UP;
+      }
       int max = buildExecutor.getMaxActiveTasks();
       if (max < 10) {           // Only do this scheme if we are not unlimited
                                 // (unlimited == 0) and allow more then 10 max builds
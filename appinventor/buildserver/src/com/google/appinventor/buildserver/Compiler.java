@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2023 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -9,11 +9,24 @@ package com.google.appinventor.buildserver;
 import com.google.appinventor.buildserver.context.CompilerContext;
 import com.google.appinventor.buildserver.context.Paths;
 import com.google.appinventor.buildserver.interfaces.Task;
+import com.google.appinventor.buildserver.util.AARLibraries;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,12 +39,16 @@ import java.util.logging.Logger;
  * style pattern, where receives build information, and then
  * {@link Task} can be added.</p>
  *
+ * <p>Tasks that do not depend on each other, according to the
+ * {@link Artifacts} they declare, run at the same time.</p>
+ *
  * @see CompilerContext
  *
  * @author diego@barreiro.xyz (Diego Barreiro)
  */
 public class Compiler<P extends Paths, T extends CompilerContext<P>> implements Callable<Boolean> {
   private static final Logger LOG = Logger.getLogger(Compiler.class.getName());
+  private static volatile int maxParallelTasks = Runtime.getRuntime().availableProcessors();
   private final List<Class<? extends Task<? super T>>> tasks;
   private T context;
   private String ext = BuildType.APK_EXTENSION;
@@ -102,6 +119,19 @@ public class Compiler<P extends Paths, T extends CompilerContext<P>> implements
     return this;
   }
 
+  /**
+   * Sets the number of tasks of a single build that may run at the same time.
+   *
+   * @param maxTasks the number of tasks, or 0 to use one per available processor
+   */
+  public static void setMaxParallelTasks(int maxTasks) {
+    maxParallelTasks = maxTasks > 0 ? maxTasks : Runtime.getRuntime().availableProcessors();
+  }
+
+  public static int getMaxParallelTasks() {
+    return maxParallelTasks;
+  }
+
   // "Main" method that returns either true or false, depending
   // on result.
   @Override
@@ -109,7 +139,7 @@ public class Compiler<P extends Paths, T extends CompilerContext<P>> implements
     // Initializes progress to 0.
     context.getReporter().setProgress(0);
     context.getStatReporter().startBuild(this);
-    int numTasks = this.tasks.size();
+    final int numTasks = this.tasks.size();
 
     // If no tasks, we technically have successfully built everything.
     if (numTasks == 0) {
@@ -118,12 +148,10 @@ public class Compiler<P extends Paths, T extends CompilerContext<P>> implements
       return true;
     }
 
-    for (int i = 0; i < numTasks; i++) {
-      // We accept Classes, but not initialized ones.
-      Class<? extends Task<?>> task = this.tasks.get(i);
+    // We try to initialize all Task instances before running any of them.
+    final List<Object> taskObjects = new ArrayList<>(numTasks);
+    for (Class<? extends Task<?>> task : this.tasks) {
       String taskName = task.getSimpleName();
-
-      // We try to initialize a Task instance.
       Object taskObject;
       try {
         taskObject = task.newInstance();
@@ -156,40 +184,150 @@ public class Compiler<P extends Paths, T extends CompilerContext<P>> implements
       } else {
         context.getReporter().warn("Task " + taskName + " does not contain build type targets!");
       }
+      taskObjects.add(taskObject);
+    }
+
+    // Work out which tasks each task has to wait for, based on the artifacts they declare.
+    final int[] pending = new int[numTasks];
+    final List<List<Integer>> dependents = new ArrayList<>(numTasks);
+    for (int i = 0; i < numTasks; i++) {
+      dependents.add(new ArrayList<Integer>());
+      for (int j = 0; j < i; j++) {
+        if (dependsOn(this.tasks.get(i), this.tasks.get(j))) {
+          dependents.get(j).add(i);
+          pending[i]++;
+        }
+      }
+    }
 
-      // Get the current time to know the time needed to execute it.
-      context.getReporter().taskStart(taskName);
-      context.getStatReporter().nextStage(this, task.getSimpleName());
-      long start = System.currentTimeMillis();
+    // Tasks become ready in the order they were added, so running with a single thread executes
+    // them in the same order as a sequential build.
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(maxParallelTasks, numTasks), new ThreadFactory() {
+          private int count = 0;
 
-      // And then invoke the execute(ExecutorContext) method to run the Task.
-      TaskResult result;
+          @Override
+          public synchronized Thread newThread(Runnable r) {
+            return new Thread(r, Thread.currentThread().getName() + "-task-" + (++count));
+          }
+        });
+    CompletionService<Boolean> completion = new ExecutorCompletionService<>(executor);
+    Map<Future<Boolean>, Integer> running = new HashMap<>();
+    try {
+      for (int i = 0; i < numTasks; i++) {
+        if (pending[i] == 0) {
+          running.put(submit(completion, i, taskObjects.get(i)), i);
+        }
+      }
+      int completed = 0;
+      while (completed < numTasks) {
+        if (running.isEmpty()) {
+          // Only possible if the dependencies contain a cycle.
+          context.getReporter().error("Unable to schedule the remaining tasks");
+          return false;
+        }
+        Future<Boolean> done = completion.take();
+        int index = running.remove(done);
+        // Make sure result is success, else we'll throw an error and don't run
+        // more tasks.
+        if (!done.get()) {
+          return false;
+        }
+        completed++;
+
+        // Update progress depending on the number of steps.
+        context.getReporter().setProgress((completed * 100) / numTasks);
+        for (int dependent : dependents.get(index)) {
+          if (--pending[dependent] == 0) {
+            running.put(submit(completion, dependent, taskObjects.get(dependent)), dependent);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      LOG.log(Level.SEVERE, "Error running tasks", e);
+      return false;
+    } finally {
+      // Stop the tasks still running after a failure before the build directory goes away.
+      executor.shutdownNow();
       try {
-        Method execute = task.getMethod("execute", CompilerContext.class);
-        result = (TaskResult) execute.invoke(taskObject, context);
-      } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-        context.getReporter().taskError(-1);
-        LOG.log(Level.SEVERE, "Error running task " + task, e);
-        return false;
+        while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+          LOG.warning("Waiting for build tasks to stop");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
       }
-      double endTime = (System.currentTimeMillis() - start) / 1000.0;
-
-      // Make sure result is success, else we'll throw an error and don't run
-      // more tasks.
-      if (result == null || !result.isSuccess()) {
-        context.getReporter().error(result == null || result.getError() == null
-            ? "Unknown exception" : result.getError().getMessage(), true);
-        context.getReporter().taskError(endTime);
-        return false;
+      // No task uses the unpacked libraries anymore, so the shared cache may evict them.
+      AARLibraries aarLibs = context.getComponentInfo().getExplodedAarLibs();
+      if (aarLibs != null) {
+        aarLibs.release();
       }
+    }
+    return true;
+  }
+
+  private Future<Boolean> submit(CompletionService<Boolean> completion, final int index,
+      final Object taskObject) {
+    return completion.submit(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return runTask(tasks.get(index), taskObject);
+      }
+    });
+  }
+
+  private boolean runTask(Class<? extends Task<?>> task, Object taskObject) {
+    String taskName = task.getSimpleName();
+
+    // Get the current time to know the time needed to execute it.
+    context.getReporter().taskStart(taskName);
+    context.getStatReporter().nextStage(this, taskName);
+    long start = System.currentTimeMillis();
 
-      // Update progress depending on the number of steps.
-      context.getReporter().setProgress(((i + 1) * 100) / numTasks);
-      context.getReporter().taskSuccess(endTime);
+    // And then invoke the execute(ExecutorContext) method to run the Task.
+    TaskResult result;
+    try {
+      Method execute = task.getMethod("execute", CompilerContext.class);
+      result = (TaskResult) execute.invoke(taskObject, context);
+    } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+      context.getReporter().taskError(-1);
+      context.getStatReporter().endStage(this, taskName);
+      LOG.log(Level.SEVERE, "Error running task " + task, e);
+      return false;
     }
+    double endTime = (System.currentTimeMillis() - start) / 1000.0;
+    context.getStatReporter().endStage(this, taskName);
+
+    if (result == null || !result.isSuccess()) {
+      context.getReporter().error(result == null || result.getError() == null
+          ? "Unknown exception" : result.getError().getMessage(), true);
+      context.getReporter().taskError(endTime);
+      return false;
+    }
+    context.getReporter().taskSuccess(endTime);
     return true;
   }
 
+  /**
+   * Determines whether {@code task} has to wait for {@code earlier}, a task added before it.
+   */
+  private static boolean dependsOn(Class<?> task, Class<?> earlier) {
+    Artifacts artifacts = task.getAnnotation(Artifacts.class);
+    Artifacts earlierArtifacts = earlier.getAnnotation(Artifacts.class);
+    if (artifacts == null || earlierArtifacts == null) {
+      // Tasks that do not declare their artifacts run on their own.
+      return true;
+    }
+    return intersects(artifacts.consumes(), earlierArtifacts.produces())
+        || intersects(artifacts.produces(), earlierArtifacts.consumes());
+  }
+
+  private static boolean intersects(BuildArtifact[] a, BuildArtifact[] b) {
+    return !Collections.disjoint(Arrays.asList(a), Arrays.asList(b));
+  }
+
   @Override
   public String toString() {
     return "Compiler{"
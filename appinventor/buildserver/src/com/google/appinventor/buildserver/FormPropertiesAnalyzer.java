@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2021 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -11,7 +11,10 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import com.google.appinventor.components.common.FileScope;
 import com.google.appinventor.components.common.Permission;
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -88,8 +91,15 @@ public class FormPropertiesAnalyzer {
    * Returns the Set of component types used in the given form file source.
    */
   public static Set<String> getComponentTypesFromFormFile(String source) {
+    return getComponentTypes(parseSourceFile(source));
+  }
+
+  /**
+   * Returns the Set of component types used in the given form properties, as returned by
+   * {@link #parseSourceFile(String)}.
+   */
+  public static Set<String> getComponentTypes(JSONObject propertiesObject) {
     Set<String> componentTypes = new HashSet<String>();
-    JSONObject propertiesObject = parseSourceFile(source);
     try {
       collectComponentTypes(propertiesObject.getJSONObject("Properties"), componentTypes);
     } catch (JSONException e) {
@@ -122,8 +132,18 @@ public class FormPropertiesAnalyzer {
    * @return A mapping of component type names to sets of blocks used
    */
   public static Map<String, Set<String>> getComponentBlocksFromSchemeFile(String source) {
+    return getComponentBlocks(parseSourceFile(source));
+  }
+
+  /**
+   * Extracts a mapping from component to set of blocks used from the form properties, as
+   * returned by {@link #parseSourceFile(String)}.
+   *
+   * @param propertiesObject the properties of the form
+   * @return A mapping of component type names to sets of blocks used
+   */
+  public static Map<String, Set<String>> getComponentBlocks(JSONObject propertiesObject) {
     Map<String, Set<String>> result = new HashMap<>();
-    JSONObject propertiesObject = parseSourceFile(source);
     try {
       Queue<JSONObject> toProcess = new LinkedList<JSONObject>();
       toProcess.add(propertiesObject.getJSONObject("Properties"));
@@ -401,6 +421,28 @@ public class FormPropertiesAnalyzer {
     if (source.isEmpty()) {
       return;  // Empty blocks file, so nothing to do.
     }
+    parseBlocks(new ByteArrayInputStream(source.getBytes(UTF_8)), analyzers);
+  }
+
+  /**
+   * Extracts a mapping from component to set of blocks used from a Blocks (.bky) file, reading
+   * the file as it is parsed.
+   *
+   * @param file the Blockly (XML) file
+   * @throws IOException if the file cannot be read
+   * @see #analyzeBlocks(String, ContentHandler...)
+   */
+  public static void analyzeBlocks(File file, final ContentHandler... analyzers)
+      throws IOException {
+    if (file.length() == 0) {
+      return;  // Empty blocks file, so nothing to do.
+    }
+    try (InputStream in = new FileInputStream(file)) {
+      parseBlocks(in, analyzers);
+    }
+  }
+
+  private static void parseBlocks(InputStream in, final ContentHandler... analyzers) {
     try {
       XMLReader reader = XMLReaderFactory.createXMLReader();
       reader.setContentHandler(new DefaultHandler() {
@@ -429,7 +471,7 @@ public class FormPropertiesAnalyzer {
           super.endElement(uri, localName, qname);
         }
       });
-      reader.parse(new InputSource(new ByteArrayInputStream(source.getBytes(UTF_8))));
+      reader.parse(new InputSource(in));
     } catch (SAXException | IOException e) {
       throw new IllegalStateException(e);
     }
@@ -443,7 +485,18 @@ public class FormPropertiesAnalyzer {
    * @throws JSONException if the form's properties field is missing
    */
   public static String getFormOrientation(String source) throws JSONException {
-    JSONObject propertiesObject = parseSourceFile(source);
+    return getFormOrientation(parseSourceFile(source));
+  }
+
+  /**
+   * Returns the orientation set by the user in the form properties, as returned by
+   * {@link #parseSourceFile(String)}.
+   *
+   * @param propertiesObject the properties of the form
+   * @return screen orientation
+   * @throws JSONException if the form's properties field is missing
+   */
+  public static String getFormOrientation(JSONObject propertiesObject) throws JSONException {
     JSONObject props = propertiesObject.getJSONObject("Properties");
     return props.optString("ScreenOrientation", "unspecified");
   }
@@ -9,6 +9,8 @@ package com.google.appinventor.buildserver;
 import com.google.appinventor.buildserver.util.Execution;
 import com.google.appinventor.buildserver.stats.NullStatReporter;
 import com.google.appinventor.buildserver.tasks.android.AndroidBuildFactory;
+import com.google.appinventor.buildserver.util.RuntimeClassCache;
+import com.google.appinventor.buildserver.util.ToolPool;
 
 import java.io.File;
 import java.io.IOException;
@@ -107,6 +109,10 @@ public final class Main {
 
     AndroidBuildFactory.install();
     // TODO(ewpatton): Install iOS build factory once published
+    ToolPool.configure(1, 1, commandLineOptions.childProcessRamMb);
+    if (commandLineOptions.dexCacheDir != null) {
+      RuntimeClassCache.configure(new File(commandLineOptions.dexCacheDir, "runtime").getPath());
+    }
 
     ProjectBuilder projectBuilder = new ProjectBuilder(new NullStatReporter());
     ZipFile zip = null;
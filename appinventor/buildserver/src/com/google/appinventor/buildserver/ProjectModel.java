@@ -0,0 +1,233 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver;
+
+import static com.google.appinventor.common.constants.YoungAndroidStructureConstants.BLOCKLY_SOURCE_EXTENSION;
+import static com.google.appinventor.common.constants.YoungAndroidStructureConstants.FORM_PROPERTIES_EXTENSION;
+
+import com.google.appinventor.buildserver.FormPropertiesAnalyzer.ComponentBlocksExtractor;
+import com.google.appinventor.buildserver.FormPropertiesAnalyzer.PermissionBlockExtractor;
+import com.google.appinventor.buildserver.FormPropertiesAnalyzer.ScopeBlockExtractor;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * The facts about a project's sources that the build needs: the component
+ * types, the blocks used for each type, the permissions required by blocks and
+ * the orientation of each screen.
+ *
+ * <p>A ProjectModel is produced by a single pass over the sources, in which
+ * each form file is read and parsed once and each blocks file is streamed once
+ * through all the block analyzers. It is immutable.</p>
+ */
+final class ProjectModel {
+  private static final String SEPARATOR = File.separator;
+
+  // Names and types of the built-in components, which only change with the build server.
+  private static Map<String, String> simpleComponentTypes;
+
+  private final Set<String> componentTypes;
+  private final Map<String, Set<String>> componentBlocks;
+  private final Set<String> blockPermissions;
+  private final Map<String, String> formOrientations;
+
+  private ProjectModel(Set<String> componentTypes, Map<String, Set<String>> componentBlocks,
+      Set<String> blockPermissions, Map<String, String> formOrientations) {
+    this.componentTypes = Collections.unmodifiableSet(componentTypes);
+    Map<String, Set<String>> blocks = new HashMap<>();
+    for (Map.Entry<String, Set<String>> entry : componentBlocks.entrySet()) {
+      blocks.put(entry.getKey(), Collections.unmodifiableSet(entry.getValue()));
+    }
+    this.componentBlocks = Collections.unmodifiableMap(blocks);
+    this.blockPermissions = Collections.unmodifiableSet(blockPermissions);
+    this.formOrientations = Collections.unmodifiableMap(formOrientations);
+  }
+
+  /**
+   * Analyzes the sources of a project.
+   *
+   * @param files the files of the project
+   * @param assetsDir the assets directory of the project, which holds the extensions
+   * @return the model of the project
+   * @throws IOException if a source file cannot be read
+   * @throws JSONException if a form or extension descriptor is malformed
+   */
+  static ProjectModel analyze(List<String> files, File assetsDir)
+      throws IOException, JSONException {
+    return analyze(files, createNameTypeMap(assetsDir));
+  }
+
+  @VisibleForTesting
+  static ProjectModel analyze(List<String> files, Map<String, String> nameTypeMap)
+      throws IOException, JSONException {
+    Set<String> componentTypes = Sets.newHashSet();
+    Map<String, Set<String>> designerProperties = new HashMap<>();
+    Map<String, String> formOrientations = new HashMap<>();
+    ComponentBlocksExtractor componentBlocksExtractor = new ComponentBlocksExtractor();
+    PermissionBlockExtractor permissionBlockExtractor = new PermissionBlockExtractor();
+    ScopeBlockExtractor scopeBlockExtractor = new ScopeBlockExtractor();
+
+    final int extLength = FORM_PROPERTIES_EXTENSION.length();
+    for (String f : files) {
+      if (f.endsWith(FORM_PROPERTIES_EXTENSION)) {
+        String scmContent = Files.toString(new File(f), StandardCharsets.UTF_8);
+        JSONObject properties = FormPropertiesAnalyzer.parseSourceFile(scmContent);
+        for (String compName : FormPropertiesAnalyzer.getComponentTypes(properties)) {
+          componentTypes.add(nameTypeMap.get(compName));
+        }
+        mergeMaps(designerProperties, FormPropertiesAnalyzer.getComponentBlocks(properties));
+        String formName = f.substring(f.lastIndexOf(SEPARATOR) + 1, f.length() - extLength);
+        formOrientations.put(formName, FormPropertiesAnalyzer.getFormOrientation(properties));
+      } else if (f.endsWith(BLOCKLY_SOURCE_EXTENSION)) {
+        FormPropertiesAnalyzer.analyzeBlocks(new File(f), componentBlocksExtractor,
+            permissionBlockExtractor, scopeBlockExtractor);
+      }
+    }
+
+    Map<String, Set<String>> componentBlocks = componentBlocksExtractor.getResult();
+    mergeMaps(componentBlocks, designerProperties);
+    Set<String> blockPermissions = new HashSet<>(permissionBlockExtractor.getResult());
+    for (String scope : scopeBlockExtractor.getResult()) {
+      switch (scope) {
+        case "Shared":
+          blockPermissions.add("android.permission.READ_MEDIA_AUDIO");
+          blockPermissions.add("android.permission.READ_MEDIA_IMAGES");
+          blockPermissions.add("android.permission.READ_MEDIA_VIDEO");
+          blockPermissions.add("android.permission.READ_EXTERNAL_STORAGE");
+          blockPermissions.add("android.permission.WRITE_EXTERNAL_STORAGE");
+          break;
+        case "Legacy":
+          blockPermissions.add("android.permission.READ_EXTERNAL_STORAGE");
+          blockPermissions.add("android.permission.WRITE_EXTERNAL_STORAGE");
+          break;
+        default:
+          break;
+      }
+    }
+    return new ProjectModel(componentTypes, componentBlocks, blockPermissions, formOrientations);
+  }
+
+  /**
+   * Returns the types of the components used in the project's screens.
+   */
+  Set<String> getComponentTypes() {
+    return componentTypes;
+  }
+
+  /**
+   * Returns a mapping of component types to the blocks of each type used in the
+   * project. Properties specified in the designer are considered blocks for the
+   * purposes of this mapping.
+   */
+  Map<String, Set<String>> getComponentBlocks() {
+    return componentBlocks;
+  }
+
+  /**
+   * Returns the permissions required by the blocks used in the project.
+   */
+  Set<String> getBlockPermissions() {
+    return blockPermissions;
+  }
+
+  /**
+   * Returns a mapping of screen names to the orientation set by the user.
+   */
+  Map<String, String> getFormOrientations() {
+    return formOrientations;
+  }
+
+  /**
+   * In ode code, component names are used to identify a component though the
+   * variables storing component names appear to be "type". While there's no
+   * harm in ode, here in build server, they need to be separated.
+   * This method returns a name-type map, mapping the component names used in
+   * ode to the corresponding type, aka fully qualified name. The type will be
+   * used to build apk.
+   */
+  private static Map<String, String> createNameTypeMap(File assetsDir)
+      throws IOException, JSONException {
+    Map<String, String> nameTypeMap = Maps.newHashMap(getSimpleComponentTypes());
+
+    File extCompsDir = new File(assetsDir, "external_comps");
+    if (!extCompsDir.exists()) {
+      return nameTypeMap;
+    }
+
+    for (File extCompDir : extCompsDir.listFiles()) {
+      if (!extCompDir.isDirectory()) {
+        continue;
+      }
+
+      File extCompJsonFile = new File(extCompDir, "component.json");
+      if (extCompJsonFile.exists()) {
+        JSONObject extCompJson = new JSONObject(Resources.toString(
+            extCompJsonFile.toURI().toURL(), Charsets.UTF_8));
+        nameTypeMap.put(extCompJson.getString("name"),
+            extCompJson.getString("type"));
+      } else {  // multi-extension package
+        extCompJsonFile = new File(extCompDir, "components.json");
+        if (extCompJsonFile.exists()) {
+          JSONArray extCompJson = new JSONArray(Resources.toString(
+              extCompJsonFile.toURI().toURL(), Charsets.UTF_8));
+          for (int i = 0; i < extCompJson.length(); i++) {
+            JSONObject extCompDescriptor = extCompJson.getJSONObject(i);
+            nameTypeMap.put(extCompDescriptor.getString("name"),
+                extCompDescriptor.getString("type"));
+          }
+        }
+      }
+    }
+
+    return nameTypeMap;
+  }
+
+  private static synchronized Map<String, String> getSimpleComponentTypes()
+      throws IOException, JSONException {
+    if (simpleComponentTypes == null) {
+      Map<String, String> nameTypeMap = Maps.newHashMap();
+      JSONArray simpleCompsJson = new JSONArray(Resources.toString(ProjectModel.
+          class.getResource("/files/simple_components.json"), Charsets.UTF_8));
+      for (int i = 0; i < simpleCompsJson.length(); ++i) {
+        JSONObject simpleCompJson = simpleCompsJson.getJSONObject(i);
+        nameTypeMap.put(simpleCompJson.getString("name"),
+            simpleCompJson.getString("type"));
+      }
+      simpleComponentTypes = Collections.unmodifiableMap(nameTypeMap);
+    }
+    return simpleComponentTypes;
+  }
+
+  private static void mergeMaps(Map<String, Set<String>> dest, Map<String, Set<String>> src) {
+    for (Map.Entry<String, Set<String>> entry : src.entrySet()) {
+      String key = entry.getKey();
+      Set<String> value = entry.getValue();
+      if (dest.containsKey(key)) {
+        dest.get(key).addAll(value);
+      } else {
+        dest.put(key, value);
+      }
+    }
+  }
+}
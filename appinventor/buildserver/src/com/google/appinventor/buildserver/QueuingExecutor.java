@@ -0,0 +1,280 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2009-2011 Google, All Rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+package com.google.appinventor.buildserver;
+
+import com.google.appinventor.buildserver.stats.LatencyHistogram;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An {@link Executor} used for executing tasks using a thread pool.
+ *
+ * <p>This Executor allows only a certain number of simultaneous tasks. Additional tasks wait in
+ * a bounded FIFO queue and start as soon as a running task finishes. A task is rejected if the
+ * queue is full, or if the task at the head of the queue has already waited longer than the
+ * maximum wait, which means the queue is not draining fast enough to be worth joining.</p>
+ *
+ * <p>Tasks that implement {@link QueuedTask} are told their position in the queue whenever it
+ * changes.</p>
+ */
+final class QueuingExecutor implements Executor {
+  /**
+   * A task that wants to know its position in the queue.
+   */
+  interface QueuedTask extends Runnable {
+    /**
+     * Called when the position of the task in the queue changes.
+     *
+     * @param position the 1-based position in the queue, or 0 once the task is about to start
+     */
+    void onQueuePositionChanged(int position);
+  }
+
+  /**
+   * The period over which queue waits are considered when deciding whether the executor is
+   * overloaded. Waits age out of it, so an executor that stops receiving tasks recovers.
+   */
+  private static final long OVERLOAD_WINDOW_MS = 5 * 60 * 1000;
+
+  // The maximum number of active tasks. O means unlimited.
+  private final int maxActiveTasks;
+  // The maximum number of waiting tasks. 0 means tasks are rejected when all slots are busy.
+  private final int maxQueuedTasks;
+  // The maximum time the oldest task may have waited before new tasks are rejected. 0 means no
+  // limit.
+  private final long maxQueueWaitMs;
+
+  private final AtomicInteger activeTaskCount = new AtomicInteger(0);
+  private final AtomicInteger completedTaskCount = new AtomicInteger(0);
+  private final AtomicInteger rejectedTaskCount = new AtomicInteger(0);
+
+  private final Deque<Pending> queue = new ArrayDeque<>();
+  private final LatencyHistogram queueWaits;
+
+  private final ExecutorService workers;
+  private final ExecutorService notifier;
+
+  // Logging support
+  private static final Logger LOG = Logger.getLogger(QueuingExecutor.class.getName());
+
+  // lock guards the queue and the decision whether to start, queue or reject a task.
+  private final Object lock = new Object();
+
+  private static class Pending {
+    final Runnable task;
+    final long enqueued = System.currentTimeMillis();
+
+    Pending(Runnable task) {
+      this.task = task;
+    }
+  }
+
+  /**
+   * Creates a QueuingExecutor that does not queue, i.e., tasks are rejected as soon as
+   * {@code maxActiveTasks} tasks are running.
+   *
+   * @param maxActiveTasks the maximum number of active tasks
+   */
+  QueuingExecutor(int maxActiveTasks) {
+    this(maxActiveTasks, 0, 0);
+  }
+
+  /**
+   * Creates a QueuingExecutor.
+   *
+   * @param maxActiveTasks the maximum number of active tasks
+   * @param maxQueuedTasks the maximum number of tasks waiting for a free slot
+   * @param maxQueueWaitMs the longest time the oldest waiting task may have waited before new
+   *                       tasks are rejected, or 0 for no limit
+   */
+  QueuingExecutor(int maxActiveTasks, int maxQueuedTasks, long maxQueueWaitMs) {
+    this(maxActiveTasks, maxQueuedTasks, maxQueueWaitMs, new LatencyHistogram());
+  }
+
+  QueuingExecutor(int maxActiveTasks, int maxQueuedTasks, long maxQueueWaitMs,
+      LatencyHistogram queueWaits) {
+    this.queueWaits = queueWaits;
+    this.maxActiveTasks = maxActiveTasks;
+    this.maxQueuedTasks = maxActiveTasks == 0 ? 0 : maxQueuedTasks;
+    this.maxQueueWaitMs = maxQueueWaitMs;
+    // Threads are reused between builds and time out after a minute of idleness.
+    this.workers = Executors.newCachedThreadPool(namedThreads("build-worker", false));
+    this.notifier = Executors.newSingleThreadExecutor(namedThreads("build-queue-notifier", true));
+  }
+
+  private static ThreadFactory namedThreads(final String prefix, final boolean daemon) {
+    final AtomicInteger count = new AtomicInteger(0);
+    return new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, prefix + "-" + count.incrementAndGet());
+        thread.setDaemon(daemon);
+        return thread;
+      }
+    };
+  }
+
+  @Override
+  public void execute(final Runnable runnable) {
+    List<Pending> waiting;
+    synchronized (lock) {
+      // Check whether the executor is below maximum capacity.
+      if (maxActiveTasks == 0 || activeTaskCount.get() < maxActiveTasks) {
+        start(runnable, 0);
+        return;
+      }
+      long now = System.currentTimeMillis();
+      if (queue.size() >= maxQueuedTasks
+          || (maxQueueWaitMs > 0 && !queue.isEmpty()
+              && now - queue.peekFirst().enqueued > maxQueueWaitMs)) {
+        // If the executor is at maximum capacity, reject the task.
+        rejectedTaskCount.incrementAndGet();
+        throw new RejectedExecutionException();
+      }
+      queue.addLast(new Pending(runnable));
+      waiting = new ArrayList<>(queue);
+    }
+    LOG.info("Build queued at position " + waiting.size());
+    notifyPositions(waiting.subList(waiting.size() - 1, waiting.size()), waiting.size());
+  }
+
+  // Must be called while holding lock.
+  private void start(final Runnable runnable, long waitedMs) {
+    activeTaskCount.incrementAndGet();
+    queueWaits.record(waitedMs);
+    workers.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          runnable.run();
+        } finally {
+          finish();
+        }
+      }
+    });
+  }
+
+  private void finish() {
+    Pending next;
+    List<Pending> waiting;
+    synchronized (lock) {
+      activeTaskCount.decrementAndGet();
+      completedTaskCount.incrementAndGet();
+      next = queue.pollFirst();
+      if (next == null) {
+        return;
+      }
+      start(next.task, System.currentTimeMillis() - next.enqueued);
+      waiting = new ArrayList<>(queue);
+    }
+    notifyPositions(Arrays.asList(next), 0);
+    notifyPositions(waiting, 1);
+  }
+
+  private void notifyPositions(final List<Pending> tasks, final int firstPosition) {
+    if (tasks.isEmpty()) {
+      return;
+    }
+    notifier.execute(new Runnable() {
+      @Override
+      public void run() {
+        int position = firstPosition;
+        for (Pending pending : tasks) {
+          if (pending.task instanceof QueuedTask) {
+            try {
+              ((QueuedTask) pending.task).onQueuePositionChanged(position);
+            } catch (RuntimeException e) {
+              LOG.log(Level.WARNING, "Unable to report queue position", e);
+            }
+          }
+          if (position > 0) {
+            position++;
+          }
+        }
+      }
+    });
+  }
+
+  public int getMaxActiveTasks() {
+    return maxActiveTasks;
+  }
+
+  public int getMaxQueuedTasks() {
+    return maxQueuedTasks;
+  }
+
+  public long getMaxQueueWaitMs() {
+    return maxQueueWaitMs;
+  }
+
+  public int getActiveTaskCount() {
+    return activeTaskCount.get();
+  }
+
+  public int getCompletedTaskCount() {
+    return completedTaskCount.get();
+  }
+
+  public int getRejectedTaskCount() {
+    return rejectedTaskCount.get();
+  }
+
+  public int getQueuedTaskCount() {
+    synchronized (lock) {
+      return queue.size();
+    }
+  }
+
+  /**
+   * Gets the histogram of the time spent in the queue by the tasks started in the last hour.
+   */
+  public LatencyHistogram getQueueWaits() {
+    return queueWaits;
+  }
+
+  /**
+   * Gets the 95th percentile of the time spent in the queue by the tasks started in the last
+   * five minutes.
+   *
+   * @return the p95 queue wait, in milliseconds, or 0 if no task started recently
+   */
+  public long getP95QueueWaitMs() {
+    return queueWaits.snapshot(OVERLOAD_WINDOW_MS).getPercentile(0.95);
+  }
+
+  /**
+   * Decides whether the executor is overloaded, with hysteresis: it becomes overloaded once the
+   * queue is more than 2/3 full or the p95 queue wait exceeds 2/3 of the maximum wait, and stops
+   * being overloaded once both are below 1/3. An empty queue with no recent waits is never
+   * overloaded.
+   *
+   * @param overloaded whether the executor was overloaded at the last check
+   * @return whether the executor is overloaded now
+   */
+  public boolean isOverloaded(boolean overloaded) {
+    int queued = getQueuedTaskCount();
+    LatencyHistogram.Snapshot waits = queueWaits.snapshot(OVERLOAD_WINDOW_MS);
+    long p95Wait = waits.getPercentile(0.95);
+    if (overloaded) {
+      if (queued == 0 && waits.getCount() == 0) {
+        return false;
+      }
+      return !(queued < maxQueuedTasks/3 && (maxQueueWaitMs == 0 || p95Wait < maxQueueWaitMs/3));
+    }
+    return queued > maxQueuedTasks*2/3 || (maxQueueWaitMs > 0 && p95Wait > maxQueueWaitMs*2/3);
+  }
+}
@@ -17,7 +17,8 @@ public class Reporter {
   private final ByteArrayOutputStream userBuffer;
   private final PrintStream system;
   private final PrintStream user;
-  private String task;
+  // Tasks of a build may run concurrently, each on its own thread.
+  private final ThreadLocal<String> task = new ThreadLocal<>();
 
   private static class ConsoleColors {
     static final String RESET = "\u001B[0m";
@@ -61,6 +62,7 @@ public class Reporter {
   private String task(String colorCode) {
     boolean color = colorCode != null && !colorCode.equals("");
 
+    String task = this.task.get();
     if (task != null && !task.equals("")) {
       return (color ? colorCode : "") + "[" + (color ? ConsoleColors.PURPLE : "") + task
           + (color ? ConsoleColors.RESET : "") + (color ? colorCode : "") + "] ";
@@ -160,7 +162,7 @@ public class Reporter {
    * @param name the name of the task
    */
   public void taskStart(String name) {
-    this.task = name;
+    this.task.set(name);
     System.out.println(this.task(ConsoleColors.BLUE) + "Starting Task" + ConsoleColors.RESET);
     this.system.println(this.task(null) + "Starting Task");
   }
@@ -174,7 +176,7 @@ public class Reporter {
     System.out.println(this.task(ConsoleColors.GREEN) + "Task succeeded in " + ConsoleColors.PURPLE
         + seconds + ConsoleColors.GREEN + " seconds" + ConsoleColors.RESET);
     this.system.println(this.task(null) + "Task succeeded in " + seconds + " seconds");
-    this.task = null;
+    this.task.remove();
   }
 
   /**
@@ -191,7 +193,7 @@ public class Reporter {
     }
     System.out.print(ConsoleColors.RESET + "\n");
     this.system.print("\n");
-    this.task = null;
+    this.task.remove();
   }
 
 
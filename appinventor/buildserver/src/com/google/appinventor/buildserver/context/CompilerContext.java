@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2023 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -11,11 +11,10 @@ import com.google.appinventor.buildserver.Reporter;
 import com.google.appinventor.buildserver.stats.StatReporter;
 
 import java.io.File;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.codehaus.jettison.json.JSONArray;
 
 public class CompilerContext<P extends Paths> {
   Project project;
@@ -37,10 +36,9 @@ public class CompilerContext<P extends Paths> {
   int childProcessRam;
   String dexCacheDir;
   String outputFileName;
+  String userName;
 
-  JSONArray simpleCompsBuildInfo;
-  JSONArray extCompsBuildInfo;
-  JSONArray buildInfo;
+  ComponentRegistry componentRegistry;  // built-in components and the project's extensions
   Set<String> simpleCompTypes;  // types needed by the project
   Set<String> extCompTypes; // types needed by the project
 
@@ -66,6 +64,7 @@ public class CompilerContext<P extends Paths> {
     private int childProcessRam = 2048;
     private String dexCacheDir = null;
     private String outputFileName = null;
+    private String userName = null;
 
     private Class<? extends T> clazz;
 
@@ -139,6 +138,11 @@ public class CompilerContext<P extends Paths> {
       return this;
     }
 
+    public Builder<R, T> withUserName(String userName) {
+      this.userName = userName;
+      return this;
+    }
+
     public <E extends T> Builder<R, T> withClass(Class<E> clazz) {
       this.clazz = clazz;
       return this;
@@ -181,6 +185,7 @@ public class CompilerContext<P extends Paths> {
       context.keystoreFilePath = keystoreFilePath;
       context.dexCacheDir = dexCacheDir;
       context.outputFileName = outputFileName;
+      context.userName = userName;
       context.childProcessRam = childProcessRam;
 
       context.paths.setOutputFileName(outputFileName);
@@ -192,7 +197,8 @@ public class CompilerContext<P extends Paths> {
       context.resources = new Resources();
       context.componentInfo = new ComponentInfo();
 
-      context.extTypePathCache = new HashMap<>();
+      // Tasks may run concurrently and share this cache.
+      context.extTypePathCache = new ConcurrentHashMap<>();
 
       System.out.println(this);
 
@@ -264,20 +270,12 @@ public class CompilerContext<P extends Paths> {
     return outputFileName;
   }
 
-  public JSONArray getBuildInfo() {
-    return buildInfo;
-  }
-
-  public void setBuildInfo(JSONArray buildInfo) {
-    this.buildInfo = buildInfo;
+  public String getUserName() {
+    return userName;
   }
 
-  public JSONArray getSimpleCompsBuildInfo() {
-    return simpleCompsBuildInfo;
-  }
-
-  public JSONArray getExtCompsBuildInfo() {
-    return extCompsBuildInfo;
+  public ComponentRegistry getComponentRegistry() {
+    return componentRegistry;
   }
 
   public Set<String> getSimpleCompTypes() {
@@ -292,12 +290,8 @@ public class CompilerContext<P extends Paths> {
     return paths;
   }
 
-  public void setSimpleCompsBuildInfo(JSONArray simpleCompsBuildInfo) {
-    this.simpleCompsBuildInfo = simpleCompsBuildInfo;
-  }
-
-  public void setExtCompsBuildInfo(JSONArray extCompsBuildInfo) {
-    this.extCompsBuildInfo = extCompsBuildInfo;
+  public void setComponentRegistry(ComponentRegistry componentRegistry) {
+    this.componentRegistry = componentRegistry;
   }
 
   public void setSimpleCompTypes(Set<String> simpleCompTypes) {
@@ -347,8 +341,6 @@ public class CompilerContext<P extends Paths> {
         + ", childProcessRam=" + childProcessRam
         + ", dexCacheDir='" + dexCacheDir + '\''
         + ", outputFileName='" + outputFileName + '\''
-        + ", simpleCompsBuildInfo=" + simpleCompsBuildInfo
-        + ", extCompsBuildInfo=" + extCompsBuildInfo
         + ", simpleCompTypes=" + simpleCompTypes
         + ", extCompTypes=" + extCompTypes
         + ", extTypePathCache=" + extTypePathCache
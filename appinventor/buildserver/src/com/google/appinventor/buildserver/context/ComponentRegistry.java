@@ -0,0 +1,252 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.context;
+
+import com.google.appinventor.buildserver.util.PermissionConstraint;
+import com.google.appinventor.components.common.ComponentDescriptorConstants;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * An immutable index of component build information, keyed by component type.
+ *
+ * <p>The build information of the built-in components is parsed once per
+ * process (see {@link Resources#getComponentRegistry()}). Each build then
+ * derives a registry that adds the descriptors of the project's extensions
+ * with {@link #withExtensions(JSONArray)}, which only parses those.</p>
+ */
+public final class ComponentRegistry {
+
+  /**
+   * The build information of a single component type.
+   */
+  public static final class ComponentMetadata {
+    private final String type;
+    private final Map<String, Set<String>> info;
+    private final Map<String, Map<String, Set<String>>> conditionals;
+    private final Map<String, Set<PermissionConstraint<?>>> permissionConstraints;
+    private final Map<String, Map<String, Set<PermissionConstraint<?>>>>
+        conditionalPermissionConstraints;
+
+    private ComponentMetadata(JSONObject compJson) throws JSONException {
+      type = compJson.getString("type");
+
+      Map<String, Set<String>> info = new HashMap<>();
+      Iterator<?> it = compJson.keys();
+      while (it.hasNext()) {
+        String key = (String) it.next();
+        JSONArray infoArray = compJson.optJSONArray(key);
+        if (infoArray == null) {
+          continue;
+        }
+        Set<String> infoSet = new HashSet<>();
+        for (int j = 0; j < infoArray.length(); ++j) {
+          String value = infoArray.getString(j);
+          if (!value.isEmpty()) {
+            infoSet.add(value);
+          }
+        }
+        info.put(key, Collections.unmodifiableSet(infoSet));
+      }
+      this.info = Collections.unmodifiableMap(info);
+
+      Map<String, Map<String, Set<String>>> conditionals = new HashMap<>();
+      JSONObject conditionalsJson = compJson.optJSONObject(
+          ComponentDescriptorConstants.CONDITIONALS_TARGET);
+      Map<String, Map<String, Set<PermissionConstraint<?>>>> conditionalConstraints = null;
+      if (conditionalsJson != null) {
+        it = conditionalsJson.keys();
+        while (it.hasNext()) {
+          String target = (String) it.next();
+          JSONObject jsonBlockMap = conditionalsJson.optJSONObject(target);
+          if (jsonBlockMap == null) {
+            continue;
+          }
+          if (target.equals(ComponentDescriptorConstants.PERMISSION_CONSTRAINTS_TARGET)) {
+            conditionalConstraints = new HashMap<>();
+            Iterator<?> blocks = jsonBlockMap.keys();
+            while (blocks.hasNext()) {
+              String blockName = (String) blocks.next();
+              conditionalConstraints.put(blockName,
+                  parsePermissionConstraints(jsonBlockMap.getJSONObject(blockName)));
+            }
+            conditionalConstraints = Collections.unmodifiableMap(conditionalConstraints);
+            continue;
+          }
+          Map<String, Set<String>> blockMap = new HashMap<>();
+          Iterator<?> blocks = jsonBlockMap.keys();
+          while (blocks.hasNext()) {
+            String blockName = (String) blocks.next();
+            JSONArray data = jsonBlockMap.optJSONArray(blockName);
+            Set<String> values = new HashSet<>();
+            if (data != null) {
+              for (int i = 0; i < data.length(); i++) {
+                values.add(data.optString(i));
+              }
+            }
+            blockMap.put(blockName, Collections.unmodifiableSet(values));
+          }
+          conditionals.put(target, Collections.unmodifiableMap(blockMap));
+        }
+      }
+      this.conditionals = Collections.unmodifiableMap(conditionals);
+      this.conditionalPermissionConstraints = conditionalConstraints;
+
+      JSONObject constraintsJson = compJson.optJSONObject(
+          ComponentDescriptorConstants.PERMISSION_CONSTRAINTS_TARGET);
+      this.permissionConstraints = constraintsJson == null
+          ? null : parsePermissionConstraints(constraintsJson);
+    }
+
+    /**
+     * Returns the fully qualified type of the component.
+     */
+    public String getType() {
+      return type;
+    }
+
+    /**
+     * Returns the non-empty values that the component specifies for an
+     * annotation target, such as permissions or libraries.
+     *
+     * @param target one of the targets of {@link ComponentDescriptorConstants}
+     * @return the values, or null if the component does not specify the target
+     */
+    public Set<String> getInfo(String target) {
+      return info.get(target);
+    }
+
+    /**
+     * Returns the values of an annotation target that the component only needs
+     * when some of its blocks are used.
+     *
+     * @param target one of the targets of {@link ComponentDescriptorConstants}
+     * @return a mapping of block names to values, or null if there are none
+     */
+    public Map<String, Set<String>> getConditionals(String target) {
+      return conditionals.get(target);
+    }
+
+    /**
+     * Returns the constraints the component places on its permissions, keyed by
+     * permission, or null if there are none.
+     */
+    public Map<String, Set<PermissionConstraint<?>>> getPermissionConstraints() {
+      return permissionConstraints;
+    }
+
+    /**
+     * Returns the permission constraints the component only needs when some of
+     * its blocks are used, keyed by block and then by permission, or null if
+     * there are none.
+     */
+    public Map<String, Map<String, Set<PermissionConstraint<?>>>>
+        getConditionalPermissionConstraints() {
+      return conditionalPermissionConstraints;
+    }
+  }
+
+  private final Map<String, ComponentMetadata> components;
+
+  private ComponentRegistry(Map<String, ComponentMetadata> components) {
+    this.components = Collections.unmodifiableMap(components);
+  }
+
+  /**
+   * Creates a registry from build information, as found in
+   * simple_components_build_info.json.
+   *
+   * @param buildInfo the build information of the components
+   * @return the registry
+   * @throws JSONException if the build information is malformed
+   */
+  public static ComponentRegistry parse(JSONArray buildInfo) throws JSONException {
+    return new ComponentRegistry(index(new LinkedHashMap<String, ComponentMetadata>(),
+        buildInfo));
+  }
+
+  /**
+   * Returns a registry holding the components of this one and those described
+   * by the given extension build information. An extension takes precedence
+   * over a component of the same type.
+   *
+   * @param extBuildInfo the build information of the extensions, or null
+   * @return the combined registry
+   * @throws JSONException if the build information is malformed
+   */
+  public ComponentRegistry withExtensions(JSONArray extBuildInfo) throws JSONException {
+    if (extBuildInfo == null || extBuildInfo.length() == 0) {
+      return this;
+    }
+    return new ComponentRegistry(index(new LinkedHashMap<>(components), extBuildInfo));
+  }
+
+  /**
+   * Returns the metadata of the given component type, or null if it is unknown.
+   */
+  public ComponentMetadata get(String type) {
+    return components.get(type);
+  }
+
+  /**
+   * Returns the types of the components in the registry.
+   */
+  public Set<String> getTypes() {
+    return components.keySet();
+  }
+
+  /**
+   * Returns the metadata of all the components, in the order they were described.
+   */
+  public Collection<ComponentMetadata> getComponents() {
+    return components.values();
+  }
+
+  private static Map<String, ComponentMetadata> index(Map<String, ComponentMetadata> components,
+      JSONArray buildInfo) throws JSONException {
+    for (int i = 0; i < buildInfo.length(); i++) {
+      ComponentMetadata metadata = new ComponentMetadata(buildInfo.getJSONObject(i));
+      // Remove first so that a replaced type moves to the end, as in a concatenated array.
+      components.remove(metadata.getType());
+      components.put(metadata.getType(), metadata);
+    }
+    return components;
+  }
+
+  private static Map<String, Set<PermissionConstraint<?>>> parsePermissionConstraints(
+      JSONObject src) throws JSONException {
+    Map<String, Set<PermissionConstraint<?>>> neededConstraints = new HashMap<>();
+    Iterator<?> it = src.keys();
+    while (it.hasNext()) {
+      String permissionName = (String) it.next();
+      Set<PermissionConstraint<?>> constraintSet = new HashSet<>();
+      JSONObject constraints = src.getJSONObject(permissionName);
+      Iterator<?> it2 = constraints.keys();
+      while (it2.hasNext()) {
+        String attribute = (String) it2.next();
+        Object value = constraints.get(attribute);
+        if (value instanceof Number) {
+          constraintSet.add(new PermissionConstraint<>(permissionName, attribute,
+              ((Number) value).intValue()));
+        } else {
+          constraintSet.add(new PermissionConstraint<>(permissionName, attribute,
+              value.toString()));
+        }
+      }
+      neededConstraints.put(permissionName, Collections.unmodifiableSet(constraintSet));
+    }
+    return Collections.unmodifiableMap(neededConstraints);
+  }
+}
@@ -1,5 +1,5 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2021-2023 MIT, All rights reserved
+// Copyright 2021-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -18,10 +18,13 @@ import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import javax.imageio.ImageIO;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
 
 @SuppressWarnings("UnstableApiUsage")
 public class Resources {
   private static final ConcurrentMap<String, File> RESOURCES = new ConcurrentHashMap<>();
+  private static volatile ComponentRegistry componentRegistry;
   private final List<File> dexFiles;
 
   private String[] supportJars;
@@ -29,9 +32,6 @@ public class Resources {
 
   private File appRTxt;
 
-  // Kawa and DX processes can use a lot of memory. We only launch one Kawa or DX process at a time.
-  private static final Object SYNC_KAWA_OR_DX = new Object();
-
   public static final String RUNTIME_FILES_DIR = "/files/";
   public static final String RUNTIME_TOOLS_DIR = "/tools/";
   private static final String ANDROID_RUNTIME = RUNTIME_FILES_DIR + "android.jar";
@@ -102,10 +102,6 @@ public class Resources {
     return dexFiles;
   }
 
-  public Object getSyncKawaOrDx() {
-    return SYNC_KAWA_OR_DX;
-  }
-
   public String getRuntimeFilesDir() {
     return Resources.RUNTIME_FILES_DIR;
   }
@@ -189,6 +185,31 @@ public class Resources {
     }
   }
 
+  /**
+   * Get the registry of the built-in components. The build info is parsed the
+   * first time this is called and shared by all the builds of the process.
+   *
+   * @return the registry of the built-in components
+   * @throws JSONException if the build info cannot be parsed
+   */
+  public ComponentRegistry getComponentRegistry() throws JSONException {
+    ComponentRegistry registry = componentRegistry;
+    if (registry == null) {
+      synchronized (Resources.class) {
+        registry = componentRegistry;
+        if (registry == null) {
+          String buildInfo = getCompBuildInfo();
+          if (buildInfo == null) {
+            throw new JSONException("Unable to read " + COMP_BUILD_INFO);
+          }
+          registry = ComponentRegistry.parse(new JSONArray(buildInfo));
+          componentRegistry = registry;
+        }
+      }
+    }
+    return registry;
+  }
+
   /**
    * Get the path to the aapt executable for the current platform.
    *
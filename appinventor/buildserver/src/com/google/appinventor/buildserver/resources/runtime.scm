@@ -1,5 +1,5 @@
 ;;; Copyright 2009-2011 Google, All Rights reserved
-;;; Copyright 2011-2021 MIT, All rights reserved
+;;; Copyright 2011-2026 MIT, All rights reserved
 ;;; Released under the MIT License https://raw.github.com/mit-cml/app-inventor/master/mitlicense.txt
 
 ;;; These are the functions that define the YAIL (Young Android Intermediate Language) runtime They
@@ -206,7 +206,7 @@
 ;;; (get-property 'Label1 'Text)
 (define (get-property component prop-name)
   (let ((component (coerce-to-component-and-verify component)))
-    (sanitize-return-value component prop-name (invoke component prop-name))))
+    (sanitize-return-value component prop-name (invoke-component-method component prop-name '()))))
 
 (define (coerce-to-component-and-verify possible-component)
   (let ((component (coerce-to-component possible-component)))
@@ -225,7 +225,7 @@
                  component-type
                  (*:getSimpleName (*:getClass possible-component)))
          "Problem with application")
-        (sanitize-return-value component prop-name (invoke component prop-name)))))
+        (sanitize-return-value component prop-name (invoke-component-method component prop-name '())))))
 
 (define (set-and-coerce-property-and-check! possible-component comp-type prop-sym property-value property-type)
   (let ((component (coerce-to-component-of-type possible-component comp-type)))
@@ -1032,6 +1032,7 @@
 (define-alias String <java.lang.String>)
 (define-alias Pattern <java.util.regex.Pattern>)
 (define-alias Matcher <java.util.regex.Matcher>)
+(define-alias ComponentMethodInvoker <com.google.appinventor.components.runtime.util.ComponentMethodInvoker>)
 (define-alias ContinuationUtil <com.google.appinventor.components.runtime.util.ContinuationUtil>)
 (define-alias CsvUtil <com.google.appinventor.components.runtime.util.CsvUtil>)
 (define-alias PermissionException <com.google.appinventor.components.runtime.errors.PermissionException>)
@@ -1085,6 +1086,18 @@
 ;;; call-yail-primitive
 
 
+;;; INVOKE-COMPONENT-METHOD
+;;; Invoke a component method or property with already coerced args.  The method
+;;; resolved for the component class, method name and number of args is cached by
+;;; ComponentMethodInvoker; calls it cannot resolve fall back to Kawa's invoke.
+
+(define (invoke-component-method component method-name args)
+  (let ((result (ComponentMethodInvoker:invoke component method-name args)))
+    (if (eq? result ComponentMethodInvoker:UNRESOLVED)
+        (apply invoke component method-name args)
+        result)))
+
+
 ;;; CALL-COMPONENT-METHOD
 ;;; Call the component method with the given list of args, coercing to the given types.
 ;;; For example:
@@ -1110,10 +1123,7 @@
     (let ((result
            (if (all-coercible? coerced-args)
                (try-catch
-                (apply invoke
-                       `(,component
-                         ,method-name
-                         ,@coerced-args))
+                (invoke-component-method component method-name coerced-args)
                 (exception PermissionException
                            (*:dispatchPermissionDeniedEvent (SimpleForm:getActiveForm) component method-name exception)))
                (generate-runtime-type-error method-name arglist))))
@@ -1133,11 +1143,8 @@
                         Object:class)))
     (if (all-coercible? coerced-args)
         (try-catch
-         (apply invoke
-                `(,component
-                  ,method-name
-                  ,@coerced-args
-                  ,continuation))
+         (invoke-component-method component method-name
+                                  (append coerced-args (list continuation)))
          (exception PermissionException
            (*:dispatchPermissionDeniedEvent (SimpleForm:getActiveForm) component method-name exception)))
       (generate-runtime-type-error method-name arglist))))
@@ -1175,10 +1182,7 @@
                                      (list (get-display-representation possible-component)))
         (let ((result
                (if (all-coercible? coerced-args)
-                   (apply invoke
-                          `(,component-value
-                            ,method-name
-                            ,@coerced-args))
+                   (invoke-component-method component-value method-name coerced-args)
                    (generate-runtime-type-error method-name arglist))))
           ;; TODO(markf): this should probably be generalized but for now this is OK, I think
           (sanitize-return-value component-value method-name result)))))
@@ -1196,7 +1200,8 @@
                         Object:class)))
     (if (all-coercible? coerced-args)
         (try-catch
-         (apply invoke `(,component-value ,method-name ,@coerced-args ,continuation))
+         (invoke-component-method component-value method-name
+                                  (append coerced-args (list continuation)))
          (exception PermissionException
            (*:dispatchPermissionDeniedEvent (SimpleForm:getActiveForm) component method-name exception)))
       (generate-runtime-type-error method-name arglist))))
@@ -1415,7 +1420,7 @@
     (android-log (format #f "coerced property value was: ~A " coerced-arg))
     (if (all-coercible? (list coerced-arg))
         (try-catch
-         (invoke comp prop-name coerced-arg)
+         (invoke-component-method comp prop-name (list coerced-arg))
          (exception PermissionException
                     (*:dispatchPermissionDeniedEvent (SimpleForm:getActiveForm) comp prop-name exception)))
         (generate-runtime-type-error prop-name (list property-value)))))
@@ -2496,8 +2501,11 @@ list, use the make-yail-list constructor with no arguments.
 
 
 ;; Implements the Blocks length operation
+;; YailList keeps an index of its elements, so its length is known without walking the list.
 (define (yail-list-length yail-list)
-  (length (yail-list-contents yail-list)))
+  (if (instance? yail-list YailList)
+      (*:size (as YailList yail-list))
+      (length (yail-list-contents yail-list))))
 
 ;; These are removed, to simplify the API to lists
 ;; ;; Implements the Blocks first operation
@@ -2542,7 +2550,7 @@ list, use the make-yail-list constructor with no arguments.
                  len
                  (get-display-representation yail-list))
          "Select list item: List index too large")
-    (list-ref (yail-list-contents yail-list) (- index 1)))))
+    (*:getObject (as YailList yail-list) (- index 1)))))
 
 
 ;; Implements the Blocks set list item operation
@@ -2561,7 +2569,7 @@ list, use the make-yail-list constructor with no arguments.
                  len
                  (get-display-representation yail-list))
          "List index too large")))
-  (set-car! (list-tail (yail-list-contents yail-list) (- index 1)) value))
+  (*:setObject (as YailList yail-list) (- index 1) value))
 
 
 
@@ -2592,8 +2600,7 @@ list, use the make-yail-list constructor with no arguments.
                    len
                    (get-display-representation yail-list))
            "List index too large"))
-      (let ((pair-pointing-to-deletion (list-tail yail-list (- index2 1))))
-        (set-cdr! pair-pointing-to-deletion (cddr pair-pointing-to-deletion))))))
+      (*:removeObject (as YailList yail-list) (- index2 1)))))
 
 
 ;; Implements the Blocks insert list item operation
@@ -2622,11 +2629,7 @@ list, use the make-yail-list constructor with no arguments.
                    (get-display-representation yail-list)
                    len+1)
            "List index too large"))
-      (let ((contents (yail-list-contents yail-list)))
-        (if (= index2 1)
-            (set-yail-list-contents! yail-list (cons item contents))
-            (let ((at-item (list-tail contents (- index2 2))))
-              (set-cdr! at-item (cons item (cdr at-item)))))))))
+      (*:insertObject (as YailList yail-list) (- index2 1) item))))
 
 ;; Extends list A by appending the elements of list B to it
 ;; Modifies list A
@@ -2636,14 +2639,7 @@ list, use the make-yail-list constructor with no arguments.
   ;; between the augmented list and the source of the added elements.
   ;; But like Python, we do a shallow copy, so that substructure is
   ;; shared.
-  (define (list-copy l)
-    (if (null? l)
-    '()
-    (cons (car l) (list-copy (cdr l)))))
-  ;; We have to operate on the yail-list itself, not the contents, because
-  ;; the contents might be empty
-  (set-cdr! (list-tail yail-list-A (length (yail-list-contents yail-list-A)))
-        (list-copy (yail-list-contents yail-list-B))))
+  (*:appendList (as YailList yail-list-A) (as YailList yail-list-B)))
 
 
 ;; Extend list A by appending the items to it
@@ -3618,12 +3614,21 @@ Dictionary implementation.
          (component-object (lookup-in-current-form-environment component-symbol)))
     (delete-from-current-form-environment component-symbol)
     (when (not (eq? *this-form* #!null))
+      (when (instance? component-object com.google.appinventor.components.runtime.Component)
+        (com.google.appinventor.components.runtime.EventDispatcher:unregisterComponentRoutes
+         (as com.google.appinventor.components.runtime.HandlesEventDispatching *this-form*)
+         component-object))
       (*:deleteComponent *this-form* component-object))))
 
 (define (rename-component old-component-name new-component-name)
   (rename-in-current-form-environment
    (string->symbol old-component-name)
-   (string->symbol new-component-name)))
+   (string->symbol new-component-name))
+  ;; The events of the renamed component are now handled under its new name.
+  (when (not (eq? *this-form* #!null))
+    (com.google.appinventor.components.runtime.EventDispatcher:unregisterComponentRoutes
+     (as com.google.appinventor.components.runtime.HandlesEventDispatching *this-form*)
+     #!null)))
 
 ;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;;
 ;;;; End Support for REPL
@@ -0,0 +1,83 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.stats;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * ChildProcessMemory measures the resident memory of the child processes of the build server,
+ * such as Kawa and d8, which the JVM's own memory beans do not account for.
+ *
+ * <p>The measurement reads {@code /proc}, so it is only available on Linux.</p>
+ */
+public final class ChildProcessMemory {
+  private static final File PROC = new File("/proc");
+
+  private ChildProcessMemory() {
+  }
+
+  /**
+   * Gets the resident memory of the direct children of this process.
+   *
+   * @return the total resident set size, in bytes, or -1 if it cannot be measured
+   */
+  public static long getResidentBytes() {
+    return getResidentBytes(PROC, "self");
+  }
+
+  static long getResidentBytes(File proc, String pid) {
+    File tasks = new File(new File(proc, pid), "task");
+    File[] threads = tasks.listFiles();
+    if (threads == null) {
+      return -1;
+    }
+    long total = 0;
+    try {
+      for (File thread : threads) {
+        File children = new File(thread, "children");
+        if (!children.exists()) {
+          // Kernels without CONFIG_PROC_CHILDREN do not list children.
+          return -1;
+        }
+        String content = new String(Files.readAllBytes(children.toPath()),
+            StandardCharsets.US_ASCII).trim();
+        if (content.isEmpty()) {
+          continue;
+        }
+        for (String child : content.split("\\s+")) {
+          total += getProcessResidentBytes(new File(new File(proc, child), "status"));
+        }
+      }
+    } catch (IOException e) {
+      return -1;
+    }
+    return total;
+  }
+
+  private static long getProcessResidentBytes(File status) {
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(status.toPath(), StandardCharsets.US_ASCII);
+    } catch (IOException e) {
+      return 0;  // The process exited after it was listed.
+    }
+    for (String line : lines) {
+      if (line.startsWith("VmRSS:")) {
+        String[] parts = line.substring("VmRSS:".length()).trim().split("\\s+");
+        try {
+          return Long.parseLong(parts[0]) * 1024;
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 0;
+  }
+}
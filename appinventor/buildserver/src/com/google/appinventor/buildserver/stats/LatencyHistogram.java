@@ -0,0 +1,203 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * LatencyHistogram records durations, in milliseconds, over a sliding window of time so that
+ * percentiles of recent builds can be read cheaply and without locks.
+ *
+ * <p>The window is divided into slots of equal length, used round robin. A slot is cleared the
+ * first time a duration is recorded in it after it expires, so a recording racing with the
+ * clearing of its slot may be lost. Durations are counted in logarithmic buckets, eight per power
+ * of two, so a reported percentile is at most 12.5% above the exact value.</p>
+ */
+public final class LatencyHistogram {
+  private static final int EXACT_BUCKETS = 16;
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 31;  // about 24 days
+  private static final int BUCKETS =
+      EXACT_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+  private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+  private static final int DEFAULT_SLOTS = 60;
+  private static final long DEFAULT_SLOT_MILLIS = 60 * 1000;
+
+  private static class Slot {
+    final AtomicLong epoch = new AtomicLong(-1);
+    final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    final AtomicLong count = new AtomicLong(0);
+    final AtomicLong sum = new AtomicLong(0);
+    final AtomicLong max = new AtomicLong(0);
+  }
+
+  /**
+   * The durations recorded during a window.
+   */
+  public static final class Snapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    private Snapshot(long[] counts, long count, long sum, long max) {
+      this.counts = counts;
+      this.count = count;
+      this.sum = sum;
+      this.max = max;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getSum() {
+      return sum;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    /**
+     * Gets a percentile of the recorded durations.
+     *
+     * @param quantile the quantile, between 0 and 1, e.g., 0.99 for the 99th percentile
+     * @return the duration in milliseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile(double quantile) {
+      if (count == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(quantile * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(upperBound(i), max);
+        }
+      }
+      return max;
+    }
+  }
+
+  private final Slot[] slots;
+  private final long slotMillis;
+  private final LongSupplier clock;
+
+  /**
+   * Creates a histogram covering the last hour, with a resolution of one minute.
+   */
+  public LatencyHistogram() {
+    this(DEFAULT_SLOTS, DEFAULT_SLOT_MILLIS);
+  }
+
+  /**
+   * Creates a histogram covering {@code slots * slotMillis} milliseconds.
+   *
+   * @param slots the number of slots in the window
+   * @param slotMillis the length of a slot, in milliseconds
+   */
+  public LatencyHistogram(int slots, long slotMillis) {
+    this(slots, slotMillis, System::currentTimeMillis);
+  }
+
+  LatencyHistogram(int slots, long slotMillis, LongSupplier clock) {
+    this.slots = new Slot[slots];
+    for (int i = 0; i < slots; i++) {
+      this.slots[i] = new Slot();
+    }
+    this.slotMillis = slotMillis;
+    this.clock = clock;
+  }
+
+  /**
+   * Records a duration.
+   *
+   * @param millis the duration, in milliseconds
+   */
+  public void record(long millis) {
+    long value = Math.max(0, Math.min(millis, MAX_VALUE));
+    long epoch = clock.getAsLong() / slotMillis;
+    Slot slot = slots[(int) (epoch % slots.length)];
+    long slotEpoch = slot.epoch.get();
+    if (slotEpoch < epoch && slot.epoch.compareAndSet(slotEpoch, epoch)) {
+      // The slot held an expired part of the window.
+      for (int i = 0; i < BUCKETS; i++) {
+        slot.counts.set(i, 0);
+      }
+      slot.count.set(0);
+      slot.sum.set(0);
+      slot.max.set(0);
+    }
+    slot.counts.incrementAndGet(bucketOf(value));
+    slot.count.incrementAndGet();
+    slot.sum.addAndGet(value);
+    long max;
+    do {
+      max = slot.max.get();
+    } while (value > max && !slot.max.compareAndSet(max, value));
+  }
+
+  /**
+   * Gets the durations recorded during the whole window.
+   */
+  public Snapshot snapshot() {
+    return snapshot(slots.length * slotMillis);
+  }
+
+  /**
+   * Gets the durations recorded during the last {@code windowMillis} milliseconds, rounded up to
+   * whole slots and limited to the window of the histogram.
+   *
+   * @param windowMillis the length of the window, in milliseconds
+   * @return the durations recorded in the window
+   */
+  public Snapshot snapshot(long windowMillis) {
+    long epoch = clock.getAsLong() / slotMillis;
+    long windowSlots = Math.min(slots.length, Math.max(1, (windowMillis + slotMillis - 1)
+        / slotMillis));
+    long[] counts = new long[BUCKETS];
+    long count = 0;
+    long sum = 0;
+    long max = 0;
+    for (Slot slot : slots) {
+      long slotEpoch = slot.epoch.get();
+      if (slotEpoch > epoch - windowSlots && slotEpoch <= epoch) {
+        for (int i = 0; i < BUCKETS; i++) {
+          counts[i] += slot.counts.get(i);
+        }
+        count += slot.count.get();
+        sum += slot.sum.get();
+        max = Math.max(max, slot.max.get());
+      }
+    }
+    return new Snapshot(counts, count, sum, max);
+  }
+
+  static int bucketOf(long value) {
+    if (value < EXACT_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return EXACT_BUCKETS + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long upperBound(int bucket) {
+    if (bucket < EXACT_BUCKETS) {
+      return bucket;
+    }
+    int exponent = (bucket - EXACT_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+    int subBucket = (bucket - EXACT_BUCKETS) % SUB_BUCKETS;
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return ((SUB_BUCKETS + subBucket) * width) + width - 1;
+  }
+}
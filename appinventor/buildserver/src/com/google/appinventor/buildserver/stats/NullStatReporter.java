@@ -22,6 +22,10 @@ public class NullStatReporter implements StatReporter {
   public void nextStage(Compiler compiler, String stage) {
   }
 
+  @Override
+  public void endStage(Compiler compiler, String stage) {
+  }
+
   @Override
   public void stopBuild(Compiler compiler, boolean success) {
   }
@@ -1,24 +1,30 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2021 MIT, All rights reserved
+// Copyright 2021-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
 package com.google.appinventor.buildserver.stats;
 
 import com.google.appinventor.buildserver.Compiler;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 
 /**
  * SimpleStatReporter stores build performance measurements in memory. It saves the last
  * {@link #MAX_STATS} entries (currently 1000), evicting the oldest entries first.
  *
+ * <p>It also records the duration of each build and each stage in a {@link LatencyHistogram},
+ * from which percentiles over the last hour can be read without going through the saved
+ * entries.</p>
+ *
  * @author Evan W. Patton (ewpatton@mit.edu)
  */
 public class SimpleStatReporter implements StatReporter {
@@ -26,16 +32,22 @@ public class SimpleStatReporter implements StatReporter {
   private static final int MAX_STATS = 1000;
   private static final Logger LOG = Logger.getLogger(SimpleStatReporter.class.getCanonicalName());
 
+  /**
+   * The name under which the durations of whole builds are recorded.
+   */
+  public static final String BUILD = "build";
+
   /**
    * BuildStats encapsulate all of the measurements of a particular build, including the
    * timing measurements of all of the build's subprocesses.
    */
   public static class BuildStats {
     private final long start = System.currentTimeMillis();
-    private final Map<String, Long> stages = new LinkedHashMap<>();
+    private final Map<String, Long> stages =
+        Collections.synchronizedMap(new LinkedHashMap<String, Long>());
+    private final Map<String, Long> openStages = new ConcurrentHashMap<>();
     private long end;
     private long duration;
-    private long last = start;
 
     private BuildStats() {
       // Not instantiable outside this class
@@ -58,8 +70,8 @@ public class SimpleStatReporter implements StatReporter {
     }
   }
 
-  private final Map<Compiler, BuildStats> activeBuilds = new HashMap<>();
-  private final Map<Compiler, String> currentStages = new HashMap<>();
+  private final Map<Compiler, BuildStats> activeBuilds = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
 
   private final Deque<BuildStats> successfulBuilds = new LinkedList<>();
   private final Deque<BuildStats> failedBuilds = new LinkedList<>();
@@ -72,61 +84,103 @@ public class SimpleStatReporter implements StatReporter {
 
   @Override
   public void nextStage(Compiler compiler, String newStage) {
-    BuildStats stats;
-    String previousStage;
-    synchronized (this) {
-      stats = activeBuilds.get(compiler);
-      previousStage = currentStages.get(compiler);
+    BuildStats stats = getActiveStats(compiler);
+    if (stats != null) {
+      stats.openStages.put(newStage, System.currentTimeMillis());
     }
+  }
+
+  @Override
+  public void endStage(Compiler compiler, String stage) {
+    BuildStats stats = getActiveStats(compiler);
     if (stats == null) {
-      LOG.warning("Got compiler with uninitialized stats object");
       return;
     }
-    if (previousStage != null) {
-      stats.stages.put(previousStage, System.currentTimeMillis() - stats.last);
+    Long started = stats.openStages.remove(stage);
+    if (started != null) {
+      long duration = System.currentTimeMillis() - started;
+      stats.stages.put(stage, duration);
+      getLatency(stage).record(duration);
     }
-    currentStages.put(compiler, newStage);
-    stats.last = System.currentTimeMillis();
   }
 
   @Override
   public void stopBuild(Compiler compiler, boolean success) {
-    BuildStats stats;
-    String previousStage;
-    synchronized (this) {
-      stats = activeBuilds.remove(compiler);
-      previousStage = currentStages.remove(compiler);
-    }
+    BuildStats stats = activeBuilds.remove(compiler);
     if (stats == null) {
       LOG.warning("Got compiler with uninitialized stats object");
       return;
     }
     stats.end = System.currentTimeMillis();
     stats.duration = stats.end - stats.start;
-    if (previousStage != null) {
-      stats.stages.put(previousStage, stats.end - stats.last);
+    // Stages still open when the build stops, e.g., because it failed, end with it.
+    for (Map.Entry<String, Long> stage : stats.openStages.entrySet()) {
+      long duration = stats.end - stage.getValue();
+      stats.stages.put(stage.getKey(), duration);
+      getLatency(stage.getKey()).record(duration);
     }
+    stats.openStages.clear();
+    getLatency(BUILD).record(stats.duration);
     queueAndExpire(stats, success ? successfulBuilds : failedBuilds);
     queueAndExpire(stats, orderedBuilds);
   }
 
+  private BuildStats getActiveStats(Compiler compiler) {
+    BuildStats stats = activeBuilds.get(compiler);
+    if (stats == null) {
+      LOG.warning("Got compiler with uninitialized stats object");
+    }
+    return stats;
+  }
+
   public Collection<BuildStats> getSuccessStats() {
-    return Collections.unmodifiableCollection(successfulBuilds);
+    return snapshot(successfulBuilds);
   }
 
   public Collection<BuildStats> getFailureStats() {
-    return Collections.unmodifiableCollection(failedBuilds);
+    return snapshot(failedBuilds);
   }
 
   public Collection<BuildStats> getOrderedStats() {
-    return Collections.unmodifiableCollection(orderedBuilds);
+    return snapshot(orderedBuilds);
+  }
+
+  /**
+   * Gets the histograms of the durations of builds, under {@link #BUILD}, and of their stages,
+   * under the stage names.
+   *
+   * @return a live view of the histograms, keyed by name
+   */
+  public Map<String, LatencyHistogram> getLatencies() {
+    return Collections.unmodifiableMap(latencies);
+  }
+
+  private LatencyHistogram getLatency(String name) {
+    LatencyHistogram histogram = latencies.get(name);
+    if (histogram == null) {
+      histogram = new LatencyHistogram();
+      LatencyHistogram existing = latencies.putIfAbsent(name, histogram);
+      if (existing != null) {
+        histogram = existing;
+      }
+    }
+    return histogram;
+  }
+
+  @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
+  private static Collection<BuildStats> snapshot(Deque<BuildStats> source) {
+    // The deques are modified by builds while the stats page iterates over them.
+    synchronized (source) {
+      return Collections.unmodifiableCollection(new ArrayList<>(source));
+    }
   }
 
   @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
   private void queueAndExpire(BuildStats stats, final Deque<BuildStats> target) {
     synchronized (target) {
       if (target.size() == MAX_STATS) {
-        target.pollFirst();
+        // New entries are pushed at the front, so the oldest is at the back.
+        target.pollLast();
       }
       target.push(stats);
     }
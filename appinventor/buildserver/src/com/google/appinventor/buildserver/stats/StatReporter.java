@@ -22,13 +22,22 @@ public interface StatReporter {
   void startBuild(Compiler compiler);
 
   /**
-   * Indicate to the StatReporter that a build is entering a new stage.
+   * Indicate to the StatReporter that a build is entering a new stage. Stages of a build may
+   * overlap.
    *
    * @param compiler the compilation process in progress
    * @param stage the stage being entered
    */
   void nextStage(Compiler compiler, String stage);
 
+  /**
+   * Indicate to the StatReporter that a stage of a build has finished.
+   *
+   * @param compiler the compilation process in progress
+   * @param stage the stage being left
+   */
+  void endStage(Compiler compiler, String stage);
+
   /**
    * Indicate to the StatReporter that a build has finished and whether it was successful.
    *
@@ -0,0 +1,145 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.stats;
+
+import java.util.Map;
+
+/**
+ * TextMetrics formats measurements in the Prometheus text exposition format, which monitoring
+ * systems can scrape without parsing HTML.
+ *
+ * <p>Latencies are exposed as summaries with the 50th, 90th and 99th percentiles and the maximum
+ * (quantile 1), computed over the last 5 minutes and the last hour, as told by the
+ * {@code window} label.</p>
+ */
+public final class TextMetrics {
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99, 1};
+  private static final String[] WINDOW_NAMES = {"5m", "1h"};
+  private static final long[] WINDOW_MILLIS = {5 * 60 * 1000, 60 * 60 * 1000};
+
+  private final StringBuilder out = new StringBuilder();
+
+  /**
+   * Adds a metric with a single value.
+   *
+   * @param name the name of the metric
+   * @param type the type of the metric, i.e., gauge or counter
+   * @param help a description of the metric
+   * @param value the value
+   * @return this object
+   */
+  public TextMetrics add(String name, String type, String help, double value) {
+    header(name, type, help);
+    sample(name, null, null, value);
+    return this;
+  }
+
+  /**
+   * Adds a metric with a value for each value of a label.
+   *
+   * @param name the name of the metric
+   * @param type the type of the metric, i.e., gauge or counter
+   * @param help a description of the metric
+   * @param label the name of the label
+   * @param values the values of the metric, keyed by label value
+   * @return this object
+   */
+  public TextMetrics add(String name, String type, String help, String label,
+      Map<String, ? extends Number> values) {
+    header(name, type, help);
+    for (Map.Entry<String, ? extends Number> entry : values.entrySet()) {
+      sample(name, label(label, entry.getKey()), null, entry.getValue().doubleValue());
+    }
+    return this;
+  }
+
+  /**
+   * Adds a summary of the durations recorded in a histogram.
+   *
+   * @param name the name of the metric
+   * @param help a description of the metric
+   * @param histogram the histogram
+   * @return this object
+   */
+  public TextMetrics addLatency(String name, String help, LatencyHistogram histogram) {
+    header(name, "summary", help);
+    latency(name, null, histogram);
+    return this;
+  }
+
+  /**
+   * Adds summaries of the durations recorded in a set of histograms.
+   *
+   * @param name the name of the metric
+   * @param help a description of the metric
+   * @param label the name of the label identifying each histogram
+   * @param histograms the histograms, keyed by label value
+   * @return this object
+   */
+  public TextMetrics addLatencies(String name, String help, String label,
+      Map<String, LatencyHistogram> histograms) {
+    header(name, "summary", help);
+    for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+      latency(name, label(label, entry.getKey()), entry.getValue());
+    }
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return out.toString();
+  }
+
+  private void latency(String name, String labels, LatencyHistogram histogram) {
+    for (int i = 0; i < WINDOW_NAMES.length; i++) {
+      LatencyHistogram.Snapshot snapshot = histogram.snapshot(WINDOW_MILLIS[i]);
+      String windowLabels = (labels == null ? "" : labels + ",")
+          + label("window", WINDOW_NAMES[i]);
+      for (double quantile : QUANTILES) {
+        sample(name, windowLabels, label("quantile", format(quantile)),
+            snapshot.getPercentile(quantile));
+      }
+      sample(name + "_sum", windowLabels, null, snapshot.getSum());
+      sample(name + "_count", windowLabels, null, snapshot.getCount());
+    }
+  }
+
+  private void header(String name, String type, String help) {
+    out.append("# HELP ").append(name).append(' ')
+        .append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private void sample(String name, String labels, String extraLabel, double value) {
+    out.append(name);
+    if (labels != null || extraLabel != null) {
+      out.append('{');
+      if (labels != null) {
+        out.append(labels);
+        if (extraLabel != null) {
+          out.append(',');
+        }
+      }
+      if (extraLabel != null) {
+        out.append(extraLabel);
+      }
+      out.append('}');
+    }
+    out.append(' ').append(format(value)).append('\n');
+  }
+
+  private static String label(String name, String value) {
+    return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")
+        + "\"";
+  }
+
+  private static String format(double value) {
+    if (value == Math.rint(value) && !Double.isInfinite(value)) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+}
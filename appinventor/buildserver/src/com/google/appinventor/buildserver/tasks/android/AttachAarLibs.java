@@ -1,10 +1,12 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2021-2023 MIT, All rights reserved
+// Copyright 2021-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
 package com.google.appinventor.buildserver.tasks.android;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
@@ -12,6 +14,7 @@ import com.google.appinventor.buildserver.interfaces.AndroidTask;
 import com.google.appinventor.buildserver.util.AARLibraries;
 import com.google.appinventor.buildserver.util.AARLibrary;
 import com.google.appinventor.buildserver.util.ExecutorUtils;
+import com.google.appinventor.buildserver.util.ExplodedAarCache;
 
 import java.io.File;
 import java.io.IOException;
@@ -27,6 +30,9 @@ import java.util.Set;
  */
 
 @BuildType(apk = true, aab = true)
+@Artifacts(
+    consumes = {BuildArtifact.BUILD_INFO, BuildArtifact.COMPONENT_INFO},
+    produces = BuildArtifact.AAR_LIBS)
 public class AttachAarLibs implements AndroidTask {
   @Override
   public TaskResult execute(AndroidCompilerContext context) {
@@ -42,7 +48,8 @@ public class AttachAarLibs implements AndroidTask {
     context.getComponentInfo().getLibsNeeded().put("ANDROID", new HashSet<>(Arrays.asList(
         context.getResources().getSupportAars())));
 
-    // walk components list for libraries ending in ".aar"
+    // walk components list for libraries ending in ".aar". The removed entries are only read
+    // by GenerateClasses, which consumes AAR_LIBS and therefore runs after this task.
     try {
       for (Set<String> libs : context.getComponentInfo().getLibsNeeded().values()) {
         Iterator<String> i = libs.iterator();
@@ -51,10 +58,13 @@ public class AttachAarLibs implements AndroidTask {
           if (libname.endsWith(".aar")) {
             i.remove();
             if (!processedLibs.contains(libname)) {
-              // explode libraries into ${buildDir}/exploded-aars/<package>/
+              // explode libraries into the shared AAR cache, or else into
+              // ${buildDir}/exploded-aars/<package>/
               AARLibrary aarLib = new AARLibrary(new File(context.getResource(
                   context.getResources().getRuntimeFilesDir() + libname)));
-              aarLib.unpackToDirectory(explodedBaseDir);
+              if (!ExplodedAarCache.acquire(aarLib)) {
+                aarLib.unpackToDirectory(explodedBaseDir);
+              }
               context.getComponentInfo().getExplodedAarLibs().add(aarLib);
               processedLibs.add(libname);
             }
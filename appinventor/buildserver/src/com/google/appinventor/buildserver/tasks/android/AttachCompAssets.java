@@ -7,6 +7,8 @@ package com.google.appinventor.buildserver.tasks.android;
 
 import static com.google.appinventor.common.constants.YoungAndroidStructureConstants.ASSETS_FOLDER;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
@@ -24,6 +26,9 @@ import java.io.IOException;
  */
 
 @BuildType(apk = true, aab = true)
+@Artifacts(
+    consumes = {BuildArtifact.BUILD_INFO, BuildArtifact.COMPONENT_INFO},
+    produces = BuildArtifact.ASSETS)
 public class AttachCompAssets implements AndroidTask {
 
   @Override
@@ -10,6 +10,8 @@ import static com.google.appinventor.components.common.ComponentDescriptorConsta
 import static com.google.appinventor.components.common.ComponentDescriptorConstants.ARMEABI_V7A_SUFFIX;
 import static com.google.appinventor.components.common.ComponentDescriptorConstants.X86_64_SUFFIX;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.YoungAndroidConstants;
@@ -29,6 +31,9 @@ import java.io.IOException;
  */
 
 @BuildType(apk = true, aab = true)
+@Artifacts(
+    consumes = {BuildArtifact.BUILD_INFO, BuildArtifact.COMPONENT_INFO},
+    produces = BuildArtifact.NATIVE_LIBS)
 public class AttachNativeLibs implements AndroidTask {
   @Override
   public TaskResult execute(AndroidCompilerContext context) {
@@ -5,6 +5,8 @@
 
 package com.google.appinventor.buildserver.tasks.android;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.Project;
 import com.google.appinventor.buildserver.Signatures;
@@ -35,6 +37,9 @@ import java.util.Set;
  */
 // CreateManifest
 @BuildType(apk = true, aab = true)
+@Artifacts(
+    consumes = {BuildArtifact.BUILD_INFO, BuildArtifact.COMPONENT_INFO},
+    produces = BuildArtifact.MANIFEST)
 public class CreateManifest implements AndroidTask {
   private static final String NEARFIELD_COMPONENT =
       "com.google.appinventor.components.runtime.NearField";
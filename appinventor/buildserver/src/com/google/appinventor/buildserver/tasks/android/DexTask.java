@@ -6,29 +6,18 @@
 package com.google.appinventor.buildserver.tasks.android;
 
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
-import com.google.common.hash.HashCode;
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Files;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 public abstract class DexTask {
-  /**
-   * Maps JAR file references to their precomputed hash code representing the target dex file
-   * created during pre-dexing.
-   */
-  static final Map<File, String> PREDEX_CACHE = new HashMap<>();
-
   /**
    * Retrieves the set of critical JARs in the build context.
    *
@@ -176,38 +165,4 @@ public abstract class DexTask {
     }
     return file;
   }
-
-  /**
-   * Determines the destination of a dex cache operation for {@code inputFile}. Note that this
-   * function only determines where the file should live. There is no guarantee that the returned
-   * value exists yet.
-   *
-   * @param inputFile the source JAR being considered for dexing
-   * @param cacheDir the cache directory
-   * @return a dex file relative to {@code cacheDir}
-   */
-  static File getDexFileName(File inputFile, File cacheDir) throws IOException {
-    String hashed = getHashFor(inputFile);
-    return new File(cacheDir, "dex-cached-" + hashed + ".dex");
-  }
-
-  /**
-   * Computes a hash code for the contents of the given {@code inputFile}.
-   *
-   * @param inputFile the source file
-   * @return a hash of the file's content
-   */
-  @SuppressWarnings("UnstableApiUsage")
-  static String getHashFor(File inputFile) throws IOException {
-    String retval = PREDEX_CACHE.get(inputFile);
-    if (retval != null) {
-      return retval;
-    }
-    // add a hash of the original file path
-    HashFunction hashFunction = Hashing.md5();
-    HashCode hashCode = hashFunction.hashBytes(Files.readAllBytes(inputFile.toPath()));
-    retval = hashCode.toString();
-    PREDEX_CACHE.put(inputFile, retval);
-    return retval;
-  }
 }
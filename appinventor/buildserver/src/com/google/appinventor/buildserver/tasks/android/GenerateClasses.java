@@ -1,5 +1,5 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2021-2023 MIT, All rights reserved
+// Copyright 2021-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -7,6 +7,8 @@ package com.google.appinventor.buildserver.tasks.android;
 
 import static com.google.appinventor.common.constants.YoungAndroidStructureConstants.YAIL_FILE_EXTENSION;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.Project;
 import com.google.appinventor.buildserver.Signatures;
@@ -17,24 +19,41 @@ import com.google.appinventor.buildserver.context.CompilerContext;
 import com.google.appinventor.buildserver.interfaces.AndroidTask;
 import com.google.appinventor.buildserver.util.Execution;
 import com.google.appinventor.buildserver.util.ExecutorUtils;
+import com.google.appinventor.buildserver.util.ExplodedAarCache;
+import com.google.appinventor.buildserver.util.FileHashes;
+import com.google.appinventor.buildserver.util.IncrementalBuildCache;
+import com.google.appinventor.buildserver.util.KawaDaemon;
+import com.google.appinventor.buildserver.util.RuntimeClassCache;
+import com.google.appinventor.buildserver.util.ToolPool;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.io.Files;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Compiles screen source files written in YAIL to Java class files.
  */
 @BuildType(apk = true, aab = true)
+@Artifacts(
+    consumes = {BuildArtifact.BUILD_INFO, BuildArtifact.COMPONENT_INFO, BuildArtifact.AAR_LIBS,
+        BuildArtifact.RESOURCE_SYMBOLS},
+    produces = BuildArtifact.CLASSES)
 public class GenerateClasses implements AndroidTask {
   CompilerContext<AndroidPaths> context;
 
@@ -90,10 +109,16 @@ public class GenerateClasses implements AndroidTask {
       classpath.append(File.pathSeparator);
       classpath.append(context.getResources().getSimpleAndroidRuntimeJar());
       classpath.append(File.pathSeparator);
+      // Libraries extracted from the build server's resources never change while it runs.
+      Set<String> serverResources = new HashSet<>(Arrays.asList(
+          context.getResources().getKawaRuntime(), context.getResources().getAcraRuntime(),
+          context.getResources().getSimpleAndroidRuntimeJar(),
+          context.getResources().getAndroidRuntime()));
 
       for (String jar : context.getResources().getSupportJars()) {
         classpath.append(context.getResource(jar));
         classpath.append(File.pathSeparator);
+        serverResources.add(context.getResource(jar));
       }
 
       // attach the jars of external comps
@@ -118,6 +143,7 @@ public class GenerateClasses implements AndroidTask {
 
           if (context.getSimpleCompTypes().contains(type)) {
             sourcePath = context.getResource(pathSuffix);
+            serverResources.add(sourcePath);
           } else if (context.getExtCompTypes().contains(type)) {
             sourcePath = ExecutorUtils.getExtCompDirPath(
                 type, context.getProject(), context.getExtTypePathCache()) + pathSuffix;
@@ -153,14 +179,17 @@ public class GenerateClasses implements AndroidTask {
       context.getReporter().info("Libraries Classpath = " + classpath);
 
       String yailRuntime = context.getResources().getYailRuntime();
-      List<String> kawaCommandArgs = Lists.newArrayList();
+      // The runtime only needs to be compiled if it isn't cached already. It is still loaded
+      // with -f below because the screens use the macros it defines.
+      String runtimeKey = null;
+      File cachedRuntime = null;
+      if (RuntimeClassCache.isEnabled()) {
+        runtimeKey = RuntimeClassCache.getKey(context.getResources());
+        cachedRuntime = RuntimeClassCache.lookup(runtimeKey);
+      }
+      List<String> kawaArgs = Lists.newArrayList();
       int mx = context.getChildProcessRam() - 200;
-      Collections.addAll(kawaCommandArgs,
-          System.getProperty("java.home") + "/bin/java",
-          "-Dfile.encoding=UTF-8",
-          "-mx" + mx + "M",
-          "-cp", classpath.toString(),
-          "kawa.repl",
+      Collections.addAll(kawaArgs,
           "-f", yailRuntime,
           "-d", context.getPaths().getClassesDir().getAbsolutePath(),
           "-P", Signatures.getPackageName(context.getProject().getMainClass()) + ".",
@@ -170,21 +199,102 @@ public class GenerateClasses implements AndroidTask {
       // including the name of the tmp directory that contains them. We may be able to avoid that
       // by using source file names that are relative to the project root and using the project
       // root as the working directory for the Kawa compiler process.
-      kawaCommandArgs.addAll(sourceFileNames);
-      kawaCommandArgs.add(yailRuntime);
-      String[] kawaCommandLine = kawaCommandArgs.toArray(new String[0]);
+      // Screens that have not changed since the last build of the project are not recompiled.
+      List<String> compiledSourceFileNames = sourceFileNames;
+      Map<String, String> screenHashes = new HashMap<>();
+      String projectKey = IncrementalBuildCache.isEnabled()
+          ? IncrementalBuildCache.getProjectKey(context) : null;
+      if (projectKey != null) {
+        compiledSourceFileNames = Lists.newArrayList();
+        String environment = getEnvironmentHash(classpath.toString(), serverResources);
+        for (int i = 0; i < sourceFileNames.size(); i++) {
+          String sourceFileName = sourceFileNames.get(i);
+          File classFile = new File(classFileNames.get(i));
+          String screenName = getScreenName(classFile);
+          String hash = IncrementalBuildCache.newHasher()
+              .putString(environment, StandardCharsets.UTF_8)
+              .putBytes(Files.toByteArray(new File(sourceFileName)))
+              .hash().toString();
+          File entry = IncrementalBuildCache.lookup(projectKey,
+              IncrementalBuildCache.KIND_CLASSES, screenName, hash);
+          if (entry != null) {
+            try {
+              IncrementalBuildCache.restore(entry, classFile.getParentFile());
+              context.getReporter().info("Reusing classes of unchanged screen " + screenName);
+              continue;
+            } catch (IOException e) {
+              context.getReporter().warn("Unable to reuse classes of " + screenName);
+            }
+          }
+          screenHashes.put(sourceFileName, hash);
+          compiledSourceFileNames.add(sourceFileName);
+        }
+      }
+      kawaArgs.addAll(compiledSourceFileNames);
+      if (cachedRuntime == null) {
+        kawaArgs.add(yailRuntime);
+      } else {
+        context.getReporter().info("Using cached runtime " + cachedRuntime.getName());
+      }
 
       // Capture Kawa compiler stderr. The ODE server parses out the warnings and errors and adds
       // them to the protocol buffer for logging purposes. (See
       // buildserver/ProjectBuilder.processCompilerOutout.
       ByteArrayOutputStream kawaOutputStream = new ByteArrayOutputStream();
-      boolean kawaSuccess;
-      synchronized (context.getResources().getSyncKawaOrDx()) {
-        kawaSuccess = Execution.execute(null, kawaCommandLine,
-            System.out, new PrintStream(kawaOutputStream), Execution.Timeout.MEDIUM);
+      Boolean kawaSuccess = null;
+      if (compiledSourceFileNames.isEmpty() && cachedRuntime != null) {
+        // Everything is cached, so there is nothing left for Kawa to do.
+        kawaSuccess = true;
+      } else {
+        ToolPool.Lease lease;
+        try {
+          lease = ToolPool.KAWA.acquire(mx);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return TaskResult.generateError("Interrupted while waiting for the Kawa compiler");
+        }
+        try {
+          if (KawaDaemon.isEnabled()) {
+            kawaSuccess = KawaDaemon.compile(classpath.toString(), mx, kawaArgs, kawaOutputStream,
+                Execution.Timeout.MEDIUM.getSeconds());
+            if (kawaSuccess == null) {
+              context.getReporter().info("Kawa daemon unavailable, running Kawa directly");
+              kawaOutputStream.reset();
+            }
+          }
+          if (kawaSuccess == null) {
+            List<String> kawaCommandArgs = Lists.newArrayList();
+            Collections.addAll(kawaCommandArgs,
+                System.getProperty("java.home") + "/bin/java",
+                "-Dfile.encoding=UTF-8",
+                "-mx" + mx + "M",
+                "-cp", classpath.toString(),
+                "kawa.repl");
+            kawaCommandArgs.addAll(kawaArgs);
+            String[] kawaCommandLine = kawaCommandArgs.toArray(new String[0]);
+            kawaSuccess = Execution.execute(null, kawaCommandLine,
+                System.out, new PrintStream(kawaOutputStream), Execution.Timeout.MEDIUM);
+          }
+        } finally {
+          lease.close();
+        }
       }
       if (!kawaSuccess) {
         context.getReporter().error("Kawa compile has failed.", true);
+      } else if (cachedRuntime != null) {
+        RuntimeClassCache.copyTo(cachedRuntime, context.getPaths().getClassesDir());
+      } else if (runtimeKey != null) {
+        RuntimeClassCache.store(runtimeKey, context.getPaths().getClassesDir());
+      }
+      if (kawaSuccess) {
+        for (int i = 0; i < sourceFileNames.size(); i++) {
+          String hash = screenHashes.get(sourceFileNames.get(i));
+          if (hash != null) {
+            File classFile = new File(classFileNames.get(i));
+            IncrementalBuildCache.store(projectKey, IncrementalBuildCache.KIND_CLASSES,
+                getScreenName(classFile), hash, getScreenClassFiles(classFile));
+          }
+        }
       }
       String kawaOutput = kawaOutputStream.toString();
       context.getReporter().getSystemOut().print(kawaOutput);
@@ -206,6 +316,68 @@ public class GenerateClasses implements AndroidTask {
     return TaskResult.generateSuccess();
   }
 
+  /**
+   * Computes a hash of everything besides the source that influences the classes generated for a
+   * screen: the runtime, the package and the libraries on the classpath.
+   */
+  private String getEnvironmentHash(String classpath, Set<String> serverResources)
+      throws IOException {
+    Hasher hasher = IncrementalBuildCache.newHasher()
+        .putString(RuntimeClassCache.getKey(context.getResources()), StandardCharsets.UTF_8)
+        .putString(Signatures.getPackageName(context.getProject().getMainClass()),
+            StandardCharsets.UTF_8);
+    return putClasspath(hasher, classpath, serverResources).hash().toString();
+  }
+
+  /**
+   * Adds the libraries on {@code classpath} to {@code hasher}. Library paths vary between builds,
+   * so the build server's own resources are identified by their names, unpacked AARs by their
+   * cache entry and every other library, e.g., those shipped with extensions, by its content.
+   *
+   * @param hasher the hasher to update
+   * @param classpath the classpath
+   * @param serverResources the entries of the classpath extracted from the build server's
+   *                        resources
+   * @return {@code hasher}
+   * @throws IOException if a library cannot be read
+   */
+  @VisibleForTesting
+  static Hasher putClasspath(Hasher hasher, String classpath, Set<String> serverResources)
+      throws IOException {
+    for (String entry : classpath.split(File.pathSeparator)) {
+      File file = new File(entry);
+      hasher.putString(file.getName(), StandardCharsets.UTF_8);
+      if (serverResources.contains(entry) || !file.isFile()) {
+        // Directories hold files generated by this build from the other entries.
+        continue;
+      }
+      String aarEntry = ExplodedAarCache.getEntryName(file);
+      hasher.putString(aarEntry != null ? aarEntry : FileHashes.md5(file),
+          StandardCharsets.UTF_8);
+    }
+    return hasher;
+  }
+
+  private static String getScreenName(File classFile) {
+    String name = classFile.getName();
+    return name.substring(0, name.length() - ".class".length());
+  }
+
+  /**
+   * Lists the class files Kawa generated for the screen compiled into {@code classFile}.
+   */
+  static List<File> getScreenClassFiles(File classFile) {
+    final String screenName = getScreenName(classFile);
+    File[] files = classFile.getParentFile().listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.equals(screenName + ".class")
+            || name.startsWith(screenName + "$") && name.endsWith(".class");
+      }
+    });
+    return files == null ? Collections.<File>emptyList() : Arrays.asList(files);
+  }
+
   @VisibleForTesting
   boolean compileRClasses() {
     if (context.getComponentInfo().getExplodedAarLibs().isEmpty()) {
@@ -8,6 +8,8 @@ package com.google.appinventor.buildserver.tasks.android;
 import com.android.ide.common.internal.AaptCruncher;
 import com.android.ide.common.internal.PngCruncher;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
@@ -21,6 +23,9 @@ import java.io.File;
  * compiler.mergeResources()
  */
 @BuildType(apk = true, aab = true)
+@Artifacts(
+    consumes = {BuildArtifact.RESOURCES, BuildArtifact.AAR_LIBS},
+    produces = BuildArtifact.MERGED_RESOURCES)
 public class MergeResources implements AndroidTask {
   @Override
   public TaskResult execute(AndroidCompilerContext context) {
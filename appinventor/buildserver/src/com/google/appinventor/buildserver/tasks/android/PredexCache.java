@@ -0,0 +1,273 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.tasks.android;
+
+import com.google.appinventor.buildserver.util.FileHashes;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * PredexCache tracks the pre-dexed libraries stored in a dex cache directory.
+ *
+ * <p>Libraries are identified by a hash of their content. Different libraries can be dexed in
+ * parallel, while concurrent requests for the same library wait for a single d8 run. The index is
+ * rebuilt from the files on disk the first time a directory is used, so a restarted build server
+ * keeps its cache. When a byte budget is configured, the least recently used entries are evicted
+ * once the cache grows beyond it.</p>
+ */
+public final class PredexCache {
+  private static final Logger LOG = Logger.getLogger(PredexCache.class.getName());
+
+  private static final String PREFIX = "dex-cached-";
+  private static final String SUFFIX = ".dex";
+
+  /**
+   * Entries used more recently than this are never evicted, since a build may still be using
+   * them as inputs to its final d8 step.
+   */
+  private static final long EVICTION_GRACE_MS = 10 * 60 * 1000;
+
+  private static final ConcurrentMap<String, PredexCache> CACHES = new ConcurrentHashMap<>();
+
+  private static volatile long maxBytes = 0;  // 0 means unlimited
+
+  private static final AtomicLong hits = new AtomicLong(0);
+  private static final AtomicLong misses = new AtomicLong(0);
+  private static final AtomicLong evictions = new AtomicLong(0);
+  private static final AtomicLong sharedDexes = new AtomicLong(0);
+
+  /**
+   * Dexes a single library into a given file.
+   */
+  interface Dexer {
+    boolean dex(File input, File output) throws IOException;
+  }
+
+  private static class Entry {
+    final long size;
+    volatile long lastAccess;
+
+    Entry(long size, long lastAccess) {
+      this.size = size;
+      this.lastAccess = lastAccess;
+    }
+  }
+
+  private final File dir;
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, FutureTask<Boolean>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong totalBytes = new AtomicLong(0);
+  private final Object evictionLock = new Object();
+
+  private PredexCache(File dir) {
+    this.dir = dir;
+    File[] files = dir.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+      }
+    });
+    if (files != null) {
+      for (File file : files) {
+        String hash = file.getName().substring(PREFIX.length(),
+            file.getName().length() - SUFFIX.length());
+        entries.put(hash, new Entry(file.length(), file.lastModified()));
+        totalBytes.addAndGet(file.length());
+      }
+      LOG.info("Indexed " + entries.size() + " pre-dexed libraries in " + dir);
+    }
+  }
+
+  /**
+   * Gets the cache for the given dex cache directory.
+   *
+   * @param dexCacheDir the dex cache directory
+   * @return the cache managing that directory
+   */
+  static PredexCache forDirectory(String dexCacheDir) {
+    PredexCache cache = CACHES.get(dexCacheDir);
+    if (cache == null) {
+      File dir = new File(dexCacheDir);
+      if (!dir.exists() && !dir.mkdirs()) {
+        LOG.warning("Unable to create dex cache dir " + dexCacheDir);
+      }
+      PredexCache newCache = new PredexCache(dir);
+      cache = CACHES.putIfAbsent(dexCacheDir, newCache);
+      if (cache == null) {
+        cache = newCache;
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * Sets the maximum size of each dex cache directory.
+   *
+   * @param bytes the budget in bytes, or 0 for no limit
+   */
+  public static void setMaxBytes(long bytes) {
+    maxBytes = Math.max(0, bytes);
+  }
+
+  public static long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public static long getHits() {
+    return hits.get();
+  }
+
+  public static long getMisses() {
+    return misses.get();
+  }
+
+  public static long getEvictions() {
+    return evictions.get();
+  }
+
+  public static long getSharedDexes() {
+    return sharedDexes.get();
+  }
+
+  /**
+   * Gets the total number of bytes held by all dex caches.
+   */
+  public static long getTotalBytes() {
+    long total = 0;
+    for (PredexCache cache : CACHES.values()) {
+      total += cache.totalBytes.get();
+    }
+    return total;
+  }
+
+  /**
+   * Gets the total number of libraries held by all dex caches.
+   */
+  public static int getEntryCount() {
+    int total = 0;
+    for (PredexCache cache : CACHES.values()) {
+      total += cache.entries.size();
+    }
+    return total;
+  }
+
+  /**
+   * Returns the pre-dexed version of {@code input}, dexing it first if needed.
+   *
+   * @param input the library to pre-dex
+   * @param dexer the callback used to dex the library on a cache miss
+   * @return the pre-dexed library, or null if dexing failed
+   * @throws IOException if the library cannot be read or dexed
+   */
+  File get(File input, final Dexer dexer) throws IOException {
+    final String hash = FileHashes.md5(input);
+    final File dexedLib = new File(dir, PREFIX + hash + SUFFIX);
+    Entry entry = entries.get(hash);
+    if (entry != null && dexedLib.isFile()) {
+      entry.lastAccess = System.currentTimeMillis();
+      hits.incrementAndGet();
+      return dexedLib;
+    }
+
+    final File source = input;
+    FutureTask<Boolean> task = new FutureTask<>(() -> {
+      if (dexedLib.isFile()) {
+        // Someone else finished dexing while we were setting up.
+        return true;
+      }
+      File staging = Files.createTempDirectory(dir.toPath(), ".predex-" + hash).toFile();
+      try {
+        File output = new File(staging, dexedLib.getName());
+        if (!dexer.dex(source, output)) {
+          return false;
+        }
+        Files.move(output.toPath(), dexedLib.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        FileUtils.deleteQuietly(staging);
+      }
+      return true;
+    });
+    FutureTask<Boolean> existing = inFlight.putIfAbsent(hash, task);
+    if (existing == null) {
+      misses.incrementAndGet();
+      try {
+        task.run();
+      } finally {
+        inFlight.remove(hash, task);
+      }
+    } else {
+      sharedDexes.incrementAndGet();
+      task = existing;
+    }
+
+    boolean success;
+    try {
+      success = task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while pre-dexing " + input, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+    if (!success) {
+      return null;
+    }
+    Entry newEntry = new Entry(dexedLib.length(), System.currentTimeMillis());
+    if (entries.putIfAbsent(hash, newEntry) == null) {
+      totalBytes.addAndGet(newEntry.size);
+      evictIfNeeded();
+    }
+    return dexedLib;
+  }
+
+  private void evictIfNeeded() {
+    final long budget = maxBytes;
+    if (budget <= 0 || totalBytes.get() <= budget) {
+      return;
+    }
+    synchronized (evictionLock) {
+      List<Map.Entry<String, Entry>> candidates = new ArrayList<>(entries.entrySet());
+      Collections.sort(candidates, new Comparator<Map.Entry<String, Entry>>() {
+        @Override
+        public int compare(Map.Entry<String, Entry> a, Map.Entry<String, Entry> b) {
+          return Long.compare(a.getValue().lastAccess, b.getValue().lastAccess);
+        }
+      });
+      long cutoff = System.currentTimeMillis() - EVICTION_GRACE_MS;
+      for (Map.Entry<String, Entry> candidate : candidates) {
+        if (totalBytes.get() <= budget || candidate.getValue().lastAccess > cutoff) {
+          break;
+        }
+        if (entries.remove(candidate.getKey(), candidate.getValue())) {
+          File file = new File(dir, PREFIX + candidate.getKey() + SUFFIX);
+          if (!file.delete() && file.exists()) {
+            LOG.warning("Unable to evict " + file);
+          }
+          totalBytes.addAndGet(-candidate.getValue().size);
+          evictions.incrementAndGet();
+        }
+      }
+    }
+  }
+}
@@ -5,6 +5,8 @@
 
 package com.google.appinventor.buildserver.tasks.android;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
@@ -29,6 +31,7 @@ import javax.imageio.ImageIO;
  * compiler.prepareApplicationIcon()
  */
 @BuildType(apk = true, aab = true)
+@Artifacts(produces = BuildArtifact.RESOURCES)
 public class PrepareAppIcon implements AndroidTask {
   private static final String ERROR_NO_SUITABLE_ICON =
       "Could not find a suitable app icon. Maybe it's not an image.";
@@ -7,6 +7,8 @@ package com.google.appinventor.buildserver.tasks.android;
 
 import static com.google.appinventor.common.constants.YoungAndroidStructureConstants.ASSETS_FOLDER;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.Signatures;
 import com.google.appinventor.buildserver.TaskResult;
@@ -24,6 +26,10 @@ import java.util.List;
  */
 // RunAapt
 @BuildType(apk = true)
+@Artifacts(
+    consumes = {BuildArtifact.MANIFEST, BuildArtifact.MERGED_RESOURCES, BuildArtifact.ASSETS,
+        BuildArtifact.AAR_LIBS, BuildArtifact.TOOL_LIBS},
+    produces = {BuildArtifact.RESOURCE_PACKAGE, BuildArtifact.RESOURCE_SYMBOLS})
 public class RunAapt implements AndroidTask {
   @Override
   public TaskResult execute(AndroidCompilerContext context) {
@@ -1,5 +1,5 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2021-2023 MIT, All rights reserved
+// Copyright 2021-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -7,6 +7,8 @@ package com.google.appinventor.buildserver.tasks.android;
 
 import static com.google.appinventor.common.constants.YoungAndroidStructureConstants.ASSETS_FOLDER;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
@@ -15,12 +17,21 @@ import com.google.appinventor.buildserver.context.CompilerContext;
 import com.google.appinventor.buildserver.interfaces.AndroidTask;
 import com.google.appinventor.buildserver.util.Execution;
 import com.google.appinventor.buildserver.util.ExecutorUtils;
+import com.google.appinventor.buildserver.util.FileHashes;
+import com.google.appinventor.buildserver.util.IncrementalBuildCache;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @BuildType(aab = true)
+@Artifacts(
+    consumes = {BuildArtifact.MANIFEST, BuildArtifact.MERGED_RESOURCES, BuildArtifact.ASSETS,
+        BuildArtifact.AAR_LIBS, BuildArtifact.TOOL_LIBS},
+    produces = {BuildArtifact.RESOURCE_PACKAGE, BuildArtifact.RESOURCE_SYMBOLS})
 public class RunAapt2 implements AndroidTask {
   CompilerContext<AndroidPaths> context;
   File resourcesZip;
@@ -52,6 +63,27 @@ public class RunAapt2 implements AndroidTask {
   private boolean runAapt2Compile(String aapt2Tool) {
     resourcesZip = new File(context.getPaths().getResDir(), "resources.zip");
 
+    // Reuse the compiled resources of the previous build if the merged resources are unchanged.
+    String projectKey = IncrementalBuildCache.isEnabled()
+        ? IncrementalBuildCache.getProjectKey(context) : null;
+    String hash = null;
+    if (projectKey != null) {
+      try {
+        hash = IncrementalBuildCache.putTree(IncrementalBuildCache.newHasher()
+                .putString(FileHashes.md5(new File(aapt2Tool)), StandardCharsets.UTF_8),
+            context.getPaths().getMergedResDir()).hash().toString();
+        File entry = IncrementalBuildCache.lookup(projectKey,
+            IncrementalBuildCache.KIND_RESOURCES, "resources", hash);
+        if (entry != null) {
+          IncrementalBuildCache.restore(entry, resourcesZip.getParentFile());
+          context.getReporter().info("Reusing compiled resources");
+          return true;
+        }
+      } catch (IOException e) {
+        context.getReporter().warn("Unable to reuse compiled resources");
+      }
+    }
+
     List<String> aapt2CommandLine = new ArrayList<>();
     aapt2CommandLine.add(aapt2Tool);
     aapt2CommandLine.add("compile");
@@ -68,6 +100,10 @@ public class RunAapt2 implements AndroidTask {
       return false;
     }
 
+    if (hash != null) {
+      IncrementalBuildCache.store(projectKey, IncrementalBuildCache.KIND_RESOURCES, "resources",
+          hash, Collections.singletonList(resourcesZip));
+    }
     return true;
   }
 
@@ -5,6 +5,8 @@
 
 package com.google.appinventor.buildserver.tasks.android;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
@@ -15,6 +17,7 @@ import com.google.appinventor.buildserver.util.Execution;
  * compiler.runApkSigner()
  */
 @BuildType(apk = true)
+@Artifacts(consumes = BuildArtifact.APP_PACKAGE, produces = BuildArtifact.APP_PACKAGE)
 public class RunApkSigner implements AndroidTask {
   @Override
   public TaskResult execute(AndroidCompilerContext context) {
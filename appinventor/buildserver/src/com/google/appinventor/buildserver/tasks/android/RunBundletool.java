@@ -7,6 +7,8 @@ package com.google.appinventor.buildserver.tasks.android;
 
 import static java.nio.file.Files.newInputStream;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
@@ -36,6 +38,9 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 @BuildType(aab = true)
+@Artifacts(
+    consumes = {BuildArtifact.RESOURCE_PACKAGE, BuildArtifact.DEX, BuildArtifact.NATIVE_LIBS},
+    produces = BuildArtifact.APP_PACKAGE)
 public class RunBundletool implements AndroidTask {
   private AabPaths aab;
 
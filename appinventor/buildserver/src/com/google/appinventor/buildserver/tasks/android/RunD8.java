@@ -1,21 +1,28 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2023 MIT, All rights reserved
+// Copyright 2023-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
 package com.google.appinventor.buildserver.tasks.android;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
+import com.google.appinventor.buildserver.Project;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
 import com.google.appinventor.buildserver.interfaces.AndroidTask;
 import com.google.appinventor.buildserver.util.Execution;
 import com.google.appinventor.buildserver.util.ExecutorUtils;
+import com.google.appinventor.buildserver.util.FileHashes;
+import com.google.appinventor.buildserver.util.IncrementalBuildCache;
+import com.google.appinventor.buildserver.util.ToolPool;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
@@ -25,11 +32,14 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @BuildType(aab = true, apk = true)
+@Artifacts(consumes = BuildArtifact.CLASSES, produces = BuildArtifact.DEX)
 public class RunD8 extends DexTask implements AndroidTask {
   private static final boolean USE_D8_PROGUARD_RULES = true;
 
@@ -81,6 +91,9 @@ public class RunD8 extends DexTask implements AndroidTask {
         }
       }
 
+      // Screens whose classes did not change since the last build reuse their dex shards.
+      final Set<File> dexedClasses = addScreenShards(context, inputs);
+
       Files.walkFileTree(context.getPaths().getClassesDir().toPath(), new FileVisitor<Path>() {
         @Override
         public FileVisitResult preVisitDirectory(Path dir,
@@ -91,7 +104,7 @@ public class RunD8 extends DexTask implements AndroidTask {
         @Override
         public FileVisitResult visitFile(Path file,
             BasicFileAttributes attrs) {
-          if (file.toString().endsWith(".class")) {
+          if (file.toString().endsWith(".class") && !dexedClasses.contains(file.toFile())) {
             inputs.add(file.toFile());
           }
           return FileVisitResult.CONTINUE;
@@ -144,6 +157,93 @@ public class RunD8 extends DexTask implements AndroidTask {
     }
   }
 
+  /**
+   * Adds the dex shards of the project's screens to {@code inputs}. Shards of unchanged screens
+   * come from the {@link IncrementalBuildCache}; the others are dexed together in a single d8 run
+   * and then stored for the next build.
+   *
+   * @param context the build context
+   * @param inputs the inputs of the final d8 run
+   * @return the class files covered by the added shards
+   * @throws IOException if the class files cannot be read
+   */
+  private static Set<File> addScreenShards(AndroidCompilerContext context, List<File> inputs)
+      throws IOException {
+    Set<File> dexedClasses = new HashSet<>();
+    String projectKey = IncrementalBuildCache.isEnabled()
+        ? IncrementalBuildCache.getProjectKey(context) : null;
+    if (projectKey == null) {
+      return dexedClasses;
+    }
+    File classesDir = context.getPaths().getClassesDir();
+    File shardsDir = ExecutorUtils.createDir(context.getPaths().getTmpDir(), "shards");
+    String environment = IncrementalBuildCache.newHasher()
+        .putString(FileHashes.md5(new File(context.getResources().getD8Jar())),
+            StandardCharsets.UTF_8)
+        .putInt(AndroidBuildUtils.computeMinSdk(context))
+        .hash().toString();
+
+    Map<String, List<File>> missingScreens = new HashMap<>();
+    Map<String, String> missingHashes = new HashMap<>();
+    List<File> missingClasses = new ArrayList<>();
+    for (Project.SourceDescriptor source : context.getProject().getSources()) {
+      File classFile = new File(classesDir,
+          source.getQualifiedName().replace('.', File.separatorChar) + ".class");
+      List<File> screenClasses = new ArrayList<>(GenerateClasses.getScreenClassFiles(classFile));
+      if (screenClasses.isEmpty()) {
+        continue;
+      }
+      Collections.sort(screenClasses);
+      String screenName = source.getQualifiedName();
+      String hash = IncrementalBuildCache.putFiles(IncrementalBuildCache.newHasher()
+          .putString(environment, StandardCharsets.UTF_8), screenClasses).hash().toString();
+      File entry = IncrementalBuildCache.lookup(projectKey, IncrementalBuildCache.KIND_DEX,
+          screenName, hash);
+      if (entry != null) {
+        try {
+          inputs.addAll(IncrementalBuildCache.restore(entry, new File(shardsDir, screenName)));
+          dexedClasses.addAll(screenClasses);
+          continue;
+        } catch (IOException e) {
+          context.getReporter().warn("Unable to reuse dex shard of " + screenName);
+        }
+      }
+      missingScreens.put(screenName, screenClasses);
+      missingHashes.put(screenName, hash);
+      missingClasses.addAll(screenClasses);
+    }
+    if (missingClasses.isEmpty()) {
+      return dexedClasses;
+    }
+
+    File newShardsDir = ExecutorUtils.createDir(shardsDir, "new");
+    if (!runD8(context, missingClasses, null, newShardsDir.getAbsolutePath(), null, true)) {
+      // The classes are dexed by the final d8 run instead.
+      return dexedClasses;
+    }
+    String classesPath = classesDir.getAbsolutePath();
+    for (Map.Entry<String, List<File>> screen : missingScreens.entrySet()) {
+      // With --file-per-class, d8 mirrors the package structure of its inputs.
+      List<File> shards = new ArrayList<>();
+      for (File classFile : screen.getValue()) {
+        String relative = classFile.getAbsolutePath().substring(classesPath.length());
+        shards.add(new File(newShardsDir,
+            relative.substring(0, relative.length() - ".class".length()) + ".dex"));
+      }
+      boolean complete = true;
+      for (File shard : shards) {
+        complete &= shard.isFile();
+      }
+      if (complete) {
+        inputs.addAll(shards);
+        dexedClasses.addAll(screen.getValue());
+        IncrementalBuildCache.store(projectKey, IncrementalBuildCache.KIND_DEX, screen.getKey(),
+            missingHashes.get(screen.getKey()), shards);
+      }
+    }
+    return dexedClasses;
+  }
+
   /**
    * Runs Android SDK's d8 program to create a dex file for the given collection of inputs. The
    * classes.dex file(s) will be output to the active context's build directory.
@@ -174,6 +274,23 @@ public class RunD8 extends DexTask implements AndroidTask {
   private static boolean runD8(AndroidCompilerContext context, Collection<File> inputs,
       Set<String> mainDexClasses, String outputDir, String intermediateFileName)
       throws IOException {
+    return runD8(context, inputs, mainDexClasses, outputDir, intermediateFileName, false);
+  }
+
+  /**
+   * Run Android SDK's d8 program to create dex files for the given collection of inputs.
+   *
+   * @param context the build context
+   * @param inputs collection of input files
+   * @param outputDir the destination for the dex file(s)
+   * @param intermediateFileName an alternative name to use for the dex file when pre-dexing
+   * @param filePerClass true to produce an intermediate dex file for every input class
+   * @return true if the process succeeded
+   * @throws IOException if the dex file is unable to be moved to the {@code intermediateFileName}
+   */
+  private static boolean runD8(AndroidCompilerContext context, Collection<File> inputs,
+      Set<String> mainDexClasses, String outputDir, String intermediateFileName,
+      boolean filePerClass) throws IOException {
     List<String> arguments = new ArrayList<>();
     List<String> javaArgs = new ArrayList<>();
     arguments.add("java");
@@ -182,9 +299,12 @@ public class RunD8 extends DexTask implements AndroidTask {
     javaArgs.add("-cp");
     javaArgs.add(context.getResources().getD8Jar());
     javaArgs.add("com.android.tools.r8.D8");
-    if (intermediateFileName != null) {
+    if (intermediateFileName != null || filePerClass) {
       javaArgs.add("--intermediate");
     }
+    if (filePerClass) {
+      javaArgs.add("--file-per-class");
+    }
     javaArgs.add("--lib");
     javaArgs.add(context.getResources().getAndroidRuntime());
     if (intermediateFileName == null) {
@@ -214,12 +334,21 @@ public class RunD8 extends DexTask implements AndroidTask {
       }
     }
     arguments.add("@" + javaArgsFile.getAbsolutePath());
-    synchronized (context.getResources().getSyncKawaOrDx()) {
+    ToolPool.Lease lease;
+    try {
+      lease = ToolPool.DEX.acquire(context.getChildProcessRam());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    try {
       boolean result = Execution.execute(context.getPaths().getTmpDir(),
           arguments.toArray(new String[0]), System.out, System.err, Execution.Timeout.LONG);
       if (!result) {
         return false;
       }
+    } finally {
+      lease.close();
     }
     if (intermediateFileName != null) {
       Files.move(FileSystems.getDefault().getPath(outputDir, "classes.dex"),
@@ -236,21 +365,19 @@ public class RunD8 extends DexTask implements AndroidTask {
    * @return the path of the library to use as an input to the downstream d8 process
    * @throws IOException if the d8 process fails due to an I/O issue
    */
-  private static File preDexLibrary(AndroidCompilerContext context, File input) throws IOException {
-    synchronized (PREDEX_CACHE) {
-      File cacheDir = new File(context.getDexCacheDir());
-      File dexedLib = getDexFileName(input, cacheDir);
-      if (dexedLib.isFile()) {
-        context.getReporter().info(String.format("Using pre-dexed %1$s <- %2$s",
-            dexedLib.getName(), input));
-      } else {
-        boolean success = runD8(context, Collections.singleton(input), null,
-            context.getDexCacheDir(), dexedLib.getName());
-        if (!success) {
-          return input;
-        }
-      }
-      return dexedLib;
+  private static File preDexLibrary(final AndroidCompilerContext context, File input)
+      throws IOException {
+    if (context.getDexCacheDir() == null) {
+      return input;
+    }
+    PredexCache cache = PredexCache.forDirectory(context.getDexCacheDir());
+    File dexedLib = cache.get(input, (source, output) -> runD8(context,
+        Collections.singleton(source), null, output.getParent(), output.getName()));
+    if (dexedLib == null) {
+      return input;
     }
+    context.getReporter().info(String.format("Using pre-dexed %1$s <- %2$s",
+        dexedLib.getName(), input));
+    return dexedLib;
   }
 }
@@ -5,12 +5,15 @@
 
 package com.google.appinventor.buildserver.tasks.android;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.DexExecTask;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
 import com.google.appinventor.buildserver.interfaces.AndroidTask;
 import com.google.appinventor.buildserver.util.ExecutorUtils;
+import com.google.appinventor.buildserver.util.ToolPool;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
@@ -25,6 +28,7 @@ import java.util.Set;
  * compiler.runMultidex()
  */
 @BuildType(apk = true, aab = true)
+@Artifacts(consumes = BuildArtifact.CLASSES, produces = BuildArtifact.DEX)
 public class RunMultidex extends DexTask implements AndroidTask {
   @Override
   public TaskResult execute(AndroidCompilerContext context) {
@@ -97,8 +101,17 @@ public class RunMultidex extends DexTask implements AndroidTask {
         dexTask.setDexedLibs(context.getDexCacheDir());
       }
 
-      synchronized (context.getResources().getSyncKawaOrDx()) {
+      ToolPool.Lease lease;
+      try {
+        lease = ToolPool.DEX.acquire(context.getChildProcessRam());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return TaskResult.generateError("Interrupted while waiting for dx");
+      }
+      try {
         success = dexTask.execute(inputList);
+      } finally {
+        lease.close();
       }
 
       // Aggregate all of the classes.dex files output by dx
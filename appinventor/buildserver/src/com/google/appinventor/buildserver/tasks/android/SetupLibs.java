@@ -5,6 +5,8 @@
 
 package com.google.appinventor.buildserver.tasks.android;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.Compiler;
 import com.google.appinventor.buildserver.TaskResult;
@@ -21,6 +23,7 @@ import java.io.IOException;
  * Sets up any host system specific shared libraries.
  */
 @BuildType(apk = true, aab = true)
+@Artifacts(produces = BuildArtifact.TOOL_LIBS)
 public class SetupLibs implements AndroidTask {
   public static final String RUNTIME_TOOLS_DIR =
       com.google.appinventor.buildserver.context.Resources.RUNTIME_TOOLS_DIR;
@@ -9,6 +9,8 @@ import static com.google.appinventor.buildserver.TaskResult.generateError;
 import static com.google.appinventor.buildserver.util.ExecutorUtils.createDir;
 
 import com.google.appinventor.buildserver.AnimationXmlConstants;
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
@@ -44,6 +46,7 @@ import java.util.Set;
 // createResXml
 // GenerateXmlRes
 @BuildType(apk = true, aab = true)
+@Artifacts(consumes = BuildArtifact.COMPONENT_INFO, produces = BuildArtifact.RESOURCES)
 public class XmlConfig implements AndroidTask {
   AndroidCompilerContext context;
 
@@ -1,31 +1,29 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2021-2024 MIT, All rights reserved
+// Copyright 2021-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
 package com.google.appinventor.buildserver.tasks.common;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.CompilerContext;
+import com.google.appinventor.buildserver.context.ComponentRegistry.ComponentMetadata;
 import com.google.appinventor.buildserver.interfaces.CommonTask;
 import com.google.appinventor.buildserver.util.ExecutorUtils;
 import com.google.appinventor.buildserver.util.PermissionConstraint;
 import com.google.appinventor.components.common.ComponentDescriptorConstants;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
-import org.codehaus.jettison.json.JSONObject;
 
 
 
@@ -40,6 +38,7 @@ import org.codehaus.jettison.json.JSONObject;
  * compiler.generateBroadcastReceiver();
  */
 @BuildType(apk = true, aab = true)
+@Artifacts(consumes = BuildArtifact.BUILD_INFO, produces = BuildArtifact.COMPONENT_INFO)
 public class LoadComponentInfo implements CommonTask {
   CompilerContext<?> context = null;
   private ConcurrentMap<String, Map<String, Map<String, Set<String>>>> conditionals;
@@ -404,16 +403,11 @@ public class LoadComponentInfo implements CommonTask {
   }
 
   private boolean loadJsonInfo() {
-    try {
-      context.setBuildInfo(new JSONArray(
-          "[" + context.getSimpleCompsBuildInfo().join(",") + ","
-              + context.getExtCompsBuildInfo().join(",") + "]"));
-      return true;
-    } catch (JSONException e) {
-      e.printStackTrace();
+    if (context.getComponentRegistry() == null) {
       context.getReporter().error("There was an error loading component info", true);
       return false;
     }
+    return true;
   }
 
   /*
@@ -426,18 +420,10 @@ public class LoadComponentInfo implements CommonTask {
         return;
       }
 
-      if (context.getBuildInfo() == null) {
-        loadJsonInfo();
-      }
-
-      final JSONArray buildInfo = context.getBuildInfo();
-
-      for (int i = 0; i < buildInfo.length(); ++i) {
-        JSONObject compJson = buildInfo.getJSONObject(i);
-        JSONArray infoArray = null;
-        String type = compJson.getString("type");
-        infoArray = compJson.optJSONArray(targetInfo);
-        if (infoArray == null) {
+      for (ComponentMetadata component : context.getComponentRegistry().getComponents()) {
+        String type = component.getType();
+        Set<String> infoSet = component.getInfo(targetInfo);
+        if (infoSet == null) {
           context.getReporter().info("Component \"" + type + "\" does not specify " + targetInfo);
           // Continue to process other components
           continue;
@@ -448,19 +434,12 @@ public class LoadComponentInfo implements CommonTask {
           continue;
         }
 
-        Set<String> infoSet = Sets.newHashSet();
-        for (int j = 0; j < infoArray.length(); ++j) {
-          String info = infoArray.getString(j);
-          if (!info.isEmpty()) {
-            infoSet.add(info);
-          }
-        }
-
         if (!infoSet.isEmpty()) {
-          infoMap.put(type, infoSet);
+          // The registry is shared by all builds, so copy the values before they are merged.
+          infoMap.put(type, new HashSet<>(infoSet));
         }
 
-        processConditionalInfo(compJson, type, targetInfo);
+        processConditionalInfo(component, targetInfo);
       }
     }
   }
@@ -470,35 +449,21 @@ public class LoadComponentInfo implements CommonTask {
    * a structure mapping annotation types to component names to block names to
    * values.
    *
-   * @param compJson   Parsed component data from JSON
-   * @param type       The name of the type being processed
+   * @param component  The metadata of the component being processed
    * @param targetInfo Name of the annotation target being processed (e.g.,
    *                   permissions). Any of: PERMISSIONS_TARGET,
    *                   BROADCAST_RECEIVERS_TARGET
    */
-  private void processConditionalInfo(JSONObject compJson, String type, String targetInfo) {
-    // Strip off the package name since SCM and BKY use unqualified names
-    type = type.substring(type.lastIndexOf('.') + 1);
-
-    JSONObject conditionals = compJson.optJSONObject(
-        ComponentDescriptorConstants.CONDITIONALS_TARGET);
-    if (conditionals != null) {
-      JSONObject jsonBlockMap = conditionals.optJSONObject(targetInfo);
-      if (jsonBlockMap != null) {
-        if (!this.conditionals.containsKey(targetInfo)) {
-          this.conditionals.put(targetInfo, new HashMap<String, Map<String, Set<String>>>());
-        }
-        Map<String, Set<String>> blockMap = new HashMap<>();
-        this.conditionals.get(targetInfo).put(type, blockMap);
-        for (String key : (List<String>) Lists.newArrayList(jsonBlockMap.keys())) {
-          JSONArray data = jsonBlockMap.optJSONArray(key);
-          HashSet<String> result = new HashSet<>();
-          for (int i = 0; i < data.length(); i++) {
-            result.add(data.optString(i));
-          }
-          blockMap.put(key, result);
-        }
+  private void processConditionalInfo(ComponentMetadata component, String targetInfo) {
+    Map<String, Set<String>> blockMap = component.getConditionals(targetInfo);
+    if (blockMap != null) {
+      // Strip off the package name since SCM and BKY use unqualified names
+      String type = component.getType();
+      type = type.substring(type.lastIndexOf('.') + 1);
+      if (!this.conditionals.containsKey(targetInfo)) {
+        this.conditionals.put(targetInfo, new HashMap<String, Map<String, Set<String>>>());
       }
+      this.conditionals.get(targetInfo).put(type, blockMap);
     }
   }
 
@@ -508,73 +473,34 @@ public class LoadComponentInfo implements CommonTask {
       return;
     }
 
-    final JSONArray buildInfo = context.getBuildInfo();
     final Set<String> simpleCompTypes = context.getSimpleCompTypes();
     final Set<String> extCompTypes = context.getExtCompTypes();
 
-    for (int i = 0; i < buildInfo.length(); i++) {
-      JSONObject compJson = buildInfo.getJSONObject(i);
-      String type = compJson.getString("type");
+    for (ComponentMetadata component : context.getComponentRegistry().getComponents()) {
+      String type = component.getType();
       if (!simpleCompTypes.contains(type) && !extCompTypes.contains(type)) {
         // Component type not used.
         continue;
       }
 
-      JSONObject infoObject = compJson.optJSONObject(
-          ComponentDescriptorConstants.PERMISSION_CONSTRAINTS_TARGET);
-      if (infoObject != null) {
-        // Handle declared constraints
-        context.getComponentInfo().getPermissionConstraintsNeeded()
-            .put(type, processPermissionConstraints(infoObject));
+      Map<String, Set<PermissionConstraint<?>>> constraints =
+          component.getPermissionConstraints();
+      if (constraints != null) {
+        // Handle declared constraints. These are merged with the conditional ones later on.
+        Map<String, Set<PermissionConstraint<?>>> neededConstraints = new HashMap<>();
+        for (Map.Entry<String, Set<PermissionConstraint<?>>> entry : constraints.entrySet()) {
+          neededConstraints.put(entry.getKey(), new HashSet<>(entry.getValue()));
+        }
+        context.getComponentInfo().getPermissionConstraintsNeeded().put(type, neededConstraints);
       }
 
       // Handle conditional constraints
-      infoObject = compJson.optJSONObject(ComponentDescriptorConstants.CONDITIONALS_TARGET);
-      if (infoObject == null) {
-        continue;
-      }
-      infoObject = infoObject.optJSONObject(
-          ComponentDescriptorConstants.PERMISSION_CONSTRAINTS_TARGET);
-      if (infoObject == null) {
-        continue;
-      }
-      Map<String, Map<String, Set<PermissionConstraint<?>>>> blockConstraints = new HashMap<>();
-      Iterator<?> it = infoObject.keys();
-      while (it.hasNext()) {
-        String blockName = (String) it.next();
-        JSONObject constraints = infoObject.getJSONObject(blockName);
-        blockConstraints.put(blockName, processPermissionConstraints(constraints));
-      }
-      conditionalPermissionConstraints.put(type, blockConstraints);
-    }
-  }
-
-  private Map<String, Set<PermissionConstraint<?>>> processPermissionConstraints(JSONObject src)
-      throws JSONException {
-    Map<String, Set<PermissionConstraint<?>>> neededConstraints = new HashMap<>();
-    Iterator<?> it = src.keys();
-    while (it.hasNext()) {
-      String permissionName = (String) it.next();
-      Set<PermissionConstraint<?>> constraintSet = neededConstraints.get(permissionName);
-      if (constraintSet == null) {
-        constraintSet = new HashSet<>();
-        neededConstraints.put(permissionName, constraintSet);
-      }
-      JSONObject constraints = src.getJSONObject(permissionName);
-      Iterator<?> it2 = constraints.keys();
-      while (it2.hasNext()) {
-        String attribute = (String) it2.next();
-        Object value = constraints.get(attribute);
-        if (value instanceof Number) {
-          constraintSet.add(new PermissionConstraint<>(permissionName, attribute,
-              ((Number) value).intValue()));
-        } else {
-          constraintSet.add(new PermissionConstraint<>(permissionName, attribute,
-              value.toString()));
-        }
+      Map<String, Map<String, Set<PermissionConstraint<?>>>> blockConstraints =
+          component.getConditionalPermissionConstraints();
+      if (blockConstraints != null) {
+        conditionalPermissionConstraints.put(type, blockConstraints);
       }
     }
-    return neededConstraints;
   }
 
   private void mergeConditionals(Map<String, Map<String, Set<String>>> conditionalMap,
@@ -1,14 +1,17 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2021-2023 MIT, All rights reserved
+// Copyright 2021-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
 package com.google.appinventor.buildserver.tasks.common;
 
+import com.google.appinventor.buildserver.Artifacts;
+import com.google.appinventor.buildserver.BuildArtifact;
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.Compiler;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.CompilerContext;
+import com.google.appinventor.buildserver.context.ComponentRegistry;
 import com.google.appinventor.buildserver.context.Paths;
 import com.google.appinventor.buildserver.interfaces.CommonTask;
 import com.google.appinventor.buildserver.util.ExecutorUtils;
@@ -32,6 +35,7 @@ import org.codehaus.jettison.json.JSONTokener;
  * ReadBuildInfo sets up an initial state for Android builds.
  */
 @BuildType(apk = true, aab = true)
+@Artifacts(produces = BuildArtifact.BUILD_INFO)
 public class ReadBuildInfo implements CommonTask {
   @Override
   public TaskResult execute(CompilerContext<?> context) {
@@ -69,14 +73,11 @@ public class ReadBuildInfo implements CommonTask {
     }
     context.getResources().setSupportJars(jars.toArray(new String[0]));
 
+    final ComponentRegistry registry;
     try {
-      JSONArray buildInfo = new JSONArray(context.getResources().getCompBuildInfo());
+      registry = context.getResources().getComponentRegistry();
 
-      Set<String> allSimpleTypes = Sets.newHashSet();
-      for (int i = 0; i < buildInfo.length(); ++i) {
-        JSONObject comp = buildInfo.getJSONObject(i);
-        allSimpleTypes.add(comp.getString("type"));
-      }
+      Set<String> allSimpleTypes = registry.getTypes();
 
       HashSet<String> simpleCompTypes = Sets.newHashSet(context.getCompTypes());
       simpleCompTypes.retainAll(allSimpleTypes);
@@ -91,9 +92,6 @@ public class ReadBuildInfo implements CommonTask {
     }
 
     try {
-      JSONArray simpleCompsBuildInfo = new JSONArray(context.getResources().getCompBuildInfo());
-      context.setSimpleCompsBuildInfo(simpleCompsBuildInfo);
-
       JSONArray extCompsBuildInfo = new JSONArray();
       Set<String> readComponentInfos = new HashSet<String>();
       for (String type : context.getExtCompTypes()) {
@@ -137,7 +135,7 @@ public class ReadBuildInfo implements CommonTask {
           readComponentInfos.add(jsonFile.getAbsolutePath());
         }
       }
-      context.setExtCompsBuildInfo(extCompsBuildInfo);
+      context.setComponentRegistry(registry.withExtensions(extCompsBuildInfo));
     } catch (JSONException | IOException e) {
       return TaskResult.generateError(e);
     }
@@ -1,5 +1,5 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright © 2017 Massachusetts Institute of Technology, All rights reserved.
+// Copyright © 2017-2026 Massachusetts Institute of Technology, All rights reserved.
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -142,6 +142,16 @@ public class AARLibraries extends HashSet<AARLibrary> {
     return outputDir;
   }
 
+  /**
+   * Releases the libraries loaded from the {@link ExplodedAarCache}. Their files must not be used
+   * afterwards.
+   */
+  public void release() {
+    for (AARLibrary library : this) {
+      ExplodedAarCache.release(library);
+    }
+  }
+
   /**
    * Gets a list of resource sets loaded from the AAR libraries in the collection. Note that this
    * is computed on every call (results are not cached), so it is recommended that the caller only
@@ -1,5 +1,5 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright © 2017 Massachusetts Institute of Technology, All rights reserved.
+// Copyright © 2017-2026 Massachusetts Institute of Technology, All rights reserved.
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -99,6 +99,12 @@ public class AARLibrary {
    */
   private Set<File> jni = new HashSet<>();
 
+  /**
+   * Key of the {@link ExplodedAarCache} entry the archive was loaded from while it is in use, or
+   * null if the archive was unpacked into a build directory.
+   */
+  String cacheKey = null;
+
   /**
    * File wrapper around a zip stream to allow extracting the package name from the AndroidManifest.
    */
@@ -271,6 +277,46 @@ public class AARLibrary {
     }
   }
 
+  /**
+   * Catalogs an Android Archive that has already been unpacked by
+   * {@link #unpackToDirectory(File)}, without extracting it again.
+   *
+   * @param path the path where the archive was unpacked.
+   * @throws IOException if the archive cannot be read or was not unpacked to {@code path}.
+   */
+  public void loadFromDirectory(final File path) throws IOException {
+    ZipFile zip = null;
+    try {
+      zip = new ZipFile(aarPath);
+      packageName = extractPackageName(zip);
+    } finally {
+      IOUtils.closeQuietly(zip);
+    }
+    basedir = new File(path, packageName);
+    if (!basedir.isDirectory()) {
+      throw new IOException("AAR package was not unpacked to " + basedir);
+    }
+    catalogTree(basedir);
+    resdir = new File(basedir, "res");
+    if (!resdir.exists()) {
+      resdir = null;
+    }
+  }
+
+  private void catalogTree(File dir) throws IOException {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      throw new IOException("Unable to list " + dir);
+    }
+    for (File file : files) {
+      if (file.isDirectory()) {
+        catalogTree(file);
+      } else {
+        catalog(file);
+      }
+    }
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
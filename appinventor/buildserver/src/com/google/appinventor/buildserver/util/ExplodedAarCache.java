@@ -0,0 +1,330 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * ExplodedAarCache keeps unpacked Android Archives in a directory shared by all the builds of the
+ * process, so that an archive is unzipped once rather than once per build.
+ *
+ * <p>Archives are identified by a hash of their content, so the same library bundled in different
+ * extensions is only unpacked once. A build holds a reference on each entry it uses until
+ * {@link #release(AARLibrary)} is called, and only entries without references are evicted, least
+ * recently used first, once the cache grows beyond its budget. Builds must treat the unpacked
+ * files as read only.</p>
+ */
+@SuppressWarnings("UnstableApiUsage")
+public final class ExplodedAarCache {
+  private static final Logger LOG = Logger.getLogger(ExplodedAarCache.class.getName());
+
+  private static final String PREFIX = "aar-";
+  private static final String STAGING = ".tmp-";
+
+  private static class Entry {
+    long size;  // -1 until the archive has been unpacked
+    long lastAccess;
+    int references = 0;
+
+    Entry(long size, long lastAccess) {
+      this.size = size;
+      this.lastAccess = lastAccess;
+    }
+  }
+
+  private static volatile File cacheDir = null;
+  private static volatile long maxBytes = 0;  // 0 means unlimited
+
+  // Guarded by LOCK.
+  private static final Map<String, Entry> ENTRIES = new HashMap<>();
+  private static long totalBytes = 0;
+  private static final Object LOCK = new Object();
+
+  private static final ConcurrentMap<String, FutureTask<Void>> IN_FLIGHT =
+      new ConcurrentHashMap<>();
+
+  private static final AtomicInteger hits = new AtomicInteger(0);
+  private static final AtomicInteger misses = new AtomicInteger(0);
+  private static final AtomicInteger evictions = new AtomicInteger(0);
+
+  private ExplodedAarCache() {
+  }
+
+  /**
+   * Sets the directory used to store unpacked archives. Archives unpacked by a previous run of the
+   * build server are kept.
+   *
+   * @param dir the cache directory, or null to disable the cache
+   * @param budgetBytes the maximum size of the cache in bytes, or 0 for no limit
+   */
+  public static void configure(String dir, long budgetBytes) {
+    synchronized (LOCK) {
+      maxBytes = Math.max(0, budgetBytes);
+      ENTRIES.clear();
+      totalBytes = 0;
+      if (dir == null) {
+        cacheDir = null;
+        return;
+      }
+      File file = new File(dir);
+      if (!file.exists() && !file.mkdirs()) {
+        LOG.warning("Unable to create AAR cache dir " + dir);
+        cacheDir = null;
+        return;
+      }
+      File[] entries = file.listFiles();
+      if (entries != null) {
+        for (File entry : entries) {
+          String name = entry.getName();
+          if (!name.startsWith(PREFIX)) {
+            continue;
+          }
+          if (name.contains(STAGING)) {
+            // Left behind by a build that was interrupted while unpacking.
+            FileUtils.deleteQuietly(entry);
+            continue;
+          }
+          long size = FileUtils.sizeOf(entry);
+          ENTRIES.put(name.substring(PREFIX.length()), new Entry(size, entry.lastModified()));
+          totalBytes += size;
+        }
+      }
+      cacheDir = file;
+      LOG.info("Indexed " + ENTRIES.size() + " unpacked AAR libraries in " + dir);
+    }
+  }
+
+  public static boolean isEnabled() {
+    return cacheDir != null;
+  }
+
+  public static int getHits() {
+    return hits.get();
+  }
+
+  public static int getMisses() {
+    return misses.get();
+  }
+
+  public static int getEvictions() {
+    return evictions.get();
+  }
+
+  public static long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public static long getTotalBytes() {
+    synchronized (LOCK) {
+      return totalBytes;
+    }
+  }
+
+  public static int getEntryCount() {
+    synchronized (LOCK) {
+      return ENTRIES.size();
+    }
+  }
+
+  /**
+   * Gets the name of the cache entry holding {@code file}. The name includes the hash of the
+   * archive's content, so it identifies the file across builds.
+   *
+   * @param file a file unpacked from an archive
+   * @return the name of the entry, or null if {@code file} is not in the cache
+   */
+  public static String getEntryName(File file) {
+    File dir = cacheDir;
+    if (dir == null) {
+      return null;
+    }
+    for (File f = file.getAbsoluteFile(); f.getParentFile() != null; f = f.getParentFile()) {
+      if (f.getParentFile().equals(dir.getAbsoluteFile())) {
+        return f.getName().startsWith(PREFIX) ? f.getName() : null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Loads {@code library} from the cache, unpacking it there first if needed, and holds a
+   * reference on the entry until {@link #release(AARLibrary)} is called.
+   *
+   * @param library the archive to load
+   * @return true if the library was loaded from the cache, false if the cache is disabled
+   * @throws IOException if the archive cannot be read or unpacked
+   */
+  public static boolean acquire(AARLibrary library) throws IOException {
+    final File dir = cacheDir;
+    if (dir == null) {
+      return false;
+    }
+    final String hash = FileHashes.md5(library.getFile());
+    final File entryDir = new File(dir, PREFIX + hash);
+
+    // Take the reference before looking at the directory, so that it can't be evicted between
+    // the check and the time the library is loaded from it.
+    final Entry entry;
+    boolean hit;
+    synchronized (LOCK) {
+      Entry existing = ENTRIES.get(hash);
+      if (existing == null) {
+        existing = new Entry(-1, System.currentTimeMillis());
+        ENTRIES.put(hash, existing);
+      }
+      entry = existing;
+      entry.references++;
+      entry.lastAccess = System.currentTimeMillis();
+      hit = entry.size >= 0 && entryDir.isDirectory();
+    }
+    if (hit) {
+      hits.incrementAndGet();
+    } else {
+      try {
+        unpack(library.getFile(), dir, hash, entryDir);
+      } catch (IOException | RuntimeException e) {
+        synchronized (LOCK) {
+          entry.references--;
+          if (entry.size < 0 && entry.references == 0) {
+            ENTRIES.remove(hash, entry);
+          }
+        }
+        throw e;
+      }
+      synchronized (LOCK) {
+        if (entry.size < 0) {
+          entry.size = FileUtils.sizeOf(entryDir);
+          totalBytes += entry.size;
+        }
+        evictIfNeeded(dir);
+      }
+    }
+
+    library.cacheKey = hash;
+    try {
+      library.loadFromDirectory(entryDir);
+    } catch (IOException e) {
+      release(library);
+      throw e;
+    }
+    return true;
+  }
+
+  /**
+   * Releases the reference held on the entry {@code library} was loaded from, if any.
+   *
+   * @param library the archive that is no longer needed
+   */
+  public static void release(AARLibrary library) {
+    String hash = library.cacheKey;
+    if (hash == null) {
+      return;
+    }
+    library.cacheKey = null;
+    synchronized (LOCK) {
+      Entry entry = ENTRIES.get(hash);
+      if (entry != null && entry.references > 0) {
+        entry.references--;
+        entry.lastAccess = System.currentTimeMillis();
+      }
+      File dir = cacheDir;
+      if (dir != null) {
+        evictIfNeeded(dir);
+      }
+    }
+  }
+
+  /**
+   * Unpacks an archive into its cache entry. Concurrent requests for the same archive wait for a
+   * single extraction.
+   */
+  private static void unpack(final File aar, final File dir, final String hash,
+      final File entryDir) throws IOException {
+    FutureTask<Void> task = new FutureTask<>(() -> {
+      if (entryDir.isDirectory()) {
+        // Someone else finished unpacking while we were setting up.
+        return null;
+      }
+      File staging = new File(dir, PREFIX + hash + STAGING + Thread.currentThread().getId());
+      FileUtils.deleteQuietly(staging);
+      try {
+        new AARLibrary(aar).unpackToDirectory(staging);
+        if (!staging.renameTo(entryDir) && !entryDir.isDirectory()) {
+          throw new IOException("Unable to move " + staging + " to " + entryDir);
+        }
+      } finally {
+        FileUtils.deleteQuietly(staging);
+      }
+      return null;
+    });
+    FutureTask<Void> existing = IN_FLIGHT.putIfAbsent(hash, task);
+    if (existing == null) {
+      misses.incrementAndGet();
+      try {
+        task.run();
+      } finally {
+        IN_FLIGHT.remove(hash, task);
+      }
+    } else {
+      hits.incrementAndGet();
+      task = existing;
+    }
+    try {
+      task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while unpacking " + aar, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  // Called with LOCK held.
+  private static void evictIfNeeded(File dir) {
+    final long budget = maxBytes;
+    if (budget <= 0 || totalBytes <= budget) {
+      return;
+    }
+    List<Map.Entry<String, Entry>> candidates = new ArrayList<>();
+    for (Map.Entry<String, Entry> candidate : ENTRIES.entrySet()) {
+      if (candidate.getValue().references == 0) {
+        candidates.add(candidate);
+      }
+    }
+    Collections.sort(candidates, new Comparator<Map.Entry<String, Entry>>() {
+      @Override
+      public int compare(Map.Entry<String, Entry> a, Map.Entry<String, Entry> b) {
+        return Long.compare(a.getValue().lastAccess, b.getValue().lastAccess);
+      }
+    });
+    for (Map.Entry<String, Entry> candidate : candidates) {
+      if (totalBytes <= budget) {
+        break;
+      }
+      ENTRIES.remove(candidate.getKey());
+      FileUtils.deleteQuietly(new File(dir, PREFIX + candidate.getKey()));
+      totalBytes -= candidate.getValue().size;
+      evictions.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,54 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Computes the content hashes that the build server's caches use as keys. Files that stay in
+ * place for the lifetime of the process, such as the tools and libraries extracted from the build
+ * server's resources, are only read once.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public final class FileHashes {
+  /**
+   * Upper bound on the number of memoized hashes. Extension files live in per-build temp
+   * directories, so the memo would otherwise grow without bound.
+   */
+  private static final int MAX_MEMOIZED_HASHES = 10000;
+
+  private static final ConcurrentMap<String, String> HASHES = new ConcurrentHashMap<>();
+
+  private FileHashes() {
+  }
+
+  /**
+   * Computes the MD5 hash of the contents of {@code file}.
+   *
+   * @param file the file to hash
+   * @return the hash as a hex string
+   * @throws IOException if the file cannot be read
+   */
+  public static String md5(File file) throws IOException {
+    // A file rewritten in place gets a different key, so a stale hash is never returned.
+    String key = file.getAbsolutePath() + File.pathSeparator + file.length()
+        + File.pathSeparator + file.lastModified();
+    String hash = HASHES.get(key);
+    if (hash == null) {
+      hash = Files.hash(file, Hashing.md5()).toString();
+      if (HASHES.size() >= MAX_MEMOIZED_HASHES) {
+        HASHES.clear();
+      }
+      HASHES.put(key, hash);
+    }
+    return hash;
+  }
+}
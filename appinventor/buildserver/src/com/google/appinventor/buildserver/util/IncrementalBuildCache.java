@@ -0,0 +1,328 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import com.google.appinventor.buildserver.context.CompilerContext;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * IncrementalBuildCache keeps intermediate outputs of previous builds of a project, so that a
+ * rebuild only redoes the work for the parts of the project that changed.
+ *
+ * <p>Each project gets its own directory, keyed by the user and the project's main class. Within
+ * it, an entry is identified by a kind (for example, the compiled classes of a screen), a name
+ * (the screen) and a hash of everything the entry was derived from. Storing a new entry replaces
+ * the older entries with the same kind and name. Whole projects are evicted, least recently used
+ * first, once the cache grows beyond its budget.</p>
+ */
+@SuppressWarnings("UnstableApiUsage")
+public final class IncrementalBuildCache {
+  private static final Logger LOG = Logger.getLogger(IncrementalBuildCache.class.getName());
+
+  public static final String KIND_CLASSES = "classes";
+  public static final String KIND_RESOURCES = "resources";
+  public static final String KIND_DEX = "dex";
+
+  private static volatile File cacheDir = null;
+  private static volatile long maxBytes = 0;  // 0 means unlimited
+  private static final Map<String, Long> PROJECT_BYTES = new ConcurrentHashMap<>();
+  private static final AtomicInteger hits = new AtomicInteger(0);
+  private static final AtomicInteger misses = new AtomicInteger(0);
+  private static final Object EVICTION_LOCK = new Object();
+
+  private IncrementalBuildCache() {
+  }
+
+  /**
+   * Sets the directory used to store the outputs of previous builds.
+   *
+   * @param dir the cache directory, or null to disable the cache
+   * @param budgetBytes the maximum size of the cache in bytes, or 0 for no limit
+   */
+  public static void configure(String dir, long budgetBytes) {
+    maxBytes = Math.max(0, budgetBytes);
+    PROJECT_BYTES.clear();
+    if (dir == null) {
+      cacheDir = null;
+      return;
+    }
+    File file = new File(dir);
+    if (!file.exists() && !file.mkdirs()) {
+      LOG.warning("Unable to create incremental build cache dir " + dir);
+      cacheDir = null;
+      return;
+    }
+    File[] projects = file.listFiles();
+    if (projects != null) {
+      for (File project : projects) {
+        if (project.isDirectory()) {
+          PROJECT_BYTES.put(project.getName(), FileUtils.sizeOf(project));
+        }
+      }
+    }
+    cacheDir = file;
+  }
+
+  public static boolean isEnabled() {
+    return cacheDir != null;
+  }
+
+  public static int getHits() {
+    return hits.get();
+  }
+
+  public static int getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Gets the fraction of lookups that found a reusable entry.
+   */
+  public static double getHitRatio() {
+    int hitCount = hits.get();
+    int total = hitCount + misses.get();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  public static long getTotalBytes() {
+    long total = 0;
+    for (long bytes : PROJECT_BYTES.values()) {
+      total += bytes;
+    }
+    return total;
+  }
+
+  public static int getProjectCount() {
+    return PROJECT_BYTES.size();
+  }
+
+  /**
+   * Computes the key identifying the project being built in {@code context}.
+   *
+   * @param context the build context
+   * @return the project key, or null if the project cannot be identified
+   */
+  public static String getProjectKey(CompilerContext<?> context) {
+    if (context.getProject() == null || context.getUserName() == null) {
+      return null;
+    }
+    return Hashing.md5().newHasher()
+        .putString(context.getUserName(), StandardCharsets.UTF_8)
+        .putByte((byte) 0)
+        .putString(context.getProject().getMainClass(), StandardCharsets.UTF_8)
+        .hash().toString();
+  }
+
+  /**
+   * Creates a hasher for computing the hash of an entry.
+   */
+  public static Hasher newHasher() {
+    return Hashing.md5().newHasher();
+  }
+
+  /**
+   * Adds the content of the given files to {@code hasher}, in order.
+   *
+   * @param hasher the hasher to update
+   * @param files the files to hash
+   * @return the hasher
+   * @throws IOException if one of the files cannot be read
+   */
+  public static Hasher putFiles(Hasher hasher, Collection<File> files) throws IOException {
+    for (File file : files) {
+      hasher.putString(file.getName(), StandardCharsets.UTF_8);
+      hasher.putBytes(Files.toByteArray(file));
+    }
+    return hasher;
+  }
+
+  /**
+   * Adds the content of all files below {@code dir} to {@code hasher}, together with their
+   * relative paths.
+   *
+   * @param hasher the hasher to update
+   * @param dir the directory to hash
+   * @return the hasher
+   * @throws IOException if one of the files cannot be read
+   */
+  public static Hasher putTree(Hasher hasher, File dir) throws IOException {
+    putTree(hasher, dir, "");
+    return hasher;
+  }
+
+  private static void putTree(Hasher hasher, File dir, String prefix) throws IOException {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      throw new IOException("Unable to list " + dir);
+    }
+    Arrays.sort(files);
+    for (File file : files) {
+      String path = prefix + "/" + file.getName();
+      if (file.isDirectory()) {
+        putTree(hasher, file, path);
+      } else {
+        hasher.putString(path, StandardCharsets.UTF_8);
+        hasher.putBytes(Files.toByteArray(file));
+      }
+    }
+  }
+
+  /**
+   * Looks up an entry of a project.
+   *
+   * @param projectKey the key computed by {@link #getProjectKey(CompilerContext)}
+   * @param kind the kind of entry
+   * @param name the name of the entry
+   * @param hash the hash of the inputs the entry was derived from
+   * @return the directory holding the files of the entry, or null if there is no such entry
+   */
+  public static File lookup(String projectKey, String kind, String name, String hash) {
+    File dir = cacheDir;
+    if (dir == null || projectKey == null) {
+      return null;
+    }
+    File projectDir = new File(dir, projectKey);
+    File entry = new File(new File(projectDir, kind), name + "-" + hash);
+    if (entry.isDirectory()) {
+      hits.incrementAndGet();
+      // The modification time of the project directory drives eviction.
+      if (!projectDir.setLastModified(System.currentTimeMillis())) {
+        LOG.fine("Unable to touch " + projectDir);
+      }
+      return entry;
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Copies the files of an entry into {@code targetDir}.
+   *
+   * @param entry the entry returned by {@link #lookup(String, String, String, String)}
+   * @param targetDir the directory receiving the files
+   * @return the copied files
+   * @throws IOException if the files cannot be copied, e.g., because the entry was evicted
+   */
+  public static List<File> restore(File entry, File targetDir) throws IOException {
+    File[] files = entry.listFiles();
+    if (files == null) {
+      throw new IOException("Unable to list " + entry);
+    }
+    if (!targetDir.isDirectory() && !targetDir.mkdirs()) {
+      throw new IOException("Unable to create " + targetDir);
+    }
+    List<File> restored = new ArrayList<>();
+    for (File file : files) {
+      File target = new File(targetDir, file.getName());
+      Files.copy(file, target);
+      restored.add(target);
+    }
+    return restored;
+  }
+
+  /**
+   * Stores files as an entry of a project, replacing older entries with the same kind and name.
+   * If another build stored the same entry in the meantime, its copy is kept.
+   *
+   * @param projectKey the key computed by {@link #getProjectKey(CompilerContext)}
+   * @param kind the kind of entry
+   * @param name the name of the entry
+   * @param hash the hash of the inputs the entry was derived from
+   * @param files the files making up the entry
+   */
+  public static void store(String projectKey, String kind, final String name, String hash,
+      Collection<File> files) {
+    File dir = cacheDir;
+    if (dir == null || projectKey == null || files.isEmpty()) {
+      return;
+    }
+    File projectDir = new File(dir, projectKey);
+    File kindDir = new File(projectDir, kind);
+    final String entryName = name + "-" + hash;
+    File entry = new File(kindDir, entryName);
+    File staging = new File(kindDir, entryName + ".tmp-" + Thread.currentThread().getId());
+    try {
+      if (!staging.mkdirs()) {
+        throw new IOException("Unable to create " + staging);
+      }
+      for (File file : files) {
+        Files.copy(file, new File(staging, file.getName()));
+      }
+      if (!staging.renameTo(entry)) {
+        FileUtils.deleteQuietly(staging);
+      }
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Unable to store " + kind + " of " + name, e);
+      FileUtils.deleteQuietly(staging);
+      return;
+    }
+
+    // Only the latest version of an entry is worth keeping.
+    File[] older = kindDir.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String fileName) {
+        return fileName.startsWith(name + "-") && !fileName.equals(entryName)
+            && !fileName.contains(".tmp-");
+      }
+    });
+    if (older != null) {
+      for (File file : older) {
+        FileUtils.deleteQuietly(file);
+      }
+    }
+    if (!projectDir.setLastModified(System.currentTimeMillis())) {
+      LOG.fine("Unable to touch " + projectDir);
+    }
+    PROJECT_BYTES.put(projectKey, FileUtils.sizeOf(projectDir));
+    evictIfNeeded(dir, projectKey);
+  }
+
+  private static void evictIfNeeded(File dir, String currentProject) {
+    final long budget = maxBytes;
+    if (budget <= 0 || getTotalBytes() <= budget) {
+      return;
+    }
+    synchronized (EVICTION_LOCK) {
+      List<File> projects = new ArrayList<>();
+      for (String key : PROJECT_BYTES.keySet()) {
+        if (!key.equals(currentProject)) {
+          projects.add(new File(dir, key));
+        }
+      }
+      Collections.sort(projects, new Comparator<File>() {
+        @Override
+        public int compare(File a, File b) {
+          return Long.compare(a.lastModified(), b.lastModified());
+        }
+      });
+      for (File project : projects) {
+        if (getTotalBytes() <= budget) {
+          break;
+        }
+        FileUtils.deleteQuietly(project);
+        PROJECT_BYTES.remove(project.getName());
+      }
+    }
+  }
+}
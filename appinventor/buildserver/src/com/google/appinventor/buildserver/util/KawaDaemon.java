@@ -0,0 +1,236 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * KawaDaemon manages a small pool of long-lived Kawa compiler processes so that builds do not pay
+ * for JVM startup and warm-up every time YAIL is compiled. The worker side is implemented by
+ * {@link KawaDaemonMain}.
+ *
+ * <p>Workers are recycled after a configurable number of builds, when they run out of memory, and
+ * whenever Kawa exits because of a compilation error. Concurrency is still governed by
+ * {@link ToolPool#KAWA}; this class only decides which process runs the compilation.</p>
+ */
+public final class KawaDaemon {
+  private static final Logger LOG = Logger.getLogger(KawaDaemon.class.getName());
+
+  // The number of builds a worker serves before it is replaced. 0 disables the daemon.
+  private static volatile int maxBuildsPerWorker = 0;
+
+  private static final ConcurrentLinkedQueue<KawaDaemon> IDLE = new ConcurrentLinkedQueue<>();
+  private static final AtomicInteger workersStarted = new AtomicInteger(0);
+  private static final AtomicInteger workersRecycled = new AtomicInteger(0);
+
+  private static final ScheduledExecutorService WATCHDOG =
+      Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "KawaDaemon-watchdog");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+  private final Process process;
+  private final DataOutputStream toWorker;
+  private final DataInputStream fromWorker;
+  private final int heapMb;
+  private final String kawaRuntime;
+  private int builds = 0;
+  private volatile boolean destroyed = false;
+
+  private KawaDaemon(int heapMb, String kawaRuntime) throws IOException {
+    this.heapMb = heapMb;
+    this.kawaRuntime = kawaRuntime;
+    ProcessBuilder builder = new ProcessBuilder(
+        System.getProperty("java.home") + "/bin/java",
+        "-Dfile.encoding=UTF-8",
+        "-mx" + heapMb + "M",
+        "-Djava.system.class.loader=" + KawaDaemonMain.BuildClassLoader.class.getName(),
+        "-cp", getWorkerClasspath(),
+        KawaDaemonMain.class.getName());
+    builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+    process = builder.start();
+    toWorker = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+    fromWorker = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+    workersStarted.incrementAndGet();
+  }
+
+  /**
+   * Enables the compiler daemon.
+   *
+   * @param maxBuilds the number of builds a worker process serves before it is replaced, or 0 to
+   *                  disable the daemon and start a new Kawa process for every build
+   */
+  public static void configure(int maxBuilds) {
+    maxBuildsPerWorker = Math.max(0, maxBuilds);
+    if (maxBuildsPerWorker == 0) {
+      shutdown();
+    }
+  }
+
+  public static boolean isEnabled() {
+    return maxBuildsPerWorker > 0;
+  }
+
+  public static int getWorkersStarted() {
+    return workersStarted.get();
+  }
+
+  public static int getWorkersRecycled() {
+    return workersRecycled.get();
+  }
+
+  public static int getIdleWorkers() {
+    return IDLE.size();
+  }
+
+  /**
+   * Stops all idle workers.
+   */
+  public static void shutdown() {
+    KawaDaemon worker;
+    while ((worker = IDLE.poll()) != null) {
+      worker.destroy();
+    }
+  }
+
+  /**
+   * Compiles YAIL using a worker process.
+   *
+   * @param classpath the classpath Kawa needs to see while compiling, starting with kawa.jar
+   * @param heapMb the maximum heap size of the worker, in MB
+   * @param kawaArgs the arguments to pass to {@code kawa.repl}
+   * @param err stream receiving the compiler's diagnostic output
+   * @param timeoutSeconds time to wait for the compilation to finish, or 0 to wait forever
+   * @return true if compilation succeeded, false if it timed out, or null if the worker could not
+   *     compile the request and the caller should fall back to running Kawa directly
+   */
+  public static Boolean compile(String classpath, int heapMb, List<String> kawaArgs,
+      OutputStream err, int timeoutSeconds) {
+    // Workers keep the Kawa runtime loaded, so they can only serve builds using the same one.
+    String kawaRuntime = classpath.split(File.pathSeparator, 2)[0];
+    KawaDaemon worker = IDLE.poll();
+    while (worker != null
+        && (worker.heapMb != heapMb || !worker.kawaRuntime.equals(kawaRuntime))) {
+      worker.destroy();
+      worker = IDLE.poll();
+    }
+    try {
+      if (worker == null) {
+        worker = new KawaDaemon(heapMb, kawaRuntime);
+      }
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Unable to start Kawa daemon", e);
+      return null;
+    }
+
+    int status;
+    final KawaDaemon active = worker;
+    ScheduledFuture<?> timeout = null;
+    if (timeoutSeconds > 0) {
+      timeout = WATCHDOG.schedule(new Runnable() {
+        @Override
+        public void run() {
+          active.destroy();
+        }
+      }, timeoutSeconds, TimeUnit.SECONDS);
+    }
+    try {
+      worker.toWorker.writeInt(kawaArgs.size() + 1);
+      KawaDaemonMain.writeString(worker.toWorker, classpath);
+      for (String arg : kawaArgs) {
+        KawaDaemonMain.writeString(worker.toWorker, arg);
+      }
+      worker.toWorker.flush();
+      status = worker.fromWorker.readInt();
+      err.write(KawaDaemonMain.readBytes(worker.fromWorker));
+    } catch (IOException e) {
+      worker.destroy();
+      if (timeout != null && timeout.isDone()) {
+        LOG.warning("Kawa daemon timed out after " + timeoutSeconds + " seconds");
+        return false;
+      }
+      LOG.log(Level.WARNING, "Lost connection to Kawa daemon", e);
+      return null;
+    } finally {
+      if (timeout != null) {
+        timeout.cancel(false);
+      }
+    }
+
+    worker.builds++;
+    if (status == KawaDaemonMain.STATUS_OK && worker.builds < maxBuildsPerWorker) {
+      IDLE.offer(worker);
+    } else {
+      worker.destroy();
+    }
+    switch (status) {
+      case KawaDaemonMain.STATUS_OK:
+      case KawaDaemonMain.STATUS_OK_RESTART:
+        return true;
+      case KawaDaemonMain.STATUS_OUT_OF_MEMORY:
+        LOG.warning("Kawa daemon ran out of memory");
+        return null;
+      default:
+        // Let Kawa run directly, so that a failure specific to the daemon does not fail the
+        // build. Genuine compilation errors are reported by that run.
+        LOG.warning("Kawa daemon failed with status " + status + ", running Kawa directly");
+        return null;
+    }
+  }
+
+  private synchronized void destroy() {
+    if (destroyed) {
+      return;
+    }
+    destroyed = true;
+    workersRecycled.incrementAndGet();
+    try {
+      toWorker.close();
+    } catch (IOException e) {
+      // Ignore, the process is going away anyway.
+    }
+    process.destroy();
+  }
+
+  private static String getWorkerClasspath() throws IOException {
+    try {
+      return new File(KawaDaemonMain.class.getProtectionDomain().getCodeSource().getLocation()
+          .toURI()).getAbsolutePath();
+    } catch (URISyntaxException | NullPointerException e) {
+      throw new IOException("Unable to locate the Kawa daemon classes", e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "KawaDaemon{"
+        + "heapMb=" + heapMb
+        + ", kawaRuntime=" + kawaRuntime
+        + ", builds=" + builds
+        + '}';
+  }
+}
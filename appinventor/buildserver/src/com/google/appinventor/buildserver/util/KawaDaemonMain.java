@@ -0,0 +1,359 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entry point of a long-lived Kawa compiler worker process. See {@link KawaDaemon} for the
+ * build server side of the protocol.
+ *
+ * <p>The worker reads compile requests from stdin and writes responses to stdout. A request is
+ * the classpath for the build followed by the arguments normally given to {@code kawa.repl}.
+ * Anything Kawa prints to stderr is captured and returned with the response.</p>
+ *
+ * <p>The first classpath entry must be the Kawa runtime. It is loaded once, in a class loader
+ * that lives as long as the worker, so that the JIT work done on the compiler carries over from
+ * one build to the next. The rest of the classpath (component runtime, extensions, android.jar)
+ * differs between builds and gets a child class loader that is dropped when the build is done.
+ * Kawa finds those classes through the thread context class loader. Between builds the worker
+ * clears the Kawa caches that refer to the classes or modules of the previous build, so that
+ * neither the classes nor their loader stay reachable.</p>
+ *
+ * <p>Code that Kawa evaluates rather than compiles to files, such as the {@code -f} prelude, is
+ * loaded by an {@code ArrayClassLoader} whose parent is always the system class loader. The
+ * worker is therefore started with {@link BuildClassLoader} as the system class loader, which
+ * finds the classes of the build in progress, Kawa's included.</p>
+ *
+ * <p>Kawa calls {@link System#exit(int)} when a compilation fails. A shutdown hook reports the
+ * captured output for the request in progress before the worker goes away, and the build server
+ * starts a new worker for the next build.</p>
+ */
+public final class KawaDaemonMain {
+  static final int STATUS_OK = 0;
+  static final int STATUS_FAILED = 1;
+  static final int STATUS_EXITED = 2;
+  static final int STATUS_OUT_OF_MEMORY = 3;
+  static final int STATUS_OK_RESTART = 4;
+
+  private static final Object LOCK = new Object();
+  private static DataOutputStream protocolOut;
+  private static ByteArrayOutputStream requestOutput;
+  private static boolean inRequest = false;
+
+  private static URLClassLoader kawaLoader;
+  private static URL kawaRuntime;
+  private static int kawaLoadersCreated = 0;
+  // The class loader of the most recent build, for tests
+  static WeakReference<ClassLoader> lastBuildLoader;
+
+  private KawaDaemonMain() {
+  }
+
+  /**
+   * The system class loader of a worker. Classes the application class loader cannot find are
+   * loaded by the class loader of the build in progress.
+   */
+  public static final class BuildClassLoader extends ClassLoader {
+    private static volatile ClassLoader current;
+
+    static {
+      registerAsParallelCapable();
+    }
+
+    public BuildClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    static void setCurrent(ClassLoader buildLoader) {
+      current = buildLoader;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      ClassLoader build = current;
+      if (build == null) {
+        throw new ClassNotFoundException(name);
+      }
+      return build.loadClass(name);
+    }
+
+    @Override
+    protected URL findResource(String name) {
+      ClassLoader build = current;
+      return build == null ? null : build.getResource(name);
+    }
+
+    @Override
+    protected Enumeration<URL> findResources(String name) throws IOException {
+      ClassLoader build = current;
+      return build == null ? Collections.<URL>emptyEnumeration() : build.getResources(name);
+    }
+  }
+
+  /**
+   * Main entry point.
+   *
+   * @param args ignored
+   */
+  public static void main(String[] args) throws IOException {
+    protocolOut = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(FileDescriptor.out)));
+    DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+    // Keep stdout free for the protocol. Anything Kawa writes to stdout goes to our stderr,
+    // which the build server forwards to its own log.
+    System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.err), true));
+
+    Runtime.getRuntime().addShutdownHook(new Thread() {
+      @Override
+      public void run() {
+        synchronized (LOCK) {
+          if (inRequest) {
+            respond(STATUS_EXITED);
+          }
+        }
+      }
+    });
+
+    while (true) {
+      List<String> request = new ArrayList<>();
+      try {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          request.add(readString(in));
+        }
+      } catch (EOFException e) {
+        // The build server closed our stdin; time to go.
+        return;
+      }
+      String classpath = request.remove(0);
+      compile(classpath, request.toArray(new String[0]));
+    }
+  }
+
+  private static void compile(String classpath, String[] kawaArgs) {
+    synchronized (LOCK) {
+      requestOutput = new ByteArrayOutputStream();
+      inRequest = true;
+    }
+    PrintStream capture = new PrintStream(requestOutput, true);
+    System.setErr(capture);
+    int status = runKawa(classpath, kawaArgs, capture);
+    synchronized (LOCK) {
+      respond(status);
+      inRequest = false;
+    }
+    if (status == STATUS_OUT_OF_MEMORY || status == STATUS_OK_RESTART) {
+      // The heap or Kawa may be in a bad state. Let the build server start a fresh worker.
+      Runtime.getRuntime().halt(1);
+    }
+  }
+
+  /**
+   * Runs {@code kawa.repl} in this process.
+   *
+   * @param classpath the classpath of the build, starting with the Kawa runtime
+   * @param kawaArgs the arguments to pass to {@code kawa.repl}
+   * @param err stream receiving any failure other than Kawa's own diagnostics
+   * @return one of the {@code STATUS_} constants
+   */
+  static int runKawa(String classpath, String[] kawaArgs, PrintStream err) {
+    int status = STATUS_OK;
+    ClassLoader previous = Thread.currentThread().getContextClassLoader();
+    URLClassLoader buildLoader = null;
+    try {
+      List<URL> urls = toUrls(classpath);
+      ClassLoader kawa = getKawaLoader(urls.get(0));
+      buildLoader = new URLClassLoader(urls.subList(1, urls.size()).toArray(new URL[0]), kawa);
+      lastBuildLoader = new WeakReference<ClassLoader>(buildLoader);
+      Thread.currentThread().setContextClassLoader(buildLoader);
+      BuildClassLoader.setCurrent(buildLoader);
+      Class<?> repl = Class.forName("kawa.repl", true, kawa);
+      repl.getMethod("main", String[].class).invoke(null, (Object) kawaArgs);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof OutOfMemoryError) {
+        status = STATUS_OUT_OF_MEMORY;
+      } else {
+        e.getCause().printStackTrace(err);
+        status = STATUS_FAILED;
+      }
+    } catch (OutOfMemoryError e) {
+      status = STATUS_OUT_OF_MEMORY;
+    } catch (Exception e) {
+      e.printStackTrace(err);
+      status = STATUS_FAILED;
+    } finally {
+      Thread.currentThread().setContextClassLoader(previous);
+      BuildClassLoader.setCurrent(null);
+      if (buildLoader != null) {
+        try {
+          resetKawa(buildLoader);
+          buildLoader.close();
+        } catch (ReflectiveOperationException | IOException | RuntimeException e) {
+          // We can no longer tell what the next build would see. Report this build, then let
+          // the build server start a fresh worker.
+          e.printStackTrace(System.out);
+          if (status == STATUS_OK) {
+            status = STATUS_OK_RESTART;
+          }
+        }
+      }
+      err.flush();
+    }
+    return status;
+  }
+
+  private static synchronized ClassLoader getKawaLoader(URL runtime) throws IOException {
+    if (kawaLoader == null) {
+      // Skip the application class loader, and the system class loader of a worker, so that
+      // only the given runtime provides Kawa.
+      ClassLoader parent = KawaDaemonMain.class.getClassLoader().getParent();
+      kawaLoader = new URLClassLoader(new URL[] { runtime }, parent);
+      kawaRuntime = runtime;
+      kawaLoadersCreated++;
+      // Initialize Kawa before any build runs. kawa.repl registers a shutdown hook, and the hook
+      // thread would otherwise inherit the first build's class loader and keep it alive.
+      Thread thread = Thread.currentThread();
+      ClassLoader previous = thread.getContextClassLoader();
+      thread.setContextClassLoader(kawaLoader);
+      try {
+        Class.forName("kawa.repl", true, kawaLoader);
+      } catch (ClassNotFoundException e) {
+        throw new IOException("No Kawa runtime in " + runtime, e);
+      } finally {
+        thread.setContextClassLoader(previous);
+      }
+    } else if (!kawaRuntime.equals(runtime)) {
+      // KawaDaemon never sends a different runtime to a running worker.
+      throw new IOException("Worker uses " + kawaRuntime + ", not " + runtime);
+    }
+    return kawaLoader;
+  }
+
+  /**
+   * Returns the number of times the Kawa runtime has been loaded in this process.
+   */
+  static synchronized int getKawaLoadersCreated() {
+    return kawaLoadersCreated;
+  }
+
+  /**
+   * Clears the state Kawa keeps in static fields about the classes and modules of a build.
+   */
+  private static void resetKawa(ClassLoader buildLoader) throws ReflectiveOperationException {
+    // Compiled and required modules, and the module instances created while compiling
+    Class<?> moduleContext = Class.forName("gnu.expr.ModuleContext", true, kawaLoader);
+    Object context = moduleContext.getMethod("getContext").invoke(null);
+    moduleContext.getMethod("clear").invoke(context);
+    Class<?> moduleManager = Class.forName("gnu.expr.ModuleManager", true, kawaLoader);
+    Object manager = moduleManager.getMethod("getInstance").invoke(null);
+    moduleManager.getMethod("clear").invoke(manager);
+
+    // Options that kawa.repl.main only sets when they are given
+    Class<?> repl = Class.forName("kawa.repl", true, kawaLoader);
+    repl.getField("compilationTopname").set(null, null);
+
+    // Types by name. Type.make is synchronized on the Type class, so lock it the same way.
+    Class<?> type = Class.forName("gnu.bytecode.Type", true, kawaLoader);
+    Class<?> classType = Class.forName("gnu.bytecode.ClassType", true, kawaLoader);
+    Class<?> arrayLoader = Class.forName("gnu.bytecode.ArrayClassLoader", true, kawaLoader);
+    Field byName = type.getDeclaredField("mapNameToType");
+    Field reflectClass = type.getDeclaredField("reflectClass");
+    byName.setAccessible(true);
+    reflectClass.setAccessible(true);
+    synchronized (type) {
+      Iterator<? extends Map.Entry<?, ?>> it =
+          ((Map<?, ?>) byName.get(null)).entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<?, ?> entry = it.next();
+        if (!classType.isInstance(entry.getValue())) {
+          continue;
+        }
+        Class<?> c = (Class<?>) reflectClass.get(entry.getValue());
+        if (c != null
+            ? c.getClassLoader() == buildLoader || arrayLoader.isInstance(c.getClassLoader())
+            : !isKawaClass(String.valueOf(entry.getKey()))) {
+          // A class of the build or of code it evaluated, or one Kawa only knows by name, such as
+          // a screen it compiled
+          it.remove();
+        }
+      }
+    }
+  }
+
+  private static boolean isKawaClass(String name) {
+    try {
+      Class.forName(name, false, kawaLoader);
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  private static void respond(int status) {
+    try {
+      protocolOut.writeInt(status);
+      writeBytes(protocolOut, requestOutput.toByteArray());
+      protocolOut.flush();
+    } catch (IOException e) {
+      // The build server went away. Nothing more we can do.
+    }
+  }
+
+  private static List<URL> toUrls(String classpath) throws IOException {
+    List<URL> urls = new ArrayList<>();
+    for (String entry : classpath.split(File.pathSeparator)) {
+      if (!entry.isEmpty()) {
+        urls.add(new File(entry).toURI().toURL());
+      }
+    }
+    if (urls.isEmpty()) {
+      throw new IOException("Empty classpath");
+    }
+    return urls;
+  }
+
+  static String readString(DataInputStream in) throws IOException {
+    return new String(readBytes(in), StandardCharsets.UTF_8);
+  }
+
+  static byte[] readBytes(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  static void writeString(DataOutputStream out, String value) throws IOException {
+    writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+}
@@ -0,0 +1,230 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import com.google.appinventor.buildserver.context.Resources;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * RuntimeClassCache keeps the class files produced by compiling {@code runtime.scm} in an on-disk
+ * cache so that the YAIL runtime is compiled once per distinct runtime, rather than once per build.
+ *
+ * <p>Entries are keyed by a hash of {@code runtime.scm}, the Kawa jar and the component runtime
+ * jar, since all three influence the generated classes. The runtime is declared with
+ * {@code (module-name com.google.youngandroid.runtime)}, so its classes do not depend on the
+ * package of the app being built and can be shared between projects.</p>
+ *
+ * <p>Each entry holds a checksum of its classes. An entry whose classes no longer match it, for
+ * instance because a crash left files truncated, is discarded so that the runtime is compiled
+ * again.</p>
+ */
+@SuppressWarnings("UnstableApiUsage")
+public final class RuntimeClassCache {
+  private static final Logger LOG = Logger.getLogger(RuntimeClassCache.class.getName());
+
+  /**
+   * The path, relative to a classes directory, where the compiled runtime lives.
+   */
+  private static final String RUNTIME_PACKAGE_DIR =
+      "com" + File.separator + "google" + File.separator + "youngandroid";
+
+  /**
+   * The name of the file, in a cache entry, that holds the checksum of the entry's classes.
+   */
+  private static final String CHECKSUM_FILE = "classes.md5";
+
+  private static volatile File cacheDir = null;
+  private static final Map<String, String> KEYS = new ConcurrentHashMap<>();
+  private static final AtomicInteger hits = new AtomicInteger(0);
+  private static final AtomicInteger misses = new AtomicInteger(0);
+
+  private RuntimeClassCache() {
+  }
+
+  /**
+   * Sets the directory used to store compiled runtimes.
+   *
+   * @param dir the cache directory, or null to disable the cache
+   */
+  public static void configure(String dir) {
+    if (dir == null) {
+      cacheDir = null;
+      return;
+    }
+    File file = new File(dir);
+    if (!file.exists() && !file.mkdirs()) {
+      LOG.warning("Unable to create runtime cache dir " + dir);
+      cacheDir = null;
+      return;
+    }
+    cacheDir = file;
+  }
+
+  public static boolean isEnabled() {
+    return cacheDir != null;
+  }
+
+  public static int getHits() {
+    return hits.get();
+  }
+
+  public static int getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Computes the cache key for the runtime that builds using {@code resources} will link against.
+   *
+   * @param resources the build resources
+   * @return the cache key
+   * @throws IOException if one of the inputs cannot be read
+   */
+  public static String getKey(Resources resources) throws IOException {
+    String yailRuntime = resources.getYailRuntime();
+    String kawaRuntime = resources.getKawaRuntime();
+    String componentRuntime = resources.getSimpleAndroidRuntimeJar();
+    // Extracted resources do not change for the lifetime of the process, so hash them only once.
+    String paths = yailRuntime + File.pathSeparator + kawaRuntime + File.pathSeparator
+        + componentRuntime;
+    String key = KEYS.get(paths);
+    if (key == null) {
+      Hasher hasher = Hashing.md5().newHasher();
+      hasher.putBytes(Files.toByteArray(new File(yailRuntime)));
+      hasher.putBytes(Files.toByteArray(new File(kawaRuntime)));
+      hasher.putBytes(Files.toByteArray(new File(componentRuntime)));
+      key = hasher.hash().toString();
+      KEYS.put(paths, key);
+    }
+    return key;
+  }
+
+  /**
+   * Looks up a compiled runtime in the cache.
+   *
+   * @param key the cache key computed by {@link #getKey(Resources)}
+   * @return the cached classes directory, or null if the runtime has not been compiled yet or its
+   *     cached classes are incomplete
+   */
+  public static File lookup(String key) {
+    File dir = cacheDir;
+    if (dir == null) {
+      return null;
+    }
+    File entry = new File(dir, "runtime-" + key);
+    if (entry.isDirectory()) {
+      if (isComplete(entry)) {
+        hits.incrementAndGet();
+        return entry;
+      }
+      LOG.warning("Discarding incomplete cached runtime " + entry);
+      FileUtils.deleteQuietly(entry);
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Copies a cached runtime into the classes directory of a build.
+   *
+   * @param entry the cached classes directory returned by {@link #lookup(String)}
+   * @param classesDir the classes directory of the build
+   * @throws IOException if the classes cannot be copied
+   */
+  public static void copyTo(File entry, File classesDir) throws IOException {
+    copyTree(new File(entry, RUNTIME_PACKAGE_DIR), new File(classesDir, RUNTIME_PACKAGE_DIR));
+  }
+
+  /**
+   * Stores the runtime classes found in {@code classesDir} in the cache. If another build stored
+   * the same runtime in the meantime, its copy is kept.
+   *
+   * @param key the cache key computed by {@link #getKey(Resources)}
+   * @param classesDir the classes directory of a build that compiled runtime.scm
+   */
+  public static void store(String key, File classesDir) {
+    File dir = cacheDir;
+    File source = new File(classesDir, RUNTIME_PACKAGE_DIR);
+    if (dir == null || !source.isDirectory()) {
+      return;
+    }
+    File entry = new File(dir, "runtime-" + key);
+    File staging = new File(dir, "runtime-" + key + ".tmp-" + Thread.currentThread().getId());
+    try {
+      copyTree(source, new File(staging, RUNTIME_PACKAGE_DIR));
+      Files.write(checksum(new File(staging, RUNTIME_PACKAGE_DIR)),
+          new File(staging, CHECKSUM_FILE), StandardCharsets.UTF_8);
+      if (!staging.renameTo(entry)) {
+        FileUtils.deleteQuietly(staging);
+      }
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Unable to cache compiled runtime", e);
+      FileUtils.deleteQuietly(staging);
+    }
+  }
+
+  private static boolean isComplete(File entry) {
+    try {
+      String expected = Files.toString(new File(entry, CHECKSUM_FILE), StandardCharsets.UTF_8);
+      return expected.equals(checksum(new File(entry, RUNTIME_PACKAGE_DIR)));
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static String checksum(File dir) throws IOException {
+    Hasher hasher = Hashing.md5().newHasher();
+    putTree(hasher, dir, "");
+    return hasher.hash().toString();
+  }
+
+  private static void putTree(Hasher hasher, File dir, String prefix) throws IOException {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      throw new IOException("Unable to list " + dir);
+    }
+    Arrays.sort(files);
+    for (File file : files) {
+      String name = prefix + file.getName();
+      if (file.isDirectory()) {
+        putTree(hasher, file, name + "/");
+      } else {
+        byte[] content = Files.toByteArray(file);
+        hasher.putString(name, StandardCharsets.UTF_8);
+        hasher.putInt(content.length);
+        hasher.putBytes(content);
+      }
+    }
+  }
+
+  private static void copyTree(File source, File target) throws IOException {
+    File[] files = source.listFiles();
+    if (files == null) {
+      throw new IOException("Unable to list " + source);
+    }
+    if (!target.isDirectory() && !target.mkdirs()) {
+      throw new IOException("Unable to create " + target);
+    }
+    for (File file : files) {
+      if (file.isDirectory()) {
+        copyTree(file, new File(target, file.getName()));
+      } else {
+        Files.copy(file, new File(target, file.getName()));
+      }
+    }
+  }
+}
@@ -0,0 +1,191 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ToolPool limits how many child JVMs of a given tool (Kawa, dx/d8) may run at the same time.
+ *
+ * <p>Each tool has its own fair queue of workers. In addition, all tools share a memory budget
+ * (in MB) so that the sum of the {@code -Xmx} values handed to concurrently running child
+ * processes never exceeds what the host can provide. With the default configuration (one worker
+ * per tool and a budget equal to a single child process) only one Kawa or dex process runs at a
+ * time, matching the behavior of the old global lock.</p>
+ *
+ * <p>Typical usage:</p>
+ * <pre>
+ *   ToolPool.Lease lease = ToolPool.KAWA.acquire(ramMb);
+ *   try {
+ *     Execution.execute(...);
+ *   } finally {
+ *     lease.close();
+ *   }
+ * </pre>
+ */
+public final class ToolPool {
+  private static final int DEFAULT_RAM_BUDGET_MB = 2048;
+
+  // Memory budget shared by all tool pools, in MB.
+  private static volatile Semaphore ramBudget = new Semaphore(DEFAULT_RAM_BUDGET_MB, true);
+  private static volatile int ramBudgetMb = DEFAULT_RAM_BUDGET_MB;
+
+  public static final ToolPool KAWA = new ToolPool("kawa");
+  public static final ToolPool DEX = new ToolPool("dex");
+
+  private final String name;
+  private volatile Semaphore workers = new Semaphore(1, true);
+  private volatile int maxWorkers = 1;
+
+  private final AtomicInteger queued = new AtomicInteger(0);
+  private final AtomicInteger active = new AtomicInteger(0);
+  private final AtomicLong runs = new AtomicLong(0);
+  private final AtomicLong totalWaitMs = new AtomicLong(0);
+  private final AtomicLong maxWaitMs = new AtomicLong(0);
+  private final AtomicLong totalRunMs = new AtomicLong(0);
+  private final AtomicLong maxRunMs = new AtomicLong(0);
+
+  /**
+   * A Lease represents permission to run one child process. It must be closed when the process
+   * has finished so that the worker slot and memory are returned to the pool.
+   */
+  public final class Lease implements AutoCloseable {
+    private final Semaphore workerSlots;
+    private final Semaphore ram;
+    private final int ramPermits;
+    private final long start = System.currentTimeMillis();
+    private boolean closed = false;
+
+    private Lease(Semaphore workerSlots, Semaphore ram, int ramPermits) {
+      this.workerSlots = workerSlots;
+      this.ram = ram;
+      this.ramPermits = ramPermits;
+    }
+
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      long duration = System.currentTimeMillis() - start;
+      totalRunMs.addAndGet(duration);
+      updateMax(maxRunMs, duration);
+      active.decrementAndGet();
+      ram.release(ramPermits);
+      workerSlots.release();
+    }
+  }
+
+  private ToolPool(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Configures the tool pools. This should be called once at startup before any builds begin.
+   *
+   * @param kawaWorkers the maximum number of simultaneous Kawa processes
+   * @param dexWorkers the maximum number of simultaneous dx/d8 processes
+   * @param budgetMb the total memory, in MB, that concurrently running child processes may use
+   */
+  public static void configure(int kawaWorkers, int dexWorkers, int budgetMb) {
+    KAWA.setMaxWorkers(kawaWorkers);
+    DEX.setMaxWorkers(dexWorkers);
+    ramBudgetMb = Math.max(1, budgetMb);
+    ramBudget = new Semaphore(ramBudgetMb, true);
+  }
+
+  private void setMaxWorkers(int maxWorkers) {
+    this.maxWorkers = Math.max(1, maxWorkers);
+    this.workers = new Semaphore(this.maxWorkers, true);
+  }
+
+  /**
+   * Waits for a free worker slot and {@code ramMb} of memory budget, in that order.
+   *
+   * @param ramMb the maximum heap size of the child process, in MB
+   * @return a lease that must be closed once the child process has exited
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   */
+  public Lease acquire(int ramMb) throws InterruptedException {
+    final Semaphore workerSlots = workers;
+    final Semaphore ram = ramBudget;
+    // A single request larger than the budget would never be satisfied, so clamp it.
+    final int ramPermits = Math.max(1, Math.min(ramMb, ramBudgetMb));
+    long start = System.currentTimeMillis();
+    queued.incrementAndGet();
+    try {
+      workerSlots.acquire();
+      try {
+        ram.acquire(ramPermits);
+      } catch (InterruptedException e) {
+        workerSlots.release();
+        throw e;
+      }
+    } finally {
+      queued.decrementAndGet();
+    }
+    long waited = System.currentTimeMillis() - start;
+    totalWaitMs.addAndGet(waited);
+    updateMax(maxWaitMs, waited);
+    runs.incrementAndGet();
+    active.incrementAndGet();
+    return new Lease(workerSlots, ram, ramPermits);
+  }
+
+  private static void updateMax(AtomicLong max, long value) {
+    long current;
+    do {
+      current = max.get();
+    } while (value > current && !max.compareAndSet(current, value));
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getMaxWorkers() {
+    return maxWorkers;
+  }
+
+  public int getActiveCount() {
+    return active.get();
+  }
+
+  public int getQueuedCount() {
+    return queued.get();
+  }
+
+  public long getRunCount() {
+    return runs.get();
+  }
+
+  public long getTotalWaitMs() {
+    return totalWaitMs.get();
+  }
+
+  public long getMaxWaitMs() {
+    return maxWaitMs.get();
+  }
+
+  public long getTotalRunMs() {
+    return totalRunMs.get();
+  }
+
+  public long getMaxRunMs() {
+    return maxRunMs.get();
+  }
+
+  public static int getRamBudgetMb() {
+    return ramBudgetMb;
+  }
+
+  public static int getAvailableRamMb() {
+    return ramBudget.availablePermits();
+  }
+}
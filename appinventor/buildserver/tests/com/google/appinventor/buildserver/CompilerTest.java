@@ -0,0 +1,193 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.appinventor.buildserver.context.AndroidCompilerContext;
+import com.google.appinventor.buildserver.context.AndroidPaths;
+import com.google.appinventor.buildserver.context.CompilerContext;
+import com.google.appinventor.buildserver.interfaces.CommonTask;
+import com.google.appinventor.buildserver.stats.NullStatReporter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the scheduling of tasks by the {@link Compiler} class.
+ */
+public class CompilerTest {
+  private static final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+  private static CyclicBarrier barrier;
+
+  private Compiler<AndroidPaths, AndroidCompilerContext> compiler;
+
+  @Before
+  public void setUp() {
+    events.clear();
+    Compiler.setMaxParallelTasks(4);
+    AndroidCompilerContext context =
+        new CompilerContext.Builder<AndroidPaths, AndroidCompilerContext>(null, "apk")
+            .withClass(AndroidCompilerContext.class)
+            .withTypes(Collections.<String>emptySet())
+            .withBlocks(Collections.<String, Set<String>>emptyMap())
+            .withReporter(new Reporter(null))
+            .withStatReporter(new NullStatReporter())
+            .withKeystore("test.keystore")
+            .build();
+    compiler = new Compiler.Builder<AndroidPaths, AndroidCompilerContext>()
+        .withContext(context)
+        .withType(BuildType.APK_EXTENSION)
+        .build();
+  }
+
+  @After
+  public void tearDown() {
+    Compiler.setMaxParallelTasks(0);
+  }
+
+  @Test
+  public void testIndependentTasksRunInParallel() {
+    // Both tasks have to reach the barrier before either can finish.
+    barrier = new CyclicBarrier(2);
+    compiler.add(WaitForPeerA.class);
+    compiler.add(WaitForPeerB.class);
+
+    assertTrue(compiler.call());
+  }
+
+  @Test
+  public void testConsumerWaitsForProducer() {
+    compiler.add(ProduceClasses.class);
+    compiler.add(ConsumeClasses.class);
+    compiler.add(ProduceManifest.class);
+
+    assertTrue(compiler.call());
+    assertTrue(events.indexOf("ProduceClasses") < events.indexOf("ConsumeClasses"));
+    assertEquals(3, events.size());
+  }
+
+  @Test
+  public void testSingleThreadKeepsOrder() {
+    Compiler.setMaxParallelTasks(1);
+    compiler.add(ProduceManifest.class);
+    compiler.add(ProduceClasses.class);
+    compiler.add(ConsumeClasses.class);
+
+    assertTrue(compiler.call());
+    assertEquals(Arrays.asList("ProduceManifest", "ProduceClasses", "ConsumeClasses"), events);
+  }
+
+  @Test
+  public void testFailureSkipsDependents() {
+    compiler.add(FailProducingClasses.class);
+    compiler.add(ConsumeClasses.class);
+
+    assertFalse(compiler.call());
+    assertFalse(events.contains("ConsumeClasses"));
+  }
+
+  @Test
+  public void testUndeclaredTaskRunsAlone() {
+    compiler.add(ProduceManifest.class);
+    compiler.add(Undeclared.class);
+    compiler.add(ProduceClasses.class);
+
+    assertTrue(compiler.call());
+    assertEquals(Arrays.asList("ProduceManifest", "Undeclared", "ProduceClasses"), events);
+  }
+
+  private static TaskResult record(Object task) {
+    events.add(task.getClass().getSimpleName());
+    return TaskResult.generateSuccess();
+  }
+
+  private static TaskResult awaitPeer(Object task) {
+    try {
+      barrier.await(10, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      return TaskResult.generateError(e);
+    }
+    return record(task);
+  }
+
+  @BuildType(apk = true)
+  @Artifacts(produces = BuildArtifact.MANIFEST)
+  public static class WaitForPeerA implements CommonTask {
+    @Override
+    public TaskResult execute(CompilerContext<?> context) {
+      return awaitPeer(this);
+    }
+  }
+
+  @BuildType(apk = true)
+  @Artifacts(produces = BuildArtifact.CLASSES)
+  public static class WaitForPeerB implements CommonTask {
+    @Override
+    public TaskResult execute(CompilerContext<?> context) {
+      return awaitPeer(this);
+    }
+  }
+
+  @BuildType(apk = true)
+  @Artifacts(produces = BuildArtifact.CLASSES)
+  public static class ProduceClasses implements CommonTask {
+    @Override
+    public TaskResult execute(CompilerContext<?> context) {
+      try {
+        // Give a wrongly scheduled consumer the chance to run first.
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        return TaskResult.generateError(e);
+      }
+      return record(this);
+    }
+  }
+
+  @BuildType(apk = true)
+  @Artifacts(consumes = BuildArtifact.CLASSES, produces = BuildArtifact.DEX)
+  public static class ConsumeClasses implements CommonTask {
+    @Override
+    public TaskResult execute(CompilerContext<?> context) {
+      return record(this);
+    }
+  }
+
+  @BuildType(apk = true)
+  @Artifacts(produces = BuildArtifact.MANIFEST)
+  public static class ProduceManifest implements CommonTask {
+    @Override
+    public TaskResult execute(CompilerContext<?> context) {
+      return record(this);
+    }
+  }
+
+  @BuildType(apk = true)
+  @Artifacts(produces = BuildArtifact.CLASSES)
+  public static class FailProducingClasses implements CommonTask {
+    @Override
+    public TaskResult execute(CompilerContext<?> context) {
+      return TaskResult.generateError("expected failure");
+    }
+  }
+
+  @BuildType(apk = true)
+  public static class Undeclared implements CommonTask {
+    @Override
+    public TaskResult execute(CompilerContext<?> context) {
+      return record(this);
+    }
+  }
+}
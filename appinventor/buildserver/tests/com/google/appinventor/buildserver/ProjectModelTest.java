@@ -0,0 +1,78 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the {@link ProjectModel} class.
+ */
+public class ProjectModelTest {
+  private static final Map<String, String> NAME_TYPE_MAP = ImmutableMap.of(
+      "Form", "com.google.appinventor.components.runtime.Form",
+      "Button", "com.google.appinventor.components.runtime.Button",
+      "Clock", "com.google.appinventor.components.runtime.Clock");
+
+  private static final String SCREEN1_SCM = "#|\n$JSON\n{\"Properties\":{\"$Type\":\"Form\","
+      + "\"ScreenOrientation\":\"portrait\",\"$Components\":[{\"$Type\":\"Button\","
+      + "\"$Name\":\"Button1\",\"Text\":\"Go\"}]}}\n|#\n";
+
+  private static final String SCREEN1_BKY = "<xml xmlns=\"http://www.w3.org/1999/xhtml\">"
+      + "<block type=\"component_event\"><mutation component_type=\"Button\" "
+      + "instance_name=\"Button1\" event_name=\"Click\"></mutation></block>"
+      + "<block type=\"component_method\" disabled=\"true\"><mutation component_type=\"Button\" "
+      + "instance_name=\"Button1\" method_name=\"Hidden\"></mutation></block></xml>";
+
+  private static final String SCREEN2_SCM = "#|\n$JSON\n{\"Properties\":{\"$Type\":\"Form\","
+      + "\"$Components\":[{\"$Type\":\"Clock\",\"$Name\":\"Clock1\",\"TimerInterval\":\"10\"},"
+      + "{\"$Type\":\"Button\",\"$Name\":\"Button2\",\"Width\":\"-2\"}]}}\n|#\n";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testAnalyzesEverySourceFile() throws Exception {
+    ProjectModel model = ProjectModel.analyze(Arrays.asList(
+        writeFile("Screen1.scm", SCREEN1_SCM),
+        writeFile("Screen1.bky", SCREEN1_BKY),
+        writeFile("Screen2.scm", SCREEN2_SCM),
+        writeFile("Screen2.bky", "")), NAME_TYPE_MAP);
+
+    assertEquals(Sets.newHashSet(NAME_TYPE_MAP.values()), model.getComponentTypes());
+    assertEquals(Sets.newHashSet("Click", "Text", "Width"),
+        model.getComponentBlocks().get("Button"));
+    assertEquals(Sets.newHashSet("TimerInterval"), model.getComponentBlocks().get("Clock"));
+    assertEquals("portrait", model.getFormOrientations().get("Screen1"));
+    assertEquals("unspecified", model.getFormOrientations().get("Screen2"));
+    assertTrue(model.getBlockPermissions().isEmpty());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testModelIsImmutable() throws Exception {
+    ProjectModel model = ProjectModel.analyze(
+        Arrays.asList(writeFile("Screen1.scm", SCREEN1_SCM)), NAME_TYPE_MAP);
+    model.getComponentBlocks().get("Button").add("Image");
+  }
+
+  private String writeFile(String name, String content) throws IOException {
+    File file = new File(folder.getRoot(), name);
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file.getPath();
+  }
+}
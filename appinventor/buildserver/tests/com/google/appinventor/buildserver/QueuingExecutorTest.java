@@ -0,0 +1,228 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2009-2011 Google, All Rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+package com.google.appinventor.buildserver;
+
+import com.google.appinventor.buildserver.stats.LatencyHistogram;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests QueuingExecutor class.
+ *
+ * @author lizlooney@google.com (Liz Looney)
+ */
+public class QueuingExecutorTest extends TestCase {
+  public void testAdditionalTaskIsRejected() throws Exception {
+    // Create the QueuingExecutor with capacity 10 and no queue.
+    int maxCapacity = 10;
+    QueuingExecutor executor = new QueuingExecutor(maxCapacity);
+
+    // Execute the maximum number of tasks, which will all wait until I notify them via the signal.
+    final Object signal = new Object();
+    for (int i = 0; i < maxCapacity; i++) {
+      executor.execute(new TaskThatWaitsForSignal(signal));
+    }
+
+    // Now the executor should be at maximum capacity.
+    assertEquals(maxCapacity, executor.getActiveTaskCount());
+
+    // Try to execute another task. We expect it to be rejected.
+    try {
+      executor.execute(new TaskThatDoesNothing());
+      fail();
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+
+    // Notify the signal so the active tasks can complete.
+    synchronized (signal) {
+      signal.notifyAll();
+    }
+  }
+
+  public void testQueuedTaskRunsWhenSlotFrees() throws Exception {
+    QueuingExecutor executor = new QueuingExecutor(1, 1, 0);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch queuedRan = new CountDownLatch(1);
+    executor.execute(new TaskThatWaitsForLatch(release));
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        queuedRan.countDown();
+      }
+    });
+    assertEquals(1, executor.getQueuedTaskCount());
+
+    release.countDown();
+
+    assertTrue(queuedRan.await(10, TimeUnit.SECONDS));
+  }
+
+  public void testTaskIsRejectedWhenQueueIsFull() throws Exception {
+    QueuingExecutor executor = new QueuingExecutor(1, 2, 0);
+    CountDownLatch release = new CountDownLatch(1);
+    executor.execute(new TaskThatWaitsForLatch(release));
+    executor.execute(new TaskThatDoesNothing());
+    executor.execute(new TaskThatDoesNothing());
+
+    try {
+      executor.execute(new TaskThatDoesNothing());
+      fail();
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+    assertEquals(1, executor.getRejectedTaskCount());
+    release.countDown();
+  }
+
+  public void testTaskIsRejectedWhenQueueIsStale() throws Exception {
+    QueuingExecutor executor = new QueuingExecutor(1, 10, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    executor.execute(new TaskThatWaitsForLatch(release));
+    executor.execute(new TaskThatDoesNothing());
+    Thread.sleep(20);
+
+    try {
+      executor.execute(new TaskThatDoesNothing());
+      fail();
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+    release.countDown();
+  }
+
+  public void testQueuePositionsAreReported() throws Exception {
+    QueuingExecutor executor = new QueuingExecutor(1, 2, 0);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(2);
+    PositionRecorder first = new PositionRecorder(done);
+    PositionRecorder second = new PositionRecorder(done);
+    executor.execute(new TaskThatWaitsForLatch(release));
+    executor.execute(first);
+    executor.execute(second);
+
+    release.countDown();
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    // Notifications are delivered asynchronously, so wait for the last one.
+    for (int i = 0; i < 100 && second.positions().size() < 3; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(listOf(1, 0), first.positions());
+    assertEquals(listOf(2, 1, 0), second.positions());
+  }
+
+  public void testOverloadClearsOnceQueueWaitsAgeOut() throws Exception {
+    // Queue waits are kept for 5 slots of 20ms.
+    QueuingExecutor executor = new QueuingExecutor(1, 3, 30, new LatencyHistogram(5, 20));
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch queuedRan = new CountDownLatch(1);
+    executor.execute(new TaskThatWaitsForLatch(release));
+    executor.execute(new TaskThatCountsDown(queuedRan));
+    Thread.sleep(60);
+    release.countDown();
+    assertTrue(queuedRan.await(10, TimeUnit.SECONDS));
+
+    // The queued build waited longer than 2/3 of the maximum wait.
+    assertTrue(executor.isOverloaded(false));
+    assertTrue(executor.isOverloaded(true));
+
+    // No builds arrive while the host is draining, so the recorded waits must age out.
+    Thread.sleep(150);
+    assertEquals(0, executor.getQueuedTaskCount());
+    assertEquals(0, executor.getP95QueueWaitMs());
+    assertFalse(executor.isOverloaded(true));
+  }
+
+  private static List<Integer> listOf(Integer... values) {
+    List<Integer> list = new ArrayList<>();
+    for (Integer value : values) {
+      list.add(value);
+    }
+    return list;
+  }
+
+  private static class PositionRecorder implements QueuingExecutor.QueuedTask {
+    private final List<Integer> positions = new ArrayList<>();
+    private final CountDownLatch done;
+
+    private PositionRecorder(CountDownLatch done) {
+      this.done = done;
+    }
+
+    @Override
+    public synchronized void onQueuePositionChanged(int position) {
+      positions.add(position);
+    }
+
+    synchronized List<Integer> positions() {
+      return new ArrayList<>(positions);
+    }
+
+    @Override
+    public void run() {
+      done.countDown();
+    }
+  }
+
+  private static class TaskThatWaitsForLatch implements Runnable {
+    private final CountDownLatch latch;
+    private TaskThatWaitsForLatch(CountDownLatch latch) {
+      this.latch = latch;
+    }
+
+    @Override
+    public void run() {
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        // ignored
+      }
+    }
+  }
+
+  private static class TaskThatCountsDown implements Runnable {
+    private final CountDownLatch latch;
+    private TaskThatCountsDown(CountDownLatch latch) {
+      this.latch = latch;
+    }
+
+    @Override
+    public void run() {
+      latch.countDown();
+    }
+  }
+
+  private static class TaskThatWaitsForSignal implements Runnable {
+    private final Object signal;
+    private TaskThatWaitsForSignal(Object signal) {
+      this.signal = signal;
+    }
+
+    @Override
+    public void run() {
+      synchronized (signal) {
+        try {
+          // Wait for the signal.
+          signal.wait();
+        } catch (InterruptedException e) {
+          // ignored
+        }
+      }
+    }
+  }
+
+  private static class TaskThatDoesNothing implements Runnable {
+    @Override
+    public void run() {
+    }
+  }
+}
@@ -0,0 +1,86 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.google.appinventor.buildserver.context.ComponentRegistry.ComponentMetadata;
+import com.google.appinventor.buildserver.util.PermissionConstraint;
+import com.google.common.collect.Sets;
+import java.util.Arrays;
+import java.util.Set;
+import org.codehaus.jettison.json.JSONArray;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ComponentRegistry} class.
+ */
+public class ComponentRegistryTest {
+  private static final String BUTTON = "com.google.appinventor.components.runtime.Button";
+  private static final String SOUND = "com.google.appinventor.components.runtime.Sound";
+  private static final String EXTENSION = "com.example.Extension";
+
+  private static final String BUILD_INFO = "["
+      + "{\"type\":\"" + BUTTON + "\",\"permissions\":[],\"assets\":[\"a.png\",\"\"]},"
+      + "{\"type\":\"" + SOUND + "\",\"permissions\":[\"android.permission.VIBRATE\"],"
+      + "\"permissionConstraints\":{\"android.permission.VIBRATE\":{\"maxSdkVersion\":18}},"
+      + "\"conditionals\":{\"permissions\":{\"Vibrate\":[\"android.permission.WAKE_LOCK\"]},"
+      + "\"permissionConstraints\":{\"Play\":{\"android.permission.WAKE_LOCK\":"
+      + "{\"usesPermissionFlags\":\"neverForLocation\"}}}}}]";
+
+  @Test
+  public void testIndexesBuildInfo() throws Exception {
+    ComponentRegistry registry = ComponentRegistry.parse(new JSONArray(BUILD_INFO));
+
+    assertEquals(Sets.newHashSet(BUTTON, SOUND), registry.getTypes());
+    ComponentMetadata button = registry.get(BUTTON);
+    assertEquals(Sets.newHashSet(), button.getInfo("permissions"));
+    assertEquals(Sets.newHashSet("a.png"), button.getInfo("assets"));
+    assertNull(button.getInfo("libraries"));
+    assertNull(button.getConditionals("permissions"));
+    assertNull(button.getPermissionConstraints());
+
+    ComponentMetadata sound = registry.get(SOUND);
+    assertEquals(Sets.newHashSet("android.permission.WAKE_LOCK"),
+        sound.getConditionals("permissions").get("Vibrate"));
+    Set<PermissionConstraint<?>> constraints =
+        sound.getPermissionConstraints().get("android.permission.VIBRATE");
+    assertEquals(Sets.<PermissionConstraint<?>>newHashSet(
+        new PermissionConstraint<>("android.permission.VIBRATE", "maxSdkVersion", 18)),
+        constraints);
+    assertEquals(Sets.<PermissionConstraint<?>>newHashSet(
+        new PermissionConstraint<>("android.permission.WAKE_LOCK", "usesPermissionFlags",
+            "neverForLocation")),
+        sound.getConditionalPermissionConstraints().get("Play")
+            .get("android.permission.WAKE_LOCK"));
+  }
+
+  @Test
+  public void testExtensionsOverrideComponents() throws Exception {
+    ComponentRegistry registry = ComponentRegistry.parse(new JSONArray(BUILD_INFO));
+    assertSame(registry, registry.withExtensions(new JSONArray()));
+
+    ComponentRegistry merged = registry.withExtensions(new JSONArray("["
+        + "{\"type\":\"" + EXTENSION + "\",\"libraries\":[\"ext.jar\"]},"
+        + "{\"type\":\"" + BUTTON + "\",\"assets\":[\"b.png\"]}]"));
+
+    assertEquals(Arrays.asList(SOUND, EXTENSION, BUTTON),
+        Arrays.asList(merged.getTypes().toArray()));
+    assertEquals(Sets.newHashSet("b.png"), merged.get(BUTTON).getInfo("assets"));
+    assertEquals(Sets.newHashSet("ext.jar"), merged.get(EXTENSION).getInfo("libraries"));
+    // The shared registry is left untouched.
+    assertEquals(Sets.newHashSet("a.png"), registry.get(BUTTON).getInfo("assets"));
+    assertNull(registry.get(EXTENSION));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testMetadataIsImmutable() throws Exception {
+    ComponentRegistry registry = ComponentRegistry.parse(new JSONArray(BUILD_INFO));
+    registry.get(SOUND).getInfo("permissions").add("android.permission.INTERNET");
+  }
+}
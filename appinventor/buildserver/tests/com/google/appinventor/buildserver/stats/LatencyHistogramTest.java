@@ -0,0 +1,72 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+/**
+ * Tests the {@link LatencyHistogram} class.
+ */
+public class LatencyHistogramTest {
+  private final AtomicLong now = new AtomicLong(1000000);
+  private final LatencyHistogram histogram = new LatencyHistogram(10, 1000, now::get);
+
+  @Test
+  public void testPercentilesAreWithinBucketResolution() {
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    }
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+    assertEquals(1000, snapshot.getCount());
+    assertEquals(500500, snapshot.getSum());
+    assertEquals(1000, snapshot.getMax());
+    assertEquals(1000, snapshot.getPercentile(1));
+    assertWithin(500, snapshot.getPercentile(0.5));
+    assertWithin(900, snapshot.getPercentile(0.9));
+    assertWithin(990, snapshot.getPercentile(0.99));
+  }
+
+  @Test
+  public void testOldDurationsLeaveTheWindow() {
+    histogram.record(5000);
+    now.addAndGet(3000);
+    histogram.record(10);
+
+    assertEquals(1, histogram.snapshot(1000).getCount());
+    assertEquals(10, histogram.snapshot(1000).getMax());
+    assertEquals(2, histogram.snapshot().getCount());
+
+    // After a full window, the slot of the first duration is reused.
+    now.addAndGet(7000);
+    histogram.record(20);
+    assertEquals(2, histogram.snapshot().getCount());
+    assertEquals(20, histogram.snapshot().getMax());
+  }
+
+  @Test
+  public void testEmptySnapshot() {
+    assertEquals(0, histogram.snapshot().getPercentile(0.99));
+  }
+
+  @Test
+  public void testBucketsCoverValues() {
+    for (long value = 0; value < 100000; value += 7) {
+      int bucket = LatencyHistogram.bucketOf(value);
+      assertTrue(value <= LatencyHistogram.upperBound(bucket));
+      assertTrue(bucket == 0 || value > LatencyHistogram.upperBound(bucket - 1));
+    }
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(actual + " is not close to " + expected,
+        actual >= expected && actual <= expected * 1.125);
+  }
+}
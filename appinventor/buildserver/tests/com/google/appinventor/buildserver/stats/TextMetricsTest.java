@@ -0,0 +1,49 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+/**
+ * Tests the {@link TextMetrics} class.
+ */
+public class TextMetricsTest {
+  @Test
+  public void testGauges() {
+    String text = new TextMetrics()
+        .add("active", "gauge", "Active builds.", 3)
+        .add("tools", "gauge", "Tools.", "tool", ImmutableMap.of("kawa", 1, "d\"x", 2))
+        .toString();
+
+    assertEquals("# HELP active Active builds.\n"
+        + "# TYPE active gauge\n"
+        + "active 3\n"
+        + "# HELP tools Tools.\n"
+        + "# TYPE tools gauge\n"
+        + "tools{tool=\"kawa\"} 1\n"
+        + "tools{tool=\"d\\\"x\"} 2\n", text);
+  }
+
+  @Test
+  public void testLatencies() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(10);
+    histogram.record(12);
+    String text = new TextMetrics()
+        .addLatencies("stage_ms", "Stages.", "stage", ImmutableMap.of("RunD8", histogram))
+        .toString();
+
+    assertTrue(text.startsWith("# HELP stage_ms Stages.\n# TYPE stage_ms summary\n"));
+    assertTrue(text.contains("stage_ms{stage=\"RunD8\",window=\"5m\",quantile=\"0.5\"} 10\n"));
+    assertTrue(text.contains("stage_ms{stage=\"RunD8\",window=\"1h\",quantile=\"1\"} 12\n"));
+    assertTrue(text.contains("stage_ms_sum{stage=\"RunD8\",window=\"5m\"} 22\n"));
+    assertTrue(text.contains("stage_ms_count{stage=\"RunD8\",window=\"1h\"} 2\n"));
+  }
+}
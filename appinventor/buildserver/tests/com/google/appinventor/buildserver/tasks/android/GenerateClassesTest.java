@@ -0,0 +1,89 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.tasks.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import com.google.appinventor.buildserver.util.ExplodedAarCache;
+import com.google.appinventor.buildserver.util.IncrementalBuildCache;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the classpath hashing of the {@link GenerateClasses} task.
+ */
+public class GenerateClassesTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @After
+  public void tearDown() {
+    ExplodedAarCache.configure(null, 0);
+  }
+
+  @Test
+  public void testChangedLibraryWithSameNameChangesHash() throws Exception {
+    File first = writeFile("build1/external_comps/ext/lib.jar", "library v1");
+    File moved = writeFile("build2/external_comps/ext/lib.jar", "library v1");
+    File changed = writeFile("build3/external_comps/ext/lib.jar", "library v2");
+
+    assertEquals(hash(first), hash(moved));
+    assertNotEquals(hash(first), hash(changed));
+  }
+
+  @Test
+  public void testChangedAarWithSameNameChangesHash() throws Exception {
+    // Without the AAR cache, classes.jar is unpacked into the build's own directory.
+    File first = writeFile("build1/explode/lib/classes.jar", "classes v1");
+    File changed = writeFile("build2/explode/lib/classes.jar", "classes v2");
+
+    assertNotEquals(hash(first), hash(changed));
+  }
+
+  @Test
+  public void testCachedAarIsIdentifiedByItsEntry() throws Exception {
+    File cacheDir = folder.newFolder("cache");
+    ExplodedAarCache.configure(cacheDir.getPath(), 0);
+    File first = writeFile("cache/aar-1111/classes.jar", "classes");
+    File second = writeFile("cache/aar-2222/classes.jar", "classes");
+
+    assertNotEquals(hash(first), hash(second));
+  }
+
+  @Test
+  public void testServerResourcesAreIdentifiedByName() throws Exception {
+    File first = writeFile("tmp1/kawa.jar", "kawa");
+    File second = writeFile("tmp2/kawa.jar", "kawa, extracted again");
+
+    assertEquals(hash(first, Collections.singleton(first.getPath())),
+        hash(second, Collections.singleton(second.getPath())));
+  }
+
+  private static String hash(File library) throws IOException {
+    return hash(library, Collections.<String>emptySet());
+  }
+
+  private static String hash(File library, Set<String> serverResources) throws IOException {
+    return GenerateClasses.putClasspath(IncrementalBuildCache.newHasher(), library.getPath(),
+        serverResources).hash().toString();
+  }
+
+  private File writeFile(String path, String content) throws IOException {
+    File file = new File(folder.getRoot(), path);
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+}
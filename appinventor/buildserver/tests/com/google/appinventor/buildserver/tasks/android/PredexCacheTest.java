@@ -0,0 +1,184 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.tasks.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.appinventor.buildserver.util.FileHashes;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the {@link PredexCache} class.
+ */
+public class PredexCacheTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @After
+  public void tearDown() {
+    PredexCache.setMaxBytes(0);
+  }
+
+  @Test
+  public void testDexesOnceAndThenHits() throws Exception {
+    File cacheDir = folder.newFolder("cache");
+    File jar = writeFile("lib.jar", "library one");
+    CountingDexer dexer = new CountingDexer();
+    PredexCache cache = PredexCache.forDirectory(cacheDir.getAbsolutePath());
+
+    File first = cache.get(jar, dexer);
+    File second = cache.get(jar, dexer);
+
+    assertNotNull(first);
+    assertEquals(first, second);
+    assertTrue(first.isFile());
+    assertEquals(cacheDir, first.getParentFile());
+    assertEquals(1, dexer.calls.get());
+  }
+
+  @Test
+  public void testIndexIsRebuiltFromDisk() throws Exception {
+    File cacheDir = folder.newFolder("persistent");
+    File jar = writeFile("lib.jar", "library two");
+    File dexed = new File(cacheDir, "dex-cached-" + FileHashes.md5(jar) + ".dex");
+    Files.write(dexed.toPath(), "dexed".getBytes(StandardCharsets.UTF_8));
+    CountingDexer dexer = new CountingDexer();
+
+    PredexCache cache = PredexCache.forDirectory(cacheDir.getAbsolutePath());
+
+    assertEquals(dexed, cache.get(jar, dexer));
+    assertEquals(0, dexer.calls.get());
+  }
+
+  @Test
+  public void testConcurrentRequestsShareOneDex() throws Exception {
+    File cacheDir = folder.newFolder("shared");
+    final File jar = writeFile("lib.jar", "library three");
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger calls = new AtomicInteger(0);
+    final PredexCache cache = PredexCache.forDirectory(cacheDir.getAbsolutePath());
+    final PredexCache.Dexer slowDexer = (input, output) -> {
+      calls.incrementAndGet();
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        return false;
+      }
+      Files.write(output.toPath(), "dexed".getBytes(StandardCharsets.UTF_8));
+      return true;
+    };
+
+    final List<File> results = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread thread = new Thread(() -> {
+        try {
+          File result = cache.get(jar, slowDexer);
+          synchronized (results) {
+            results.add(result);
+          }
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    started.await();
+    release.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(1, calls.get());
+    assertEquals(4, results.size());
+    for (File result : results) {
+      assertEquals(results.get(0), result);
+    }
+  }
+
+  @Test
+  public void testFailedDexReturnsNull() throws Exception {
+    File cacheDir = folder.newFolder("failed");
+    File jar = writeFile("lib.jar", "library four");
+    PredexCache cache = PredexCache.forDirectory(cacheDir.getAbsolutePath());
+
+    assertNull(cache.get(jar, (input, output) -> false));
+    assertEquals(0, cacheDir.list().length);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEntriesOutsideGraceAreEvicted() throws Exception {
+    File cacheDir = folder.newFolder("bounded");
+    long now = System.currentTimeMillis();
+    File threeHours = writeEntry(cacheDir, "aaaa", now - 3 * 60 * 60 * 1000);
+    File twoHours = writeEntry(cacheDir, "bbbb", now - 2 * 60 * 60 * 1000);
+    File oneHour = writeEntry(cacheDir, "cccc", now - 60 * 60 * 1000);
+    File recent = writeEntry(cacheDir, "dddd", now - 60 * 1000);
+    PredexCache cache = PredexCache.forDirectory(cacheDir.getAbsolutePath());
+    // Every entry, including the ones the dexer writes, is 5 bytes.
+    PredexCache.setMaxBytes(17);
+
+    File added = cache.get(writeFile("lib.jar", "library five"), new CountingDexer());
+
+    // 25 bytes: the two oldest entries go, bringing the cache back under budget.
+    assertFalse(threeHours.exists());
+    assertFalse(twoHours.exists());
+    assertTrue(oneHour.exists());
+    assertTrue(recent.exists());
+    assertTrue(added.exists());
+
+    // Entries used within the grace window are kept, even over budget.
+    PredexCache.setMaxBytes(1);
+    File another = cache.get(writeFile("lib.jar", "library six"), new CountingDexer());
+
+    assertFalse(oneHour.exists());
+    assertTrue(recent.exists());
+    assertTrue(added.exists());
+    assertTrue(another.exists());
+  }
+
+  private static File writeEntry(File cacheDir, String hash, long lastAccess) throws IOException {
+    File file = new File(cacheDir, "dex-cached-" + hash + ".dex");
+    Files.write(file.toPath(), "dexed".getBytes(StandardCharsets.UTF_8));
+    assertTrue(file.setLastModified(lastAccess));
+    return file;
+  }
+
+  private File writeFile(String name, String content) throws IOException {
+    File file = new File(folder.newFolder(), name);
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private static class CountingDexer implements PredexCache.Dexer {
+    final AtomicInteger calls = new AtomicInteger(0);
+
+    @Override
+    public boolean dex(File input, File output) throws IOException {
+      calls.incrementAndGet();
+      Files.write(output.toPath(), "dexed".getBytes(StandardCharsets.UTF_8));
+      return true;
+    }
+  }
+}
@@ -0,0 +1,105 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the {@link ExplodedAarCache} class.
+ */
+public class ExplodedAarCacheTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @After
+  public void tearDown() {
+    ExplodedAarCache.configure(null, 0);
+  }
+
+  @Test
+  public void testDisabledCacheLeavesUnpackingToTheBuild() throws Exception {
+    assertFalse(ExplodedAarCache.acquire(new AARLibrary(writeAar("lib.aar", "com.example.lib"))));
+  }
+
+  @Test
+  public void testSameContentIsUnpackedOnce() throws Exception {
+    File cacheDir = folder.newFolder("cache");
+    ExplodedAarCache.configure(cacheDir.getPath(), 0);
+    AARLibrary first = new AARLibrary(writeAar("first.aar", "com.example.lib"));
+    AARLibrary second = new AARLibrary(writeAar("second.aar", "com.example.lib"));
+    int misses = ExplodedAarCache.getMisses();
+    int hits = ExplodedAarCache.getHits();
+
+    assertTrue(ExplodedAarCache.acquire(first));
+    assertTrue(ExplodedAarCache.acquire(second));
+
+    assertEquals(misses + 1, ExplodedAarCache.getMisses());
+    assertEquals(hits + 1, ExplodedAarCache.getHits());
+    assertEquals(1, ExplodedAarCache.getEntryCount());
+    assertEquals(first.getDirectory(), second.getDirectory());
+    assertEquals("com.example.lib", second.getPackageName());
+    assertTrue(second.getClassesJar().isFile());
+    assertTrue(new File(second.getResDirectory(), "values/values.xml").isFile());
+
+    // A restarted server finds the unpacked archive again.
+    ExplodedAarCache.configure(cacheDir.getPath(), 0);
+    assertEquals(1, ExplodedAarCache.getEntryCount());
+  }
+
+  @Test
+  public void testOnlyReleasedEntriesAreEvicted() throws Exception {
+    ExplodedAarCache.configure(folder.newFolder("cache").getPath(), 1);
+    AARLibrary inUse = new AARLibrary(writeAar("a.aar", "com.example.a"));
+    AARLibrary released = new AARLibrary(writeAar("b.aar", "com.example.b"));
+
+    assertTrue(ExplodedAarCache.acquire(released));
+    ExplodedAarCache.release(released);
+    assertTrue(ExplodedAarCache.acquire(inUse));
+
+    // The budget is exceeded, but an entry still in use is kept.
+    assertEquals(1, ExplodedAarCache.getEntryCount());
+    assertFalse(released.getDirectory().exists());
+    assertTrue(inUse.getDirectory().isDirectory());
+
+    ExplodedAarCache.release(inUse);
+    assertEquals(0, ExplodedAarCache.getEntryCount());
+    assertEquals(0, ExplodedAarCache.getTotalBytes());
+  }
+
+  private File writeAar(String name, String packageName) throws IOException {
+    File aar = new File(folder.getRoot(), name);
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(aar))) {
+      addEntry(out, "AndroidManifest.xml", "<manifest xmlns:android="
+          + "\"http://schemas.android.com/apk/res/android\" package=\"" + packageName + "\"/>");
+      addEntry(out, "classes.jar", "");
+      addEntry(out, "res/values/values.xml", "<resources/>");
+    }
+    return aar;
+  }
+
+  private static void addEntry(ZipOutputStream out, String name, String content)
+      throws IOException {
+    // Fixed timestamps give archives with the same entries the same content.
+    ZipEntry entry = new ZipEntry(name);
+    entry.setTime(0);
+    out.putNextEntry(entry);
+    out.write(content.getBytes(StandardCharsets.UTF_8));
+    out.closeEntry();
+  }
+}
@@ -0,0 +1,96 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the {@link IncrementalBuildCache} class.
+ */
+public class IncrementalBuildCacheTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @After
+  public void tearDown() {
+    IncrementalBuildCache.configure(null, 0);
+  }
+
+  @Test
+  public void testStoreAndRestore() throws Exception {
+    IncrementalBuildCache.configure(folder.newFolder("cache").getPath(), 0);
+    File classFile = writeFile("Screen1.class", "screen one");
+
+    assertNull(IncrementalBuildCache.lookup("project", "classes", "Screen1", "abc"));
+    IncrementalBuildCache.store("project", "classes", "Screen1", "abc",
+        Collections.singletonList(classFile));
+    File entry = IncrementalBuildCache.lookup("project", "classes", "Screen1", "abc");
+
+    assertNotNull(entry);
+    List<File> restored = IncrementalBuildCache.restore(entry, folder.newFolder("target"));
+    assertEquals(1, restored.size());
+    assertEquals("screen one",
+        new String(Files.readAllBytes(restored.get(0).toPath()), StandardCharsets.UTF_8));
+    assertEquals(1, IncrementalBuildCache.getProjectCount());
+  }
+
+  @Test
+  public void testNewEntryReplacesOlderOne() throws Exception {
+    IncrementalBuildCache.configure(folder.newFolder("cache").getPath(), 0);
+    IncrementalBuildCache.store("project", "classes", "Screen1", "old",
+        Collections.singletonList(writeFile("Screen1.class", "old")));
+    IncrementalBuildCache.store("project", "classes", "Screen1", "new",
+        Collections.singletonList(writeFile("Screen1.class", "new")));
+
+    assertNull(IncrementalBuildCache.lookup("project", "classes", "Screen1", "old"));
+    assertNotNull(IncrementalBuildCache.lookup("project", "classes", "Screen1", "new"));
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsedProject() throws Exception {
+    File cacheDir = folder.newFolder("cache");
+    IncrementalBuildCache.configure(cacheDir.getPath(), 15);
+    IncrementalBuildCache.store("first", "classes", "Screen1", "a",
+        Collections.singletonList(writeFile("Screen1.class", "0123456789")));
+    assertTrue(new File(cacheDir, "first").setLastModified(System.currentTimeMillis() - 60000));
+    IncrementalBuildCache.store("second", "classes", "Screen1", "b",
+        Collections.singletonList(writeFile("Screen1.class", "0123456789")));
+
+    assertFalse(new File(cacheDir, "first").exists());
+    assertNotNull(IncrementalBuildCache.lookup("second", "classes", "Screen1", "b"));
+    assertEquals(10, IncrementalBuildCache.getTotalBytes());
+  }
+
+  @Test
+  public void testDisabledCacheStoresNothing() throws Exception {
+    IncrementalBuildCache.store("project", "classes", "Screen1", "abc",
+        Collections.singletonList(writeFile("Screen1.class", "screen one")));
+
+    assertFalse(IncrementalBuildCache.isEnabled());
+    assertNull(IncrementalBuildCache.lookup("project", "classes", "Screen1", "abc"));
+  }
+
+  private File writeFile(String name, String content) throws IOException {
+    File file = new File(folder.getRoot(), name);
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+}
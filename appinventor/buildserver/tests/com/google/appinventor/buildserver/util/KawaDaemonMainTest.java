@@ -0,0 +1,120 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the {@link KawaDaemonMain} class.
+ */
+public class KawaDaemonMainTest {
+  private static final int BUILDS = 5;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * A class that only the class loader of a build can see, like a component class.
+   */
+  public static class Component {
+    public static String greet() {
+      return "hello";
+    }
+  }
+
+  @Test
+  public void testBuildsShareKawaAndReleaseTheirClasses() throws Exception {
+    String classpath = codeSource(Class.forName("kawa.repl")) + File.pathSeparator
+        + codeSource(Component.class);
+    List<WeakReference<ClassLoader>> buildLoaders = new ArrayList<>();
+
+    for (int i = 0; i < BUILDS; i++) {
+      File source = folder.newFile("screen" + i + ".scm");
+      Files.write(source.toPath(), ("(define (greet) ("
+          + Component.class.getName() + ":greet))\n").getBytes(StandardCharsets.UTF_8));
+      File classes = folder.newFolder("classes" + i);
+      ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+      int status = KawaDaemonMain.runKawa(classpath, new String[] {
+          "-d", classes.getPath(), "-C", source.getPath()}, new PrintStream(err, true));
+
+      assertEquals(err.toString("UTF-8"), KawaDaemonMain.STATUS_OK, status);
+      assertTrue(new File(classes, "screen" + i + ".class").exists());
+      buildLoaders.add(KawaDaemonMain.lastBuildLoader);
+    }
+
+    assertEquals(1, KawaDaemonMain.getKawaLoadersCreated());
+    assertEquals(0, countLiveLoaders(buildLoaders));
+  }
+
+  @Test
+  public void testWorkerEvaluatesPreludeBeforeCompiling() throws Exception {
+    // GenerateClasses loads runtime.scm with -f before compiling the screens with -C.
+    String classpath = codeSource(Class.forName("kawa.repl")) + File.pathSeparator
+        + codeSource(Component.class);
+    File runtime = folder.newFile("runtime.scm");
+    Files.write(runtime.toPath(), ("(define-syntax greet-twice\n"
+        + "  (syntax-rules () ((_) (list (" + Component.class.getName() + ":greet)\n"
+        + "                               (" + Component.class.getName() + ":greet)))))\n"
+        + "(define *prelude-greeting* (" + Component.class.getName() + ":greet))\n")
+        .getBytes(StandardCharsets.UTF_8));
+    KawaDaemon.configure(BUILDS);
+    try {
+      int started = KawaDaemon.getWorkersStarted();
+      for (int i = 0; i < 2; i++) {
+        File source = folder.newFile("prelude" + i + ".scm");
+        Files.write(source.toPath(), "(define (greet) (greet-twice))\n"
+            .getBytes(StandardCharsets.UTF_8));
+        File classes = folder.newFolder("prelude-classes" + i);
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        Boolean success = KawaDaemon.compile(classpath, 256, Arrays.asList(
+            "-f", runtime.getPath(), "-d", classes.getPath(), "-C", source.getPath()), err, 60);
+
+        assertEquals(err.toString("UTF-8"), Boolean.TRUE, success);
+        assertTrue(new File(classes, "prelude" + i + ".class").exists());
+      }
+      // The second build was served by the same worker.
+      assertEquals(started + 1, KawaDaemon.getWorkersStarted());
+    } finally {
+      KawaDaemon.configure(0);
+    }
+  }
+
+  private static int countLiveLoaders(List<WeakReference<ClassLoader>> loaders)
+      throws InterruptedException {
+    int live = loaders.size();
+    for (int attempt = 0; attempt < 20 && live > 0; attempt++) {
+      System.gc();
+      Thread.sleep(50);
+      live = 0;
+      for (WeakReference<ClassLoader> loader : loaders) {
+        if (loader.get() != null) {
+          live++;
+        }
+      }
+    }
+    return live;
+  }
+
+  private static String codeSource(Class<?> clazz) throws Exception {
+    return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+  }
+}
@@ -0,0 +1,138 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.google.appinventor.buildserver.context.Resources;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the {@link RuntimeClassCache} class.
+ */
+public class RuntimeClassCacheTest {
+  private static final String RUNTIME_CLASS = "com/google/youngandroid/runtime.class";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File cacheDir;
+
+  @Before
+  public void setUp() throws IOException {
+    cacheDir = folder.newFolder("cache");
+    RuntimeClassCache.configure(cacheDir.getPath());
+  }
+
+  @After
+  public void tearDown() {
+    RuntimeClassCache.configure(null);
+  }
+
+  @Test
+  public void testUnchangedRuntimeIsHit() throws Exception {
+    String key = RuntimeClassCache.getKey(extractResources("server1", "(define x 1)"));
+    assertNull(RuntimeClassCache.lookup(key));
+    RuntimeClassCache.store(key, compile("build1", "runtime v1"));
+
+    // Another server extracts the same runtime.scm to a different path.
+    String sameKey = RuntimeClassCache.getKey(extractResources("server2", "(define x 1)"));
+    assertEquals(key, sameKey);
+    File entry = RuntimeClassCache.lookup(sameKey);
+    assertNotNull(entry);
+
+    File classesDir = folder.newFolder("build2");
+    RuntimeClassCache.copyTo(entry, classesDir);
+    assertEquals("runtime v1", read(new File(classesDir, RUNTIME_CLASS)));
+  }
+
+  @Test
+  public void testChangedRuntimeIsMissed() throws Exception {
+    String key = RuntimeClassCache.getKey(extractResources("server1", "(define x 1)"));
+    RuntimeClassCache.store(key, compile("build1", "runtime v1"));
+
+    String changedKey = RuntimeClassCache.getKey(extractResources("server2", "(define x 2)"));
+    assertNotEquals(key, changedKey);
+    assertNull(RuntimeClassCache.lookup(changedKey));
+  }
+
+  @Test
+  public void testTruncatedEntryIsCompiledAgain() throws Exception {
+    String key = RuntimeClassCache.getKey(extractResources("server", "(define x 1)"));
+    RuntimeClassCache.store(key, compile("build1", "runtime v1"));
+    File entry = RuntimeClassCache.lookup(key);
+    assertNotNull(entry);
+    Files.write(new File(entry, RUNTIME_CLASS).toPath(), new byte[0]);
+
+    assertNull(RuntimeClassCache.lookup(key));
+    RuntimeClassCache.store(key, compile("build2", "runtime v1"));
+    entry = RuntimeClassCache.lookup(key);
+    assertNotNull(entry);
+    assertEquals("runtime v1", read(new File(entry, RUNTIME_CLASS)));
+  }
+
+  @Test
+  public void testEntryWithoutChecksumIsCompiledAgain() throws Exception {
+    String key = RuntimeClassCache.getKey(extractResources("server", "(define x 1)"));
+    // Entries stored before checksums were added only hold the classes.
+    writeFile(new File(cacheDir, "runtime-" + key + "/" + RUNTIME_CLASS), "runtime v1");
+
+    assertNull(RuntimeClassCache.lookup(key));
+    RuntimeClassCache.store(key, compile("build", "runtime v1"));
+    assertNotNull(RuntimeClassCache.lookup(key));
+  }
+
+  private Resources extractResources(String dir, String yailRuntime) throws IOException {
+    final File yail = writeFile(new File(folder.getRoot(), dir + "/runtime.scm"), yailRuntime);
+    final File kawa = writeFile(new File(folder.getRoot(), dir + "/kawa.jar"), "kawa");
+    final File components = writeFile(new File(folder.getRoot(), dir + "/AndroidRuntime.jar"),
+        "components");
+    return new Resources() {
+      @Override
+      public String getYailRuntime() {
+        return yail.getPath();
+      }
+
+      @Override
+      public String getKawaRuntime() {
+        return kawa.getPath();
+      }
+
+      @Override
+      public String getSimpleAndroidRuntimeJar() {
+        return components.getPath();
+      }
+    };
+  }
+
+  private File compile(String dir, String content) throws IOException {
+    File classesDir = new File(folder.getRoot(), dir);
+    writeFile(new File(classesDir, RUNTIME_CLASS), content);
+    writeFile(new File(classesDir, "com/google/youngandroid/runtime$frame.class"), "frame");
+    return classesDir;
+  }
+
+  private static File writeFile(File file, String content) throws IOException {
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+}
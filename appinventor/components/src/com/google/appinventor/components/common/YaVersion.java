@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2024 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -608,7 +608,9 @@ public class YaVersion {
   // - ABSOLUTEARRANGEMENT_COMPONENT_VERSION was added
   // - CHART_DATA_2D_COMPONENT_VERSION was incremented to 2
   // - CHART_COMPONENT_VERSION was incremented to 4
-  public static final int YOUNG_ANDROID_VERSION = 232;
+  // For YOUNG_ANDROID_VERSION 233:
+  // - CLOUDDB_COMPONENT_VERSION was incremented to 3
+  public static final int YOUNG_ANDROID_VERSION = 233;
 
   // ............................... Blocks Language Version Number ...............................
 
@@ -1526,7 +1528,9 @@ public class YaVersion {
   // For CLOUDDB_COMPONENT_VERSION 2:
   // - Added the UpdateDone event
   //   to control its use
-  public static final int CLOUDDB_COMPONENT_VERSION = 2;
+  // For CLOUDDB_COMPONENT_VERSION 3:
+  // - Added the GetValues method and the GotValues event
+  public static final int CLOUDDB_COMPONENT_VERSION = 3;
 
   // For TRENDLINE_COMPONENT_VERSION 1:
   // - Initial implementation
@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2021 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -74,8 +74,13 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -179,6 +184,12 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
   // sorted by increasing sprite.Z().
   private final List<Sprite> sprites;
 
+  // Position of each sprite in sprites, used to report collisions in Z order.
+  private final Map<Sprite, Integer> spriteOrder = new HashMap<Sprite, Integer>();
+
+  // Broad phase of collision detection.
+  private final SpriteGrid spriteGrid = new SpriteGrid();
+
   // Handle touches and drags
   private final MotionEventParser motionEventParser;
 
@@ -828,6 +839,11 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
    * @param sprite the sprite to add
    */
   void addSprite(Sprite sprite) {
+    insertSprite(sprite);
+    updateSpriteOrder();
+  }
+
+  private void insertSprite(Sprite sprite) {
     // Add before first element with greater Z value.
     // This ensures not only that items are in increasing Z value
     // but that sprites whose Z values are always equal are
@@ -852,6 +868,8 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
    */
   void removeSprite(Sprite sprite) {
     sprites.remove(sprite);
+    spriteGrid.remove(sprite);
+    updateSpriteOrder();
   }
 
   /**
@@ -861,11 +879,20 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
    * @param sprite the Sprite whose Z property has changed
    */
   void changeSpriteLayer(Sprite sprite) {
-    removeSprite(sprite);
-    addSprite(sprite);
+    sprites.remove(sprite);
+    insertSprite(sprite);
+    updateSpriteOrder();
     view.invalidate();
   }
 
+  private void updateSpriteOrder() {
+    spriteOrder.clear();
+    int position = 0;
+    for (Sprite sprite : sprites) {
+      spriteOrder.put(sprite, position++);
+    }
+  }
+
   @Override
   public Activity $context() {
     return context;
@@ -911,9 +938,20 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
    */
   void registerChange(Sprite sprite) {
     view.invalidate();
+    spriteGrid.update(sprite);
     findSpriteCollisions(sprite);
   }
 
+  /**
+   * Records the position and size of a sprite for collision detection
+   * without checking for collisions, e.g., before the sprite is initialized.
+   *
+   * @param sprite the sprite whose location or size has changed
+   */
+  void updateSpriteBounds(Sprite sprite) {
+    spriteGrid.update(sprite);
+  }
+
 
   // Methods for detecting collisions
 
@@ -930,10 +968,27 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
    * and
    * {@link com.google.appinventor.components.runtime.Sprite#Enabled()}.
    *
+   * <p>Only the sprites found near the moved sprite by the {@link SpriteGrid}
+   * and the sprites it was colliding with are checked.</p>
+   *
    * @param movedSprite the sprite that has just changed position
    */
   protected void findSpriteCollisions(Sprite movedSprite) {
-    for (Sprite sprite : sprites) {
+    Set<Sprite> candidates = new HashSet<Sprite>(spriteGrid.getCandidates(movedSprite));
+    for (Sprite sprite : movedSprite.getRegisteredCollisions()) {
+      // Sprites removed from the canvas are not reported as no longer colliding.
+      if (spriteOrder.containsKey(sprite)) {
+        candidates.add(sprite);
+      }
+    }
+    List<Sprite> ordered = new ArrayList<Sprite>(candidates);
+    Collections.sort(ordered, new Comparator<Sprite>() {
+      @Override
+      public int compare(Sprite a, Sprite b) {
+        return Integer.compare(order(a), order(b));
+      }
+    });
+    for (Sprite sprite : ordered) {
       if (sprite != movedSprite) {
         // Check whether we already raised an event for their collision.
         if (movedSprite.CollidingWith(sprite)) {
@@ -962,6 +1017,11 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     }
   }
 
+  private int order(Sprite sprite) {
+    Integer position = spriteOrder.get(sprite);
+    return position == null ? Integer.MAX_VALUE : position;
+  }
+
 
   // Properties
 
@@ -1,5 +1,5 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2019-2022 MIT, All rights reserved
+// Copyright 2019-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -14,6 +14,7 @@ import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.data.PieEntry;
 import com.github.mikephil.charting.formatter.ValueFormatter;
 import com.github.mikephil.charting.interfaces.datasets.IDataSet;
+import com.google.appinventor.components.runtime.util.RingBufferList;
 import com.google.appinventor.components.runtime.util.YailList;
 
 import java.util.ArrayList;
@@ -52,7 +53,8 @@ public abstract class ChartDataModel<
     this.data = data;
     this.view = view;
 
-    entries = new ArrayList<>();
+    // Time entries are evicted from the front, which a ring buffer does in constant time.
+    entries = new RingBufferList<>();
   }
 
   /**
@@ -382,6 +384,48 @@ public abstract class ChartDataModel<
     addEntryFromTuple(tuple);
   }
 
+  /**
+   * Checks whether the entries only changed by adding and evicting time
+   * entries since the last call to {@link #markRefreshed()}, in which case
+   * the Chart View can apply just these changes.
+   *
+   * @return true if {@link #getEvictedEntryCount()} and
+   *     {@link #getAddedEntries()} describe all the changes
+   */
+  boolean hasOnlyTimeEntryChanges() {
+    return entries instanceof RingBufferList
+        && ((RingBufferList<E>) entries).hasOnlyFrontAndBackChanges();
+  }
+
+  /**
+   * Returns the number of entries evicted from the start of the Data Series
+   * since the last call to {@link #markRefreshed()}.
+   *
+   * @return number of evicted entries
+   */
+  int getEvictedEntryCount() {
+    return ((RingBufferList<E>) entries).getRemovedFromFront();
+  }
+
+  /**
+   * Returns the entries appended to the Data Series since the last call to
+   * {@link #markRefreshed()}.
+   *
+   * @return copy of the appended entries
+   */
+  List<E> getAddedEntries() {
+    return ((RingBufferList<E>) entries).getAddedToBack();
+  }
+
+  /**
+   * Marks the current entries as passed on to the Chart View.
+   */
+  void markRefreshed() {
+    if (entries instanceof RingBufferList) {
+      ((RingBufferList<E>) entries).mark();
+    }
+  }
+
   /**
    * Sets the maximum time entries to be kept in the Data Series.
    *
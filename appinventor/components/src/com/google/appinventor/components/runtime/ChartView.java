@@ -1,5 +1,5 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2019-2024 MIT, All rights reserved
+// Copyright 2019-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -19,7 +19,7 @@ import com.github.mikephil.charting.data.DataSet;
 import com.github.mikephil.charting.data.Entry;
 
 import com.github.mikephil.charting.interfaces.datasets.IDataSet;
-import java.util.ArrayList;
+import com.google.appinventor.components.runtime.util.RingBufferList;
 import java.util.List;
 
 /**
@@ -135,8 +135,15 @@ public abstract class ChartView<
    * @param model Chart Data Model to update & refresh
    */
   public void refresh(final ChartDataModel<E, T, D, C, V> model) {
-    // Create a new RefreshTask with the model's current List of Entries
-    RefreshTask refreshTask = new RefreshTask(model.getEntries());
+    // Create a new RefreshTask with the model's current List of Entries,
+    // or only with the changes if time entries were just added and evicted
+    RefreshTask refreshTask;
+    if (model.hasOnlyTimeEntryChanges()) {
+      refreshTask = new RefreshTask(model.getEvictedEntryCount(), model.getAddedEntries());
+    } else {
+      refreshTask = new RefreshTask(model.getEntries());
+    }
+    model.markRefreshed();
 
     // Execute the RefreshTask with the ChartDataModel argument
     refreshTask.execute(model);
@@ -152,12 +159,27 @@ public abstract class ChartView<
   private class RefreshTask
       extends AsyncTask<ChartDataModel<E, T, D, C, V>, Void, ChartDataModel<E, T, D, C, V>> {
 
-    // Local copy of latest Chart Entries
+    // Local copy of latest Chart Entries, or null if only the changes are known
     private final List<E> entries;
 
+    // Number of Entries to remove from the start of the shown Entries
+    private final int evicted;
+
+    // Entries to add to the end of the shown Entries
+    private final List<E> added;
+
     public RefreshTask(List<E> entries) {
-      // Create a copy of the passed in Entries List.
-      this.entries = new ArrayList<>(entries);
+      // Create a copy of the passed in Entries List. A ring buffer lets
+      // later refreshes evict the oldest time entries cheaply.
+      this.entries = new RingBufferList<>(entries);
+      this.evicted = 0;
+      this.added = null;
+    }
+
+    public RefreshTask(int evicted, List<E> added) {
+      this.entries = null;
+      this.evicted = evicted;
+      this.added = added;
     }
 
     @SafeVarargs
@@ -175,8 +197,39 @@ public abstract class ChartView<
       // local Entries List copy. This is done on the UI
       // thread to avoid exceptions (onPostExecute runs
       // on the UI)
-      refresh(result, entries);
+      if (entries != null) {
+        refresh(result, entries);
+        return;
+      }
+
+      // Apply the changes to the Entries shown, which are the copy
+      // set by the previous refresh.
+      List<E> values = getShownEntries(result);
+      if (values instanceof RingBufferList) {
+        for (int i = 0; i < evicted; i++) {
+          values.remove(0);
+        }
+        values.addAll(added);
+      } else {
+        values = new RingBufferList<>(result.getEntries());
+      }
+      refresh(result, values);
+    }
+  }
+
+  /**
+   * Returns the Entries currently shown for the specified Chart Data Model.
+   *
+   * @param model Chart Data Model to get the Entries of
+   * @return List of Entries set by the last refresh, or null if unknown
+   */
+  @SuppressWarnings("unchecked")
+  private List<E> getShownEntries(ChartDataModel<E, T, D, C, V> model) {
+    T dataset = model.getDataset();
+    if (dataset instanceof DataSet) {
+      return ((DataSet<E>) dataset).getValues();
     }
+    return null;
   }
 
   /**
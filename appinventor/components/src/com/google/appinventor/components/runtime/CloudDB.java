@@ -1,5 +1,5 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2017-2022 MIT, All rights reserved
+// Copyright 2017-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -249,6 +249,11 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
   // iterates over the queue until it is drained.
   private final List<storedValue> storeQueue = Collections.synchronizedList(new ArrayList());
 
+  // GetValue is often called many times in a row, for example to restore the state of an app
+  // when a screen opens. Requests made while handling the same event are queued here and
+  // fetched together, with a single round trip to the server, once the event handler returns.
+  private final List<pendingGet> getQueue = new ArrayList<pendingGet>();
+
   private ConnectivityManager cm;
 
   // Set of observers
@@ -271,6 +276,15 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
     }
   }
 
+  private static class pendingGet {
+    private final String tag;
+    private final Object valueIfTagNotThere;
+    pendingGet(String tag, Object valueIfTagNotThere) {
+      this.tag = tag;
+      this.valueIfTagNotThere = valueIfTagNotThere;
+    }
+  }
+
   /**
    * Creates a new CloudDB component.
    * @param container the Form that this component is contained in.
@@ -608,6 +622,7 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
       if (DEBUG) {
         Log.d(LOG_TAG,"Device is online...");
       }
+      flushGetQueue();            // Reads requested before this store see the old value
       synchronized(storeQueue) {
         boolean kickit = false;
         if (storeQueue.size() == 0) { // Need to kick off the background task
@@ -755,25 +770,17 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
     if (isConnected) {
       // Set value to either the JSON from the CloudDB
       // or the JSON representation of valueIfTagNotThere
-      background.submit(new Runnable() {
-          public void run() {
-            final AtomicReference<Object> value = getValueByTag(tag, valueIfTagNotThere);
-
-            // Value stored is null; Return
-            if (value.get() == null) {
-              return;
-            }
-
-            androidUIHandler.post(new Runnable() {
-                public void run() {
-                  // Signal an event to indicate that the value was
-                  // received.  We post this to run in the Application's main
-                  // UI thread.
-                  GotValue(tag, value.get());
-                }
-              });
-          }
-        });
+      synchronized (getQueue) {
+        getQueue.add(new pendingGet(tag, valueIfTagNotThere));
+        if (getQueue.size() == 1) {
+          // Runs after the current event handler, so that all of its requests are sent together.
+          androidUIHandler.post(new Runnable() {
+              public void run() {
+                flushGetQueue();
+              }
+            });
+        }
+      }
     } else {
       if (DEBUG) {
         Log.d(LOG_TAG, "GetValue(): We're offline");
@@ -782,6 +789,97 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
     }
   }
 
+  /**
+   * Fetches the values of all the queued {@link #GetValue(String, Object)} requests in one
+   * round trip, then signals a {@link #GotValue(String, Object)} event for each of them, in the
+   * order they were requested.
+   *
+   * <p>Every other request calls this before it hands its work to the background thread, so
+   * the server sees the requests in the order the blocks made them.
+   */
+  private void flushGetQueue() {
+    final List<pendingGet> batch;
+    synchronized (getQueue) {
+      if (getQueue.isEmpty()) {
+        return;
+      }
+      batch = new ArrayList<pendingGet>(getQueue);
+      getQueue.clear();
+    }
+    if (DEBUG) {
+      Log.d(LOG_TAG, "Fetching " + batch.size() + " queued tags");
+    }
+    final List<String> tags = new ArrayList<String>(batch.size());
+    final List<Object> valuesIfTagNotThere = new ArrayList<Object>(batch.size());
+    for (pendingGet get : batch) {
+      tags.add(get.tag);
+      valuesIfTagNotThere.add(get.valueIfTagNotThere);
+    }
+    background.submit(new Runnable() {
+        public void run() {
+          final List<Object> values = getValuesByTags(tags, valuesIfTagNotThere);
+          androidUIHandler.post(new Runnable() {
+              public void run() {
+                // Signal an event for each value received. We post a single
+                // runnable to the Application's main UI thread for the whole batch.
+                for (int i = 0; i < tags.size(); i++) {
+                  // Value stored is null; Skip
+                  if (values.get(i) != null) {
+                    GotValue(tags.get(i), values.get(i));
+                  }
+                }
+              }
+            });
+        }
+      });
+  }
+
+  /**
+   * `GetValues` asks `CloudDB` to get the values stored under the given tags, with a single
+   * request to the server. It will pass the results to the {@link #GotValues(List, List)} event.
+   * If there is no value stored under a tag, the `valueIfTagNotThere`{:.variable.block} will be
+   * given for it.
+   *
+   * @param tags The tags whose values are to be retrieved.
+   * @param valueIfTagNotThere The value to pass to the event for the tags that do not exist.
+   */
+  @SimpleFunction(description = "Get the Values for a list of tags, doesn't return the " +
+    "values but will cause a GotValues event to fire when the " +
+    "values are looked up.")
+  public void GetValues(final YailList tags, final Object valueIfTagNotThere) {
+    checkProjectIDNotBlank();
+    NetworkInfo networkInfo = cm.getActiveNetworkInfo();
+    boolean isConnected = networkInfo != null && networkInfo.isConnected();
+    if (!isConnected) {
+      CloudDBError("Cannot fetch variables while off-line.");
+      return;
+    }
+    final List<String> tagList = new ArrayList<String>();
+    final List<Object> valuesIfTagNotThere = new ArrayList<Object>();
+    for (String tag : tags.toStringArray()) {
+      tagList.add(tag);
+      valuesIfTagNotThere.add(valueIfTagNotThere);
+    }
+    if (tagList.isEmpty()) {
+      GotValues(tagList, valuesIfTagNotThere);
+      return;
+    }
+    flushGetQueue();
+    background.submit(new Runnable() {
+        public void run() {
+          final List<Object> values = getValuesByTags(tagList, valuesIfTagNotThere);
+          if (values.contains(null)) {
+            return;  // The error has been reported.
+          }
+          androidUIHandler.post(new Runnable() {
+              public void run() {
+                GotValues(tagList, values);
+              }
+            });
+        }
+      });
+  }
+
   /**
    * Gets the specified value from the underlying Redis database, or
    * returns the specified value if the tag is not present.
@@ -834,7 +932,63 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
 
     return value;
   }
- 
+
+  /**
+   * Gets the specified values from the underlying Redis database with a
+   * single MGET command, in the order of {@code tags}.
+   *
+   * <p>The value for a tag will be null in case of exceptions.
+   *
+   * @param tags  tags of the values to get
+   * @param valuesIfTagNotThere  values to use for the tags that are not present
+   * @return  the JSON representation of the values
+   */
+  private List<Object> getValuesByTags(List<String> tags, List<Object> valuesIfTagNotThere) {
+    List<Object> values = new ArrayList<Object>(tags.size());
+    String[] keys = new String[tags.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = projectID + ":" + tags.get(i);
+    }
+
+    List<String> returnValues;
+    try {
+      Jedis jedis = getJedis();
+      if (DEBUG) {
+        Log.d(LOG_TAG, "about to call jedis.mget() for " + keys.length + " tags");
+      }
+      returnValues = jedis.mget(keys);
+    } catch (NullPointerException e) {
+      CloudDBError("System Error getting tags " + tags);
+      flushJedis(true);
+      returnValues = null;
+    } catch (JedisException e) {
+      Log.e(LOG_TAG, "Exception in GetValue", e);
+      CloudDBError(e.getMessage());
+      flushJedis(true);
+      returnValues = null;
+    }
+
+    for (int i = 0; i < keys.length; i++) {
+      if (returnValues == null) {
+        values.add(null);
+        continue;
+      }
+      String returnValue = returnValues.get(i);
+      try {
+        if (returnValue != null) {
+          String val = JsonUtil.getJsonRepresentationIfValueFileName(form, returnValue);
+          values.add(val != null ? val : returnValue);
+        } else {
+          values.add(JsonUtil.getJsonRepresentation(valuesIfTagNotThere.get(i)));
+        }
+      } catch (JSONException e) {
+        CloudDBError("JSON conversion error for " + tags.get(i));
+        values.add(null);
+      }
+    }
+    return values;
+  }
+
   /**
    * Returns `true`{:.logic.block} if we are on the network and will likely be able to connect to
    * the `CloudDB` server.
@@ -923,6 +1077,7 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
 
     final String key = tag;
 
+    flushGetQueue();
     background.submit(new Runnable() {
         public void run() {
           Jedis jedis = getJedis();
@@ -981,6 +1136,7 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
     final String item = (String) itemObject;
     final String key = tag;
 
+    flushGetQueue();
     background.submit(new Runnable() {
         public void run() {
           Jedis jedis = getJedis();
@@ -1031,6 +1187,35 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
     EventDispatcher.dispatchEvent(this, "GotValue", tag, value);
   }
 
+  /**
+   * Indicates that a {@link #GetValues(YailList, Object)} request has succeeded. The
+   * `values`{:.variable.block} are in the same order as the `tags`{:.text.block}.
+   *
+   * @param tags the tags that were requested
+   * @param values the values that were returned
+   */
+  @SimpleEvent(description = "Indicates that a GetValues request has succeeded. The values " +
+      "are in the same order as the tags.")
+  public void GotValues(List<String> tags, List<Object> values) {
+    checkProjectIDNotBlank();
+    List<Object> result = new ArrayList<Object>(values.size());
+    try {
+      for (int i = 0; i < values.size(); i++) {
+        Object value = values.get(i);
+        if (value instanceof String) {
+          value = JsonUtil.getObjectFromJson((String) value, true);
+        }
+        notifyDataObservers(tags.get(i), value);
+        result.add(value);
+      }
+    } catch(JSONException e) {
+      throw new YailRuntimeError("Value failed to convert from JSON.", "JSON Retrieval Error.");
+    }
+
+    // Invoke the application's "GotValues" event handler
+    EventDispatcher.dispatchEvent(this, "GotValues", tags, result);
+  }
+
   /**
    * Remove the tag from CloudDB.
    *
@@ -1042,6 +1227,7 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
   @SimpleFunction(description = "Remove the tag from CloudDB.")
   public void ClearTag(final String tag) {
     checkProjectIDNotBlank();
+    flushGetQueue();
     background.submit(new Runnable() {
         public void run() {
           try {
@@ -1090,6 +1276,7 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
     NetworkInfo networkInfo = cm.getActiveNetworkInfo();
     boolean isConnected = networkInfo != null && networkInfo.isConnected();
     if (isConnected) {
+      flushGetQueue();
       background.submit(new Runnable() {
           public void run() {
 
@@ -1452,6 +1639,7 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
    */
   @Override
   public Future<YailList> getDataValue(final String key) {
+    flushGetQueue();
     return background.submit(new Callable<YailList>() {
       @Override
       public YailList call() {
@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2012 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -8,14 +8,22 @@ package com.google.appinventor.components.runtime;
 
 import android.util.Log;
 
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Dispatches events to component event handlers.
  *
+ * <p>Handlers are registered by component name, because the blocks refer to components by name and
+ * the REPL may rebind a name at any time. The first time an event of a component is dispatched,
+ * every closure registered for the event name is offered to the dispatch delegate, which only
+ * accepts the one whose name is bound to the component. The accepted closure is then remembered
+ * for that component instance, so later events of the same component go straight to their handler.
+ * The remembered routes are dropped whenever the registrations change or a component is renamed or
+ * deleted, and a route that stops being accepted falls back to offering every closure.</p>
+ *
  * @author markf@google.com (Mark Friedman)
  * @author lizlooney@google.com (Liz Looney)
  */
@@ -67,8 +75,13 @@ public class EventDispatcher {
     // Note that by using a Set here, we'll only have one closure corresponding to a
     // given componentId-eventName.  We do not support invoking multiple handlers for a
     // single event.
-    private final HashMap<String, Set<EventClosure>> eventClosuresMap =
-        new HashMap<String, Set<EventClosure>>();
+    // The sets are never modified once stored, so that they can be read without locking.
+    private final ConcurrentHashMap<String, Set<EventClosure>> eventClosuresMap =
+        new ConcurrentHashMap<String, Set<EventClosure>>();
+
+    // Mapping of component instances to the event closure that handled each of their events.
+    private final ConcurrentHashMap<Component, Map<String, EventClosure>> routes =
+        new ConcurrentHashMap<Component, Map<String, EventClosure>>();
 
     EventRegistry(HandlesEventDispatching dispatchDelegate) {
       this.dispatchDelegate = dispatchDelegate;
@@ -77,8 +90,9 @@ public class EventDispatcher {
 
   private static final boolean DEBUG = false;
 
-  private static final Map<HandlesEventDispatching, EventRegistry>
-      mapDispatchDelegateToEventRegistry = new HashMap<HandlesEventDispatching, EventRegistry>();
+  private static final ConcurrentHashMap<HandlesEventDispatching, EventRegistry>
+      mapDispatchDelegateToEventRegistry =
+          new ConcurrentHashMap<HandlesEventDispatching, EventRegistry>();
 
   private EventDispatcher() {
   }
@@ -87,7 +101,10 @@ public class EventDispatcher {
     EventRegistry er = mapDispatchDelegateToEventRegistry.get(dispatchDelegate);
     if (er == null) {
       er = new EventRegistry(dispatchDelegate);
-      mapDispatchDelegateToEventRegistry.put(dispatchDelegate, er);
+      EventRegistry existing = mapDispatchDelegateToEventRegistry.putIfAbsent(dispatchDelegate, er);
+      if (existing != null) {
+        er = existing;
+      }
     }
     return er;
   }
@@ -114,6 +131,8 @@ public class EventDispatcher {
         ? new HashSet<EventClosure>() : new HashSet<>(eventClosures);
     newEventClosures.add(new EventClosure(componentId, eventName));
     er.eventClosuresMap.put(eventName, newEventClosures);
+    // A new closure may take over events that were routed elsewhere.
+    er.routes.clear();
 
     if (DEBUG) {
       Log.i("EventDispatcher", "Registered event closure for " +
@@ -149,6 +168,7 @@ public class EventDispatcher {
       }
     }
     er.eventClosuresMap.put(eventName, updated);
+    forgetRoutesTo(er, componentId, eventName);
   }
 
   /**
@@ -159,6 +179,29 @@ public class EventDispatcher {
   public static synchronized void unregisterAllEventsForDelegation() {
     for (EventRegistry er : mapDispatchDelegateToEventRegistry.values()) {
       er.eventClosuresMap.clear();
+      er.routes.clear();
+    }
+  }
+
+  /**
+   * Forgets how the events of the given component were routed, because the component was renamed
+   * or deleted. If component is null, the routes of every component of the dispatchDelegate are
+   * forgotten.
+   *
+   * @param dispatchDelegate  object responsible for dispatching the events
+   * @param component  the renamed or deleted component, or null
+   */
+  // Don't delete this method. It's called from runtime.scm.
+  public static void unregisterComponentRoutes(HandlesEventDispatching dispatchDelegate,
+                                               Component component) {
+    EventRegistry er = mapDispatchDelegateToEventRegistry.get(dispatchDelegate);
+    if (er == null) {
+      return;
+    }
+    if (component == null) {
+      er.routes.clear();
+    } else {
+      er.routes.remove(component);
     }
   }
 
@@ -173,6 +216,7 @@ public class EventDispatcher {
     EventRegistry er = removeEventRegistry(dispatchDelegate);
     if (er != null) {
       er.eventClosuresMap.clear();
+      er.routes.clear();
     }
   }
 
@@ -183,7 +227,7 @@ public class EventDispatcher {
    * @param eventName  name of event being raised
    * @param args  arguments to the event handler
    */
-  public static synchronized boolean dispatchEvent(Component component, String eventName, Object...args) {
+  public static boolean dispatchEvent(Component component, String eventName, Object...args) {
     return Boolean.TRUE == dispatchFallibleEvent(component, eventName, args);
   }
 
@@ -196,7 +240,7 @@ public class EventDispatcher {
    * @return `Boolean.TRUE` if the event was dispatched, `Boolean.FALSE` if no event handler was
    * found, or an Exception if the event handler threw an Exception
    */
-  public static synchronized Object dispatchFallibleEvent(Component component, String eventName, Object... args) {
+  public static Object dispatchFallibleEvent(Component component, String eventName, Object... args) {
     if (DEBUG) {
       Log.i("EventDispatcher", "Trying to dispatch event " + eventName);
     }
@@ -206,9 +250,19 @@ public class EventDispatcher {
       HandlesEventDispatching dispatchDelegate = component.getDispatchDelegate();
       if (dispatchDelegate.canDispatchEvent(component, eventName)) {
         EventRegistry er = getEventRegistry(dispatchDelegate);
-        Set<EventClosure> eventClosures = er.eventClosuresMap.get(eventName);
-        if (eventClosures != null && eventClosures.size() > 0) {
-          dispatched = delegateDispatchEvent(dispatchDelegate, eventClosures, component, args);
+        Map<String, EventClosure> componentRoutes = er.routes.get(component);
+        EventClosure route = componentRoutes == null ? null : componentRoutes.get(eventName);
+        if (route != null && dispatchDelegate.dispatchEvent(component, route.componentId,
+            route.eventName, args)) {
+          dispatched = true;
+        } else {
+          if (route != null) {
+            componentRoutes.remove(eventName);
+          }
+          Set<EventClosure> eventClosures = er.eventClosuresMap.get(eventName);
+          if (eventClosures != null && eventClosures.size() > 0) {
+            dispatched = delegateDispatchEvent(er, eventClosures, component, route, args);
+          }
         }
         dispatchDelegate.dispatchGenericEvent(component, eventName, !dispatched, args);
       }
@@ -219,21 +273,29 @@ public class EventDispatcher {
   }
 
   /**
-   * Delegates the dispatch of an event to the dispatch delegate.
+   * Delegates the dispatch of an event to the dispatch delegate, and remembers which closure
+   * handled it.
    *
+   * @param er the event registry of the dispatch delegate
    * @param eventClosures set of event closures matching the event name
    * @param component the component that generated the event
+   * @param tried a closure that was already offered the event, or null
    * @param args  arguments to event handler
    */
-  private static synchronized boolean delegateDispatchEvent(HandlesEventDispatching dispatchDelegate,
+  private static boolean delegateDispatchEvent(EventRegistry er,
                                                Set<EventClosure> eventClosures,
-                                               Component component, Object... args) {
+                                               Component component, EventClosure tried,
+                                               Object... args) {
     // The event closures set will contain all event closures matching the event name.
     // We depend on the delegate's dispatchEvent method to check the registered event closure and
     // only dispatch the event if the registered component matches the component that generated the
     // event.  This should only be true for one (or zero) of the closures.
+    HandlesEventDispatching dispatchDelegate = er.dispatchDelegate;
     boolean dispatched = false;
     for (EventClosure eventClosure : eventClosures) {
+      if (eventClosure.equals(tried)) {
+        continue;
+      }
       if (dispatchDelegate.dispatchEvent(component,
                                          eventClosure.componentId,
                                          eventClosure.eventName,
@@ -243,11 +305,34 @@ public class EventDispatcher {
               eventClosure.componentId + "." + eventClosure.eventName);
         }
         dispatched = true;  // break here or keep iterating through loop?
+        rememberRoute(er, component, eventClosure);
       }
     }
     return dispatched;
   }
 
+  private static void rememberRoute(EventRegistry er, Component component,
+                                    EventClosure eventClosure) {
+    Map<String, EventClosure> componentRoutes = er.routes.get(component);
+    if (componentRoutes == null) {
+      componentRoutes = new ConcurrentHashMap<String, EventClosure>();
+      Map<String, EventClosure> existing = er.routes.putIfAbsent(component, componentRoutes);
+      if (existing != null) {
+        componentRoutes = existing;
+      }
+    }
+    componentRoutes.put(eventClosure.eventName, eventClosure);
+  }
+
+  private static void forgetRoutesTo(EventRegistry er, String componentId, String eventName) {
+    for (Map<String, EventClosure> componentRoutes : er.routes.values()) {
+      EventClosure route = componentRoutes.get(eventName);
+      if (route != null && route.componentId.equals(componentId)) {
+        componentRoutes.remove(eventName);
+      }
+    }
+  }
+
   // Don't delete this method. It's called from runtime.scm.
   public static String makeFullEventName(String componentId, String eventName) {
     if (DEBUG) {
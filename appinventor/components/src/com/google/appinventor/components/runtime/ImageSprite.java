@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2019 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -22,6 +22,7 @@ import com.google.appinventor.components.common.ComponentCategory;
 import com.google.appinventor.components.common.PropertyTypeConstants;
 import com.google.appinventor.components.common.YaVersion;
 
+import com.google.appinventor.components.runtime.util.BoundingBox;
 import com.google.appinventor.components.runtime.util.MediaUtil;
 import com.google.appinventor.components.runtime.util.Vector2D;
 
@@ -203,6 +204,26 @@ public class ImageSprite extends Sprite {
     return corners;
   }
 
+  @Override
+  BoundingBox getCollisionBounds() {
+    if (!rotates) {
+      return super.getCollisionBounds();
+    }
+    // The rotated corners can stick out of the unrotated bounding box.
+    java.util.List<Vector2D> corners = getExtremityVectors();
+    double left = corners.get(0).getX();
+    double top = corners.get(0).getY();
+    double right = left;
+    double bottom = top;
+    for (Vector2D corner : corners) {
+      left = Math.min(left, corner.getX());
+      top = Math.min(top, corner.getY());
+      right = Math.max(right, corner.getX());
+      bottom = Math.max(bottom, corner.getY());
+    }
+    return new BoundingBox(left - 1, top - 1, right + 1, bottom + 1);
+  }
+
   // If the image is rotated return the vector toRotate after rotation
   private Vector2D getVectorRotated(Vector2D toRotate) {
     if (rotates) {
@@ -1,5 +1,5 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2019 - 2025 MIT, All rights reserved
+// Copyright 2019 - 2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -20,6 +20,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.appinventor.components.runtime.util.YailDictionary;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public abstract class ListAdapterWithRecyclerView
@@ -38,52 +39,154 @@ public abstract class ListAdapterWithRecyclerView
   protected List<Integer> selectedItems = new ArrayList<>();
   protected String lastQuery = "";
 
+  /**
+   * SearchIndex holds a snapshot of the items and, for each item, the lowercased text the filter
+   * bar searches. The text is computed once per set of items rather than on every keystroke.
+   */
+  static final class SearchIndex {
+    final List<Object> items;
+    private String[] keys = null;
+
+    SearchIndex(List<Object> items) {
+      this.items = new ArrayList<>(items);
+    }
+
+    int size() {
+      return items.size();
+    }
+
+    /**
+     * Finds the items whose text contains {@code query}.
+     *
+     * @param query the lowercased query
+     * @param candidates the ascending positions of the items to search, or null to search all
+     * @return the ascending positions of the matching items
+     */
+    int[] search(String query, int[] candidates) {
+      String[] keys = getKeys();
+      int count = candidates == null ? keys.length : candidates.length;
+      int[] matches = new int[count];
+      int found = 0;
+      for (int i = 0; i < count; i++) {
+        int position = candidates == null ? i : candidates[i];
+        if (keys[position].contains(query)) {
+          matches[found++] = position;
+        }
+      }
+      return Arrays.copyOf(matches, found);
+    }
+
+    // Built on the filter thread the first time the list is filtered.
+    private synchronized String[] getKeys() {
+      if (keys == null) {
+        String[] newKeys = new String[items.size()];
+        for (int i = 0; i < newKeys.length; i++) {
+          newKeys[i] = getFilterString(items.get(i)).toLowerCase();
+        }
+        keys = newKeys;
+      }
+      return keys;
+    }
+
+    private static String getFilterString(Object item) {
+      if (item instanceof YailDictionary
+          && ((YailDictionary) item).containsKey(Component.LISTVIEW_KEY_MAIN_TEXT)) {
+        Object o = ((YailDictionary) item).get(Component.LISTVIEW_KEY_DESCRIPTION);
+        String filterString = ((YailDictionary) item).get(Component.LISTVIEW_KEY_MAIN_TEXT)
+            .toString();
+        if (o != null) {
+          filterString += " " + o.toString();
+        }
+        return filterString;
+      }
+      return item.toString();
+    }
+  }
+
+  /**
+   * The items of a search index shown for a query.
+   */
+  static final class FilterResult {
+    final SearchIndex index;
+    final String query;
+    final int[] positions;  // null when all the items are shown
+
+    FilterResult(SearchIndex index, String query, int[] positions) {
+      this.index = index;
+      this.query = query;
+      this.positions = positions;
+    }
+
+    int size() {
+      return positions == null ? index.size() : positions.length;
+    }
+
+    int positionAt(int i) {
+      return positions == null ? i : positions[i];
+    }
+
+    /**
+     * Filters the items of {@code index}, narrowing this result when it is for the same items and
+     * {@code query} contains its query, since the matches are then a subset of its matches.
+     */
+    FilterResult filter(SearchIndex index, String query) {
+      if (query.length() == 0) {
+        return new FilterResult(index, query, null);
+      }
+      boolean narrow = this.index == index && query.contains(this.query);
+      return new FilterResult(index, query, index.search(query, narrow ? positions : null));
+    }
+  }
+
+  private volatile SearchIndex searchIndex = new SearchIndex(new ArrayList<>());
+  // The result shown by the adapter, only accessed on the UI thread.
+  private FilterResult shown = new FilterResult(searchIndex, "", null);
+  // The last result computed by the filter, only accessed on the filter thread.
+  private FilterResult lastResult = shown;
+
   protected final Filter filter = new Filter() {
     @Override
     protected FilterResults performFiltering(CharSequence charSequence) {
-      lastQuery = charSequence.toString().toLowerCase();
+      // This runs on a worker thread, so the state of the adapter is only changed when the
+      // results are published on the UI thread.
+      String query = charSequence == null ? "" : charSequence.toString().toLowerCase();
+      FilterResult result = lastResult.filter(searchIndex, query);
+      lastResult = result;
       FilterResults results = new FilterResults();
-      List<Object> filteredList = new ArrayList<>();
-      originalPositions = new ArrayList<>();
-      if (lastQuery == null || lastQuery.length() == 0) {
-        filteredList = new ArrayList<>(originalItems);
-        items = new ArrayList<>(originalItems);
-      } else {
-        for (int index = 0; index < originalItems.size(); index++) {
-          Object item = originalItems.get(index);
-          String filterString;
-          if (item instanceof YailDictionary) {
-            if (((YailDictionary) item).containsKey(Component.LISTVIEW_KEY_MAIN_TEXT)) {
-              Object o = ((YailDictionary) item).get(Component.LISTVIEW_KEY_DESCRIPTION);
-              filterString = ((YailDictionary) item).get(Component.LISTVIEW_KEY_MAIN_TEXT).toString();
-              if (o != null) {
-                filterString += " " + o.toString();
-              }
-            } else {
-              filterString = item.toString();
-            }
-          } else {
-            filterString = item.toString();
-          }
-          if (filterString.toLowerCase().contains(lastQuery)) {
-            filteredList.add(item);
-            originalPositions.add(index);
-          }
-        }
-      }
-      results.count = filteredList.size();
-      results.values = filteredList;
+      results.count = result.size();
+      results.values = result;
       return results;
     }
 
     @Override
     protected void publishResults(CharSequence charSequence, FilterResults filterResults) {
-      items = new ArrayList<>((List<Object>) filterResults.values);
+      FilterResult result = (FilterResult) filterResults.values;
+      if (result.index != searchIndex) {
+        // The items changed while filtering, and updateData has filtered them again.
+        return;
+      }
+      FilterResult previous = shown;
+      List<Integer> previousSelection = new ArrayList<>();
+      for (int position : selectedItems) {
+        if (position < previous.size()) {
+          previousSelection.add(previous.positionAt(position));
+        }
+      }
+      showResult(result);
       clearSelections();
-      notifyDataSetChanged();
-      // We store the original data in the originalItems variable
-      // We store the original item indexes in the originalPositions variable
-      // We have eliminated hiding/showing CardView to improve performance
+      if (previous.index != result.index) {
+        notifyDataSetChanged();
+        return;
+      }
+      notifyDifference(previous, result);
+      // Redraw the items that were shown as selected.
+      for (int originalPosition : previousSelection) {
+        int position = result.positions == null ? originalPosition
+            : Arrays.binarySearch(result.positions, originalPosition);
+        if (position >= 0) {
+          notifyItemChanged(position);
+        }
+      }
     }
   };
 
@@ -98,14 +201,67 @@ public abstract class ListAdapterWithRecyclerView
 
   public void updateData(List<Object> newItems) {
     this.originalItems = newItems;
-    if (originalPositions.isEmpty()) {
-      this.items = new ArrayList<>(newItems);
+    this.searchIndex = new SearchIndex(newItems);
+    if (lastQuery.length() == 0) {
+      showResult(new FilterResult(searchIndex, "", null));
     } else {
       filter.filter(lastQuery);
     }
     clearSelections();
   }
 
+  private void showResult(FilterResult result) {
+    shown = result;
+    lastQuery = result.query;
+    List<Object> newItems = new ArrayList<>(result.size());
+    List<Integer> newPositions = new ArrayList<>();
+    if (result.positions == null) {
+      newItems.addAll(result.index.items);
+    } else {
+      for (int position : result.positions) {
+        newItems.add(result.index.items.get(position));
+        newPositions.add(position);
+      }
+    }
+    items = newItems;
+    originalPositions = newPositions;
+  }
+
+  /**
+   * Notifies the view of the items inserted and removed between two results for the same items.
+   * Both results list items in their original order, so a single merge finds the difference and
+   * the items shown by both are not bound again.
+   */
+  private void notifyDifference(FilterResult from, FilterResult to) {
+    int i = 0;
+    int j = 0;
+    int adapterPosition = 0;
+    while (i < from.size() || j < to.size()) {
+      int a = i < from.size() ? from.positionAt(i) : Integer.MAX_VALUE;
+      int b = j < to.size() ? to.positionAt(j) : Integer.MAX_VALUE;
+      if (a == b) {
+        i++;
+        j++;
+        adapterPosition++;
+      } else if (a < b) {
+        int count = 0;
+        while (i < from.size() && from.positionAt(i) < b) {
+          i++;
+          count++;
+        }
+        notifyItemRangeRemoved(adapterPosition, count);
+      } else {
+        int count = 0;
+        while (j < to.size() && to.positionAt(j) < a) {
+          j++;
+          count++;
+        }
+        notifyItemRangeInserted(adapterPosition, count);
+        adapterPosition += count;
+      }
+    }
+  }
+
   protected CardView createCardView(ViewGroup parent) {
     CardView cardView = new CardView(container.$context());
     cardView.setContentPadding(15, 15, 15, 15);
@@ -1,5 +1,5 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2020 MIT, All rights reserved
+// Copyright 2020-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -15,17 +15,55 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Includes helper methods for getting the abstract enum value associated with a concrete value for
  * a given SimpleMethod, SimpleProperty, or SimpleEvent. Used in combination with the @Options
  * annotation in the declaration of the component.
+ *
+ * <p>The option lists of each component method are looked up once per component class, and the
+ * fromUnderlyingValue method of each option list once per type of value, so that converting a
+ * value does not search the methods of any class.</p>
  */
 public class OptionHelper {
 
-  private static final Map<String, Map<String, Method>> componentMethods =
-      new HashMap<String, Map<String, Method>>();
-    
+  /**
+   * The option lists associated with the result and the parameters of a component method.
+   */
+  private static final class OptionLists {
+    // Option list of the result, or null.
+    private final Class<?> result;
+    // Option list of each parameter, or null for the parameters that have none.
+    private final Class<?>[] params;
+
+    private OptionLists(Class<?> result, Class<?>[] params) {
+      this.result = result;
+      this.params = params;
+    }
+  }
+
+  /**
+   * The fromUnderlyingValue method of an option list for a type of value, or null if the option
+   * list has no such method.
+   */
+  private static final class Converter {
+    private final Method fromValue;
+
+    private Converter(Method fromValue) {
+      this.fromValue = fromValue;
+    }
+  }
+
+  // Maps each component class to the option lists of its relevant methods. Methods without any
+  // option list are left out.
+  private static final Map<Class<?>, Map<String, OptionLists>> componentOptionLists =
+      new ConcurrentHashMap<Class<?>, Map<String, OptionLists>>();
+
+  // Maps each option list class to its converters, by type of underlying value.
+  private static final Map<Class<?>, Map<Class<?>, Converter>> converters =
+      new ConcurrentHashMap<Class<?>, Map<Class<?>, Converter>>();
+
   /**
    * Returns the OptionList version of the value if the function's return type has an @Options
    * annotation notating that the value can be coerced to an OptionList.
@@ -36,33 +74,15 @@ public class OptionHelper {
    *     concrete value.
    */
   public static <T> Object optionListFromValue(Object c, String func, T value) {
-    Method calledFunc = getMethod(c, func);
-    if (calledFunc == null) {
+    OptionLists optionLists = getOptionLists(c, func);
+    if (optionLists == null || optionLists.result == null || value == null) {
       // Doesn't exist or not relevant.
       return value;
     }
-    Options annotation = calledFunc.getAnnotation(Options.class);
-    if (annotation == null) {
-      return value;
-    }
-    Class<?> optionListClass = annotation.value();
-    try {
-      Method fromValue = optionListClass.getMethod("fromUnderlyingValue", value.getClass());
-      // Java generally shouldn't return values that aren't defined in the OptionList, but
-      // extensions might override a function to return values that aren't included. If the value
-      // isn't included, just return the concrete value.
-      Object abstractVal = fromValue.invoke(optionListClass, value);
-      if (abstractVal != null) {
-        return abstractVal;
-      }
-      return value;
-    } catch (NoSuchMethodException e) {
-      return value;
-    } catch (IllegalAccessException e) {
-      return value;
-    } catch (InvocationTargetException e) {
-      return value;
-    }
+    // Java generally shouldn't return values that aren't defined in the OptionList, but
+    // extensions might override a function to return values that aren't included. If the value
+    // isn't included, just return the concrete value.
+    return convert(optionLists.result, value);
   }
 
   /**
@@ -78,66 +98,89 @@ public class OptionHelper {
     if (args.length == 0) {
       return args;
     }
-    Method calledFunc = getMethod(c, func);
-    if (calledFunc == null) {
+    OptionLists optionLists = getOptionLists(c, func);
+    if (optionLists == null || optionLists.params == null) {
       return args;
     }
-    Annotation[][] paramAnnotations = calledFunc.getParameterAnnotations();
-    int i = 0;
-    for (Annotation[] annotations : paramAnnotations) {
-      for (Annotation annotation : annotations) {
-        if (annotation.annotationType() == Options.class) {
-          Options castAnnotation = (Options) annotation;
-          Class<?> optionListClass = castAnnotation.value();
-          try {
-            Method fromValue = optionListClass.getMethod("fromUnderlyingValue", args[i].getClass());
-            // Extensions might send values to events which aren't covered by the OptionList
-            // definition. In that case send the concrete value. See here for an example:
-            // https://github.com/BeksOmega/appinventor-sources/pull/24#discussion_r480355676
-            Object abstractVal = fromValue.invoke(optionListClass, args[i]);
-            if (abstractVal != null) {
-              args[i] = abstractVal;
-            }
-          } catch (NoSuchMethodException e) {
-            // If it doesn't exist just continue.
-          } catch (IllegalAccessException e) {
-            // If it's not accessible just continue.
-          } catch (InvocationTargetException e) {
-            // If it doesn't work just continue.
-          }
-          break;
-        }
+    int count = Math.min(args.length, optionLists.params.length);
+    for (int i = 0; i < count; i++) {
+      Class<?> optionListClass = optionLists.params[i];
+      if (optionListClass != null && args[i] != null) {
+        // Extensions might send values to events which aren't covered by the OptionList
+        // definition. In that case send the concrete value. See here for an example:
+        // https://github.com/BeksOmega/appinventor-sources/pull/24#discussion_r480355676
+        args[i] = convert(optionListClass, args[i]);
       }
-      i++;
     }
     return args;
   }
 
   /**
-   * Returns the Method associated with the given component and function name. Returns null if the
-   * Method does not exist or shouldn't be operated on in this context (e.g. a void method).
+   * Converts a concrete value to the matching value of an OptionList, using the
+   * fromUnderlyingValue method of the OptionList.
+   * @param optionListClass The OptionList class.
+   * @param value The concrete value.
+   * @return The OptionList value, or the concrete value if it could not be converted.
+   */
+  private static Object convert(Class<?> optionListClass, Object value) {
+    Map<Class<?>, Converter> classConverters = converters.get(optionListClass);
+    if (classConverters == null) {
+      classConverters = new ConcurrentHashMap<Class<?>, Converter>();
+      converters.put(optionListClass, classConverters);
+    }
+    Class<?> valueClass = value.getClass();
+    Converter converter = classConverters.get(valueClass);
+    if (converter == null) {
+      Method fromValue;
+      try {
+        fromValue = optionListClass.getMethod("fromUnderlyingValue", valueClass);
+      } catch (NoSuchMethodException e) {
+        // If it doesn't exist just continue.
+        fromValue = null;
+      }
+      converter = new Converter(fromValue);
+      classConverters.put(valueClass, converter);
+    }
+    if (converter.fromValue == null) {
+      return value;
+    }
+    try {
+      Object abstractVal = converter.fromValue.invoke(optionListClass, value);
+      return abstractVal != null ? abstractVal : value;
+    } catch (IllegalAccessException e) {
+      // If it's not accessible just continue.
+      return value;
+    } catch (InvocationTargetException e) {
+      // If it doesn't work just continue.
+      return value;
+    }
+  }
+
+  /**
+   * Returns the option lists associated with the given component and function name. Returns null
+   * if the method does not exist, shouldn't be operated on in this context (e.g. a void method),
+   * or has no option lists.
    * @param c The component to get the method of.
-   * @param func The function on the component we want to get the Method of.
-   * @return The Method representation of the method.
+   * @param func The function on the component we want to get the option lists of.
+   * @return The option lists of the method.
    */
-  private static Method getMethod(Object c, String func) {
+  private static OptionLists getOptionLists(Object c, String func) {
     Class<?> componentClass = c.getClass();
-    String componentKey = componentClass.getSimpleName();
-    Map<String, Method> methodMap = componentMethods.get(componentKey);
+    Map<String, OptionLists> methodMap = componentOptionLists.get(componentClass);
 
     if (methodMap == null) {
       methodMap = populateMap(componentClass);
-      componentMethods.put(componentKey, methodMap);
+      componentOptionLists.put(componentClass, methodMap);
     }
 
     return methodMap.get(func);
   }
 
   /**
-   * Returns a map populated with all relevant Methods of the given Class. This includes all events,
-   * property getters, and non-void methods.
+   * Returns a map populated with the option lists of all relevant Methods of the given Class. This
+   * includes all events, property getters, and non-void methods.
    */
-  private static Map<String, Method> populateMap(Class<?> clazz) {
+  private static Map<String, OptionLists> populateMap(Class<?> clazz) {
     Map<String, Method> methodMap = new HashMap<String, Method>();
     Method[] methods = clazz.getMethods();
 
@@ -168,6 +211,29 @@ public class OptionHelper {
         }
       }
     }
-    return methodMap;
+
+    Map<String, OptionLists> optionListsMap = new HashMap<String, OptionLists>();
+    for (Map.Entry<String, Method> entry : methodMap.entrySet()) {
+      Method m = entry.getValue();
+      Options resultOptions = m.getAnnotation(Options.class);
+      Class<?>[] params = null;
+      Annotation[][] paramAnnotations = m.getParameterAnnotations();
+      for (int i = 0; i < paramAnnotations.length; i++) {
+        for (Annotation annotation : paramAnnotations[i]) {
+          if (annotation.annotationType() == Options.class) {
+            if (params == null) {
+              params = new Class<?>[paramAnnotations.length];
+            }
+            params[i] = ((Options) annotation).value();
+            break;
+          }
+        }
+      }
+      if (resultOptions != null || params != null) {
+        optionListsMap.put(entry.getKey(),
+            new OptionLists(resultOptions == null ? null : resultOptions.value(), params));
+      }
+    }
+    return optionListsMap;
   }
 }
@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2019 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -726,6 +726,16 @@ public abstract class Sprite extends VisibleComponent
     return registeredCollisions.contains(other);
   }
 
+  /**
+   * Gets the sprites this sprite has raised a CollidedWith event for and not
+   * yet a NoLongerCollidingWith event.
+   *
+   * @return a copy of the set of colliding sprites
+   */
+  Set<Sprite> getRegisteredCollisions() {
+    return new HashSet<Sprite>(registeredCollisions);
+  }
+
   /**
    * Moves the sprite back in bounds if part of it extends out of bounds,
    * having no effect otherwise. If the sprite is too wide to fit on the
@@ -824,6 +834,7 @@ public abstract class Sprite extends VisibleComponent
     if (!initialized) {
       // During REPL, components are not initalized, but we still want to repaint the canvas.
       canvas.getView().invalidate();
+      canvas.updateSpriteBounds(this);
       return;
     }
     Direction edge = hitEdgeAbstract();
@@ -1024,6 +1035,17 @@ public abstract class Sprite extends VisibleComponent
         xLeft + Width() - 1 + border, yTop + Height() - 1 + border);
   }
 
+  /**
+   * Provides a box containing this sprite and the points just outside of it,
+   * so that any sprite touching or overlapping this one intersects the box.
+   * Used by the canvas to narrow down the sprites to check for collisions.
+   *
+   * @return the collision bounds for this sprite
+   */
+  BoundingBox getCollisionBounds() {
+    return getBoundingBox(1);
+  }
+
   /**
    * Determines whether two sprites are in collision.
    *
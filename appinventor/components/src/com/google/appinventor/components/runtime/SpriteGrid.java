@@ -0,0 +1,199 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime;
+
+import com.google.appinventor.components.runtime.util.BoundingBox;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Uniform grid over the sprites of a {@link Canvas}, used as the broad phase
+ * of collision detection. Each sprite is recorded in the cells covered by its
+ * collision bounds, so the sprites that may collide with a given sprite are
+ * found by looking at the cells it covers instead of at every sprite on the
+ * canvas. The grid is updated incrementally as sprites move.
+ *
+ * <p>Sprites covering more than {@link #MAX_CELLS} cells are kept apart and
+ * checked against every other sprite, so that a large sprite, such as a
+ * background, does not have to be moved through many cells.</p>
+ */
+final class SpriteGrid {
+  // Side of a cell, in canvas pixels.
+  static final int CELL_SIZE = 64;
+
+  // Largest number of cells a sprite is recorded in.
+  static final int MAX_CELLS = 64;
+
+  private static final class Entry {
+    double left;
+    double top;
+    double right;
+    double bottom;
+    int cellLeft;
+    int cellTop;
+    int cellRight;
+    int cellBottom;
+    boolean oversized;
+
+    boolean overlaps(Entry other) {
+      return left <= other.right && other.left <= right
+          && top <= other.bottom && other.top <= bottom;
+    }
+  }
+
+  private final Map<Long, List<Sprite>> cells = new HashMap<Long, List<Sprite>>();
+  private final Map<Sprite, Entry> entries = new HashMap<Sprite, Entry>();
+  private final Set<Sprite> oversized = new HashSet<Sprite>();
+
+  /**
+   * Records the current collision bounds of a sprite, adding it to the grid
+   * if needed.
+   *
+   * @param sprite the sprite that was added, moved or resized
+   */
+  void update(Sprite sprite) {
+    BoundingBox bounds = sprite.getCollisionBounds();
+    Entry entry = entries.get(sprite);
+    if (entry == null) {
+      entry = new Entry();
+      entry.oversized = true;  // Not in any cell yet
+      entries.put(sprite, entry);
+      oversized.add(sprite);
+    }
+    entry.left = bounds.getLeft();
+    entry.top = bounds.getTop();
+    entry.right = bounds.getRight();
+    entry.bottom = bounds.getBottom();
+
+    int cellLeft = cellOf(entry.left);
+    int cellTop = cellOf(entry.top);
+    int cellRight = cellOf(entry.right);
+    int cellBottom = cellOf(entry.bottom);
+    boolean tooLarge =
+        ((long) cellRight - cellLeft + 1) * ((long) cellBottom - cellTop + 1) > MAX_CELLS;
+    if (tooLarge && entry.oversized) {
+      return;
+    }
+    if (!tooLarge && !entry.oversized && cellLeft == entry.cellLeft && cellTop == entry.cellTop
+        && cellRight == entry.cellRight && cellBottom == entry.cellBottom) {
+      // Still in the same cells.
+      return;
+    }
+
+    removeFromCells(sprite, entry);
+    if (tooLarge) {
+      entry.oversized = true;
+      oversized.add(sprite);
+    } else {
+      entry.oversized = false;
+      entry.cellLeft = cellLeft;
+      entry.cellTop = cellTop;
+      entry.cellRight = cellRight;
+      entry.cellBottom = cellBottom;
+      for (int x = cellLeft; x <= cellRight; x++) {
+        for (int y = cellTop; y <= cellBottom; y++) {
+          Long key = key(x, y);
+          List<Sprite> cell = cells.get(key);
+          if (cell == null) {
+            cell = new ArrayList<Sprite>(2);
+            cells.put(key, cell);
+          }
+          cell.add(sprite);
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes a sprite from the grid.
+   *
+   * @param sprite the sprite that was removed from the canvas
+   */
+  void remove(Sprite sprite) {
+    Entry entry = entries.remove(sprite);
+    if (entry != null) {
+      removeFromCells(sprite, entry);
+    }
+  }
+
+  /**
+   * Finds the sprites whose collision bounds overlap those of the given
+   * sprite, as recorded by the last call to {@link #update(Sprite)}. Only
+   * these sprites can be in collision with it.
+   *
+   * @param sprite the sprite to find the neighbors of
+   * @return the candidate sprites, excluding the sprite itself, in no
+   *         particular order
+   */
+  List<Sprite> getCandidates(Sprite sprite) {
+    List<Sprite> candidates = new ArrayList<Sprite>();
+    Entry entry = entries.get(sprite);
+    if (entry == null) {
+      return candidates;
+    }
+    if (entry.oversized) {
+      for (Map.Entry<Sprite, Entry> other : entries.entrySet()) {
+        if (other.getKey() != sprite && entry.overlaps(other.getValue())) {
+          candidates.add(other.getKey());
+        }
+      }
+      return candidates;
+    }
+
+    Set<Sprite> seen = new HashSet<Sprite>();
+    for (int x = entry.cellLeft; x <= entry.cellRight; x++) {
+      for (int y = entry.cellTop; y <= entry.cellBottom; y++) {
+        List<Sprite> cell = cells.get(key(x, y));
+        if (cell == null) {
+          continue;
+        }
+        for (Sprite other : cell) {
+          if (other != sprite && seen.add(other) && entry.overlaps(entries.get(other))) {
+            candidates.add(other);
+          }
+        }
+      }
+    }
+    for (Sprite other : oversized) {
+      if (other != sprite && entry.overlaps(entries.get(other))) {
+        candidates.add(other);
+      }
+    }
+    return candidates;
+  }
+
+  private void removeFromCells(Sprite sprite, Entry entry) {
+    if (entry.oversized) {
+      oversized.remove(sprite);
+      return;
+    }
+    for (int x = entry.cellLeft; x <= entry.cellRight; x++) {
+      for (int y = entry.cellTop; y <= entry.cellBottom; y++) {
+        Long key = key(x, y);
+        List<Sprite> cell = cells.get(key);
+        if (cell != null) {
+          cell.remove(sprite);
+          if (cell.isEmpty()) {
+            cells.remove(key);
+          }
+        }
+      }
+    }
+  }
+
+  private static int cellOf(double coordinate) {
+    // Casting saturates very large coordinates, which then end up as oversized.
+    return (int) Math.floor(coordinate / CELL_SIZE);
+  }
+
+  private static Long key(int x, int y) {
+    return ((long) x << 32) | (y & 0xffffffffL);
+  }
+}
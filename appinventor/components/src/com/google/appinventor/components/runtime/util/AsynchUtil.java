@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2021 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -24,16 +24,29 @@ public class AsynchUtil {
   private static final String LOG_TAG = AsynchUtil.class.getSimpleName();
 
   /**
-   * Make an asynchronous call in a separate thread.
+   * Make an asynchronous call in a background thread. The call is queued on the
+   * {@link BackgroundExecutor} shared by all components.
    * @param call a {@link Runnable} to run in the thread.
    */
   public static void runAsynchronously(final Runnable call) {
-    Thread thread = new Thread(call);
-    thread.start();
+    runAsynchronously(BackgroundExecutor.Priority.DEFAULT, call);
   }
+
+  /**
+   * Make an asynchronous call in a background thread, ahead of or after other calls depending on
+   * its priority.
+   * @param priority the priority of the call
+   * @param call a {@link Runnable} to run in the thread.
+   */
+  public static void runAsynchronously(BackgroundExecutor.Priority priority,
+                                       final Runnable call) {
+    BackgroundExecutor.getInstance().execute(priority, call);
+  }
+
   /**
-   * Make an asynchronous call in a separate thread, with a callback that's run on the current
-   * Android UI thread.
+   * Make an asynchronous call in a background thread, with a callback that's run on the current
+   * Android UI thread. Since its result is shown to the user, the call is queued ahead of calls
+   * without a callback.
    * @param androidUIHandler  the Handler from the current Android context
    * @param call a {@link Runnable} to run in the thread.
    * @param callback a {@link Runnable} to run in the Android UI thread when the call above returns
@@ -41,7 +54,7 @@ public class AsynchUtil {
   public static void runAsynchronously(final Handler androidUIHandler,
                                        final Runnable call,
                                        final Runnable callback) {
-    Runnable runnable = new Runnable() {
+    final Runnable runnable = new Runnable() {
       public void run() {
         call.run();
         if (callback != null) {
@@ -53,8 +66,9 @@ public class AsynchUtil {
         }
       }
     };
-    Thread thread = new Thread(runnable);
-    thread.start();
+    // The wrapper is anonymous to this class, so the key comes from the call.
+    BackgroundExecutor.getInstance().execute(BackgroundExecutor.Priority.UI,
+        BackgroundExecutor.keyOf(call), runnable);
   }
 
   public static boolean isUiThread() {
@@ -0,0 +1,377 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * BackgroundExecutor runs the background work of all the components of an app on a shared pool of
+ * threads, so that a burst of requests, such as many web calls fired from a clock, does not start a
+ * thread per request.
+ *
+ * <p>Tasks wait in one of three lanes and are started in lane order, so work whose result updates
+ * the user interface goes ahead of background synchronization. At most {@code maxThreads} tasks
+ * run at once, and at most {@code maxPerKey} of them for the same key, which identifies the
+ * component that submitted the task.</p>
+ *
+ * <p>Some tasks block for a long time, e.g., to accept Bluetooth connections or to wait for the
+ * result of another task. A task that has been running for longer than {@code longRunningMillis}
+ * no longer counts against the limits, so such tasks can neither starve nor deadlock the
+ * pool.</p>
+ */
+public final class BackgroundExecutor {
+
+  /**
+   * The lanes in which tasks wait, from the most to the least urgent.
+   */
+  public enum Priority {
+    /** Work whose result is shown to the user. */
+    UI,
+    /** Work without a stated urgency. */
+    DEFAULT,
+    /** Work that no one is waiting for, such as synchronization. */
+    BACKGROUND
+  }
+
+  private static final long KEEP_ALIVE_MILLIS = 30000;
+  private static final long LONG_RUNNING_MILLIS = 2000;
+
+  private static final BackgroundExecutor INSTANCE = new BackgroundExecutor(
+      Math.max(4, 2 * Runtime.getRuntime().availableProcessors()), 4, LONG_RUNNING_MILLIS);
+
+  private static final class Task {
+    final String key;
+    final Runnable runnable;
+    final long queuedAt;
+    long startedAt;
+
+    Task(String key, Runnable runnable, long queuedAt) {
+      this.key = key;
+      this.runnable = runnable;
+      this.queuedAt = queuedAt;
+    }
+  }
+
+  private final int maxThreads;
+  private final int maxPerKey;
+  private final long longRunningMillis;
+
+  // Guarded by lock.
+  private final Object lock = new Object();
+  private final List<ArrayDeque<Task>> lanes = new ArrayList<ArrayDeque<Task>>();
+  private final LinkedList<Task> running = new LinkedList<Task>();  // in start order
+  private final ArrayDeque<Worker> idleWorkers = new ArrayDeque<Worker>();
+  private Thread watchdog = null;
+  private int threads = 0;
+  private int threadNumber = 0;
+  private int queued = 0;
+  private int peakQueued = 0;
+  private long completed = 0;
+  private long totalWaitMillis = 0;
+
+  /**
+   * Gets the executor shared by all the components of the app.
+   */
+  public static BackgroundExecutor getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Creates an executor.
+   *
+   * @param maxThreads the maximum number of tasks running at once
+   * @param maxPerKey the maximum number of tasks with the same key running at once
+   * @param longRunningMillis the time after which a running task no longer counts against the
+   *     limits
+   */
+  BackgroundExecutor(int maxThreads, int maxPerKey, long longRunningMillis) {
+    this.maxThreads = maxThreads;
+    this.maxPerKey = maxPerKey;
+    this.longRunningMillis = longRunningMillis;
+    for (int i = 0; i < Priority.values().length; i++) {
+      lanes.add(new ArrayDeque<Task>());
+    }
+  }
+
+  /**
+   * Runs {@code runnable} on a background thread. The task is counted against the limit of the
+   * component that created it, as told by the class of the runnable.
+   *
+   * @param priority the lane of the task
+   * @param runnable the task
+   */
+  public void execute(Priority priority, Runnable runnable) {
+    execute(priority, keyOf(runnable), runnable);
+  }
+
+  /**
+   * Runs {@code runnable} on a background thread.
+   *
+   * @param priority the lane of the task
+   * @param key the key identifying the component that created the task
+   * @param runnable the task
+   */
+  public void execute(Priority priority, String key, Runnable runnable) {
+    synchronized (lock) {
+      lanes.get(priority.ordinal()).addLast(new Task(key, runnable, now()));
+      queued++;
+      peakQueued = Math.max(peakQueued, queued);
+      dispatchLocked();
+    }
+  }
+
+  /**
+   * Gets the number of tasks waiting to start.
+   */
+  public int getQueueDepth() {
+    synchronized (lock) {
+      return queued;
+    }
+  }
+
+  /**
+   * Gets the number of tasks waiting to start in a lane.
+   */
+  public int getQueueDepth(Priority priority) {
+    synchronized (lock) {
+      return lanes.get(priority.ordinal()).size();
+    }
+  }
+
+  /**
+   * Gets the largest number of tasks that were waiting at once.
+   */
+  public int getPeakQueueDepth() {
+    synchronized (lock) {
+      return peakQueued;
+    }
+  }
+
+  /**
+   * Gets the number of tasks running, including the long running ones.
+   */
+  public int getActiveCount() {
+    synchronized (lock) {
+      return running.size();
+    }
+  }
+
+  /**
+   * Gets the number of threads of the pool, including the idle ones.
+   */
+  public int getThreadCount() {
+    synchronized (lock) {
+      return threads;
+    }
+  }
+
+  public long getCompletedCount() {
+    synchronized (lock) {
+      return completed;
+    }
+  }
+
+  /**
+   * Gets the average time the started tasks waited in the queue, in milliseconds.
+   */
+  public long getAverageWaitMillis() {
+    synchronized (lock) {
+      long started = completed + running.size();
+      return started == 0 ? 0 : totalWaitMillis / started;
+    }
+  }
+
+  /**
+   * Gets the key of a task, which is the name of the outermost class declaring it, so that the
+   * anonymous runnables of a component share the limit of the component.
+   */
+  static String keyOf(Runnable runnable) {
+    String name = runnable.getClass().getName();
+    int lambda = name.indexOf("-$$Lambda$");
+    if (lambda >= 0) {
+      // Lambdas desugared by older versions of d8 are named -$$Lambda$Outer$Hash.
+      name = name.substring(0, lambda) + name.substring(lambda + "-$$Lambda$".length());
+    }
+    int nested = name.indexOf('$');
+    return nested < 0 ? name : name.substring(0, nested);
+  }
+
+  /**
+   * Starts as many waiting tasks as the limits allow, and makes sure the waiting tasks are looked
+   * at again when a running task becomes long running.
+   */
+  private void dispatchLocked() {
+    Task task;
+    while ((task = pollLocked()) != null) {
+      Worker worker = idleWorkers.pollFirst();
+      if (worker != null) {
+        worker.next = task;
+        lock.notifyAll();
+      } else {
+        threads++;
+        Thread thread = new Thread(new Worker(task), "BackgroundExecutor-" + ++threadNumber);
+        thread.setDaemon(true);
+        thread.start();
+      }
+    }
+    if (queued > 0 && watchdog == null) {
+      watchdog = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          watch();
+        }
+      }, "BackgroundExecutor-watchdog");
+      watchdog.setDaemon(true);
+      watchdog.start();
+    }
+  }
+
+  /**
+   * Removes the first task the limits allow to start from the lanes and marks it running.
+   *
+   * @return the task, or null if no waiting task may start
+   */
+  private Task pollLocked() {
+    if (queued == 0) {
+      return null;
+    }
+    long now = now();
+    int busy = 0;
+    for (Task task : running) {
+      if (now - task.startedAt < longRunningMillis) {
+        busy++;
+      }
+    }
+    if (busy >= maxThreads) {
+      return null;
+    }
+    for (ArrayDeque<Task> lane : lanes) {
+      Iterator<Task> it = lane.iterator();
+      while (it.hasNext()) {
+        Task task = it.next();
+        if (busyWithKey(task.key, now) < maxPerKey) {
+          it.remove();
+          queued--;
+          task.startedAt = now;
+          totalWaitMillis += now - task.queuedAt;
+          running.addLast(task);
+          return task;
+        }
+      }
+    }
+    return null;
+  }
+
+  private int busyWithKey(String key, long now) {
+    int count = 0;
+    for (Task task : running) {
+      if (now - task.startedAt < longRunningMillis && task.key.equals(key)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Runs while tasks are waiting, starting them when running tasks become long running.
+   */
+  private void watch() {
+    synchronized (lock) {
+      try {
+        while (queued > 0) {
+          long now = now();
+          long wakeAt = now + longRunningMillis;
+          for (Task task : running) {
+            if (now - task.startedAt < longRunningMillis) {
+              wakeAt = task.startedAt + longRunningMillis;
+              break;  // Tasks are kept in start order.
+            }
+          }
+          lock.wait(Math.max(1, wakeAt - now));
+          dispatchLocked();
+        }
+      } catch (InterruptedException e) {
+        // The next call to dispatchLocked will start a new watchdog.
+      } finally {
+        watchdog = null;
+      }
+    }
+  }
+
+  private static long now() {
+    return System.nanoTime() / 1000000;
+  }
+
+  private final class Worker implements Runnable {
+    // Guarded by lock. The next task, handed over while the worker is idle.
+    Task next;
+
+    Worker(Task first) {
+      this.next = first;
+    }
+
+    @Override
+    public void run() {
+      Task task;
+      synchronized (lock) {
+        task = next;
+        next = null;
+      }
+      while (task != null) {
+        try {
+          task.runnable.run();
+        } catch (Throwable e) {
+          // A task used to run on its own thread, where an exception would reach the handler for
+          // uncaught exceptions. Report it the same way, but keep the worker.
+          Thread thread = Thread.currentThread();
+          thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+        synchronized (lock) {
+          running.remove(task);
+          completed++;
+          task = pollLocked();
+          if (task == null) {
+            task = awaitLocked();
+          }
+          // A finished task may also allow tasks with another key to start.
+          dispatchLocked();
+        }
+      }
+    }
+
+    /**
+     * Waits for a task to be handed over.
+     *
+     * @return the task, or null if none came before the keep alive time elapsed
+     */
+    private Task awaitLocked() {
+      idleWorkers.addFirst(this);
+      long deadline = now() + KEEP_ALIVE_MILLIS;
+      try {
+        while (next == null) {
+          long remaining = deadline - now();
+          if (remaining <= 0) {
+            break;
+          }
+          lock.wait(remaining);
+        }
+      } catch (InterruptedException e) {
+        // Exit the worker as if it timed out.
+      }
+      Task task = next;
+      next = null;
+      if (task == null) {
+        idleWorkers.remove(this);
+        threads--;
+      }
+      return task;
+    }
+  }
+}
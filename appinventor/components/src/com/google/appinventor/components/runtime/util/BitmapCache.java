@@ -0,0 +1,166 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * BitmapCache keeps the images decoded by {@link MediaUtil} in memory, so that setting the same
+ * picture again, e.g., when a sprite cycles through the frames of an animation, does not decode
+ * the image again.
+ *
+ * <p>The cache holds at most an eighth of the memory available to the app, and evicts the least
+ * recently used images first. The cached bitmaps are shared by all the components that use them,
+ * so they must not be modified or recycled.</p>
+ */
+public final class BitmapCache {
+  private static final String LOG_TAG = BitmapCache.class.getSimpleName();
+
+  /**
+   * The fraction of the memory class of the app used for images.
+   */
+  private static final int MEMORY_FRACTION = 8;
+
+  // Guarded by the class lock.
+  private static final LinkedHashMap<String, Bitmap> cache =
+      new LinkedHashMap<String, Bitmap>(16, 0.75f, true);
+  private static long maxBytes = -1;  // -1 until the budget is known
+  private static long totalBytes = 0;
+  private static int hits = 0;
+  private static int misses = 0;
+  private static int evictions = 0;
+
+  private BitmapCache() {
+  }
+
+  /**
+   * Sizes the cache from the memory class of the app, unless it is already sized.
+   *
+   * @param context the context of the app
+   */
+  public static synchronized void ensureConfigured(Context context) {
+    if (maxBytes >= 0) {
+      return;
+    }
+    int memoryClass = 16;  // The smallest memory class, in megabytes.
+    ActivityManager manager =
+        (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+    if (manager != null) {
+      memoryClass = manager.getMemoryClass();
+    }
+    maxBytes = memoryClass * 1024L * 1024L / MEMORY_FRACTION;
+    Log.d(LOG_TAG, "Caching up to " + maxBytes + " bytes of images");
+  }
+
+  /**
+   * Sets the maximum number of bytes of images kept in the cache.
+   *
+   * @param bytes the budget, or 0 to disable the cache
+   */
+  public static synchronized void setMaxBytes(long bytes) {
+    maxBytes = Math.max(0, bytes);
+    trimTo(maxBytes);
+  }
+
+  /**
+   * Gets the image cached under {@code key}.
+   *
+   * @param key the key
+   * @return the image, or null if it is not cached
+   */
+  public static synchronized Bitmap get(String key) {
+    Bitmap bitmap = cache.get(key);
+    if (bitmap == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return bitmap;
+  }
+
+  /**
+   * Caches an image under {@code key}. Images larger than a quarter of the budget are not cached,
+   * since they would push most other images out of the cache.
+   *
+   * @param key the key
+   * @param bitmap the image, which must not be modified afterward
+   */
+  public static synchronized void put(String key, Bitmap bitmap) {
+    long size = sizeOf(bitmap);
+    if (maxBytes <= 0 || size > maxBytes / 4) {
+      return;
+    }
+    Bitmap previous = cache.put(key, bitmap);
+    if (previous != null) {
+      totalBytes -= sizeOf(previous);
+    }
+    totalBytes += size;
+    trimTo(maxBytes);
+  }
+
+  /**
+   * Releases images in response to a signal from
+   * {@link ComponentCallbacks2#onTrimMemory(int)}.
+   *
+   * @param level the level of the signal
+   */
+  public static synchronized void trimMemory(int level) {
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+        || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      // The app or its neighbors are about to be killed for lack of memory.
+      trimTo(0);
+    } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+      trimTo(maxBytes / 2);
+    }
+  }
+
+  /**
+   * Releases all the cached images.
+   */
+  public static synchronized void clear() {
+    trimTo(0);
+  }
+
+  public static synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+
+  public static synchronized int getHits() {
+    return hits;
+  }
+
+  public static synchronized int getMisses() {
+    return misses;
+  }
+
+  public static synchronized int getEvictions() {
+    return evictions;
+  }
+
+  // Called with the class lock held.
+  private static void trimTo(long bytes) {
+    Iterator<Map.Entry<String, Bitmap>> it = cache.entrySet().iterator();
+    while (totalBytes > bytes && it.hasNext()) {
+      Bitmap bitmap = it.next().getValue();
+      it.remove();
+      totalBytes -= sizeOf(bitmap);
+      evictions++;
+    }
+  }
+
+  private static long sizeOf(Bitmap bitmap) {
+    // Bitmap.getByteCount requires API level 12.
+    return (long) bitmap.getRowBytes() * bitmap.getHeight();
+  }
+}
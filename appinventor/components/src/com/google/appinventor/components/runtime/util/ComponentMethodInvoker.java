@@ -0,0 +1,152 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Invokes component methods on behalf of the blocks, remembering the method
+ * resolved for each component class, method name and number of arguments.
+ *
+ * <p>Without it, every method block goes through Kawa's dynamic invocation,
+ * which searches the methods of the component class on each call. The
+ * arguments have already been coerced by the runtime, so the only conversions
+ * left are those from Kawa numbers and strings to the parameter types.</p>
+ *
+ * <p>If a call cannot be resolved to a single method, or an argument cannot be
+ * converted, {@link #invoke} returns {@link #UNRESOLVED} and the caller falls
+ * back to Kawa's invocation, which reports the error if there is one.</p>
+ */
+public final class ComponentMethodInvoker {
+
+  /**
+   * Returned by {@link #invoke} when the call must be left to Kawa.
+   */
+  public static final Object UNRESOLVED = new Object();
+
+  // For each component class, the methods of each name, indexed by number of parameters. An entry
+  // is null if there is no method or more than one method with that number of parameters.
+  private static final Map<Class<?>, Map<String, Method[]>> methods =
+      new ConcurrentHashMap<Class<?>, Map<String, Method[]>>();
+
+  private ComponentMethodInvoker() {
+  }
+
+  /**
+   * Invokes a method of a component.
+   *
+   * @param component the component
+   * @param methodName the name of the method, as a string or a symbol
+   * @param args the coerced arguments
+   * @return the result of the method, null if it is void, or {@link #UNRESOLVED}
+   * @throws Throwable whatever the method throws
+   */
+  // Don't delete this method. It's called from runtime.scm.
+  public static Object invoke(Object component, Object methodName, List<?> args) throws Throwable {
+    Method method = resolve(component.getClass(), methodName.toString(), args.size());
+    if (method == null) {
+      return UNRESOLVED;
+    }
+    Class<?>[] paramTypes = method.getParameterTypes();
+    Object[] params = new Object[paramTypes.length];
+    for (int i = 0; i < params.length; i++) {
+      Object param = convert(args.get(i), paramTypes[i]);
+      if (param == UNRESOLVED) {
+        return UNRESOLVED;
+      }
+      params[i] = param;
+    }
+    try {
+      return method.invoke(component, params);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Finds the method called for {@code arity} arguments, looking it up in the
+   * component class only the first time.
+   *
+   * @return the method, or null if the call must be left to Kawa
+   */
+  static Method resolve(Class<?> componentClass, String methodName, int arity) {
+    Map<String, Method[]> classMethods = methods.get(componentClass);
+    if (classMethods == null) {
+      classMethods = new ConcurrentHashMap<String, Method[]>();
+      methods.put(componentClass, classMethods);
+    }
+    Method[] byArity = classMethods.get(methodName);
+    if (byArity == null) {
+      byArity = findMethods(componentClass, methodName);
+      classMethods.put(methodName, byArity);
+    }
+    return arity < byArity.length ? byArity[arity] : null;
+  }
+
+  private static Method[] findMethods(Class<?> componentClass, String methodName) {
+    int maxArity = -1;
+    for (Method m : componentClass.getMethods()) {
+      if (m.getName().equals(methodName)) {
+        maxArity = Math.max(maxArity, m.getParameterTypes().length);
+      }
+    }
+    Method[] byArity = new Method[maxArity + 1];
+    boolean[] ambiguous = new boolean[maxArity + 1];
+    for (Method m : componentClass.getMethods()) {
+      if (!m.getName().equals(methodName)) {
+        continue;
+      }
+      int arity = m.getParameterTypes().length;
+      if (byArity[arity] != null || !Modifier.isPublic(m.getDeclaringClass().getModifiers())) {
+        // Overloads and methods of non-public classes are left to Kawa.
+        ambiguous[arity] = true;
+      }
+      byArity[arity] = m;
+    }
+    for (int i = 0; i < byArity.length; i++) {
+      if (ambiguous[i]) {
+        byArity[i] = null;
+      }
+    }
+    return byArity;
+  }
+
+  private static Object convert(Object arg, Class<?> type) {
+    if (type.isPrimitive()) {
+      if (arg instanceof Number) {
+        Number number = (Number) arg;
+        if (type == Integer.TYPE) {
+          return number.intValue();
+        } else if (type == Double.TYPE) {
+          return number.doubleValue();
+        } else if (type == Float.TYPE) {
+          return number.floatValue();
+        } else if (type == Long.TYPE) {
+          return number.longValue();
+        } else if (type == Short.TYPE) {
+          return number.shortValue();
+        } else if (type == Byte.TYPE) {
+          return number.byteValue();
+        }
+      } else if (arg instanceof Boolean && type == Boolean.TYPE) {
+        return arg;
+      }
+      return UNRESOLVED;
+    }
+    if (arg == null || type.isInstance(arg)) {
+      return arg;
+    }
+    if (type == String.class && arg instanceof CharSequence) {
+      return arg.toString();
+    }
+    return UNRESOLVED;
+  }
+}
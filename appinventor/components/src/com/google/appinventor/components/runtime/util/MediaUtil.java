@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2023 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -46,7 +46,10 @@ import java.lang.reflect.Array;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -73,6 +76,11 @@ public class MediaUtil {
   // tempFileMap maps cached media (assets, etc) to their respective temp files.
   private static final Map<String, File> tempFileMap = new HashMap<String, File>();
 
+  // decodingImages maps the BitmapCache keys of the images being decoded to the callers waiting
+  // for them, so that an image requested again while it is decoded is only decoded once.
+  private static final Map<String, List<AsyncCallbackPair<BitmapDrawable>>> decodingImages =
+      new HashMap<String, List<AsyncCallbackPair<BitmapDrawable>>>();
+
   private MediaUtil() {
   }
 
@@ -476,22 +484,71 @@ public class MediaUtil {
    *
    * <p/>If mediaPath is null or empty, null is returned.
    *
+   * <p/>Images loaded from the app's assets or from files are kept in the {@link BitmapCache},
+   * so loading the same image again does not decode it again. Images from the web and from
+   * content providers are loaded every time, since they may change.
+   *
    * @param form the Form
    * @param mediaPath the path to the media
    * @param desiredWidth the desired width of the image
    * @param desiredHeight the desired height of the image
-   * @param continuation An AsyncCallbackPair that will receive a BitmapDrawable on success.
-   *                     On exception or failure the appropriate handler will be triggered.
+   * @param callback An AsyncCallbackPair that will receive a BitmapDrawable on success.
+   *                 On exception or failure the appropriate handler will be triggered.
    */
   public static void getBitmapDrawableAsync(final Form form, final String mediaPath,
       final int desiredWidth, final int desiredHeight,
-      final AsyncCallbackPair<BitmapDrawable> continuation) {
+      final AsyncCallbackPair<BitmapDrawable> callback) {
     if (mediaPath == null || mediaPath.length() == 0) {
-      continuation.onSuccess(null);
+      callback.onSuccess(null);
       return;
     }
 
     final MediaSource mediaSource = determineMediaSource(form, mediaPath);
+    final String cacheKey = getBitmapCacheKey(form, mediaPath, mediaSource, desiredWidth,
+        desiredHeight);
+    final AsyncCallbackPair<BitmapDrawable> continuation;
+    if (cacheKey == null) {
+      continuation = callback;
+    } else {
+      BitmapCache.ensureConfigured(form);
+      Bitmap cached = BitmapCache.get(cacheKey);
+      if (cached != null) {
+        callback.onSuccess(newBitmapDrawable(form, cached));
+        return;
+      }
+      synchronized (decodingImages) {
+        List<AsyncCallbackPair<BitmapDrawable>> waiting = decodingImages.get(cacheKey);
+        if (waiting != null) {
+          waiting.add(callback);
+          return;
+        }
+        waiting = new ArrayList<AsyncCallbackPair<BitmapDrawable>>();
+        waiting.add(callback);
+        decodingImages.put(cacheKey, waiting);
+      }
+      continuation = new AsyncCallbackPair<BitmapDrawable>() {
+        @Override
+        public void onFailure(String message) {
+          for (AsyncCallbackPair<BitmapDrawable> waiting : finishDecoding(cacheKey)) {
+            waiting.onFailure(message);
+          }
+        }
+
+        @Override
+        public void onSuccess(BitmapDrawable result) {
+          Bitmap bitmap = result.getBitmap();
+          if (bitmap != null) {
+            BitmapCache.put(cacheKey, bitmap);
+          }
+          boolean first = true;
+          for (AsyncCallbackPair<BitmapDrawable> waiting : finishDecoding(cacheKey)) {
+            // Each caller gets its own drawable, since drawables hold state such as their alpha.
+            waiting.onSuccess(first ? result : newBitmapDrawable(form, bitmap));
+            first = false;
+          }
+        }
+      };
+    }
 
     Runnable loadImage = new Runnable() {
       @Override
@@ -608,6 +665,74 @@ public class MediaUtil {
     AsynchUtil.runAsynchronously(loadImage);
   }
 
+  /**
+   * Gets the key under which an image is kept in the {@link BitmapCache}. The key covers
+   * everything the decoded image depends on: the version of the file, the requested size, and the
+   * density and size of the screen.
+   *
+   * @return the key, or null if the image must not be cached
+   */
+  private static String getBitmapCacheKey(Form form, String mediaPath, MediaSource mediaSource,
+      int desiredWidth, int desiredHeight) {
+    String version;
+    switch (mediaSource) {
+      case ASSET:
+        version = "";  // Assets do not change while the app runs.
+        break;
+      case REPL_ASSET:
+        try {
+          version = getFileVersion(new File(URI.create(form.getAssetPath(mediaPath))));
+        } catch (IllegalArgumentException e) {
+          return null;
+        }
+        break;
+      case SDCARD:
+      case PRIVATE_DATA:
+        version = getFileVersion(new File(mediaPath));
+        break;
+      case FILE_URL:
+        try {
+          version = getFileVersion(new File(fileUrlToFilePath(mediaPath)));
+        } catch (IOException e) {
+          return null;
+        }
+        break;
+      default:
+        return null;
+    }
+    if (version == null) {
+      return null;
+    }
+    Display display = ((WindowManager) form.getSystemService(Context.WINDOW_SERVICE)).
+        getDefaultDisplay();
+    return mediaSource + ":" + mediaPath + "@" + version + ":" + desiredWidth + "x"
+        + desiredHeight + ":" + form.deviceDensity() + ":" + form.getCompatibilityMode() + ":"
+        + display.getWidth() + "x" + display.getHeight();
+  }
+
+  private static String getFileVersion(File file) {
+    if (!file.isFile()) {
+      return null;
+    }
+    return file.lastModified() + "/" + file.length();
+  }
+
+  private static List<AsyncCallbackPair<BitmapDrawable>> finishDecoding(String cacheKey) {
+    synchronized (decodingImages) {
+      List<AsyncCallbackPair<BitmapDrawable>> waiting = decodingImages.remove(cacheKey);
+      if (waiting == null) {
+        return Collections.emptyList();
+      }
+      return waiting;
+    }
+  }
+
+  private static BitmapDrawable newBitmapDrawable(Form form, Bitmap bitmap) {
+    BitmapDrawable drawable = new BitmapDrawable(form.getResources(), bitmap);
+    drawable.setTargetDensity(form.getResources().getDisplayMetrics());
+    return drawable;
+  }
+
   private static Bitmap decodeStream(InputStream is, Rect outPadding, BitmapFactory.Options opts) {
     // We wrap a FlushedInputStream around the given InputStream. This works around a problem in
     // BitmapFactory.decodeStream where it fails to load the image if the InputStream's skip method
@@ -0,0 +1,196 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list stored in a circular array, so that elements can be removed from
+ * the front as cheaply as they are added to the back. Indexed access takes
+ * constant time. Insertions and removals elsewhere shift the elements, as in
+ * an {@link ArrayList}.
+ *
+ * <p>The list also keeps track of how it changed since the last call to
+ * {@link #mark()}. As long as elements were only removed from the front and
+ * added to the back, {@link #getRemovedFromFront()} and
+ * {@link #getAddedToBack()} describe the change, which lets a copy of the
+ * list be brought up to date without copying it again.</p>
+ *
+ * @param <E> the type of the elements
+ */
+public class RingBufferList<E> extends AbstractList<E> implements RandomAccess {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private Object[] elements;
+  private int head = 0;
+  private int size = 0;
+
+  // Changes since the last mark
+  private int sizeAtMark = 0;
+  private int removedFromFront = 0;
+  private boolean otherChanges = true;
+
+  /**
+   * Creates an empty list.
+   */
+  public RingBufferList() {
+    elements = new Object[DEFAULT_CAPACITY];
+  }
+
+  /**
+   * Creates a list holding the elements of the given collection.
+   *
+   * @param values the initial elements
+   */
+  public RingBufferList(Collection<? extends E> values) {
+    elements = new Object[Math.max(DEFAULT_CAPACITY, values.size())];
+    for (E value : values) {
+      elements[size++] = value;
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E get(int index) {
+    checkIndex(index);
+    return (E) elements[slot(index)];
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E set(int index, E value) {
+    checkIndex(index);
+    int slot = slot(index);
+    E previous = (E) elements[slot];
+    elements[slot] = value;
+    otherChanges = true;
+    return previous;
+  }
+
+  @Override
+  public void add(int index, E value) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    if (size == elements.length) {
+      grow();
+    }
+    if (index == 0 && size > 0) {
+      head = slot(elements.length - 1);
+      otherChanges = true;
+    } else if (index < size) {
+      for (int i = size; i > index; i--) {
+        elements[slot(i)] = elements[slot(i - 1)];
+      }
+      otherChanges = true;
+    }
+    elements[slot(index)] = value;
+    size++;
+    modCount++;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E remove(int index) {
+    checkIndex(index);
+    E removed = (E) elements[slot(index)];
+    if (index == 0) {
+      elements[head] = null;
+      head = slot(1);
+      removedFromFront++;
+    } else {
+      for (int i = index; i < size - 1; i++) {
+        elements[slot(i)] = elements[slot(i + 1)];
+      }
+      elements[slot(size - 1)] = null;
+      otherChanges = true;
+    }
+    size--;
+    modCount++;
+    return removed;
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < size; i++) {
+      elements[slot(i)] = null;
+    }
+    head = 0;
+    size = 0;
+    otherChanges = true;
+    modCount++;
+  }
+
+  /**
+   * Starts tracking changes anew from the current content of the list.
+   */
+  public void mark() {
+    sizeAtMark = size;
+    removedFromFront = 0;
+    otherChanges = false;
+  }
+
+  /**
+   * Indicates whether the list only changed by removing elements from the
+   * front that were present at the last mark and by adding elements to the
+   * back. A new list has not been marked and always reports other changes.
+   *
+   * @return true if the changes are described by {@link #getRemovedFromFront()}
+   *     and {@link #getAddedToBack()}
+   */
+  public boolean hasOnlyFrontAndBackChanges() {
+    return !otherChanges && removedFromFront <= sizeAtMark;
+  }
+
+  /**
+   * Returns the number of elements removed from the front since the last mark.
+   */
+  public int getRemovedFromFront() {
+    return removedFromFront;
+  }
+
+  /**
+   * Returns a copy of the elements added to the back since the last mark.
+   * Only meaningful if {@link #hasOnlyFrontAndBackChanges()} is true.
+   */
+  public List<E> getAddedToBack() {
+    int count = size - (sizeAtMark - removedFromFront);
+    List<E> added = new ArrayList<E>(count);
+    for (int i = size - count; i < size; i++) {
+      added.add(get(i));
+    }
+    return added;
+  }
+
+  private int slot(int index) {
+    int slot = head + index;
+    return slot >= elements.length ? slot - elements.length : slot;
+  }
+
+  private void grow() {
+    Object[] grown = new Object[elements.length * 2];
+    for (int i = 0; i < size; i++) {
+      grown[i] = elements[slot(i)];
+    }
+    elements = grown;
+    head = 0;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+}
@@ -1,6 +1,6 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2019 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -21,6 +21,16 @@ import org.json.JSONException;
  * by the Kawa framework. YailList is the main list primitive used
  * by App Inventor components.
  *
+ * <p>The elements are kept in a chain of Kawa pairs, as Kawa expects. In
+ * addition, the YailList keeps an index of the pairs holding its elements,
+ * so that getting the size of the list or an element at a given position
+ * does not have to walk the chain. The methods of this class that change the
+ * structure of the list keep the index up to date. If the chain is changed
+ * by other means, for example, set-cdr! in Scheme, the index is rebuilt when
+ * the change can be detected at its ends; changes in the middle of the list
+ * should go through {@link #insertObject(int, Object)} and
+ * {@link #removeObject(int)}.</p>
+ *
  */
 @SuppressWarnings("rawtypes")
 public class YailList extends Pair implements YailObject {
@@ -35,6 +45,9 @@ public class YailList extends Pair implements YailObject {
   // legitimate Yail data types.  See the definition of sanitization
   // in runtime.scm.
 
+  // The pairs holding the elements of this list, in order. Built on demand.
+  private transient ArrayList<Pair> nodes = null;
+
   /**
    * Create an empty YailList.
    */
@@ -170,7 +183,96 @@ public class YailList extends Pair implements YailObject {
    */
   @Override
   public int size() {
-    return super.size() - 1;
+    return nodes().size();
+  }
+
+  /**
+   * Return the element at the given position, where position 0 is the
+   * YailList header and position 1 is the first element, as in the
+   * underlying Kawa list.
+   */
+  @Override
+  public Object get(int index) {
+    if (index == 0) {
+      return car;
+    }
+    List<Pair> pairs = nodes();
+    if (index < 0 || index > pairs.size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + pairs.size());
+    }
+    return pairs.get(index - 1).getCar();
+  }
+
+  /**
+   * Replace the Object at the given index.
+   */
+  public void setObject(int index, Object value) {
+    nodes().get(index).setCar(value);
+  }
+
+  /**
+   * Insert an Object so that it ends up at the given index. The index may
+   * be equal to the size of the list, which appends the Object.
+   */
+  public void insertObject(int index, Object value) {
+    List<Pair> pairs = nodes();
+    if (index < 0 || index > pairs.size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + pairs.size());
+    }
+    Object next = index < pairs.size() ? pairs.get(index) : LList.Empty;
+    Pair pair = new Pair(value, next);
+    (index == 0 ? this : pairs.get(index - 1)).setCdr(pair);
+    pairs.add(index, pair);
+  }
+
+  /**
+   * Remove the Object at the given index.
+   */
+  public void removeObject(int index) {
+    List<Pair> pairs = nodes();
+    Pair removed = pairs.get(index);
+    (index == 0 ? this : pairs.get(index - 1)).setCdr(removed.getCdr());
+    pairs.remove(index);
+  }
+
+  /**
+   * Append the elements of another YailList to this one. The elements are
+   * shared, but the pairs holding them are not, so later changes to the
+   * structure of either list do not affect the other.
+   */
+  public void appendList(YailList other) {
+    List<Pair> pairs = nodes();
+    List<Pair> otherPairs = other.nodes();
+    // Take the count first, in case a list is appended to itself.
+    int count = otherPairs.size();
+    Pair last = pairs.isEmpty() ? this : pairs.get(pairs.size() - 1);
+    for (int i = 0; i < count; i++) {
+      Pair pair = new Pair(otherPairs.get(i).getCar(), LList.Empty);
+      last.setCdr(pair);
+      pairs.add(pair);
+      last = pair;
+    }
+  }
+
+  private List<Pair> nodes() {
+    if (!isIndexCurrent()) {
+      ArrayList<Pair> pairs = new ArrayList<Pair>();
+      for (Object rest = cdr; rest instanceof Pair; rest = ((Pair) rest).getCdr()) {
+        pairs.add((Pair) rest);
+      }
+      nodes = pairs;
+    }
+    return nodes;
+  }
+
+  private boolean isIndexCurrent() {
+    if (nodes == null) {
+      return false;
+    } else if (nodes.isEmpty()) {
+      return cdr == LList.Empty;
+    } else {
+      return cdr == nodes.get(0) && nodes.get(nodes.size() - 1).getCdr() == LList.Empty;
+    }
   }
 
   /**
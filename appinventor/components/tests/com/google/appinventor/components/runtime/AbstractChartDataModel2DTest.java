@@ -1,5 +1,5 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2019-2022 MIT, All rights reserved
+// Copyright 2019-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -8,9 +8,11 @@ package com.google.appinventor.components.runtime;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import com.github.mikephil.charting.data.ChartData;
+import com.github.mikephil.charting.data.DataSet;
 import com.github.mikephil.charting.data.Entry;
 
 import com.google.appinventor.components.runtime.util.YailList;
@@ -19,12 +21,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.logging.Logger;
 
 import org.junit.Test;
+import org.robolectric.Robolectric;
 
 public abstract class AbstractChartDataModel2DTest<M extends Chart2DDataModel<?, ?, ?, ?, ?>,
     D extends ChartData<?>>
     extends AbstractChartDataModelBaseTest<M, D> {
+  private static final Logger LOG =
+      Logger.getLogger(AbstractChartDataModel2DTest.class.getName());
+
   /**
    * Tests to ensure that Data Series entries are not changed
    * when passing in invalid input via setEelements.
@@ -1102,6 +1109,84 @@ public abstract class AbstractChartDataModel2DTest<M extends Chart2DDataModel<?,
     assertExpectedEntriesHelper(expectedEntries);
   }
 
+  /**
+   * Test case to ensure that a sensor feeding time entries at 100 Hz
+   * into a 2,000 point window keeps only the latest entries. The rate at
+   * which entries are added is logged.
+   */
+  @Test
+  public void testAddTimeEntryThroughputAtSensorRate() {
+    final int window = 2000;
+    final int samples = 100 * 60 * 5;  // 5 minutes at 100 Hz
+    model.setMaximumTimeEntries(window);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < samples; ++i) {
+      model.addTimeEntry(createTuple((float) i, (float) (i % 100)));
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    LOG.info(String.format("%s: %.0f time entries/s",
+        getClass().getSimpleName(), samples / seconds));
+
+    assertEquals(window, model.getEntries().size());
+    assertEquals((samples - window) % 100, model.getEntries().get(0).getY(), 0.0f);
+    assertEquals((samples - 1) % 100, model.getEntries().get(window - 1).getY(), 0.0f);
+  }
+
+  /**
+   * Test case to ensure that refreshing the Chart View after time entries
+   * were added past the maximum shows the latest entries, both when only
+   * the changes are applied to the entries shown and when more entries
+   * were evicted than were shown, which requires a full copy.
+   */
+  @Test
+  public void testRefreshAfterTimeEntriesPastMaximum() {
+    model.setMaximumTimeEntries(5);
+    for (int i = 0; i < 3; ++i) {
+      model.addTimeEntry(createTuple((float) i, (float) i));
+    }
+    refreshView();
+    List<?> shown = getShownEntries();
+    assertEquals(model.getEntries(), shown);
+
+    // 3 entries shown, 4 added: the 2 oldest are evicted.
+    for (int i = 3; i < 7; ++i) {
+      model.addTimeEntry(createTuple((float) i, (float) i));
+    }
+    assertTrue(model.hasOnlyTimeEntryChanges());
+    assertEquals(2, model.getEvictedEntryCount());
+    assertEquals(4, model.getAddedEntries().size());
+    refreshView();
+
+    // Only the changes were applied, to the list already shown.
+    assertSame(shown, getShownEntries());
+    assertEquals(model.getEntries(), getShownEntries());
+    assertEquals(2f, model.getEntries().get(0).getX(), 0.0f);
+
+    // More entries than the 5 shown are evicted, so the changes no longer
+    // describe the entries and a full copy is shown instead.
+    for (int i = 7; i < 20; ++i) {
+      model.addTimeEntry(createTuple((float) i, (float) i));
+    }
+    assertFalse(model.hasOnlyTimeEntryChanges());
+    refreshView();
+
+    assertEquals(model.getEntries(), getShownEntries());
+    assertEquals(5, getShownEntries().size());
+    assertEquals(15f, model.getEntries().get(0).getX(), 0.0f);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private void refreshView() {
+    ((ChartView) model.view).refresh(model);
+    Robolectric.flushBackgroundThreadScheduler();
+    runAllEvents();
+  }
+
+  private List<?> getShownEntries() {
+    return ((DataSet<?>) model.getDataset()).getValues();
+  }
+
   /**
    * Test to ensure that comparing two entries which
    * have the same x and y values returns true via
@@ -0,0 +1,190 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+import com.google.appinventor.components.runtime.shadows.ShadowEventDispatcher;
+import com.google.appinventor.components.runtime.util.YailList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.util.Scheduler.IdleState;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * Tests the batching of reads in the CloudDB component.
+ */
+public class CloudDBTest extends RobolectricTestBase {
+  private static final String PROJECT = "project";
+
+  private FakeJedis jedis;
+  private CloudDB cloudDB;
+
+  /**
+   * Records the commands CloudDB sends, and serves values from memory.
+   */
+  private static class FakeJedis extends Jedis {
+    final List<String> commands = Collections.synchronizedList(new ArrayList<String>());
+    final Map<String, String> values = Collections.synchronizedMap(new HashMap<String, String>());
+    volatile boolean failMget = false;
+
+    @Override
+    public List<String> mget(String... keys) {
+      commands.add("mget " + Arrays.asList(keys));
+      if (failMget) {
+        throw new JedisConnectionException("Connection lost");
+      }
+      List<String> result = new ArrayList<String>();
+      for (String key : keys) {
+        result.add(values.get(key));
+      }
+      return result;
+    }
+
+    @Override
+    public Object evalsha(String sha1, int keyCount, String... params) {
+      // The store script is called with the tag and the new value
+      commands.add("store " + params[0]);
+      values.put(PROJECT + ":" + params[0], params[1]);
+      return null;
+    }
+
+    @Override
+    public Long del(String key) {
+      commands.add("del " + key);
+      values.remove(key);
+      return 1L;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  @Before
+  public void setUp() {
+    super.setUp();
+    jedis = new FakeJedis();
+    cloudDB = new CloudDB(getForm()) {
+      @Override
+      public synchronized Jedis getJedis() {
+        return jedis;
+      }
+    };
+    cloudDB.ProjectID(PROJECT);
+    cloudDB.Token("token");
+    // Run posted runnables only when asked, like the UI thread does after an event handler
+    shadowOf(Looper.getMainLooper()).getScheduler().setIdleState(IdleState.PAUSED);
+  }
+
+  @After
+  public void tearDown() {
+    cloudDB.onDestroy();
+  }
+
+  @Test
+  public void testGetValuesInSameEventAreBatched() throws Exception {
+    jedis.values.put(PROJECT + ":a", "\"first\"");
+    jedis.values.put(PROJECT + ":c", "\"third\"");
+
+    cloudDB.GetValue("a", "none");
+    cloudDB.GetValue("b", "none");
+    cloudDB.GetValue("c", "none");
+    finishRequests();
+
+    assertEquals(Collections.singletonList("mget [project:a, project:b, project:c]"),
+        jedis.commands);
+    ShadowEventDispatcher.assertEventFired(cloudDB, "GotValue", "a", "first");
+    ShadowEventDispatcher.assertEventFired(cloudDB, "GotValue", "b", "none");
+    ShadowEventDispatcher.assertEventFired(cloudDB, "GotValue", "c", "third");
+  }
+
+  @Test
+  public void testGetValueBeforeStoreValueSeesOldValue() throws Exception {
+    jedis.values.put(PROJECT + ":a", "\"old\"");
+
+    cloudDB.GetValue("a", "none");
+    cloudDB.StoreValue("a", "new");
+    finishRequests();
+
+    assertEquals(Arrays.asList("mget [project:a]", "store a"), jedis.commands);
+    ShadowEventDispatcher.assertEventFired(cloudDB, "GotValue", "a", "old");
+  }
+
+  @Test
+  public void testGetValueBeforeClearTagSeesOldValue() throws Exception {
+    jedis.values.put(PROJECT + ":a", "\"old\"");
+
+    cloudDB.GetValue("a", "none");
+    cloudDB.ClearTag("a");
+    cloudDB.GetValue("a", "none");
+    finishRequests();
+
+    assertEquals(Arrays.asList("mget [project:a]", "del project:a", "mget [project:a]"),
+        jedis.commands);
+    ShadowEventDispatcher.assertEventFired(cloudDB, "GotValue", "a", "old");
+    ShadowEventDispatcher.assertEventFired(cloudDB, "GotValue", "a", "none");
+  }
+
+  @Test
+  public void testGetValuesUsesDefaultForMissingTags() throws Exception {
+    jedis.values.put(PROJECT + ":a", "\"first\"");
+
+    cloudDB.GetValues(YailList.makeList(Arrays.asList("a", "b")), "none");
+    finishRequests();
+
+    assertEquals(Collections.singletonList("mget [project:a, project:b]"), jedis.commands);
+    ShadowEventDispatcher.assertEventFired(cloudDB, "GotValues",
+        Arrays.asList("a", "b"), Arrays.<Object>asList("first", "none"));
+  }
+
+  @Test
+  public void testFailedMgetReportsError() throws Exception {
+    jedis.failMget = true;
+
+    cloudDB.GetValue("a", "none");
+    cloudDB.GetValue("b", "none");
+    finishRequests();
+
+    ShadowEventDispatcher.assertEventFired(cloudDB, "CloudDBError", "Connection lost");
+    ShadowEventDispatcher.assertEventNotFired(cloudDB, "GotValue");
+  }
+
+  @Test
+  public void testFailedMgetForGetValuesReportsError() throws Exception {
+    jedis.failMget = true;
+
+    cloudDB.GetValues(YailList.makeList(Arrays.asList("a", "b")), "none");
+    finishRequests();
+
+    ShadowEventDispatcher.assertEventFired(cloudDB, "CloudDBError", "Connection lost");
+    ShadowEventDispatcher.assertEventNotFired(cloudDB, "GotValues");
+  }
+
+  /**
+   * Returns from the event handler, waits for the background thread to finish the requests,
+   * then runs the events it posted.
+   */
+  private void finishRequests() throws Exception {
+    runAllEvents();
+    cloudDB.getBackground().submit(new Runnable() {
+      @Override
+      public void run() {
+      }
+    }).get();
+    runAllEvents();
+  }
+}
@@ -0,0 +1,145 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the routing of events by the EventDispatcher class.
+ */
+public class EventDispatcherTest {
+
+  /**
+   * A dispatch delegate that binds component names to components the way the
+   * form environment does, and counts how many closures it is offered.
+   */
+  private static class FakeForm implements HandlesEventDispatching {
+    final Map<String, Component> names = new HashMap<String, Component>();
+    int offered = 0;
+    int handled = 0;
+    int generic = 0;
+
+    @Override
+    public boolean canDispatchEvent(Component component, String eventName) {
+      return true;
+    }
+
+    @Override
+    public boolean dispatchEvent(Component component, String componentName, String eventName,
+        Object[] args) {
+      offered++;
+      if (names.get(componentName) == component) {
+        handled++;
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public void dispatchErrorOccurredEvent(Component component, String functionName,
+        int errorCode, Object... args) {
+    }
+
+    @Override
+    public void dispatchGenericEvent(Component component, String eventName,
+        boolean notAlreadyHandled, Object[] args) {
+      generic++;
+    }
+  }
+
+  private static class FakeComponent implements Component {
+    private final HandlesEventDispatching form;
+
+    FakeComponent(HandlesEventDispatching form) {
+      this.form = form;
+    }
+
+    @Override
+    public HandlesEventDispatching getDispatchDelegate() {
+      return form;
+    }
+  }
+
+  private final FakeForm form = new FakeForm();
+
+  @After
+  public void tearDown() {
+    EventDispatcher.removeDispatchDelegate(form);
+  }
+
+  @Test
+  public void testRepeatedEventsGoStraightToTheirHandler() {
+    Component[] buttons = createButtons(60);
+
+    assertTrue(EventDispatcher.dispatchEvent(buttons[30], "Click"));
+    form.offered = 0;
+    for (int i = 0; i < 10; i++) {
+      assertTrue(EventDispatcher.dispatchEvent(buttons[30], "Click"));
+    }
+
+    assertEquals(10, form.offered);
+    assertEquals(11, form.handled);
+    assertEquals(11, form.generic);
+  }
+
+  @Test
+  public void testRenamedComponentIsRoutedToItsNewHandler() {
+    Component[] buttons = createButtons(2);
+    assertTrue(EventDispatcher.dispatchEvent(buttons[0], "Click"));
+
+    // The REPL renames Button0 to OkButton and sends the handler under the new name.
+    form.names.remove("Button0");
+    form.names.put("OkButton", buttons[0]);
+    EventDispatcher.registerEventForDelegation(form, "OkButton", "Click");
+    EventDispatcher.unregisterComponentRoutes(form, null);
+    form.handled = 0;
+
+    assertTrue(EventDispatcher.dispatchEvent(buttons[0], "Click"));
+    assertEquals(1, form.handled);
+  }
+
+  @Test
+  public void testStaleRouteFallsBackToEveryClosure() {
+    Component[] buttons = createButtons(2);
+    assertTrue(EventDispatcher.dispatchEvent(buttons[0], "Click"));
+
+    // Rebinding names behind the dispatcher's back still finds the right handler.
+    form.names.put("Button0", buttons[1]);
+    form.names.put("Button1", buttons[0]);
+
+    assertTrue(EventDispatcher.dispatchEvent(buttons[0], "Click"));
+    assertTrue(EventDispatcher.dispatchEvent(buttons[1], "Click"));
+  }
+
+  @Test
+  public void testUnregisteredEventIsNotDispatched() {
+    Component[] buttons = createButtons(2);
+    assertTrue(EventDispatcher.dispatchEvent(buttons[0], "Click"));
+
+    EventDispatcher.unregisterEventForDelegation(form, "Button0", "Click");
+    form.names.remove("Button0");
+
+    assertFalse(EventDispatcher.dispatchEvent(buttons[0], "Click"));
+    assertTrue(EventDispatcher.dispatchEvent(buttons[1], "Click"));
+  }
+
+  private Component[] createButtons(int count) {
+    Component[] buttons = new Component[count];
+    for (int i = 0; i < count; i++) {
+      buttons[i] = new FakeComponent(form);
+      form.names.put("Button" + i, buttons[i]);
+      EventDispatcher.registerEventForDelegation(form, "Button" + i, "Click");
+    }
+    return buttons;
+  }
+}
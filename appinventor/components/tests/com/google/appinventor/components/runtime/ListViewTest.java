@@ -1,5 +1,5 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright 2021 MIT, All rights reserved
+// Copyright 2021-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -7,6 +7,7 @@ package com.google.appinventor.components.runtime;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import android.view.View;
@@ -17,8 +18,13 @@ import android.widget.LinearLayout;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.appinventor.components.runtime.shadows.ShadowEventDispatcher;
+import com.google.appinventor.components.runtime.util.ElementsUtil;
 import com.google.appinventor.components.runtime.util.YailList;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 
 public class ListViewTest extends RobolectricTestBase {
@@ -116,6 +122,33 @@ public class ListViewTest extends RobolectricTestBase {
     assertEquals(0, listView1.SelectionIndex());
   }
 
+  /**
+   * Test that a query extending the previous one narrows the previous result, and that the
+   * result is computed again when the items change.
+   */
+  @Test
+  public void testFilterNarrowsPreviousResult() {
+    List<Object> items =
+        new ArrayList<Object>(ElementsUtil.elementsListFromString("Apple,Banana,Cantaloupe,Date"));
+    ListAdapterWithRecyclerView.SearchIndex index =
+        new ListAdapterWithRecyclerView.SearchIndex(items);
+    ListAdapterWithRecyclerView.FilterResult all =
+        new ListAdapterWithRecyclerView.FilterResult(index, "", null);
+
+    ListAdapterWithRecyclerView.FilterResult an = all.filter(index, "an");
+    assertEquals("[1, 2]", Arrays.toString(an.positions));
+    ListAdapterWithRecyclerView.FilterResult ana = an.filter(index, "ana");
+    assertEquals("[1]", Arrays.toString(ana.positions));
+    assertEquals(4, ana.filter(index, "").size());
+
+    items.add("Mango");
+    ListAdapterWithRecyclerView.SearchIndex newIndex =
+        new ListAdapterWithRecyclerView.SearchIndex(items);
+    ListAdapterWithRecyclerView.FilterResult refiltered = ana.filter(newIndex, "an");
+    assertSame(newIndex, refiltered.index);
+    assertEquals("[1, 2, 4]", Arrays.toString(refiltered.positions));
+  }
+
   private View getViewForPosition(ListView listView, int position) {
     LinearLayout listLayout = (LinearLayout) ((LinearLayout) listView.getView()).getChildAt(1);
     RecyclerView rv = (RecyclerView) listLayout.getChildAt(0);
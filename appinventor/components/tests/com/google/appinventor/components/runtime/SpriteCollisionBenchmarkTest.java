@@ -0,0 +1,112 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+import org.junit.Test;
+
+/**
+ * Measures the cost of collision detection for a frame in which every sprite
+ * on a canvas moves, for a growing number of sprites, and checks that the
+ * collisions found match those of an exhaustive check.
+ *
+ */
+public class SpriteCollisionBenchmarkTest extends RobolectricTestBase {
+  private static final Logger LOG =
+      Logger.getLogger(SpriteCollisionBenchmarkTest.class.getName());
+  private static final int[] SPRITE_COUNTS = {25, 50, 100, 150, 300};
+  private static final int FRAMES = 20;
+  private static final int AREA = 800;
+  private static final int RADIUS = 8;
+
+  @Test
+  public void testFrameCostAgainstSpriteCount() {
+    StringBuilder report = new StringBuilder("Sprites  ms/frame\n");
+    int collisions = 0;
+    for (int count : SPRITE_COUNTS) {
+      List<Ball> balls = createBalls(count);
+      Random random = new Random(count);
+
+      long start = System.nanoTime();
+      for (int frame = 0; frame < FRAMES; frame++) {
+        for (Ball ball : balls) {
+          double x = (ball.X() + random.nextInt(11) - 5 + AREA) % AREA;
+          double y = (ball.Y() + random.nextInt(11) - 5 + AREA) % AREA;
+          ball.MoveTo(x, y);
+        }
+      }
+      double msPerFrame = (System.nanoTime() - start) / 1e6 / FRAMES;
+      report.append(String.format("%7d  %8.3f\n", count, msPerFrame));
+
+      collisions += assertCollisionsMatchExhaustiveCheck(balls);
+    }
+    // Frame times depend on the machine, so they are reported, not checked.
+    LOG.info(report.toString());
+    // The sprites are dense enough that the check is not vacuous.
+    assertTrue(collisions > 0);
+  }
+
+  @Test
+  public void testCollisionEndsWhenSpritesMoveApart() {
+    List<Ball> balls = createBalls(2);
+    Ball ball1 = balls.get(0);
+    Ball ball2 = balls.get(1);
+
+    ball1.MoveTo(100, 100);
+    ball2.MoveTo(110, 100);
+    assertTrue(ball1.CollidingWith(ball2));
+    assertTrue(ball2.CollidingWith(ball1));
+
+    // Far enough that the sprites no longer share a cell of the grid.
+    ball2.MoveTo(700, 700);
+    assertFalse(ball1.CollidingWith(ball2));
+    assertFalse(ball2.CollidingWith(ball1));
+  }
+
+  private List<Ball> createBalls(int count) {
+    Canvas canvas = new Canvas(getForm());
+    Random random = new Random(42);
+    List<Ball> balls = new ArrayList<Ball>();
+    for (int i = 0; i < count; i++) {
+      Ball ball = new Ball(canvas);
+      ball.Radius(RADIUS);
+      ball.MoveTo(random.nextInt(AREA), random.nextInt(AREA));
+      balls.add(ball);
+    }
+    for (Ball ball : balls) {
+      ball.Initialize();
+    }
+    return balls;
+  }
+
+  /**
+   * Checks the collisions of every pair of sprites.
+   *
+   * @return the number of colliding pairs, counted in both orders
+   */
+  private static int assertCollisionsMatchExhaustiveCheck(List<Ball> balls) {
+    int collisions = 0;
+    for (Ball ball : balls) {
+      for (Ball other : balls) {
+        if (ball != other) {
+          boolean colliding = Sprite.colliding(ball, other);
+          assertEquals(colliding, ball.CollidingWith(other));
+          if (colliding) {
+            collisions++;
+          }
+        }
+      }
+    }
+    return collisions;
+  }
+}
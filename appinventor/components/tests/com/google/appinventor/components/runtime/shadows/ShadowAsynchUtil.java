@@ -1,5 +1,5 @@
 // -*- mode: java; c-basic-offset: 2; -*-
-// Copyright © 2017-2021 Massachusetts Institute of Technology, All rights reserved.
+// Copyright © 2017-2026 Massachusetts Institute of Technology, All rights reserved.
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
@@ -8,6 +8,7 @@ package com.google.appinventor.components.runtime.shadows;
 import android.os.Handler;
 
 import com.google.appinventor.components.runtime.util.AsynchUtil;
+import com.google.appinventor.components.runtime.util.BackgroundExecutor;
 import com.google.appinventor.components.runtime.util.Continuation;
 import com.google.appinventor.components.runtime.util.Synchronizer;
 
@@ -49,6 +50,12 @@ public class ShadowAsynchUtil {
     runnables.add(call);
   }
 
+  @Implementation
+  public static void runAsynchronously(BackgroundExecutor.Priority priority,
+                                       final Runnable call) {
+    runnables.add(call);
+  }
+
   @Implementation
   public static void runAsynchronously(final Handler androidUIHandler,
                                        final Runnable call,
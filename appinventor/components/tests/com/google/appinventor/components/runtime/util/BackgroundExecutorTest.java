@@ -0,0 +1,150 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * Tests the BackgroundExecutor class.
+ */
+public class BackgroundExecutorTest {
+
+  @Test
+  public void testLimitsConcurrency() throws InterruptedException {
+    BackgroundExecutor executor = new BackgroundExecutor(3, 2, 60000);
+    final AtomicInteger running = new AtomicInteger(0);
+    final AtomicInteger peak = new AtomicInteger(0);
+    final CountDownLatch done = new CountDownLatch(20);
+    for (int i = 0; i < 20; i++) {
+      executor.execute(BackgroundExecutor.Priority.DEFAULT, "key" + (i % 2), new Runnable() {
+        @Override
+        public void run() {
+          int now = running.incrementAndGet();
+          synchronized (peak) {
+            peak.set(Math.max(peak.get(), now));
+          }
+          sleep(10);
+          running.decrementAndGet();
+          done.countDown();
+        }
+      });
+    }
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertTrue(peak.get() <= 3);
+    assertTrue(executor.getThreadCount() <= 3);
+    assertTrue(executor.getPeakQueueDepth() >= 17);
+    assertEquals(0, executor.getQueueDepth());
+  }
+
+  @Test
+  public void testLimitsConcurrencyPerKey() throws InterruptedException {
+    BackgroundExecutor executor = new BackgroundExecutor(10, 1, 60000);
+    final AtomicInteger running = new AtomicInteger(0);
+    final AtomicInteger peak = new AtomicInteger(0);
+    final CountDownLatch done = new CountDownLatch(5);
+    for (int i = 0; i < 5; i++) {
+      executor.execute(BackgroundExecutor.Priority.DEFAULT, "web", new Runnable() {
+        @Override
+        public void run() {
+          peak.set(Math.max(peak.get(), running.incrementAndGet()));
+          sleep(10);
+          running.decrementAndGet();
+          done.countDown();
+        }
+      });
+    }
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(1, peak.get());
+  }
+
+  @Test
+  public void testRunsUrgentTasksFirst() throws InterruptedException {
+    BackgroundExecutor executor = new BackgroundExecutor(1, 1, 60000);
+    final CountDownLatch blocker = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(4);
+    final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+    executor.execute(BackgroundExecutor.Priority.DEFAULT, "a", new Runnable() {
+      @Override
+      public void run() {
+        await(blocker);
+        done.countDown();
+      }
+    });
+    BackgroundExecutor.Priority[] priorities = {BackgroundExecutor.Priority.BACKGROUND,
+        BackgroundExecutor.Priority.DEFAULT, BackgroundExecutor.Priority.UI};
+    for (final BackgroundExecutor.Priority priority : priorities) {
+      executor.execute(priority, "a", new Runnable() {
+        @Override
+        public void run() {
+          order.add(priority.name());
+          done.countDown();
+        }
+      });
+    }
+    assertEquals(1, executor.getQueueDepth(BackgroundExecutor.Priority.UI));
+    blocker.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(Arrays.asList("UI", "DEFAULT", "BACKGROUND"), order);
+  }
+
+  @Test
+  public void testLongRunningTasksDoNotDeadlock() throws InterruptedException {
+    final BackgroundExecutor executor = new BackgroundExecutor(1, 1, 50);
+    final CountDownLatch inner = new CountDownLatch(1);
+    final CountDownLatch outer = new CountDownLatch(1);
+    executor.execute(BackgroundExecutor.Priority.DEFAULT, "a", new Runnable() {
+      @Override
+      public void run() {
+        // Waits for a task that cannot start while this one counts against the limits.
+        executor.execute(BackgroundExecutor.Priority.DEFAULT, "a", new Runnable() {
+          @Override
+          public void run() {
+            inner.countDown();
+          }
+        });
+        await(inner);
+        outer.countDown();
+      }
+    });
+    assertTrue(outer.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testKeyOf() {
+    Runnable anonymous = new Runnable() {
+      @Override
+      public void run() {
+      }
+    };
+    assertEquals(BackgroundExecutorTest.class.getName(), BackgroundExecutor.keyOf(anonymous));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
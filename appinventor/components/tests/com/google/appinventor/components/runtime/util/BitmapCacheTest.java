@@ -0,0 +1,78 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import com.google.appinventor.components.runtime.RobolectricTestBase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the BitmapCache class.
+ */
+public class BitmapCacheTest extends RobolectricTestBase {
+  // A 10x10 ARGB_8888 bitmap takes 400 bytes.
+  private static final long BITMAP_BYTES = 400;
+
+  @Before
+  public void setUpCache() {
+    BitmapCache.setMaxBytes(4 * BITMAP_BYTES);
+  }
+
+  @After
+  public void tearDownCache() {
+    BitmapCache.clear();
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    Bitmap first = newBitmap();
+    BitmapCache.put("a", first);
+    BitmapCache.put("b", newBitmap());
+    BitmapCache.put("c", newBitmap());
+    BitmapCache.put("d", newBitmap());
+    assertSame(first, BitmapCache.get("a"));
+
+    BitmapCache.put("e", newBitmap());
+
+    assertNull(BitmapCache.get("b"));
+    assertNotNull(BitmapCache.get("a"));
+    assertNotNull(BitmapCache.get("e"));
+    assertEquals(4 * BITMAP_BYTES, BitmapCache.getTotalBytes());
+  }
+
+  @Test
+  public void testSkipsLargeImages() {
+    BitmapCache.put("large", Bitmap.createBitmap(20, 20, Bitmap.Config.ARGB_8888));
+    assertNull(BitmapCache.get("large"));
+    assertEquals(0, BitmapCache.getTotalBytes());
+  }
+
+  @Test
+  public void testTrimMemory() {
+    BitmapCache.put("a", newBitmap());
+    BitmapCache.put("b", newBitmap());
+    BitmapCache.put("c", newBitmap());
+
+    BitmapCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+    assertEquals(2 * BITMAP_BYTES, BitmapCache.getTotalBytes());
+    assertNull(BitmapCache.get("a"));
+
+    BitmapCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    assertEquals(0, BitmapCache.getTotalBytes());
+  }
+
+  private static Bitmap newBitmap() {
+    return Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+  }
+}
@@ -0,0 +1,116 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.google.appinventor.components.common.Direction;
+import com.google.appinventor.components.runtime.Ball;
+import com.google.appinventor.components.runtime.Canvas;
+import com.google.appinventor.components.runtime.OptionHelper;
+import com.google.appinventor.components.runtime.RobolectricTestBase;
+import gnu.kawa.reflect.Invoke;
+import gnu.lists.LList;
+import gnu.math.DFloNum;
+import gnu.math.IntNum;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.logging.Logger;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ComponentMethodInvoker} class, and compares the number of
+ * component calls per second it makes with those made through Kawa's invoke,
+ * as in a Clock-driven loop that moves a sprite.
+ */
+public class ComponentMethodInvokerTest extends RobolectricTestBase {
+  private static final Logger LOG = Logger.getLogger(ComponentMethodInvokerTest.class.getName());
+  private static final int CALLS = 20000;
+
+  private Ball ball;
+
+  @Before
+  public void setUp() {
+    super.setUp();
+    ball = new Ball(new Canvas(getForm()));
+  }
+
+  @Test
+  public void testInvokesMethodsAndProperties() throws Throwable {
+    ComponentMethodInvoker.invoke(ball, "MoveTo", args(IntNum.make(12), DFloNum.make(34.5)));
+    assertEquals(12.0, ball.X(), 0.0);
+    assertEquals(34.5, ball.Y(), 0.0);
+
+    ComponentMethodInvoker.invoke(ball, "Heading", args(IntNum.make(90)));
+    assertEquals(90.0, (Double) ComponentMethodInvoker.invoke(ball, "Heading", LList.Empty), 0.0);
+  }
+
+  @Test
+  public void testLeavesUnresolvedCallsToKawa() throws Throwable {
+    // No MoveTo method takes a single argument.
+    assertSame(ComponentMethodInvoker.UNRESOLVED,
+        ComponentMethodInvoker.invoke(ball, "MoveTo", args(IntNum.make(1))));
+    // Text is not a number.
+    assertSame(ComponentMethodInvoker.UNRESOLVED,
+        ComponentMethodInvoker.invoke(ball, "MoveTo", args("a", IntNum.make(1))));
+  }
+
+  @Test
+  public void testConvertsEventArgumentsToOptionLists() {
+    Object[] args = OptionHelper.optionListsFromValues(ball, "EdgeReached", 1);
+    assertSame(Direction.North, args[0]);
+    args = OptionHelper.optionListsFromValues(ball, "EdgeReached", 42);
+    assertEquals(42, args[0]);
+  }
+
+  @Test
+  public void testResolvesEachMethodOnce() {
+    // Class.getMethods() returns new Method objects on every call, so getting
+    // the same one back means the lookup was cached.
+    Method moveTo = ComponentMethodInvoker.resolve(Ball.class, "MoveTo", 2);
+    assertNotNull(moveTo);
+    assertSame(moveTo, ComponentMethodInvoker.resolve(Ball.class, "MoveTo", 2));
+    assertNull(ComponentMethodInvoker.resolve(Ball.class, "MoveTo", 1));
+  }
+
+  @Test
+  public void testCallsPerSecond() throws Throwable {
+    LList moveArgs = args(IntNum.make(10), IntNum.make(20));
+    Object[] kawaArgs = {ball, "MoveTo", moveArgs.get(0), moveArgs.get(1)};
+
+    // Warm up both paths before timing them.
+    for (int i = 0; i < CALLS / 10; i++) {
+      Invoke.invoke.applyN(kawaArgs);
+      ComponentMethodInvoker.invoke(ball, "MoveTo", moveArgs);
+    }
+
+    long start = System.nanoTime();
+    for (int i = 0; i < CALLS; i++) {
+      Invoke.invoke.applyN(kawaArgs);
+    }
+    double kawaRate = CALLS / ((System.nanoTime() - start) / 1e9);
+
+    start = System.nanoTime();
+    for (int i = 0; i < CALLS; i++) {
+      ComponentMethodInvoker.invoke(ball, "MoveTo", moveArgs);
+    }
+    double cachedRate = CALLS / ((System.nanoTime() - start) / 1e9);
+
+    // Wall-clock rates vary too much between machines to assert on.
+    LOG.info(String.format("Kawa invoke: %.0f calls/s, cached: %.0f calls/s",
+        kawaRate, cachedRate));
+    assertEquals(10.0, ball.X(), 0.0);
+    assertEquals(20.0, ball.Y(), 0.0);
+  }
+
+  private static LList args(Object... values) {
+    return LList.makeList(Arrays.asList(values));
+  }
+}
@@ -0,0 +1,73 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests the RingBufferList class.
+ */
+public class RingBufferListTest {
+
+  @Test
+  public void testBehavesLikeArrayList() {
+    List<Integer> expected = new ArrayList<Integer>();
+    List<Integer> list = new RingBufferList<Integer>();
+    for (int i = 0; i < 100; i++) {
+      expected.add(i);
+      list.add(i);
+      if (i % 3 == 0) {
+        expected.remove(0);
+        list.remove(0);
+      }
+    }
+    expected.add(5, -1);
+    list.add(5, -1);
+    expected.add(0, -2);
+    list.add(0, -2);
+    expected.remove(10);
+    list.remove(10);
+    expected.set(3, -3);
+    list.set(3, -3);
+    assertEquals(expected, list);
+  }
+
+  @Test
+  public void testTracksFrontAndBackChanges() {
+    RingBufferList<Integer> list = new RingBufferList<Integer>(Arrays.asList(1, 2, 3));
+    assertFalse(list.hasOnlyFrontAndBackChanges());
+
+    list.mark();
+    list.remove(0);
+    list.add(4);
+    list.add(5);
+    assertTrue(list.hasOnlyFrontAndBackChanges());
+    assertEquals(1, list.getRemovedFromFront());
+    assertEquals(Arrays.asList(4, 5), list.getAddedToBack());
+
+    list.mark();
+    list.add(6);
+    list.remove(1);
+    assertFalse(list.hasOnlyFrontAndBackChanges());
+  }
+
+  @Test
+  public void testEvictingAddedElementsIsNotAFrontChange() {
+    RingBufferList<Integer> list = new RingBufferList<Integer>(Arrays.asList(1));
+    list.mark();
+    list.add(2);
+    list.remove(0);
+    list.remove(0);
+    assertFalse(list.hasOnlyFrontAndBackChanges());
+  }
+}
@@ -1,12 +1,14 @@
 // -*- mode: java; c-basic-offset: 2; -*-
 // Copyright 2009-2011 Google, All Rights reserved
-// Copyright 2011-2019 MIT, All rights reserved
+// Copyright 2011-2026 MIT, All rights reserved
 // Released under the Apache License, Version 2.0
 // http://www.apache.org/licenses/LICENSE-2.0
 
 package com.google.appinventor.components.runtime.util;
 
 import gnu.lists.FString;
+import gnu.lists.LList;
+import gnu.lists.Pair;
 import gnu.math.IntNum;
 
 import org.junit.Test;
@@ -235,4 +237,54 @@ public class YailListTest {
     assertEquals(Long.toString(Long.MAX_VALUE), strings[0]);
     assertEquals(Long.toString(Long.MAX_VALUE), strings[1]);
   }
+
+  @Test
+  public void testInsertAndRemove() {
+    YailList list = YailList.makeList(new Object[] { "a", "b", "c" });
+    list.insertObject(0, "first");
+    list.insertObject(4, "last");
+    list.insertObject(2, "middle");
+    assertEquals("(first a middle b c last)", list.toString());
+    assertEquals(6, list.size());
+    list.removeObject(0);
+    list.removeObject(list.size() - 1);
+    list.removeObject(1);
+    assertEquals("(a b c)", list.toString());
+    assertEquals(3, list.size());
+    assertEquals("c", list.getObject(2));
+  }
+
+  @Test
+  public void testSetObject() {
+    YailList list = YailList.makeList(new Object[] { "a", "b", "c" });
+    list.setObject(1, "x");
+    assertEquals("(a x c)", list.toString());
+    assertEquals("x", list.getString(1));
+  }
+
+  @Test
+  public void testAppendList() {
+    YailList list = new YailList();
+    YailList other = YailList.makeList(new Object[] { "a", "b" });
+    list.appendList(other);
+    list.appendList(list);
+    assertEquals("(a b a b)", list.toString());
+    assertEquals(4, list.size());
+    // The appended elements do not share structure with the source list.
+    list.removeObject(0);
+    assertEquals("(a b)", other.toString());
+  }
+
+  @Test
+  public void testIndexFollowsChangesToContents() {
+    YailList list = YailList.makeList(new Object[] { "a", "b" });
+    assertEquals(2, list.size());
+    // Scheme code may replace the contents or extend the list without going through YailList.
+    list.setCdr(new Pair("c", LList.Empty));
+    assertEquals(1, list.size());
+    assertEquals("c", list.getObject(0));
+    ((Pair) list.getCdr()).setCdr(new Pair("d", LList.Empty));
+    assertEquals(2, list.size());
+    assertEquals("d", list.getObject(1));
+  }
 }